@@ -1,9 +1,13 @@
 package com.tana.migration;
 
 import com.tana.migration.exception.DataAnomalyException;
+import com.tana.migration.model.CompactJob;
 import com.tana.migration.model.CompetitorJob;
+import com.tana.migration.model.JobStringPool;
 import com.tana.migration.model.RmjJob;
+import com.tana.migration.output.RmjJobSink;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -24,6 +28,25 @@ public interface CdmMapper {
      */
     List<RmjJob> mapToRmj(List<CompetitorJob> competitorJobs) throws DataAnomalyException;
     
+    /**
+     * Maps a list of competitor jobs to RMJ format, passing each mapped job to a sink
+     * (e.g., a {@link com.tana.migration.output.StreamingRmjWriter}) instead of returning a list.
+     * The default implementation maps to a list first; implementations should override it to stream.
+     * 
+     * @param competitorJobs List of jobs from competitor system
+     * @param sink Receiver of the mapped jobs, in the order of competitorJobs
+     * @return Number of jobs mapped
+     * @throws DataAnomalyException if mapping cannot be completed due to data anomalies
+     * @throws IOException if the sink fails
+     */
+    default int mapToRmj(List<CompetitorJob> competitorJobs, RmjJobSink sink) throws DataAnomalyException, IOException {
+        List<RmjJob> rmjJobs = mapToRmj(competitorJobs);
+        for (RmjJob rmjJob : rmjJobs) {
+            sink.write(rmjJob);
+        }
+        return rmjJobs.size();
+    }
+    
     /**
      * Detects and reports circular dependencies in the job dependency graph.
      * 
@@ -44,5 +67,43 @@ public interface CdmMapper {
     List<CompetitorJob> reconcileData(List<CompetitorJob> jobsFromSource1, 
                                       List<CompetitorJob> jobsFromSource2) 
             throws DataAnomalyException;
+    
+    /**
+     * Maps compact jobs to RMJ format.
+     * Same semantics as {@link #mapToRmj(List)} without expanding the jobs into CompetitorJob objects.
+     * 
+     * @param compactJobs List of compact jobs
+     * @param pool Pool the string references of the jobs belong to
+     * @return List of jobs in RMJ format
+     * @throws DataAnomalyException if mapping cannot be completed due to data anomalies
+     */
+    List<RmjJob> mapCompactToRmj(List<CompactJob> compactJobs, JobStringPool pool) throws DataAnomalyException;
+    
+    /**
+     * Maps compact jobs to RMJ format, passing each mapped job to a sink instead of returning a list.
+     * The default implementation maps to a list first; implementations should override it to stream.
+     * 
+     * @param compactJobs List of compact jobs
+     * @param pool Pool the string references of the jobs belong to
+     * @param sink Receiver of the mapped jobs, in the order of compactJobs
+     * @return Number of jobs mapped
+     * @throws DataAnomalyException if mapping cannot be completed due to data anomalies
+     * @throws IOException if the sink fails
+     */
+    default int mapCompactToRmj(List<CompactJob> compactJobs, JobStringPool pool, RmjJobSink sink)
+            throws DataAnomalyException, IOException {
+        List<RmjJob> rmjJobs = mapCompactToRmj(compactJobs, pool);
+        for (RmjJob rmjJob : rmjJobs) {
+            sink.write(rmjJob);
+        }
+        return rmjJobs.size();
+    }
+    
+    /**
+     * Detects and reports circular dependencies among compact jobs.
+     * 
+     * @param compactJobs List of compact jobs to analyze
+     * @return List of cycle paths (each path is a list of job IDs forming a cycle)
+     */
+    List<List<Integer>> detectCompactCircularDependencies(List<CompactJob> compactJobs);
 }
-
@@ -1,8 +1,14 @@
 package com.tana.migration;
 
 import com.tana.migration.exception.DataAnomalyException;
+import com.tana.migration.exception.InvalidJobDataException;
+import com.tana.migration.model.CompactJob;
 import com.tana.migration.model.CompetitorJob;
+import com.tana.migration.model.JobDependency;
+import com.tana.migration.model.JobStringPool;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -30,5 +36,78 @@ public interface CompetitorParser {
      * @throws DataAnomalyException if validation fails
      */
     void validate(List<CompetitorJob> jobs) throws DataAnomalyException;
+    
+    /**
+     * Validates the parsed data without throwing.
+     * Same checks as {@link #validate(List)}; the default implementation delegates to it.
+     * 
+     * @param jobs List of jobs to validate
+     * @return Result describing any validation errors
+     */
+    default ValidationResult check(List<CompetitorJob> jobs) {
+        try {
+            validate(jobs);
+            return ValidationResult.valid();
+        } catch (DataAnomalyException e) {
+            return ValidationResult.rejected("Validation failed", e.getMessage());
+        }
+    }
+    
+    /**
+     * Parses and validates a file in one step.
+     * Parsers override this to run the {@link #validate(List)} checks while the file is being read,
+     * avoiding a second pass over the parsed jobs. The default implementation parses, then checks.
+     * 
+     * @param filePath Path to the competitor data file
+     * @return List of parsed and validated CompetitorJob objects
+     * @throws DataAnomalyException if the file cannot be parsed or the jobs fail validation
+     */
+    default List<CompetitorJob> parseAndValidate(String filePath) throws DataAnomalyException {
+        List<CompetitorJob> jobs = parse(filePath);
+        check(jobs).throwIfInvalid();
+        return jobs;
+    }
+    
+    /**
+     * Parses and validates a file whose content has already been read into memory.
+     * Parsers override this to read from the buffer instead of opening the file again;
+     * the default implementation ignores the content and calls {@link #parseAndValidate(String)}.
+     * 
+     * @param filePath Path the content was read from, used for error messages and job source files
+     * @param content Whole file content, possibly compressed; its position is not changed
+     * @return List of parsed and validated CompetitorJob objects
+     * @throws DataAnomalyException if the content cannot be parsed or the jobs fail validation
+     */
+    default List<CompetitorJob> parseAndValidate(String filePath, ByteBuffer content) throws DataAnomalyException {
+        return parseAndValidate(filePath);
+    }
+    
+    /**
+     * Parses a competitor data file into the compact job representation.
+     * The default implementation converts the result of {@link #parse(String)};
+     * parsers override it to produce CompactJob instances directly.
+     * 
+     * @param filePath Path to the competitor data file
+     * @param pool Shared pool receiving job names, notes and statuses
+     * @return List of parsed CompactJob objects
+     * @throws DataAnomalyException if a job has no id or a dependency has a null job id
+     */
+    default List<CompactJob> parseCompact(String filePath, JobStringPool pool) throws DataAnomalyException {
+        List<CompetitorJob> jobs = parse(filePath);
+        List<CompactJob> compactJobs = new ArrayList<>(jobs.size());
+        for (CompetitorJob job : jobs) {
+            if (job.getJobId() == null) {
+                throw new InvalidJobDataException("Job missing required field: job_id", null, "Missing job_id");
+            }
+            for (JobDependency dep : job.getDependencies()) {
+                if (dep.getDependentJobId() == null) {
+                    throw new InvalidJobDataException("Job " + job.getJobId() + " has dependency with null job_id",
+                        job.getJobId(), "Null dependency job_id");
+                }
+            }
+            compactJobs.add(CompactJob.from(job, pool));
+        }
+        return compactJobs;
+    }
 }
 
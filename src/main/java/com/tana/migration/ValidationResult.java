@@ -0,0 +1,122 @@
+package com.tana.migration;
+
+import com.tana.migration.exception.InvalidJobDataException;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of validating parsed jobs without throwing.
+ * Returned by {@link CompetitorParser#check(List)}; failure-heavy batches can inspect the
+ * result directly and only pay for an exception (and for joining the error texts) when one is needed.
+ */
+public final class ValidationResult {
+    private static final ValidationResult VALID = new ValidationResult(null, Collections.emptyList(), false);
+
+    private final String headline;
+    private final List<String> errors;
+    private final boolean appendErrors;
+    private String errorSummary;
+
+    private ValidationResult(String headline, List<String> errors, boolean appendErrors) {
+        this.headline = headline;
+        this.errors = errors;
+        this.appendErrors = appendErrors;
+    }
+
+    /**
+     * @return Result for a job list that passed validation
+     */
+    public static ValidationResult valid() {
+        return VALID;
+    }
+
+    /**
+     * @param errors Validation errors found (may be empty)
+     * @return Valid result if errors is empty, otherwise an invalid one
+     */
+    public static ValidationResult of(List<String> errors) {
+        if (errors == null || errors.isEmpty()) {
+            return VALID;
+        }
+        return new ValidationResult("Validation failed", Collections.unmodifiableList(errors), true);
+    }
+
+    /**
+     * @return Result for a null or empty job list
+     */
+    public static ValidationResult emptyJobList() {
+        return new ValidationResult("No jobs found in data", Collections.singletonList("Empty job list"), false);
+    }
+
+    /**
+     * @param headline Short description of why the input was rejected
+     * @param error Detail of the rejection
+     * @return Invalid result with a single error
+     */
+    public static ValidationResult rejected(String headline, String error) {
+        return new ValidationResult(headline, Collections.singletonList(error), false);
+    }
+
+    public boolean isValid() {
+        return errors.isEmpty();
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return All errors joined with "; " (built on first call)
+     */
+    public String getErrorSummary() {
+        String summary = errorSummary;
+        if (summary == null) {
+            summary = String.join("; ", errors);
+            errorSummary = summary;
+        }
+        return summary;
+    }
+
+    /**
+     * @return Headline followed by the error summary, as used for the exception message
+     */
+    public String getMessage() {
+        if (isValid()) {
+            return "Validation passed";
+        }
+        return appendErrors ? headline + ": " + getErrorSummary() : headline;
+    }
+
+    /**
+     * Converts this result into the exception {@link CompetitorParser#validate(List)} throws.
+     * Message and validation error are rendered lazily.
+     *
+     * @return Exception describing the validation errors
+     * @throws IllegalStateException if this result is valid
+     */
+    public InvalidJobDataException toException() {
+        if (isValid()) {
+            throw new IllegalStateException("Validation passed - no exception to create");
+        }
+        return new InvalidJobDataException(
+            this::getMessage,
+            null,
+            this::getErrorSummary
+        );
+    }
+
+    /**
+     * @throws InvalidJobDataException if this result is invalid
+     */
+    public void throwIfInvalid() throws InvalidJobDataException {
+        if (!isValid()) {
+            throw toException();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return isValid() ? "ValidationResult{valid}" : "ValidationResult{" + headline + ": " + getErrorSummary() + "}";
+    }
+}
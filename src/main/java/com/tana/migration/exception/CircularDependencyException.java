@@ -25,7 +25,7 @@ public class CircularDependencyException extends DataAnomalyException {
 
     @Override
     public String getMessage() {
-        return super.getMessage() + " Cycle path: " + cyclePath;
+        return cachedDetailMessage(() -> super.getMessage() + " Cycle path: " + cyclePath);
     }
 }
 
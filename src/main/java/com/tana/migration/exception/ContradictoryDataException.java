@@ -44,10 +44,10 @@ public class ContradictoryDataException extends DataAnomalyException {
 
     @Override
     public String getMessage() {
-        return super.getMessage() + 
+        return cachedDetailMessage(() -> super.getMessage() + 
                " Job ID: " + jobId + 
                ", Sources: " + source1 + " vs " + source2 + 
-               ", Conflict: " + conflictDescription;
+               ", Conflict: " + conflictDescription);
     }
 }
 
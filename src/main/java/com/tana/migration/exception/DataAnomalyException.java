@@ -1,10 +1,27 @@
 package com.tana.migration.exception;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.function.Supplier;
+
 /**
  * Base exception for all data anomalies encountered during parsing and migration.
  * Based on Day 1 analysis - various data quality issues identified.
+ * 
+ * Lightweight mode: in bulk runs where thousands of files or jobs fail validation,
+ * capturing a stack trace per anomaly dominates the cost of failing. When lightweight mode
+ * is enabled (via {@link #setLightweightMode(boolean)} or the system property
+ * {@code migration.anomaly.lightweight=true}), anomalies are created without filling in
+ * their stack trace. Messages of all anomaly types are rendered on first use and cached,
+ * and rendered before the anomaly is serialized, since the suppliers are not serializable.
  */
 public class DataAnomalyException extends Exception {
+    private static volatile boolean lightweightMode = Boolean.getBoolean("migration.anomaly.lightweight");
+    
+    private transient Supplier<String> messageSupplier;
+    private String renderedMessage;
+    private String renderedDetail;
+    
     public DataAnomalyException(String message) {
         super(message);
     }
@@ -12,5 +29,70 @@ public class DataAnomalyException extends Exception {
     public DataAnomalyException(String message, Throwable cause) {
         super(message, cause);
     }
+    
+    /**
+     * Creates an anomaly whose message is only built if it is actually read.
+     * 
+     * @param messageSupplier Supplier of the detail message
+     * @param cause Underlying cause (may be null)
+     */
+    public DataAnomalyException(Supplier<String> messageSupplier, Throwable cause) {
+        super(null, cause);
+        this.messageSupplier = messageSupplier;
+    }
+    
+    /**
+     * Enables or disables stack-trace capture for all data anomalies created afterwards.
+     * 
+     * @param enabled true to create anomalies without stack traces
+     */
+    public static void setLightweightMode(boolean enabled) {
+        lightweightMode = enabled;
+    }
+    
+    public static boolean isLightweightMode() {
+        return lightweightMode;
+    }
+    
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        if (lightweightMode) {
+            return this;
+        }
+        return super.fillInStackTrace();
+    }
+    
+    @Override
+    public String getMessage() {
+        return baseMessage();
+    }
+    
+    private String baseMessage() {
+        String message = renderedMessage;
+        if (message == null) {
+            if (messageSupplier == null) {
+                return super.getMessage();
+            }
+            message = messageSupplier.get();
+            renderedMessage = message;
+        }
+        return message;
+    }
+    
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        baseMessage();
+        out.defaultWriteObject();
+    }
+    
+    /**
+     * Used by subclasses that append details to the base message: renders once and caches.
+     */
+    String cachedDetailMessage(Supplier<String> renderer) {
+        String message = renderedDetail;
+        if (message == null) {
+            message = renderer.get();
+            renderedDetail = message;
+        }
+        return message;
+    }
 }
-
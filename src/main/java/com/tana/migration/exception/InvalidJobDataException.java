@@ -1,11 +1,16 @@
 package com.tana.migration.exception;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.function.Supplier;
+
 /**
  * Exception thrown when job data is invalid (missing required fields, invalid format, etc.).
  */
 public class InvalidJobDataException extends DataAnomalyException {
     private final Integer jobId;
-    private final String validationError;
+    private transient Supplier<String> validationErrorSupplier;
+    private String validationError;
 
     public InvalidJobDataException(String message, Integer jobId, String validationError) {
         super(message);
@@ -19,17 +24,36 @@ public class InvalidJobDataException extends DataAnomalyException {
         this.validationError = validationError;
     }
 
+    /**
+     * Creates an exception whose message and validation error are only built if read.
+     * Used on failure-heavy paths (e.g., bulk validation) together with lightweight mode.
+     */
+    public InvalidJobDataException(Supplier<String> messageSupplier, Integer jobId, Supplier<String> validationErrorSupplier) {
+        super(messageSupplier, null);
+        this.jobId = jobId;
+        this.validationErrorSupplier = validationErrorSupplier;
+    }
+
     public Integer getJobId() {
         return jobId;
     }
 
     public String getValidationError() {
+        if (validationError == null && validationErrorSupplier != null) {
+            validationError = validationErrorSupplier.get();
+            validationErrorSupplier = null;
+        }
         return validationError;
     }
 
     @Override
     public String getMessage() {
-        return super.getMessage() + " Job ID: " + jobId + ", Error: " + validationError;
+        return cachedDetailMessage(() -> super.getMessage() + " Job ID: " + jobId + ", Error: " + getValidationError());
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        getValidationError();
+        out.defaultWriteObject();
     }
 }
 
@@ -0,0 +1,25 @@
+package com.tana.migration.exception;
+
+/**
+ * Exception thrown when a file does not follow the expected document schema at all
+ * (e.g., a diagnostic report object where a JSON array of jobs is expected).
+ * Raised from the first tokens of the document, before the rest of the file is read.
+ */
+public class SchemaMismatchException extends InvalidJobDataException {
+    private final String expectedSchema;
+    private final String actualContent;
+
+    public SchemaMismatchException(String message, String expectedSchema, String actualContent) {
+        super(message, null, "Expected " + expectedSchema + " but found " + actualContent);
+        this.expectedSchema = expectedSchema;
+        this.actualContent = actualContent;
+    }
+
+    public String getExpectedSchema() {
+        return expectedSchema;
+    }
+
+    public String getActualContent() {
+        return actualContent;
+    }
+}
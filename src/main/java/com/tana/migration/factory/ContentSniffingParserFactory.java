@@ -0,0 +1,336 @@
+package com.tana.migration.factory;
+
+import com.tana.migration.CompetitorParser;
+import com.tana.migration.metrics.MigrationMetrics;
+import com.tana.migration.parser.StringInternPool;
+import com.tana.migration.parser.JsonCompetitorParser;
+import com.tana.migration.parser.NdjsonCompetitorParser;
+import com.tana.migration.parser.UnsupportedContentParser;
+import com.tana.migration.parser.XmlCompetitorParser;
+import com.tana.migration.util.CompressedInput;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Factory implementation that creates parsers based on the first bytes of the file.
+ * Unlike {@link FileExtensionParserFactory}, a file whose content is not competitor job data
+ * (e.g., a diagnostic report saved as .json) is rejected before any parsing work is done.
+ *
+ * Only the first {@link #SNIFF_SIZE} bytes are read, into a per-thread buffer shared by
+ * every call made on that thread. gzip-compressed files are classified by their decompressed content.
+ * Content that was already read into memory is classified from the buffer, without opening the file.
+ * Files that cannot be read fall back to extension-based routing so that the chosen parser reports
+ * the I/O problem as before.
+ */
+public class ContentSniffingParserFactory implements ParserFactory {
+
+    /** Number of leading bytes inspected per file. */
+    public static final int SNIFF_SIZE = 512;
+
+    private static final ThreadLocal<byte[]> SNIFF_BUFFER = ThreadLocal.withInitial(() -> new byte[SNIFF_SIZE]);
+
+    private final ParserFactory fallbackFactory;
+    private final MigrationMetrics metrics;
+
+    public ContentSniffingParserFactory() {
+        this(new FileExtensionParserFactory());
+    }
+
+    /**
+     * @param fallbackFactory Factory used when the file cannot be read
+     */
+    public ContentSniffingParserFactory(ParserFactory fallbackFactory) {
+        this(fallbackFactory, null);
+    }
+
+    /**
+     * @param metrics Metrics passed to every parser created (if null, disabled)
+     */
+    public ContentSniffingParserFactory(MigrationMetrics metrics) {
+        this(new FileExtensionParserFactory(metrics), metrics);
+    }
+
+    /**
+     * @param fallbackFactory Factory used when the file cannot be read
+     * @param metrics Metrics passed to every parser created (if null, disabled)
+     */
+    public ContentSniffingParserFactory(ParserFactory fallbackFactory, MigrationMetrics metrics) {
+        this.metrics = metrics != null ? metrics : MigrationMetrics.noOp();
+        this.fallbackFactory = fallbackFactory != null ? fallbackFactory : new FileExtensionParserFactory(this.metrics);
+    }
+
+    @Override
+    public CompetitorParser createParser(String filePath) {
+        if (filePath == null) {
+            throw new IllegalArgumentException("File path cannot be null");
+        }
+
+        ContentType contentType;
+        try {
+            contentType = detect(filePath);
+        } catch (IOException e) {
+            return fallbackFactory.createParser(filePath);
+        }
+        return createParser(contentType);
+    }
+
+    /**
+     * Classifies content that was already read, without opening the file.
+     */
+    @Override
+    public CompetitorParser createParser(String filePath, ByteBuffer content) {
+        if (filePath == null) {
+            throw new IllegalArgumentException("File path cannot be null");
+        }
+
+        ContentType contentType;
+        try (InputStream in = CompressedInput.open(content, filePath)) {
+            contentType = detect(in);
+        } catch (IOException e) {
+            return fallbackFactory.createParser(filePath, content);
+        }
+        return createParser(contentType);
+    }
+
+    private CompetitorParser createParser(ContentType contentType) {
+        switch (contentType) {
+            case COMPETITOR_JSON_ARRAY:
+                return new JsonCompetitorParser(StringInternPool.getDefault(), metrics);
+            case COMPETITOR_NDJSON:
+                return new NdjsonCompetitorParser(StringInternPool.getDefault(), metrics);
+            case PROCESS_CHAIN_XML:
+                return new XmlCompetitorParser(StringInternPool.getDefault(), metrics);
+            default:
+                return new UnsupportedContentParser(contentType.getDescription());
+        }
+    }
+
+    /**
+     * Classifies a file from its first {@link #SNIFF_SIZE} bytes, after decompression if it is compressed.
+     *
+     * @param filePath Path to the file
+     * @return Detected content type
+     * @throws IOException if the file cannot be read
+     */
+    public ContentType detect(String filePath) throws IOException {
+        try (InputStream in = CompressedInput.openInline(filePath)) {
+            return detect(in);
+        }
+    }
+
+    private static ContentType detect(InputStream in) throws IOException {
+        byte[] buffer = SNIFF_BUFFER.get();
+        int length = 0;
+        int read;
+        while (length < buffer.length && (read = in.read(buffer, length, buffer.length - length)) > 0) {
+            length += read;
+        }
+        return classify(buffer, length);
+    }
+
+    /**
+     * Classifies a document prefix.
+     *
+     * @param prefix Leading bytes of the document
+     * @param length Number of valid bytes in prefix
+     * @return Detected content type
+     */
+    public static ContentType classify(byte[] prefix, int length) {
+        int pos = skipWhitespace(prefix, skipBom(prefix, length), length);
+        if (pos >= length) {
+            return ContentType.UNKNOWN;
+        }
+
+        switch (prefix[pos]) {
+            case '<':
+                return classifyXml(prefix, pos, length);
+            case '[':
+                return classifyArray(prefix, pos + 1, length);
+            case '{':
+                if (isJobField(firstFieldName(prefix, pos + 1, length))) {
+                    return ContentType.COMPETITOR_NDJSON;
+                }
+                if (contains(prefix, pos, length, "\"daily_consumption_log\"")
+                        || contains(prefix, pos, length, "\"part_master_catalog\"")) {
+                    return ContentType.EOD_PARTS_DOCUMENT;
+                }
+                if (contains(prefix, pos, length, "\"vin\"")
+                        || contains(prefix, pos, length, "\"report_type\"")
+                        || contains(prefix, pos, length, "\"sequence_id\"")) {
+                    return ContentType.DIAGNOSTIC_REPORT;
+                }
+                return ContentType.UNKNOWN;
+            default:
+                return ContentType.UNKNOWN;
+        }
+    }
+
+    /**
+     * An XML document is a process chain if its root element is ProcessChain. The XML declaration, processing
+     * instructions, comments and DOCTYPE before the root are skipped; a prefix cut off before the root element
+     * is given the benefit of the doubt, like a JSON prefix, and the XML parser reports any error.
+     */
+    private static ContentType classifyXml(byte[] prefix, int pos, int length) {
+        while (true) {
+            pos = skipWhitespace(prefix, pos, length);
+            if (pos >= length) {
+                return ContentType.PROCESS_CHAIN_XML;
+            }
+            if (prefix[pos] != '<') {
+                return ContentType.UNKNOWN;
+            }
+            int end;
+            if (startsWith(prefix, pos, length, "<?")) {
+                end = indexOf(prefix, pos + 2, length, "?>");
+            } else if (startsWith(prefix, pos, length, "<!--")) {
+                end = indexOf(prefix, pos + 4, length, "-->");
+            } else if (startsWith(prefix, pos, length, "<!")) {
+                end = declarationEnd(prefix, pos + 2, length);
+            } else {
+                return isProcessChainRoot(prefix, pos + 1, length)
+                    ? ContentType.PROCESS_CHAIN_XML : ContentType.UNKNOWN;
+            }
+            if (end < 0) {
+                return ContentType.PROCESS_CHAIN_XML;
+            }
+            pos = end + 1;
+        }
+    }
+
+    /**
+     * @return Position of the '>' closing a DOCTYPE, after any internal subset in brackets, or -1 if cut off
+     */
+    private static int declarationEnd(byte[] prefix, int pos, int length) {
+        boolean inSubset = false;
+        for (; pos < length; pos++) {
+            if (prefix[pos] == '[') {
+                inSubset = true;
+            } else if (prefix[pos] == ']') {
+                inSubset = false;
+            } else if (prefix[pos] == '>' && !inSubset) {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return true if the root element's local name is ProcessChain, or could be if the prefix cuts it off
+     */
+    private static boolean isProcessChainRoot(byte[] prefix, int pos, int length) {
+        int end = pos;
+        while (end < length && prefix[end] != '>' && prefix[end] != '/' && prefix[end] != ' '
+                && prefix[end] != '\n' && prefix[end] != '\r' && prefix[end] != '\t') {
+            end++;
+        }
+        String name = new String(prefix, pos, end - pos, StandardCharsets.UTF_8);
+        name = name.substring(name.indexOf(':') + 1);
+        return end < length ? name.equals("ProcessChain") : "ProcessChain".startsWith(name);
+    }
+
+    /**
+     * A JSON array is competitor data if it is empty or its first object starts with a CompetitorJob field.
+     * A prefix cut off before the first field name is given the benefit of the doubt.
+     */
+    private static ContentType classifyArray(byte[] prefix, int pos, int length) {
+        pos = skipWhitespace(prefix, pos, length);
+        if (pos >= length || prefix[pos] == ']') {
+            return ContentType.COMPETITOR_JSON_ARRAY;
+        }
+        if (prefix[pos] != '{') {
+            return ContentType.UNKNOWN;
+        }
+        pos = skipWhitespace(prefix, pos + 1, length);
+        if (pos >= length || prefix[pos] == '}') {
+            return ContentType.COMPETITOR_JSON_ARRAY;
+        }
+        if (prefix[pos] != '"') {
+            return ContentType.UNKNOWN;
+        }
+        int end = pos + 1;
+        while (end < length && prefix[end] != '"') {
+            end++;
+        }
+        if (end >= length) {
+            return ContentType.COMPETITOR_JSON_ARRAY;
+        }
+        return isJobField(new String(prefix, pos + 1, end - pos - 1, StandardCharsets.UTF_8))
+            ? ContentType.COMPETITOR_JSON_ARRAY : ContentType.UNKNOWN;
+    }
+    
+    /**
+     * Returns the first field name of an object whose '{' precedes pos, or null if the prefix
+     * does not contain a complete one.
+     */
+    private static String firstFieldName(byte[] prefix, int pos, int length) {
+        pos = skipWhitespace(prefix, pos, length);
+        if (pos >= length || prefix[pos] != '"') {
+            return null;
+        }
+        int end = pos + 1;
+        while (end < length && prefix[end] != '"') {
+            end++;
+        }
+        return end < length ? new String(prefix, pos + 1, end - pos - 1, StandardCharsets.UTF_8) : null;
+    }
+    
+    private static boolean isJobField(String fieldName) {
+        if (fieldName == null) {
+            return false;
+        }
+        switch (fieldName) {
+            case "job_id":
+            case "job_name":
+            case "dependencies":
+            case "notes":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static int skipBom(byte[] prefix, int length) {
+        if (length >= 3 && (prefix[0] & 0xFF) == 0xEF && (prefix[1] & 0xFF) == 0xBB && (prefix[2] & 0xFF) == 0xBF) {
+            return 3;
+        }
+        return 0;
+    }
+
+    private static int skipWhitespace(byte[] prefix, int pos, int length) {
+        while (pos < length && (prefix[pos] == ' ' || prefix[pos] == '\n' || prefix[pos] == '\r' || prefix[pos] == '\t')) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static boolean contains(byte[] prefix, int from, int length, String token) {
+        return indexOf(prefix, from, length, token) >= 0;
+    }
+
+    /**
+     * @return Position of the last byte of the first occurrence of token at or after from, or -1
+     */
+    private static int indexOf(byte[] prefix, int from, int length, String token) {
+        for (int i = from; i <= length - token.length(); i++) {
+            if (startsWith(prefix, i, length, token)) {
+                return i + token.length() - 1;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean startsWith(byte[] prefix, int pos, int length, String token) {
+        if (pos + token.length() > length) {
+            return false;
+        }
+        for (int j = 0; j < token.length(); j++) {
+            if (prefix[pos + j] != token.charAt(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,29 @@
+package com.tana.migration.factory;
+
+/**
+ * Kinds of input documents recognised by {@link ContentSniffingParserFactory}.
+ */
+public enum ContentType {
+    /** JSON array of competitor jobs (export_A format). */
+    COMPETITOR_JSON_ARRAY("competitor JSON job array"),
+    /** Newline-delimited JSON competitor jobs, one object per line. */
+    COMPETITOR_NDJSON("competitor NDJSON job stream"),
+    /** XML ProcessChain of competitor jobs (export_B format). */
+    PROCESS_CHAIN_XML("ProcessChain XML"),
+    /** EOD parts consumption document (daily_consumption_log / part_master_catalog). */
+    EOD_PARTS_DOCUMENT("EOD parts consumption document"),
+    /** Vehicle diagnostic report (vin, sequence_id, report_type, ...). */
+    DIAGNOSTIC_REPORT("diagnostic report"),
+    /** Anything else. */
+    UNKNOWN("unrecognized content");
+
+    private final String description;
+
+    ContentType(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -1,7 +1,10 @@
 package com.tana.migration.factory;
 
 import com.tana.migration.CompetitorParser;
+import com.tana.migration.metrics.MigrationMetrics;
+import com.tana.migration.parser.StringInternPool;
 import com.tana.migration.parser.JsonCompetitorParser;
+import com.tana.migration.parser.NdjsonCompetitorParser;
 import com.tana.migration.parser.XmlCompetitorParser;
 
 /**
@@ -15,6 +18,19 @@ import com.tana.migration.parser.XmlCompetitorParser;
  */
 public class FileExtensionParserFactory implements ParserFactory {
     
+    private final MigrationMetrics metrics;
+    
+    public FileExtensionParserFactory() {
+        this(null);
+    }
+    
+    /**
+     * @param metrics Metrics passed to every parser created (if null, disabled)
+     */
+    public FileExtensionParserFactory(MigrationMetrics metrics) {
+        this.metrics = metrics != null ? metrics : MigrationMetrics.noOp();
+    }
+    
     @Override
     public CompetitorParser createParser(String filePath) {
         if (filePath == null) {
@@ -22,14 +38,22 @@ public class FileExtensionParserFactory implements ParserFactory {
         }
         
         String lowerPath = filePath.toLowerCase();
+        // Route compressed files by the extension of their content
+        if (lowerPath.endsWith(".gz")) {
+            lowerPath = lowerPath.substring(0, lowerPath.length() - 3);
+        } else if (lowerPath.endsWith(".zst")) {
+            lowerPath = lowerPath.substring(0, lowerPath.length() - 4);
+        }
         
-        if (lowerPath.endsWith(".json")) {
-            return new JsonCompetitorParser();
+        if (lowerPath.endsWith(".ndjson") || lowerPath.endsWith(".jsonl")) {
+            return new NdjsonCompetitorParser(StringInternPool.getDefault(), metrics);
+        } else if (lowerPath.endsWith(".json")) {
+            return new JsonCompetitorParser(StringInternPool.getDefault(), metrics);
         } else if (lowerPath.endsWith(".xml")) {
-            return new XmlCompetitorParser();
+            return new XmlCompetitorParser(StringInternPool.getDefault(), metrics);
         } else {
             // Default to JSON parser for unknown extensions
-            return new JsonCompetitorParser();
+            return new JsonCompetitorParser(StringInternPool.getDefault(), metrics);
         }
     }
 }
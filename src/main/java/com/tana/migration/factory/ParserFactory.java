@@ -2,6 +2,8 @@ package com.tana.migration.factory;
 
 import com.tana.migration.CompetitorParser;
 
+import java.nio.ByteBuffer;
+
 /**
  * Factory interface for creating parser instances.
  * Follows Factory Pattern and Dependency Inversion Principle.
@@ -17,5 +19,16 @@ public interface ParserFactory {
      * @return Appropriate CompetitorParser instance for the file type
      */
     CompetitorParser createParser(String filePath);
+    
+    /**
+     * Creates a parser for a file whose content has already been read into memory.
+     * The default implementation ignores the content and calls {@link #createParser(String)}.
+     * 
+     * @param filePath Path the content was read from
+     * @param content Whole file content, possibly compressed; its position is not changed
+     * @return Appropriate CompetitorParser instance for the content
+     */
+    default CompetitorParser createParser(String filePath, ByteBuffer content) {
+        return createParser(filePath);
+    }
 }
-
@@ -4,14 +4,22 @@ import com.tana.migration.CdmMapper;
 import com.tana.migration.exception.CircularDependencyException;
 import com.tana.migration.exception.ContradictoryDataException;
 import com.tana.migration.exception.DataAnomalyException;
+import com.tana.migration.metrics.MigrationMetrics;
+import com.tana.migration.metrics.Stage;
+import com.tana.migration.metrics.jfr.MigrationEvents;
+import com.tana.migration.model.CompactJob;
 import com.tana.migration.model.CompetitorJob;
 import com.tana.migration.model.JobDependency;
+import com.tana.migration.model.JobStringPool;
 import com.tana.migration.model.RmjJob;
+import com.tana.migration.output.RmjJobSink;
 import org.jgrapht.Graph;
 import org.jgrapht.alg.cycle.CycleDetector;
 import org.jgrapht.graph.DefaultDirectedGraph;
 import org.jgrapht.graph.DefaultEdge;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 
 /**
@@ -22,15 +30,47 @@ import java.util.*;
  */
 public class CdmMapperImpl implements CdmMapper {
     
+    private final MigrationMetrics metrics;
+    
+    public CdmMapperImpl() {
+        this(null);
+    }
+    
+    /**
+     * @param metrics Metrics receiving RECONCILE, CYCLE_DETECTION and MAP timings (if null, disabled)
+     */
+    public CdmMapperImpl(MigrationMetrics metrics) {
+        this.metrics = metrics != null ? metrics : MigrationMetrics.noOp();
+    }
+    
     @Override
     public List<RmjJob> mapToRmj(List<CompetitorJob> competitorJobs) throws DataAnomalyException {
+        List<RmjJob> rmjJobs = new ArrayList<>();
+        try {
+            mapToRmj(competitorJobs, rmjJobs::add);
+        } catch (IOException e) {
+            // Adding to a list does not throw
+            throw new UncheckedIOException(e);
+        }
+        return rmjJobs;
+    }
+    
+    /**
+     * Maps jobs one at a time into the sink instead of building a list.
+     */
+    @Override
+    public int mapToRmj(List<CompetitorJob> competitorJobs, RmjJobSink sink) throws DataAnomalyException, IOException {
         if (competitorJobs == null || competitorJobs.isEmpty()) {
-            return new ArrayList<>();
+            return 0;
         }
         
+        MigrationEvents.Graph event = MigrationEvents.get().beginGraph();
+        
         // Detect circular dependencies first
         List<List<Integer>> cycles = detectCircularDependencies(competitorJobs);
         if (!cycles.isEmpty()) {
+            metrics.recordError(Stage.MAP);
+            commitGraphEvent(event, MigrationEvents.MAP, false, competitorJobs.size(), cycles.size(), 0);
             throw new CircularDependencyException(
                 "Circular dependencies detected. Cannot map to RMJ format.",
                 cycles.get(0) // Throw exception with first cycle found
@@ -38,7 +78,8 @@ public class CdmMapperImpl implements CdmMapper {
         }
         
         // Map to RMJ format
-        List<RmjJob> rmjJobs = new ArrayList<>();
+        long start = metrics.startTimer();
+        int mapped = 0;
         Map<Integer, CompetitorJob> jobMap = new HashMap<>();
         
         // Build job map for quick lookup
@@ -67,10 +108,14 @@ public class CdmMapperImpl implements CdmMapper {
             // Default trigger type (can be customized based on Phase 2 requirements)
             rmjJob.setTriggerType("MANUAL");
             
-            rmjJobs.add(rmjJob);
+            sink.write(rmjJob);
+            mapped++;
         }
         
-        return rmjJobs;
+        metrics.recordSince(Stage.MAP, start);
+        metrics.addRecords(Stage.MAP, mapped);
+        commitGraphEvent(event, MigrationEvents.MAP, false, competitorJobs.size(), 0, mapped);
+        return mapped;
     }
     
     @Override
@@ -81,6 +126,9 @@ public class CdmMapperImpl implements CdmMapper {
             return cycles;
         }
         
+        MigrationEvents.Graph event = MigrationEvents.get().beginGraph();
+        long start = metrics.startTimer();
+        
         // Build directed graph using JGraphT
         Graph<Integer, DefaultEdge> graph = new DefaultDirectedGraph<>(DefaultEdge.class);
         
@@ -123,6 +171,8 @@ public class CdmMapperImpl implements CdmMapper {
             }
         }
         
+        metrics.recordSince(Stage.CYCLE_DETECTION, start);
+        commitGraphEvent(event, MigrationEvents.CYCLE_DETECTION, false, competitorJobs.size(), cycles.size(), 0);
         return cycles;
     }
     
@@ -162,10 +212,184 @@ public class CdmMapperImpl implements CdmMapper {
         return null;
     }
     
+    @Override
+    public List<RmjJob> mapCompactToRmj(List<CompactJob> compactJobs, JobStringPool pool) throws DataAnomalyException {
+        List<RmjJob> rmjJobs = new ArrayList<>(compactJobs != null ? compactJobs.size() : 0);
+        try {
+            mapCompactToRmj(compactJobs, pool, rmjJobs::add);
+        } catch (IOException e) {
+            // Adding to a list does not throw
+            throw new UncheckedIOException(e);
+        }
+        return rmjJobs;
+    }
+    
+    /**
+     * Maps compact jobs one at a time into the sink instead of building a list.
+     */
+    @Override
+    public int mapCompactToRmj(List<CompactJob> compactJobs, JobStringPool pool, RmjJobSink sink)
+            throws DataAnomalyException, IOException {
+        if (compactJobs == null || compactJobs.isEmpty()) {
+            return 0;
+        }
+        
+        MigrationEvents.Graph event = MigrationEvents.get().beginGraph();
+        
+        List<List<Integer>> cycles = detectCompactCircularDependencies(compactJobs);
+        if (!cycles.isEmpty()) {
+            metrics.recordError(Stage.MAP);
+            commitGraphEvent(event, MigrationEvents.MAP, true, compactJobs.size(), cycles.size(), 0);
+            throw new CircularDependencyException(
+                "Circular dependencies detected. Cannot map to RMJ format.",
+                cycles.get(0)
+            );
+        }
+        
+        // Sorted id array replaces the HashMap<Integer, CompetitorJob> lookup
+        long start = metrics.startTimer();
+        int[] sortedIds = sortedDistinctJobIds(compactJobs);
+        int mapped = 0;
+        
+        for (CompactJob compactJob : compactJobs) {
+            RmjJob rmjJob = new RmjJob(compactJob.getJobId(), pool.get(compactJob.getNameRef()));
+            rmjJob.setNotes(pool.get(compactJob.getNotesRef()));
+            
+            List<Integer> dependencyJobIds = new ArrayList<>(compactJob.getDependencyCount());
+            for (int i = 0; i < compactJob.getDependencyCount(); i++) {
+                int dependencyId = compactJob.getDependencyId(i);
+                if (Arrays.binarySearch(sortedIds, dependencyId) >= 0) {
+                    dependencyJobIds.add(dependencyId);
+                }
+            }
+            rmjJob.setDependencyJobIds(dependencyJobIds);
+            rmjJob.setTriggerType("MANUAL");
+            
+            sink.write(rmjJob);
+            mapped++;
+        }
+        
+        metrics.recordSince(Stage.MAP, start);
+        metrics.addRecords(Stage.MAP, mapped);
+        commitGraphEvent(event, MigrationEvents.MAP, true, compactJobs.size(), 0, mapped);
+        return mapped;
+    }
+    
+    /**
+     * Detects cycles on a primitive graph: vertices are positions in the sorted id array and
+     * edges (dependency to dependent, as in {@link #detectCircularDependencies(List)}) are
+     * stored in compressed sparse row form. An iterative DFS reports one cycle per back edge.
+     */
+    @Override
+    public List<List<Integer>> detectCompactCircularDependencies(List<CompactJob> compactJobs) {
+        List<List<Integer>> cycles = new ArrayList<>();
+        
+        if (compactJobs == null || compactJobs.isEmpty()) {
+            return cycles;
+        }
+        
+        MigrationEvents.Graph event = MigrationEvents.get().beginGraph();
+        long timerStart = metrics.startTimer();
+        int[] ids = sortedDistinctJobIds(compactJobs);
+        int vertexCount = ids.length;
+        
+        // Count out-degree per vertex, then fill edge targets
+        int[] edgeStart = new int[vertexCount + 1];
+        for (CompactJob job : compactJobs) {
+            for (int i = 0; i < job.getDependencyCount(); i++) {
+                int from = Arrays.binarySearch(ids, job.getDependencyId(i));
+                if (from >= 0) {
+                    edgeStart[from + 1]++;
+                }
+            }
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            edgeStart[v + 1] += edgeStart[v];
+        }
+        int[] edgeTargets = new int[edgeStart[vertexCount]];
+        int[] fill = Arrays.copyOf(edgeStart, vertexCount);
+        for (CompactJob job : compactJobs) {
+            int to = Arrays.binarySearch(ids, job.getJobId());
+            for (int i = 0; i < job.getDependencyCount(); i++) {
+                int from = Arrays.binarySearch(ids, job.getDependencyId(i));
+                if (from >= 0) {
+                    edgeTargets[fill[from]++] = to;
+                }
+            }
+        }
+        
+        // 0 = unvisited, 1 = on the DFS stack, 2 = finished
+        byte[] state = new byte[vertexCount];
+        int[] stack = new int[vertexCount];
+        int[] cursor = new int[vertexCount];
+        
+        for (int root = 0; root < vertexCount; root++) {
+            if (state[root] != 0) {
+                continue;
+            }
+            int depth = 0;
+            stack[depth++] = root;
+            state[root] = 1;
+            cursor[root] = edgeStart[root];
+            
+            while (depth > 0) {
+                int vertex = stack[depth - 1];
+                if (cursor[vertex] < edgeStart[vertex + 1]) {
+                    int target = edgeTargets[cursor[vertex]++];
+                    if (state[target] == 0) {
+                        state[target] = 1;
+                        cursor[target] = edgeStart[target];
+                        stack[depth++] = target;
+                    } else if (state[target] == 1) {
+                        // Back edge: the cycle is the stack segment from target to the top
+                        List<Integer> cycle = new ArrayList<>();
+                        int start = depth - 1;
+                        while (stack[start] != target) {
+                            start--;
+                        }
+                        for (int i = start; i < depth; i++) {
+                            cycle.add(ids[stack[i]]);
+                        }
+                        cycle.add(ids[target]);
+                        cycles.add(cycle);
+                    }
+                } else {
+                    state[vertex] = 2;
+                    depth--;
+                }
+            }
+        }
+        
+        metrics.recordSince(Stage.CYCLE_DETECTION, timerStart);
+        commitGraphEvent(event, MigrationEvents.CYCLE_DETECTION, true, compactJobs.size(), cycles.size(), 0);
+        return cycles;
+    }
+    
+    /**
+     * Returns the distinct job ids of the given jobs in ascending order.
+     */
+    private int[] sortedDistinctJobIds(List<CompactJob> compactJobs) {
+        int[] ids = new int[compactJobs.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = compactJobs.get(i).getJobId();
+        }
+        Arrays.sort(ids);
+        int distinct = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (distinct == 0 || ids[distinct - 1] != ids[i]) {
+                ids[distinct++] = ids[i];
+            }
+        }
+        return distinct == ids.length ? ids : Arrays.copyOf(ids, distinct);
+    }
+    
     @Override
     public List<CompetitorJob> reconcileData(List<CompetitorJob> jobsFromSource1,
                                             List<CompetitorJob> jobsFromSource2)
             throws DataAnomalyException {
+        MigrationEvents.Reconcile event = MigrationEvents.get().beginReconcile();
+        long start = metrics.startTimer();
+        
         // JSON-first strategy: prefer JSON (source1) over XML (source2)
         Map<Integer, CompetitorJob> reconciledJobs = new HashMap<>();
         List<ContradictoryDataException> conflicts = new ArrayList<>();
@@ -190,73 +414,32 @@ public class CdmMapperImpl implements CdmMapper {
                 reconciledJobs.put(xmlJob.getJobId(), xmlJob);
             } else {
                 // Job exists in both - check for conflicts
-                String conflict = checkForConflicts(jsonJob, xmlJob);
+                String conflict = ReconciliationIndex.findConflict(jsonJob, xmlJob);
                 if (conflict != null) {
-                    conflicts.add(new ContradictoryDataException(
-                        "Contradictory data found for job",
-                        xmlJob.getJobId(),
-                        jsonJob.getSourceFile() != null ? jsonJob.getSourceFile() : "JSON",
-                        xmlJob.getSourceFile() != null ? xmlJob.getSourceFile() : "XML",
-                        conflict
-                    ));
+                    conflicts.add(ReconciliationIndex.conflictBetween(jsonJob, xmlJob, conflict));
                 }
             }
         }
         
+        metrics.recordSince(Stage.RECONCILE, start);
+        if (event.finish()) {
+            event.commit(jobsFromSource1.size(), jobsFromSource2.size(), reconciledJobs.size(), conflicts.size());
+        }
+        
         // If there are conflicts, throw exception with details
         if (!conflicts.isEmpty()) {
-            StringBuilder message = new StringBuilder("Data reconciliation found contradictions: ");
-            for (ContradictoryDataException conflict : conflicts) {
-                message.append(conflict.getMessage()).append("; ");
-            }
-            throw new ContradictoryDataException(
-                message.toString(),
-                conflicts.get(0).getJobId(),
-                conflicts.get(0).getSource1(),
-                conflicts.get(0).getSource2(),
-                conflicts.get(0).getConflictDescription()
-            );
+            metrics.recordError(Stage.RECONCILE);
+            throw ReconciliationIndex.combine(conflicts);
         }
         
+        metrics.addRecords(Stage.RECONCILE, reconciledJobs.size());
         return new ArrayList<>(reconciledJobs.values());
     }
     
-    /**
-     * Checks for conflicts between two job definitions from different sources.
-     * Returns conflict description if found, null otherwise.
-     */
-    private String checkForConflicts(CompetitorJob job1, CompetitorJob job2) {
-        List<String> conflicts = new ArrayList<>();
-        
-        // Check job name
-        if (!Objects.equals(job1.getJobName(), job2.getJobName())) {
-            conflicts.add("Job name differs: '" + job1.getJobName() + "' vs '" + job2.getJobName() + "'");
-        }
-        
-        // Check dependencies - this is the main conflict from Day 1 analysis
-        Set<Integer> deps1 = extractDependencyIds(job1);
-        Set<Integer> deps2 = extractDependencyIds(job2);
-        
-        if (!deps1.equals(deps2)) {
-            conflicts.add("Dependencies differ: " + deps1 + " vs " + deps2);
-        }
-        
-        return conflicts.isEmpty() ? null : String.join("; ", conflicts);
-    }
-    
-    /**
-     * Extracts dependency job IDs from a competitor job.
-     */
-    private Set<Integer> extractDependencyIds(CompetitorJob job) {
-        Set<Integer> dependencyIds = new HashSet<>();
-        if (job.getDependencies() != null) {
-            for (JobDependency dep : job.getDependencies()) {
-                if (dep.getDependentJobId() != null) {
-                    dependencyIds.add(dep.getDependentJobId());
-                }
-            }
+    private static void commitGraphEvent(MigrationEvents.Graph event, String operation, boolean compact,
+                                         int jobCount, int cycleCount, int mappedJobs) {
+        if (event.finish()) {
+            event.commit(operation, compact, jobCount, cycleCount, mappedJobs);
         }
-        return dependencyIds;
     }
 }
-
@@ -0,0 +1,186 @@
+package com.tana.migration.mapper;
+
+import com.tana.migration.exception.ContradictoryDataException;
+import com.tana.migration.model.CompetitorJob;
+import com.tana.migration.model.JobDependency;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Incremental form of {@link CdmMapperImpl#reconcileData(List, List)} for jobs that arrive in batches,
+ * possibly out of file order. Uses the same JSON-first strategy: primary (JSON) jobs win, secondary (XML)
+ * jobs are only added for ids no primary job defines, and differing definitions are reported as conflicts.
+ *
+ * Every job is added with its file order and position in the file, so the outcome is the same as
+ * reconciling the files sequentially regardless of arrival order. A primary job is final as soon as
+ * {@link #addPrimary} returns true (unless a later-ordered primary job with the same id replaces it);
+ * secondary jobs are resolved by {@link #finish()}.
+ *
+ * Not thread-safe: intended to be fed by a single reconciliation stage.
+ */
+public class ReconciliationIndex {
+
+    private final Map<Integer, Entry> primaryJobs = new HashMap<>();
+    private final List<Entry> secondaryJobs = new ArrayList<>();
+
+    /**
+     * Adds a job from the preferred source. Jobs without an id are ignored.
+     *
+     * @param job Job to add
+     * @param fileOrder Position of the job's file in the input
+     * @param position Position of the job within its file
+     * @return true if the job is now the winning definition for its id
+     */
+    public boolean addPrimary(CompetitorJob job, int fileOrder, int position) {
+        if (job.getJobId() == null) {
+            return false;
+        }
+        long order = order(fileOrder, position);
+        Entry current = primaryJobs.get(job.getJobId());
+        if (current != null && current.order > order) {
+            return false;
+        }
+        primaryJobs.put(job.getJobId(), new Entry(job, order));
+        return true;
+    }
+
+    /**
+     * Adds a job from the cross-reference source. Jobs without an id are ignored.
+     *
+     * @param job Job to add
+     * @param fileOrder Position of the job's file in the input
+     * @param position Position of the job within its file
+     */
+    public void addSecondary(CompetitorJob job, int fileOrder, int position) {
+        if (job.getJobId() != null) {
+            secondaryJobs.add(new Entry(job, order(fileOrder, position)));
+        }
+    }
+
+    /**
+     * @return Number of distinct ids defined by primary jobs
+     */
+    public int getPrimaryCount() {
+        return primaryJobs.size();
+    }
+
+    /**
+     * Resolves the secondary jobs against the final primary jobs.
+     *
+     * @return Secondary jobs whose ids no primary job defines, in input order
+     * @throws ContradictoryDataException if any secondary job contradicts the definition it is compared with
+     */
+    public List<CompetitorJob> finish() throws ContradictoryDataException {
+        secondaryJobs.sort((a, b) -> Long.compare(a.order, b.order));
+
+        Map<Integer, CompetitorJob> secondaryOnly = new LinkedHashMap<>();
+        List<ContradictoryDataException> conflicts = new ArrayList<>();
+        for (Entry entry : secondaryJobs) {
+            CompetitorJob job = entry.job;
+            Entry primary = primaryJobs.get(job.getJobId());
+            CompetitorJob existing = primary != null ? primary.job : secondaryOnly.get(job.getJobId());
+            if (existing == null) {
+                secondaryOnly.put(job.getJobId(), job);
+            } else {
+                String conflict = findConflict(existing, job);
+                if (conflict != null) {
+                    conflicts.add(conflictBetween(existing, job, conflict));
+                }
+            }
+        }
+
+        if (!conflicts.isEmpty()) {
+            throw combine(conflicts);
+        }
+        return new ArrayList<>(secondaryOnly.values());
+    }
+
+    private static long order(int fileOrder, int position) {
+        return ((long) fileOrder << 32) | (position & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Checks for conflicts between two job definitions from different sources.
+     * Returns conflict description if found, null otherwise.
+     */
+    static String findConflict(CompetitorJob job1, CompetitorJob job2) {
+        List<String> conflicts = new ArrayList<>();
+
+        // Check job name
+        if (!Objects.equals(job1.getJobName(), job2.getJobName())) {
+            conflicts.add("Job name differs: '" + job1.getJobName() + "' vs '" + job2.getJobName() + "'");
+        }
+
+        // Check dependencies - this is the main conflict from Day 1 analysis
+        Set<Integer> deps1 = extractDependencyIds(job1);
+        Set<Integer> deps2 = extractDependencyIds(job2);
+
+        if (!deps1.equals(deps2)) {
+            conflicts.add("Dependencies differ: " + deps1 + " vs " + deps2);
+        }
+
+        return conflicts.isEmpty() ? null : String.join("; ", conflicts);
+    }
+
+    /**
+     * Describes one conflict between the preferred definition of a job and another one.
+     */
+    static ContradictoryDataException conflictBetween(CompetitorJob preferred, CompetitorJob other, String conflict) {
+        return new ContradictoryDataException(
+            "Contradictory data found for job",
+            other.getJobId(),
+            preferred.getSourceFile() != null ? preferred.getSourceFile() : "JSON",
+            other.getSourceFile() != null ? other.getSourceFile() : "XML",
+            conflict
+        );
+    }
+
+    /**
+     * Combines all conflicts found during reconciliation into the exception that is thrown.
+     */
+    static ContradictoryDataException combine(List<ContradictoryDataException> conflicts) {
+        StringBuilder message = new StringBuilder("Data reconciliation found contradictions: ");
+        for (ContradictoryDataException conflict : conflicts) {
+            message.append(conflict.getMessage()).append("; ");
+        }
+        return new ContradictoryDataException(
+            message.toString(),
+            conflicts.get(0).getJobId(),
+            conflicts.get(0).getSource1(),
+            conflicts.get(0).getSource2(),
+            conflicts.get(0).getConflictDescription()
+        );
+    }
+
+    /**
+     * Extracts dependency job IDs from a competitor job.
+     */
+    private static Set<Integer> extractDependencyIds(CompetitorJob job) {
+        Set<Integer> dependencyIds = new HashSet<>();
+        if (job.getDependencies() != null) {
+            for (JobDependency dep : job.getDependencies()) {
+                if (dep.getDependentJobId() != null) {
+                    dependencyIds.add(dep.getDependentJobId());
+                }
+            }
+        }
+        return dependencyIds;
+    }
+
+    private static final class Entry {
+        private final CompetitorJob job;
+        private final long order;
+
+        private Entry(CompetitorJob job, long order) {
+            this.job = job;
+            this.order = order;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.tana.migration.metrics;
+
+/**
+ * Instrumentation API for the migration pipeline.
+ * Components record per-stage latencies, record counts, bytes read, errors, queue depth and pool size;
+ * {@link #noOp()} is the default everywhere and costs nothing beyond an empty virtual call.
+ * 
+ * Implementations must be thread-safe: parsers running on different threads share one instance.
+ */
+public interface MigrationMetrics {
+    
+    /**
+     * @return Metrics implementation that ignores everything
+     */
+    static MigrationMetrics noOp() {
+        return NoOpMigrationMetrics.INSTANCE;
+    }
+    
+    /**
+     * @return false if recording is disabled, so callers can skip expensive measurements
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+    
+    /**
+     * Records the latency of one execution of a stage.
+     * 
+     * @param stage Stage that completed
+     * @param nanos Duration in nanoseconds
+     */
+    void recordLatency(Stage stage, long nanos);
+    
+    /**
+     * Records the number of records (jobs, transactions) produced by a stage.
+     */
+    void addRecords(Stage stage, long count);
+    
+    /**
+     * Records bytes read from input files by a reader (parser or parts processor).
+     */
+    void addBytesRead(long bytes);
+    
+    /**
+     * Records a failure in a stage.
+     */
+    void recordError(Stage stage);
+    
+    /**
+     * Records the outcome of one file processed by the parsing service.
+     * 
+     * @param filePath File that was processed
+     * @param bytes File size in bytes (informational; bytes read are reported by the parser)
+     * @param nanos Time spent on the file
+     * @param success false if the file produced an error
+     */
+    void recordFile(String filePath, long bytes, long nanos, boolean success);
+    
+    /**
+     * Adjusts the number of tasks waiting in the parsing queue.
+     * 
+     * @param delta +1 when a task is queued, -1 when it starts running
+     */
+    void queueDepthChanged(int delta);
+    
+    /**
+     * Records the number of threads chosen by a self-sizing parsing pool.
+     * 
+     * @param size New pool size
+     */
+    void poolSizeChanged(int size);
+    
+    /**
+     * @return Start timestamp for {@link #recordSince(Stage, long)}
+     */
+    default long startTimer() {
+        return System.nanoTime();
+    }
+    
+    /**
+     * Records the time elapsed since a timestamp returned by {@link #startTimer()}.
+     */
+    default void recordSince(Stage stage, long startNanos) {
+        recordLatency(stage, System.nanoTime() - startNanos);
+    }
+}
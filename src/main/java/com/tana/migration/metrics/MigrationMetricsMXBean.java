@@ -0,0 +1,52 @@
+package com.tana.migration.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link RecordingMigrationMetrics}.
+ * Latencies are reported in microseconds; maps are keyed by {@link Stage} name.
+ */
+public interface MigrationMetricsMXBean {
+
+    long getFilesProcessed();
+
+    long getFilesFailed();
+
+    long getBytesRead();
+
+    int getQueueDepth();
+
+    int getMaxQueueDepth();
+
+    /**
+     * @return Size last chosen by a self-sizing parsing pool, or 0 if none reported one
+     */
+    int getPoolSize();
+
+    /**
+     * @return Jobs produced by the PARSE stage per second since the metrics were created or reset
+     */
+    double getJobsPerSecond();
+
+    /**
+     * @return Transactions produced by the PARTS_PROCESS stage per second since the metrics were created or reset
+     */
+    double getTransactionsPerSecond();
+
+    Map<String, Long> getStageCounts();
+
+    Map<String, Long> getStageErrors();
+
+    Map<String, Long> getStageP50Micros();
+
+    Map<String, Long> getStageP99Micros();
+
+    Map<String, Long> getStageMaxMicros();
+
+    /**
+     * @return Slowest files seen, formatted as "path: N us (M bytes)"
+     */
+    String[] getSlowestFiles();
+
+    void reset();
+}
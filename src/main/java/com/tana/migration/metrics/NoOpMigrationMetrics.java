@@ -0,0 +1,55 @@
+package com.tana.migration.metrics;
+
+/**
+ * Metrics implementation used when instrumentation is disabled.
+ * Does not even read the clock: {@link #startTimer()} returns 0 and every method is empty.
+ */
+final class NoOpMigrationMetrics implements MigrationMetrics {
+    
+    static final NoOpMigrationMetrics INSTANCE = new NoOpMigrationMetrics();
+    
+    private NoOpMigrationMetrics() {
+    }
+    
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+    
+    @Override
+    public void recordLatency(Stage stage, long nanos) {
+    }
+    
+    @Override
+    public void addRecords(Stage stage, long count) {
+    }
+    
+    @Override
+    public void addBytesRead(long bytes) {
+    }
+    
+    @Override
+    public void recordError(Stage stage) {
+    }
+    
+    @Override
+    public void recordFile(String filePath, long bytes, long nanos, boolean success) {
+    }
+    
+    @Override
+    public void queueDepthChanged(int delta) {
+    }
+    
+    @Override
+    public void poolSizeChanged(int size) {
+    }
+    
+    @Override
+    public long startTimer() {
+        return 0L;
+    }
+    
+    @Override
+    public void recordSince(Stage stage, long startNanos) {
+    }
+}
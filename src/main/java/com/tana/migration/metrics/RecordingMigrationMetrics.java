@@ -0,0 +1,342 @@
+package com.tana.migration.metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * Thread-safe metrics implementation that keeps a {@link LatencyHistogram} per stage,
+ * record and error counters, bytes read, queue depth, pool size and the slowest files seen.
+ * Counters use LongAdder so parser threads do not contend on a shared cache line.
+ *
+ * Call {@link #registerMBean()} to export the metrics through JMX.
+ */
+public class RecordingMigrationMetrics implements MigrationMetrics, MigrationMetricsMXBean {
+
+    /** JMX object name used by {@link #registerMBean()}. */
+    public static final String DEFAULT_OBJECT_NAME = "com.tana.migration:type=MigrationMetrics";
+
+    private static final int DEFAULT_SLOWEST_FILES = 10;
+
+    private final Map<Stage, LatencyHistogram> latencies = new EnumMap<>(Stage.class);
+    private final Map<Stage, LongAdder> records = new EnumMap<>(Stage.class);
+    private final Map<Stage, LongAdder> errors = new EnumMap<>(Stage.class);
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder filesProcessed = new LongAdder();
+    private final LongAdder filesFailed = new LongAdder();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final AtomicInteger poolSize = new AtomicInteger();
+    private final int slowestFilesLimit;
+    private final PriorityQueue<FileTiming> slowestFiles;
+    private volatile long startNanos = System.nanoTime();
+    private ObjectName registeredName;
+
+    public RecordingMigrationMetrics() {
+        this(DEFAULT_SLOWEST_FILES);
+    }
+
+    /**
+     * @param slowestFilesLimit Number of slowest files to keep
+     */
+    public RecordingMigrationMetrics(int slowestFilesLimit) {
+        if (slowestFilesLimit < 0) {
+            throw new IllegalArgumentException("Slowest files limit cannot be negative");
+        }
+        this.slowestFilesLimit = slowestFilesLimit;
+        this.slowestFiles = new PriorityQueue<>(Math.max(1, slowestFilesLimit + 1),
+            (a, b) -> Long.compare(a.nanos, b.nanos));
+        for (Stage stage : Stage.values()) {
+            latencies.put(stage, new LatencyHistogram());
+            records.put(stage, new LongAdder());
+            errors.put(stage, new LongAdder());
+        }
+    }
+
+    @Override
+    public void recordLatency(Stage stage, long nanos) {
+        latencies.get(stage).record(nanos);
+    }
+
+    @Override
+    public void addRecords(Stage stage, long count) {
+        records.get(stage).add(count);
+    }
+
+    @Override
+    public void addBytesRead(long bytes) {
+        bytesRead.add(bytes);
+    }
+
+    @Override
+    public void recordError(Stage stage) {
+        errors.get(stage).increment();
+    }
+
+    @Override
+    public void recordFile(String filePath, long bytes, long nanos, boolean success) {
+        filesProcessed.increment();
+        if (!success) {
+            filesFailed.increment();
+        }
+        latencies.get(Stage.FILE).record(nanos);
+        if (slowestFilesLimit == 0) {
+            return;
+        }
+        synchronized (slowestFiles) {
+            if (slowestFiles.size() < slowestFilesLimit) {
+                slowestFiles.add(new FileTiming(filePath, bytes, nanos));
+            } else if (slowestFiles.peek().nanos < nanos) {
+                slowestFiles.poll();
+                slowestFiles.add(new FileTiming(filePath, bytes, nanos));
+            }
+        }
+    }
+
+    @Override
+    public void queueDepthChanged(int delta) {
+        int depth = queueDepth.addAndGet(delta);
+        int max;
+        while (depth > (max = maxQueueDepth.get())) {
+            if (maxQueueDepth.compareAndSet(max, depth)) {
+                break;
+            }
+        }
+    }
+
+    @Override
+    public void poolSizeChanged(int size) {
+        poolSize.set(size);
+    }
+
+    /**
+     * @param stage Stage to inspect
+     * @return Latency histogram of the stage (values in nanoseconds)
+     */
+    public LatencyHistogram getLatency(Stage stage) {
+        return latencies.get(stage);
+    }
+
+    /**
+     * @param stage Stage to inspect
+     * @return Number of records the stage produced
+     */
+    public long getRecords(Stage stage) {
+        return records.get(stage).sum();
+    }
+
+    /**
+     * @param stage Stage to inspect
+     * @return Number of failures recorded for the stage
+     */
+    public long getErrors(Stage stage) {
+        return errors.get(stage).sum();
+    }
+
+    /**
+     * @return Slowest files, slowest first
+     */
+    public List<FileTiming> getSlowestFileTimings() {
+        List<FileTiming> result;
+        synchronized (slowestFiles) {
+            result = new ArrayList<>(slowestFiles);
+        }
+        result.sort((a, b) -> Long.compare(b.nanos, a.nanos));
+        return result;
+    }
+
+    @Override
+    public long getFilesProcessed() {
+        return filesProcessed.sum();
+    }
+
+    @Override
+    public long getFilesFailed() {
+        return filesFailed.sum();
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    @Override
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    @Override
+    public int getPoolSize() {
+        return poolSize.get();
+    }
+
+    @Override
+    public double getJobsPerSecond() {
+        return perSecond(getRecords(Stage.PARSE));
+    }
+
+    @Override
+    public double getTransactionsPerSecond() {
+        return perSecond(getRecords(Stage.PARTS_PROCESS));
+    }
+
+    @Override
+    public Map<String, Long> getStageCounts() {
+        return perStage(stage -> latencies.get(stage).getCount());
+    }
+
+    @Override
+    public Map<String, Long> getStageErrors() {
+        return perStage(this::getErrors);
+    }
+
+    @Override
+    public Map<String, Long> getStageP50Micros() {
+        return perStage(stage -> latencies.get(stage).getValueAtPercentile(50.0) / 1_000);
+    }
+
+    @Override
+    public Map<String, Long> getStageP99Micros() {
+        return perStage(stage -> latencies.get(stage).getValueAtPercentile(99.0) / 1_000);
+    }
+
+    @Override
+    public Map<String, Long> getStageMaxMicros() {
+        return perStage(stage -> latencies.get(stage).getMax() / 1_000);
+    }
+
+    @Override
+    public String[] getSlowestFiles() {
+        List<FileTiming> timings = getSlowestFileTimings();
+        String[] result = new String[timings.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = timings.get(i).toString();
+        }
+        return result;
+    }
+
+    @Override
+    public void reset() {
+        for (Stage stage : Stage.values()) {
+            latencies.get(stage).reset();
+            records.get(stage).reset();
+            errors.get(stage).reset();
+        }
+        bytesRead.reset();
+        filesProcessed.reset();
+        filesFailed.reset();
+        maxQueueDepth.set(queueDepth.get());
+        synchronized (slowestFiles) {
+            slowestFiles.clear();
+        }
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Registers this instance with the platform MBean server under {@link #DEFAULT_OBJECT_NAME}.
+     *
+     * @throws IllegalStateException if registration fails (e.g., the name is already taken)
+     */
+    public void registerMBean() {
+        registerMBean(DEFAULT_OBJECT_NAME);
+    }
+
+    /**
+     * Registers this instance with the platform MBean server.
+     *
+     * @param objectName JMX object name
+     * @throws IllegalStateException if registration fails (e.g., the name is already taken)
+     */
+    public synchronized void registerMBean(String objectName) {
+        try {
+            ObjectName name = new ObjectName(objectName);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            registeredName = name;
+        } catch (InstanceAlreadyExistsException e) {
+            throw new IllegalStateException("MBean already registered: " + objectName, e);
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to register MBean: " + objectName, e);
+        }
+    }
+
+    /**
+     * Unregisters this instance from the platform MBean server if it was registered.
+     */
+    public synchronized void unregisterMBean() {
+        if (registeredName == null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(registeredName);
+        } catch (InstanceNotFoundException e) {
+            // Already gone
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to unregister MBean: " + registeredName, e);
+        }
+        registeredName = null;
+    }
+
+    private double perSecond(long count) {
+        long elapsed = System.nanoTime() - startNanos;
+        return elapsed <= 0 ? 0.0 : count * 1_000_000_000.0 / elapsed;
+    }
+
+    private Map<String, Long> perStage(ToLongFunction<Stage> value) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Stage stage : Stage.values()) {
+            result.put(stage.name(), value.applyAsLong(stage));
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Time spent on one file.
+     */
+    public static final class FileTiming {
+        private final String filePath;
+        private final long bytes;
+        private final long nanos;
+
+        FileTiming(String filePath, long bytes, long nanos) {
+            this.filePath = filePath;
+            this.bytes = bytes;
+            this.nanos = nanos;
+        }
+
+        public String getFilePath() {
+            return filePath;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        @Override
+        public String toString() {
+            return filePath + ": " + nanos / 1_000 + " us (" + bytes + " bytes)";
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.tana.migration.metrics;
+
+/**
+ * Stages of the migration pipeline that report metrics.
+ */
+public enum Stage {
+    /** Walking input directories for files to parse. */
+    DISCOVERY,
+    /** Reading file bytes from storage. */
+    READ,
+    /** Parsing a competitor file into jobs. */
+    PARSE,
+    /** Validating parsed jobs. */
+    VALIDATE,
+    /** Reconciling jobs from different sources. */
+    RECONCILE,
+    /** Detecting circular dependencies. */
+    CYCLE_DETECTION,
+    /** Mapping competitor jobs to RMJ format. */
+    MAP,
+    /** Processing an EOD parts consumption file. */
+    PARTS_PROCESS,
+    /** Summarising parts consumption. */
+    PARTS_SUMMARY,
+    /** Folding parsed diagnostic reports into per-VIN, per-type and per-status aggregates. */
+    AGGREGATE,
+    /** Loading a file's jobs from the parse-result cache instead of parsing it. */
+    CACHE_LOAD,
+    /** One file end to end (read, parse and validate) inside ConcurrentFileParserService. */
+    FILE
+}
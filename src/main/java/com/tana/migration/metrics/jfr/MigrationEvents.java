@@ -0,0 +1,170 @@
+package com.tana.migration.metrics.jfr;
+
+/**
+ * Entry point for the custom Flight Recorder events of a migration run.
+ *
+ * The project targets Java 8, where {@code jdk.jfr} does not exist, so callers never touch JFR types:
+ * the event classes are compiled separately for Java 11 and loaded here only if the running JVM has
+ * {@code jdk.jfr}. On any other JVM every event is a shared no-op.
+ *
+ * Usage: begin an event before the operation, and once it ends, set the fields only if
+ * {@code finish()} returns true, so disabled events cost no more than the two calls.
+ * <pre>
+ * MigrationEvents.Parse event = MigrationEvents.get().beginParse();
+ * ...
+ * if (event.finish()) {
+ *     event.commit(filePath, "JSON", bytes, jobs.size(), false, true);
+ * }
+ * </pre>
+ *
+ * Thread-safe; each event instance is used by one thread.
+ */
+public abstract class MigrationEvents {
+
+    /** Graph operation name for cycle detection. */
+    public static final String CYCLE_DETECTION = "cycleDetection";
+    /** Graph operation name for mapping to RMJ format. */
+    public static final String MAP = "map";
+
+    private static final String JFR_IMPLEMENTATION = "com.tana.migration.metrics.jfr.JfrMigrationEvents";
+
+    private static final MigrationEvents INSTANCE = load();
+
+    /**
+     * @return Flight Recorder events if the JVM supports them, otherwise no-op events
+     */
+    public static MigrationEvents get() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return true if events are recorded by Flight Recorder, false if they are no-ops
+     */
+    public abstract boolean isRecording();
+
+    /**
+     * @return Started event for parsing one competitor or diagnostic file
+     */
+    public abstract Parse beginParse();
+
+    /**
+     * @return Started event for reconciling two sources
+     */
+    public abstract Reconcile beginReconcile();
+
+    /**
+     * @return Started event for cycle detection or mapping over the dependency graph
+     */
+    public abstract Graph beginGraph();
+
+    /**
+     * @return Started event for summarising one parts consumption file
+     */
+    public abstract PartsSummary beginPartsSummary();
+
+    private static MigrationEvents load() {
+        try {
+            Class.forName("jdk.jfr.Event", false, MigrationEvents.class.getClassLoader());
+            return (MigrationEvents) Class.forName(JFR_IMPLEMENTATION).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError | SecurityException e) {
+            // No jdk.jfr (Java 8), or the Java 11 event classes cannot be loaded
+            return NoOp.INSTANCE;
+        }
+    }
+
+    /**
+     * Event in progress; ended once.
+     */
+    public interface Event {
+        /**
+         * Ends the event's timing.
+         *
+         * @return true if the event is recorded, and its fields should be set by a commit call
+         */
+        boolean finish();
+    }
+
+    /**
+     * Parsing one file; recorded as {@code com.tana.migration.Parse}.
+     */
+    public interface Parse extends Event {
+        void commit(String filePath, String format, long bytes, int jobCount, boolean validated, boolean success);
+    }
+
+    /**
+     * Reconciling two sources; recorded as {@code com.tana.migration.Reconcile}.
+     */
+    public interface Reconcile extends Event {
+        void commit(int source1Jobs, int source2Jobs, int reconciledJobs, int conflicts);
+    }
+
+    /**
+     * Cycle detection or mapping; recorded as {@code com.tana.migration.Graph}.
+     */
+    public interface Graph extends Event {
+        /**
+         * @param operation {@link #CYCLE_DETECTION} or {@link #MAP}
+         */
+        void commit(String operation, boolean compact, int jobCount, int cycleCount, int mappedJobs);
+    }
+
+    /**
+     * Summarising one parts consumption file; recorded as {@code com.tana.migration.PartsSummary}.
+     */
+    public interface PartsSummary extends Event {
+        void commit(String filePath, long bytes, int transactionCount, int uniquePartSkus, boolean success);
+    }
+
+    /**
+     * Events of a JVM without Flight Recorder: never recorded, and shared since they hold no state.
+     */
+    private static final class NoOp extends MigrationEvents implements Parse, Reconcile, Graph, PartsSummary {
+        static final NoOp INSTANCE = new NoOp();
+
+        @Override
+        public boolean isRecording() {
+            return false;
+        }
+
+        @Override
+        public Parse beginParse() {
+            return this;
+        }
+
+        @Override
+        public Reconcile beginReconcile() {
+            return this;
+        }
+
+        @Override
+        public Graph beginGraph() {
+            return this;
+        }
+
+        @Override
+        public PartsSummary beginPartsSummary() {
+            return this;
+        }
+
+        @Override
+        public boolean finish() {
+            return false;
+        }
+
+        @Override
+        public void commit(String filePath, String format, long bytes, int jobCount, boolean validated, boolean success) {
+        }
+
+        @Override
+        public void commit(int source1Jobs, int source2Jobs, int reconciledJobs, int conflicts) {
+        }
+
+        @Override
+        public void commit(String operation, boolean compact, int jobCount, int cycleCount, int mappedJobs) {
+        }
+
+        @Override
+        public void commit(String filePath, long bytes, int transactionCount, int uniquePartSkus, boolean success) {
+        }
+    }
+}
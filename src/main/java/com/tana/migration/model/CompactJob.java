@@ -0,0 +1,154 @@
+package com.tana.migration.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact, immutable representation of a competitor job.
+ * Alternative to {@link CompetitorJob} for very large exports: the job id and dependency ids
+ * are primitives, dependency statuses are one-byte codes and all strings are references
+ * into a shared {@link JobStringPool}.
+ *
+ * A CompetitorJob with one dependency costs a dozen objects (boxed ids, JobDependency,
+ * ArrayList and its backing array, strings); a CompactJob costs three (itself and two arrays).
+ */
+public final class CompactJob {
+    private static final int[] NO_DEPENDENCIES = new int[0];
+    private static final byte[] NO_STATUSES = new byte[0];
+
+    private final int jobId;
+    private final int nameRef;
+    private final int notesRef;
+    private final int sourceRef;
+    private final int[] dependencyIds;
+    private final byte[] dependencyStatuses;
+
+    /**
+     * Creates a compact job. The arrays are owned by the new instance and must not be modified afterwards.
+     *
+     * @param jobId Job id
+     * @param nameRef Pool reference of the job name
+     * @param notesRef Pool reference of the notes
+     * @param sourceRef Pool reference of the source file
+     * @param dependencyIds Ids of the jobs this job depends on
+     * @param dependencyStatuses Status codes parallel to dependencyIds
+     */
+    public CompactJob(int jobId, int nameRef, int notesRef, int sourceRef,
+                      int[] dependencyIds, byte[] dependencyStatuses) {
+        if (dependencyIds == null) {
+            dependencyIds = NO_DEPENDENCIES;
+        }
+        if (dependencyStatuses == null) {
+            dependencyStatuses = dependencyIds.length == 0 ? NO_STATUSES : new byte[dependencyIds.length];
+        }
+        if (dependencyStatuses.length != dependencyIds.length) {
+            throw new IllegalArgumentException("Dependency ids and statuses must have the same length");
+        }
+        this.jobId = jobId;
+        this.nameRef = nameRef;
+        this.notesRef = notesRef;
+        this.sourceRef = sourceRef;
+        this.dependencyIds = dependencyIds;
+        this.dependencyStatuses = dependencyStatuses;
+    }
+
+    /**
+     * Converts a CompetitorJob into its compact form.
+     *
+     * @param job Job to convert (job id and dependency ids must not be null)
+     * @param pool Pool receiving the job strings
+     * @return Compact job
+     */
+    public static CompactJob from(CompetitorJob job, JobStringPool pool) {
+        if (job.getJobId() == null) {
+            throw new IllegalArgumentException("Job id cannot be null");
+        }
+        List<JobDependency> dependencies = job.getDependencies();
+        int count = dependencies != null ? dependencies.size() : 0;
+        int[] ids = count == 0 ? NO_DEPENDENCIES : new int[count];
+        byte[] codes = count == 0 ? NO_STATUSES : new byte[count];
+        for (int i = 0; i < count; i++) {
+            JobDependency dependency = dependencies.get(i);
+            if (dependency.getDependentJobId() == null) {
+                throw new IllegalArgumentException("Job " + job.getJobId() + " has dependency with null job_id");
+            }
+            ids[i] = dependency.getDependentJobId();
+            codes[i] = pool.internStatus(dependency.getStatus());
+        }
+        return new CompactJob(job.getJobId(), pool.intern(job.getJobName()), pool.intern(job.getNotes()),
+                pool.intern(job.getSourceFile()), ids, codes);
+    }
+
+    /**
+     * Expands this job back into a CompetitorJob.
+     *
+     * @param pool Pool the references of this job belong to
+     * @return Equivalent CompetitorJob
+     */
+    public CompetitorJob toCompetitorJob(JobStringPool pool) {
+        CompetitorJob job = new CompetitorJob(jobId, pool.get(nameRef));
+        job.setNotes(pool.get(notesRef));
+        job.setSourceFile(pool.get(sourceRef));
+        for (int i = 0; i < dependencyIds.length; i++) {
+            job.addDependency(new JobDependency(dependencyIds[i], pool.getStatus(dependencyStatuses[i])));
+        }
+        return job;
+    }
+
+    public int getJobId() {
+        return jobId;
+    }
+
+    public int getNameRef() {
+        return nameRef;
+    }
+
+    public int getNotesRef() {
+        return notesRef;
+    }
+
+    public int getSourceRef() {
+        return sourceRef;
+    }
+
+    public int getDependencyCount() {
+        return dependencyIds.length;
+    }
+
+    public int getDependencyId(int index) {
+        return dependencyIds[index];
+    }
+
+    public byte getDependencyStatus(int index) {
+        return dependencyStatuses[index];
+    }
+
+    /**
+     * @return Copy of the dependency ids
+     */
+    public int[] getDependencyIds() {
+        return dependencyIds.clone();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CompactJob that = (CompactJob) o;
+        return jobId == that.jobId;
+    }
+
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(jobId);
+    }
+
+    @Override
+    public String toString() {
+        return "CompactJob{" +
+                "jobId=" + jobId +
+                ", nameRef=" + nameRef +
+                ", dependencyIds=" + Arrays.toString(dependencyIds) +
+                '}';
+    }
+}
@@ -0,0 +1,119 @@
+package com.tana.migration.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Objects;
+
+/**
+ * A vehicle diagnostic report, as delivered in the diag_report_*.json files.
+ * Each report records the status of one diagnostic step (report_type) for one vehicle (vin).
+ */
+public class DiagnosticReport {
+    private String vin;
+
+    @JsonProperty("sequence_id")
+    private Long sequenceId;
+
+    @JsonProperty("report_type")
+    private String reportType;
+
+    @JsonProperty("timestamp_utc")
+    private Long timestampUtc;
+
+    @JsonProperty("status_code")
+    private String statusCode;
+
+    @JsonIgnore
+    private String sourceFile;
+
+    public DiagnosticReport() {
+    }
+
+    public DiagnosticReport(String vin, Long sequenceId, String reportType, Long timestampUtc, String statusCode) {
+        this.vin = vin;
+        this.sequenceId = sequenceId;
+        this.reportType = reportType;
+        this.timestampUtc = timestampUtc;
+        this.statusCode = statusCode;
+    }
+
+    public String getVin() {
+        return vin;
+    }
+
+    public void setVin(String vin) {
+        this.vin = vin;
+    }
+
+    public Long getSequenceId() {
+        return sequenceId;
+    }
+
+    public void setSequenceId(Long sequenceId) {
+        this.sequenceId = sequenceId;
+    }
+
+    public String getReportType() {
+        return reportType;
+    }
+
+    public void setReportType(String reportType) {
+        this.reportType = reportType;
+    }
+
+    /**
+     * @return Report time in seconds since the epoch (UTC)
+     */
+    public Long getTimestampUtc() {
+        return timestampUtc;
+    }
+
+    public void setTimestampUtc(Long timestampUtc) {
+        this.timestampUtc = timestampUtc;
+    }
+
+    public String getStatusCode() {
+        return statusCode;
+    }
+
+    public void setStatusCode(String statusCode) {
+        this.statusCode = statusCode;
+    }
+
+    public String getSourceFile() {
+        return sourceFile;
+    }
+
+    public void setSourceFile(String sourceFile) {
+        this.sourceFile = sourceFile;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        DiagnosticReport that = (DiagnosticReport) o;
+        return Objects.equals(vin, that.vin)
+                && Objects.equals(sequenceId, that.sequenceId)
+                && Objects.equals(reportType, that.reportType)
+                && Objects.equals(timestampUtc, that.timestampUtc)
+                && Objects.equals(statusCode, that.statusCode);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(vin, sequenceId, reportType, timestampUtc, statusCode);
+    }
+
+    @Override
+    public String toString() {
+        return "DiagnosticReport{" +
+                "vin='" + vin + '\'' +
+                ", sequenceId=" + sequenceId +
+                ", reportType='" + reportType + '\'' +
+                ", timestampUtc=" + timestampUtc +
+                ", statusCode='" + statusCode + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,132 @@
+package com.tana.migration.model;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared string table for {@link CompactJob}.
+ * Job names, notes and source files are stored once and referenced by int index;
+ * dependency statuses (e.g., "Success") are interned into a single byte code.
+ *
+ * Thread Safety:
+ * - Lookups of already interned values are lock-free (ConcurrentHashMap)
+ * - New values are appended under a lock and published through a volatile array
+ * - One pool can be shared by parsers running on different threads
+ */
+public class JobStringPool {
+
+    /** Reference used for null strings. */
+    public static final int NULL_REF = -1;
+
+    /** Status code used for a null/absent dependency status. */
+    public static final byte NO_STATUS = 0;
+
+    private static final int MAX_STATUSES = 255;
+
+    private final ConcurrentHashMap<String, Integer> refs = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Byte> statusCodes = new ConcurrentHashMap<>();
+    private final Object lock = new Object();
+
+    private volatile String[] values = new String[256];
+    private volatile String[] statuses = new String[MAX_STATUSES + 1];
+    private int size;
+    private int statusCount;
+
+    /**
+     * Returns the reference for the given value, adding it to the pool if needed.
+     *
+     * @param value String to intern (may be null)
+     * @return Index into this pool, or {@link #NULL_REF} for null
+     */
+    public int intern(String value) {
+        if (value == null) {
+            return NULL_REF;
+        }
+        Integer ref = refs.get(value);
+        if (ref != null) {
+            return ref;
+        }
+        synchronized (lock) {
+            ref = refs.get(value);
+            if (ref != null) {
+                return ref;
+            }
+            String[] current = values;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            current[size] = value;
+            values = current; // volatile write publishes the new slot
+            ref = size++;
+            refs.put(value, ref);
+            return ref;
+        }
+    }
+
+    /**
+     * Resolves a reference produced by {@link #intern(String)}.
+     *
+     * @param ref Pool reference
+     * @return Interned string, or null for {@link #NULL_REF}
+     */
+    public String get(int ref) {
+        if (ref == NULL_REF) {
+            return null;
+        }
+        return values[ref];
+    }
+
+    /**
+     * Interns a dependency status into a one-byte code.
+     *
+     * @param status Dependency status (may be null)
+     * @return Status code, {@link #NO_STATUS} for null
+     * @throws IllegalStateException if more than 255 distinct statuses are interned
+     */
+    public byte internStatus(String status) {
+        if (status == null) {
+            return NO_STATUS;
+        }
+        Byte code = statusCodes.get(status);
+        if (code != null) {
+            return code;
+        }
+        synchronized (lock) {
+            code = statusCodes.get(status);
+            if (code != null) {
+                return code;
+            }
+            if (statusCount == MAX_STATUSES) {
+                throw new IllegalStateException("Too many distinct dependency statuses: " + MAX_STATUSES);
+            }
+            String[] current = statuses;
+            current[++statusCount] = status;
+            statuses = current;
+            code = (byte) statusCount;
+            statusCodes.put(status, code);
+            return code;
+        }
+    }
+
+    /**
+     * Resolves a status code produced by {@link #internStatus(String)}.
+     *
+     * @param code Status code
+     * @return Status string, or null for {@link #NO_STATUS}
+     */
+    public String getStatus(byte code) {
+        if (code == NO_STATUS) {
+            return null;
+        }
+        return statuses[code & 0xFF];
+    }
+
+    /**
+     * @return Number of distinct strings held by this pool (statuses excluded)
+     */
+    public int size() {
+        synchronized (lock) {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.tana.migration.output;
+
+import com.tana.migration.model.RmjJob;
+
+import java.io.IOException;
+
+/**
+ * Receives RMJ jobs one at a time as they are mapped, so callers do not have to hold
+ * the whole migration in memory.
+ */
+@FunctionalInterface
+public interface RmjJobSink {
+
+    /**
+     * Accepts one mapped job. The sink must not keep the job unless it needs to.
+     *
+     * @param job Mapped job
+     * @throws IOException if the job cannot be written
+     */
+    void write(RmjJob job) throws IOException;
+}
@@ -0,0 +1,11 @@
+package com.tana.migration.output;
+
+/**
+ * Output formats of {@link StreamingRmjWriter}.
+ */
+public enum RmjOutputFormat {
+    /** One RMJ job object per line. */
+    JSON_LINES,
+    /** A single JSON array of RMJ job objects, the shape Jackson produces for a List&lt;RmjJob&gt;. */
+    JSON_ARRAY
+}
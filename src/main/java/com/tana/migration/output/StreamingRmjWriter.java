@@ -0,0 +1,267 @@
+package com.tana.migration.output;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.tana.migration.model.RmjJob;
+import com.tana.migration.util.DirectBufferPool;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Writes RMJ jobs to a file as they are produced.
+ *
+ * Jobs are encoded by a Jackson streaming generator into a pooled direct buffer that is written to a
+ * {@link FileChannel} whenever it fills up or a flush is due, so memory use does not grow with the
+ * number of jobs. Each job object has the same properties as Jackson's serialization of {@link RmjJob}.
+ *
+ * Flushing and syncing are configurable: data can be flushed every N jobs and forced to the storage
+ * device per {@link SyncPolicy}.
+ *
+ * Not thread-safe.
+ */
+public class StreamingRmjWriter implements RmjJobSink, Closeable {
+
+    /** Flush interval that flushes only when the buffer is full. */
+    public static final int FLUSH_WHEN_FULL = 0;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final RmjOutputFormat format;
+    private final int flushEveryJobs;
+    private final SyncPolicy syncPolicy;
+    private final ChannelOutputStream out;
+    private final JsonGenerator generator;
+    private long count;
+    private boolean closed;
+
+    /**
+     * Creates a writer that flushes when its buffer is full and syncs on close.
+     *
+     * @param filePath File to create or replace
+     * @param format Output format
+     * @throws IOException if the file cannot be opened
+     */
+    public StreamingRmjWriter(String filePath, RmjOutputFormat format) throws IOException {
+        this(filePath, format, FLUSH_WHEN_FULL, SyncPolicy.ON_CLOSE, null);
+    }
+
+    /**
+     * Creates a writer.
+     *
+     * @param filePath File to create or replace
+     * @param format Output format
+     * @param flushEveryJobs Number of jobs between flushes ({@link #FLUSH_WHEN_FULL} to flush only when the buffer is full)
+     * @param syncPolicy When data is forced to the storage device (if null, uses {@link SyncPolicy#ON_CLOSE})
+     * @param bufferPool Pool the output buffer is taken from (if null, uses {@link DirectBufferPool#shared()})
+     * @throws IOException if the file cannot be opened
+     */
+    public StreamingRmjWriter(String filePath, RmjOutputFormat format, int flushEveryJobs,
+                              SyncPolicy syncPolicy, DirectBufferPool bufferPool) throws IOException {
+        if (flushEveryJobs < 0) {
+            throw new IllegalArgumentException("Flush interval must not be negative");
+        }
+        this.format = format;
+        this.flushEveryJobs = flushEveryJobs;
+        this.syncPolicy = syncPolicy != null ? syncPolicy : SyncPolicy.ON_CLOSE;
+        FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.out = new ChannelOutputStream(channel, bufferPool != null ? bufferPool : DirectBufferPool.shared());
+        try {
+            this.generator = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8);
+            if (format == RmjOutputFormat.JSON_LINES) {
+                generator.setRootValueSeparator(new SerializedString("\n"));
+            } else {
+                generator.writeStartArray();
+            }
+        } catch (IOException | RuntimeException e) {
+            out.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes all jobs to a new file.
+     *
+     * @param filePath File to create or replace
+     * @param format Output format
+     * @param jobs Jobs to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(String filePath, RmjOutputFormat format, List<RmjJob> jobs) throws IOException {
+        try (StreamingRmjWriter writer = new StreamingRmjWriter(filePath, format)) {
+            for (RmjJob job : jobs) {
+                writer.write(job);
+            }
+        }
+    }
+
+    @Override
+    public void write(RmjJob job) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Writer is closed");
+        }
+        generator.writeStartObject();
+        writeNullableInt("jobId", job.getJobId());
+        generator.writeStringField("jobName", job.getJobName());
+        generator.writeFieldName("dependencyJobIds");
+        if (job.getDependencyJobIds() == null) {
+            generator.writeNull();
+        } else {
+            generator.writeStartArray();
+            for (Integer dependencyId : job.getDependencyJobIds()) {
+                if (dependencyId == null) {
+                    generator.writeNull();
+                } else {
+                    generator.writeNumber(dependencyId);
+                }
+            }
+            generator.writeEndArray();
+        }
+        generator.writeStringField("notes", job.getNotes());
+        generator.writeStringField("triggerType", job.getTriggerType());
+        generator.writeEndObject();
+
+        count++;
+        if (flushEveryJobs > 0 && count % flushEveryJobs == 0) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes buffered output to the file, and forces it to the device under {@link SyncPolicy#ON_FLUSH}.
+     *
+     * @throws IOException if the output cannot be written
+     */
+    public void flush() throws IOException {
+        generator.flush();
+        if (syncPolicy == SyncPolicy.ON_FLUSH) {
+            out.sync();
+        }
+    }
+
+    /**
+     * @return Number of jobs written so far
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return Number of bytes written to the file so far (buffered bytes are not counted)
+     */
+    public long getBytesWritten() {
+        return out.bytesWritten;
+    }
+
+    /**
+     * Completes the output, syncs it unless the policy is {@link SyncPolicy#NONE} and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (format == RmjOutputFormat.JSON_ARRAY) {
+                generator.writeEndArray();
+            } else if (count > 0) {
+                generator.writeRaw('\n');
+            }
+            generator.flush();
+            if (syncPolicy != SyncPolicy.NONE) {
+                out.sync();
+            }
+        } finally {
+            generator.close();
+            out.close();
+        }
+    }
+
+    private void writeNullableInt(String fieldName, Integer value) throws IOException {
+        generator.writeFieldName(fieldName);
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(value);
+        }
+    }
+
+    /**
+     * Output stream that collects bytes in a pooled direct buffer and writes full buffers to a channel.
+     */
+    private static final class ChannelOutputStream extends OutputStream {
+        private final FileChannel channel;
+        private final DirectBufferPool pool;
+        private ByteBuffer buffer;
+        private long bytesWritten;
+
+        ChannelOutputStream(FileChannel channel, DirectBufferPool pool) {
+            this.channel = channel;
+            this.pool = pool;
+            this.buffer = pool.acquire();
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (!buffer.hasRemaining()) {
+                    drain();
+                }
+                int n = Math.min(length, buffer.remaining());
+                buffer.put(bytes, offset, n);
+                offset += n;
+                length -= n;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            drain();
+        }
+
+        void sync() throws IOException {
+            drain();
+            channel.force(true);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (buffer == null) {
+                return;
+            }
+            try {
+                drain();
+            } finally {
+                pool.release(buffer);
+                buffer = null;
+                channel.close();
+            }
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                bytesWritten += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.tana.migration.output;
+
+/**
+ * When {@link StreamingRmjWriter} forces written data to the storage device.
+ */
+public enum SyncPolicy {
+    /** Never; the operating system writes the data back on its own schedule. */
+    NONE,
+    /** Once, when the writer is closed. */
+    ON_CLOSE,
+    /** On every flush, so at most one flush interval of jobs is lost on a crash. */
+    ON_FLUSH
+}
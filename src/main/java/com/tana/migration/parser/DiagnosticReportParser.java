@@ -0,0 +1,207 @@
+package com.tana.migration.parser;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.tana.migration.exception.DataAnomalyException;
+import com.tana.migration.exception.InvalidJobDataException;
+import com.tana.migration.exception.SchemaMismatchException;
+import com.tana.migration.metrics.MigrationMetrics;
+import com.tana.migration.metrics.Stage;
+import com.tana.migration.metrics.jfr.MigrationEvents;
+import com.tana.migration.model.DiagnosticReport;
+import com.tana.migration.util.CompressedInput;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parser for vehicle diagnostic report files (diag_report_*.json).
+ *
+ * A file may hold a single report object, a JSON array of reports, or a sequence of root report
+ * objects (newline-delimited JSON). Reports are read field by field with a Jackson streaming parser,
+ * so no intermediate tree is built, and report types and status codes are interned.
+ *
+ * Thread-safe; one instance can parse files on several threads.
+ */
+public class DiagnosticReportParser {
+
+    private static final String REPORT_SCHEMA = "JSON DiagnosticReport objects";
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final StringInternPool internPool;
+    private final MigrationMetrics metrics;
+
+    public DiagnosticReportParser() {
+        this(StringInternPool.getDefault());
+    }
+
+    /**
+     * @param internPool Pool used to share repeated report types, status codes and source files
+     */
+    public DiagnosticReportParser(StringInternPool internPool) {
+        this(internPool, null);
+    }
+
+    /**
+     * @param internPool Pool used to share repeated report types, status codes and source files
+     * @param metrics Metrics receiving PARSE timings, report counts and bytes read (if null, disabled)
+     */
+    public DiagnosticReportParser(StringInternPool internPool, MigrationMetrics metrics) {
+        this.internPool = internPool != null ? internPool : StringInternPool.getDefault();
+        this.metrics = metrics != null ? metrics : MigrationMetrics.noOp();
+    }
+
+    /**
+     * Parses and checks every report in a file.
+     *
+     * @param filePath Path to the diagnostic report file, optionally gzip-compressed
+     * @return Reports in file order
+     * @throws SchemaMismatchException if the file holds anything other than diagnostic reports
+     * @throws InvalidJobDataException if the file is empty, malformed or a report misses a required field
+     */
+    public List<DiagnosticReport> parse(String filePath) throws DataAnomalyException {
+        File file = new File(filePath);
+        if (!file.exists()) {
+            throw new InvalidJobDataException("File not found: " + filePath, null, "File does not exist");
+        }
+
+        MigrationEvents.Parse event = MigrationEvents.get().beginParse();
+        long start = metrics.startTimer();
+        List<DiagnosticReport> reports = null;
+        try {
+            reports = readReports(filePath);
+            metrics.recordSince(Stage.PARSE, start);
+            if (metrics.isEnabled()) {
+                metrics.addRecords(Stage.PARSE, reports.size());
+                metrics.addBytesRead(file.length());
+            }
+            return reports;
+        } catch (DataAnomalyException e) {
+            metrics.recordError(Stage.PARSE);
+            throw e;
+        } finally {
+            if (event.finish()) {
+                event.commit(file.getPath(), "DIAGNOSTIC", file.length(), reports != null ? reports.size() : 0,
+                    true, reports != null);
+            }
+        }
+    }
+
+    private List<DiagnosticReport> readReports(String filePath) throws DataAnomalyException {
+        List<DiagnosticReport> reports = new ArrayList<>();
+        String sourceFile = internPool.intern(StringInternPool.Field.SOURCE_FILE, filePath);
+
+        try (JsonParser parser = JSON_FACTORY.createParser(CompressedInput.open(filePath))) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token == JsonToken.START_ARRAY) {
+                    while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                        if (token == null) {
+                            throw new InvalidJobDataException("Failed to parse diagnostic file: " + filePath, null,
+                                "Unexpected end of input inside report array");
+                        }
+                        if (token != JsonToken.VALUE_NULL) {
+                            reports.add(readReport(parser, token, filePath, sourceFile, reports.size()));
+                        }
+                    }
+                } else {
+                    reports.add(readReport(parser, token, filePath, sourceFile, reports.size()));
+                }
+            }
+        } catch (IOException e) {
+            throw new InvalidJobDataException("Failed to parse diagnostic file: " + filePath, null, e.getMessage(), e);
+        }
+
+        if (reports.isEmpty()) {
+            throw new InvalidJobDataException("No diagnostic reports in file: " + filePath, null,
+                "File contains no reports");
+        }
+        return reports;
+    }
+
+    /**
+     * Binds one report object, starting at its START_OBJECT token.
+     */
+    private DiagnosticReport readReport(JsonParser parser, JsonToken token, String filePath, String sourceFile,
+                                        int index) throws IOException, DataAnomalyException {
+        if (token != JsonToken.START_OBJECT) {
+            throw new SchemaMismatchException("Schema mismatch in diagnostic file: " + filePath,
+                REPORT_SCHEMA, "report " + token);
+        }
+
+        DiagnosticReport report = new DiagnosticReport();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "vin":
+                    report.setVin(readString(parser, value));
+                    break;
+                case "sequence_id":
+                    report.setSequenceId(readLong(parser, value, field, filePath, index));
+                    break;
+                case "report_type":
+                    report.setReportType(internPool.intern(StringInternPool.Field.REPORT_TYPE, readString(parser, value)));
+                    break;
+                case "timestamp_utc":
+                    report.setTimestampUtc(readLong(parser, value, field, filePath, index));
+                    break;
+                case "status_code":
+                    report.setStatusCode(internPool.intern(StringInternPool.Field.STATUS_CODE, readString(parser, value)));
+                    break;
+                default:
+                    throw new SchemaMismatchException("Schema mismatch in diagnostic file: " + filePath,
+                        REPORT_SCHEMA, "unknown report field '" + field + "'");
+            }
+        }
+
+        String missing = report.getVin() == null || report.getVin().trim().isEmpty() ? "vin"
+            : report.getReportType() == null ? "report_type"
+            : report.getTimestampUtc() == null ? "timestamp_utc"
+            : report.getStatusCode() == null ? "status_code"
+            : null;
+        if (missing != null) {
+            throw new InvalidJobDataException("Invalid diagnostic report in file: " + filePath, null,
+                "Report " + index + " missing required field: " + missing);
+        }
+
+        report.setSourceFile(sourceFile);
+        return report;
+    }
+
+    private static String readString(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        return parser.getText();
+    }
+
+    /**
+     * Reads an integer field, accepting numeric strings.
+     */
+    private static Long readLong(JsonParser parser, JsonToken value, String field, String filePath, int index)
+            throws IOException, InvalidJobDataException {
+        if (value == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (value == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getLongValue();
+        }
+        if (value == JsonToken.VALUE_STRING) {
+            try {
+                return Long.parseLong(parser.getText().trim());
+            } catch (NumberFormatException e) {
+                // Reported below
+            }
+        }
+        throw new InvalidJobDataException("Invalid diagnostic report in file: " + filePath, null,
+            "Report " + index + " has non-integer " + field + ": " + parser.getText());
+    }
+}
@@ -0,0 +1,242 @@
+package com.tana.migration.parser;
+
+import com.tana.migration.util.CompressedInput;
+import com.tana.migration.util.InterruptibleInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a large JSON array file into byte ranges that each hold whole top-level elements,
+ * so the elements can be parsed by several threads at once.
+ *
+ * The split is a single byte scan that only tracks nesting depth and string literals; no tokens
+ * are created, so it runs much faster than the parse it enables. Each range can then be read with
+ * {@link #openRange(String, long, long)}, which wraps the bytes in brackets to form a valid JSON array.
+ */
+public final class JsonArraySplitter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private JsonArraySplitter() {
+    }
+
+    /**
+     * Byte range [start, end) of a file.
+     */
+    public static final class Range {
+        private final long start;
+        private final long end;
+
+        Range(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+
+        public long getLength() {
+            return end - start;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + start + ", " + end + ")";
+        }
+    }
+
+    /**
+     * Splits the root array of a JSON file into ranges of roughly chunkSize bytes.
+     * Ranges end on an element boundary, so a range may be larger than chunkSize when a single element is.
+     *
+     * @param filePath Path to the JSON file
+     * @param chunkSize Target number of bytes per range
+     * @return Ranges in file order, or an empty list if the root is not a well-formed array
+     *         (the caller should then parse the file as a whole so the usual error is reported)
+     * @throws IOException if the file cannot be read
+     */
+    public static List<Range> split(String filePath, long chunkSize) throws IOException {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+
+        List<Range> ranges = new ArrayList<>();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long position = 0;
+        long chunkStart = -1;
+        int depth = 0;
+        boolean inString = false;
+        boolean escaped = false;
+        boolean hasElement = false;
+
+        try (InputStream in = CompressedInput.openFile(filePath)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                for (int i = 0; i < read; i++, position++) {
+                    byte b = buffer[i];
+                    if (inString) {
+                        if (escaped) {
+                            escaped = false;
+                        } else if (b == '\\') {
+                            escaped = true;
+                        } else if (b == '"') {
+                            inString = false;
+                        }
+                        continue;
+                    }
+                    if (depth == 0) {
+                        if (b == '[' && chunkStart < 0) {
+                            depth = 1;
+                            chunkStart = position + 1;
+                        } else if (!isWhitespace(b) && !(position < 3 && isBomByte(b))) {
+                            return new ArrayList<>();
+                        }
+                        continue;
+                    }
+                    switch (b) {
+                        case '"':
+                            inString = true;
+                            hasElement = true;
+                            break;
+                        case '[':
+                        case '{':
+                            depth++;
+                            hasElement = true;
+                            break;
+                        case ']':
+                        case '}':
+                            depth--;
+                            if (depth == 0) {
+                                if (hasElement) {
+                                    ranges.add(new Range(chunkStart, position));
+                                }
+                                return trailingContentIsBlank(buffer, i + 1, read, in) ? ranges : new ArrayList<>();
+                            }
+                            break;
+                        case ',':
+                            if (depth == 1 && position - chunkStart >= chunkSize) {
+                                ranges.add(new Range(chunkStart, position));
+                                chunkStart = position + 1;
+                            }
+                            break;
+                        default:
+                            if (!isWhitespace(b)) {
+                                hasElement = true;
+                            }
+                    }
+                }
+            }
+        }
+        // Root array never closed
+        return new ArrayList<>();
+    }
+
+    /**
+     * Opens a range returned by {@link #split(String, long)} as a JSON array.
+     *
+     * @param filePath Path to the JSON file
+     * @param start First byte of the range
+     * @param end Byte after the range
+     * @return Stream of '[', the range bytes and ']'
+     * @throws IOException if the file cannot be opened or positioned
+     */
+    public static InputStream openRange(String filePath, long start, long end) throws IOException {
+        InputStream file = CompressedInput.openFile(filePath);
+        try {
+            long skipped = 0;
+            while (skipped < start) {
+                long n = file.skip(start - skipped);
+                if (n <= 0) {
+                    throw new IOException("Range start " + start + " is beyond the end of " + filePath);
+                }
+                skipped += n;
+            }
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+        InputStream range = new BoundedInputStream(new BufferedInputStream(new InterruptibleInputStream(file), BUFFER_SIZE), end - start);
+        return new SequenceInputStream(new SequenceInputStream(
+            new ByteArrayInputStream(new byte[] {'['}), range),
+            new ByteArrayInputStream(new byte[] {']'}));
+    }
+
+    private static boolean trailingContentIsBlank(byte[] buffer, int from, int read, InputStream in) throws IOException {
+        for (int i = from; i < read; i++) {
+            if (!isWhitespace(buffer[i])) {
+                return false;
+            }
+        }
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            for (int i = 0; i < n; i++) {
+                if (!isWhitespace(buffer[i])) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+    private static boolean isBomByte(byte b) {
+        int value = b & 0xFF;
+        return value == 0xEF || value == 0xBB || value == 0xBF;
+    }
+
+    /**
+     * Input stream that returns at most a fixed number of bytes of the underlying stream.
+     */
+    static final class BoundedInputStream extends InputStream {
+        private final InputStream in;
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long limit) {
+            this.in = in;
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = in.read(b, off, (int) Math.min(len, remaining));
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -1,16 +1,33 @@
 package com.tana.migration.parser;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tana.migration.CompetitorParser;
+import com.tana.migration.ValidationResult;
 import com.tana.migration.exception.DataAnomalyException;
 import com.tana.migration.exception.InvalidJobDataException;
+import com.tana.migration.exception.SchemaMismatchException;
+import com.tana.migration.metrics.MigrationMetrics;
+import com.tana.migration.metrics.Stage;
+import com.tana.migration.metrics.jfr.MigrationEvents;
+import com.tana.migration.model.CompactJob;
 import com.tana.migration.model.CompetitorJob;
 import com.tana.migration.model.JobDependency;
+import com.tana.migration.model.JobStringPool;
+import com.tana.migration.util.CompressedInput;
+import com.tana.migration.util.Compression;
+import com.tana.migration.util.IntHashSet;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
@@ -20,84 +37,530 @@ import java.util.Set;
  * 
  * Follows Single Responsibility Principle - only handles JSON parsing.
  */
-public class JsonCompetitorParser implements CompetitorParser {
+public class JsonCompetitorParser implements SplittableParser {
+    
+    private static final String JOB_ARRAY_SCHEMA = "JSON array of CompetitorJob objects";
+    private static final String JOB_LINES_SCHEMA = "newline-delimited JSON CompetitorJob objects";
+    private static final Set<String> JOB_FIELDS = new HashSet<>(
+        Arrays.asList("job_id", "job_name", "dependencies", "notes"));
     
     private final ObjectMapper objectMapper;
+    private final StringInternPool internPool;
+    private final MigrationMetrics metrics;
+    private final boolean lineDelimited;
+    private final String schema;
     
     public JsonCompetitorParser() {
+        this(StringInternPool.getDefault());
+    }
+    
+    /**
+     * @param internPool Pool used to share repeated names, notes and statuses across parsed files
+     */
+    public JsonCompetitorParser(StringInternPool internPool) {
+        this(internPool, null);
+    }
+    
+    /**
+     * @param internPool Pool used to share repeated names, notes and statuses across parsed files
+     * @param metrics Metrics receiving PARSE and VALIDATE timings, job counts and bytes read (if null, disabled)
+     */
+    public JsonCompetitorParser(StringInternPool internPool, MigrationMetrics metrics) {
+        this(internPool, metrics, false);
+    }
+    
+    /**
+     * @param internPool Pool used to share repeated names, notes and statuses across parsed files
+     * @param metrics Metrics receiving PARSE and VALIDATE timings, job counts and bytes read (if null, disabled)
+     * @param lineDelimited Whether files hold a sequence of root job objects (NDJSON) instead of one array
+     */
+    JsonCompetitorParser(StringInternPool internPool, MigrationMetrics metrics, boolean lineDelimited) {
         this.objectMapper = new ObjectMapper();
+        this.internPool = internPool != null ? internPool : StringInternPool.getDefault();
+        this.metrics = metrics != null ? metrics : MigrationMetrics.noOp();
+        this.lineDelimited = lineDelimited;
+        this.schema = lineDelimited ? JOB_LINES_SCHEMA : JOB_ARRAY_SCHEMA;
     }
     
+    /**
+     * Parses the JSON array of jobs in a single streaming pass.
+     * The root token and the field names of the first job are checked against the
+     * CompetitorJob schema before anything else is bound, so a file with a different
+     * schema fails with a {@link SchemaMismatchException} after reading only its first few KB.
+     */
     @Override
     public List<CompetitorJob> parse(String filePath) throws DataAnomalyException {
+        return parseJobs(filePath, null, false);
+    }
+    
+    /**
+     * Parses and validates in the same streaming pass: required fields, duplicate ids
+     * (tracked in a primitive int set) and null dependency ids are checked as each job is bound.
+     */
+    @Override
+    public List<CompetitorJob> parseAndValidate(String filePath) throws DataAnomalyException {
+        return parseJobs(filePath, null, true);
+    }
+    
+    /**
+     * Same single pass as {@link #parseAndValidate(String)}, reading the jobs from content already in memory.
+     */
+    @Override
+    public List<CompetitorJob> parseAndValidate(String filePath, ByteBuffer content) throws DataAnomalyException {
+        return parseJobs(filePath, content, true);
+    }
+    
+    private List<CompetitorJob> parseJobs(String filePath, ByteBuffer content, boolean validate)
+            throws DataAnomalyException {
+        File file = new File(filePath);
+        if (content == null && !file.exists()) {
+            throw new InvalidJobDataException("File not found: " + filePath, null, "File does not exist");
+        }
+        
+        MigrationEvents.Parse event = MigrationEvents.get().beginParse();
+        long start = metrics.startTimer();
+        List<CompetitorJob> jobs = null;
         try {
-            File file = new File(filePath);
-            if (!file.exists()) {
-                throw new InvalidJobDataException("File not found: " + filePath, null, "File does not exist");
+            jobs = readJobs(filePath, content, validate);
+            metrics.recordSince(Stage.PARSE, start);
+            if (metrics.isEnabled()) {
+                metrics.addRecords(Stage.PARSE, jobs.size());
+                metrics.addBytesRead(content != null ? content.remaining() : file.length());
             }
-            
-            // Parse JSON array of jobs
-            CompetitorJob[] jobsArray = objectMapper.readValue(file, CompetitorJob[].class);
-            List<CompetitorJob> jobs = new ArrayList<>();
-            
-            for (CompetitorJob job : jobsArray) {
-                if (job != null) {
-                    job.setSourceFile(filePath);
-                    jobs.add(job);
-                }
-            }
-            
             return jobs;
-            
+        } catch (DataAnomalyException e) {
+            metrics.recordError(Stage.PARSE);
+            throw e;
+        } finally {
+            commitParseEvent(event, file, jobs, validate);
+        }
+    }
+    
+    private static void commitParseEvent(MigrationEvents.Parse event, File file, List<CompetitorJob> jobs,
+                                         boolean validated) {
+        if (event.finish()) {
+            event.commit(file.getPath(), "JSON", file.length(), jobs != null ? jobs.size() : 0, validated, jobs != null);
+        }
+    }
+    
+    private List<CompetitorJob> readJobs(String filePath, ByteBuffer content, boolean validate)
+            throws DataAnomalyException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(
+                content != null ? CompressedInput.open(content, filePath) : CompressedInput.open(filePath))) {
+            return readJobs(parser, filePath, validate);
         } catch (IOException e) {
             throw new InvalidJobDataException("Failed to parse JSON file: " + filePath, null, e.getMessage(), e);
         }
     }
     
+    /**
+     * Splits the file with {@link JsonArraySplitter}, or {@link NdjsonSplitter} for line-delimited files.
+     * Compressed files are not split.
+     */
     @Override
-    public void validate(List<CompetitorJob> jobs) throws DataAnomalyException {
-        if (jobs == null || jobs.isEmpty()) {
-            throw new InvalidJobDataException("No jobs found in data", null, "Empty job list");
+    public List<JsonArraySplitter.Range> split(String filePath, long chunkSize) throws IOException {
+        if (CompressedInput.detect(filePath) != Compression.NONE) {
+            return new ArrayList<>();
+        }
+        return lineDelimited ? NdjsonSplitter.split(filePath, chunkSize) : JsonArraySplitter.split(filePath, chunkSize);
+    }
+    
+    /**
+     * Parses the jobs in one byte range of the file, as returned by {@link #split(String, long)}.
+     * Lets a large file be parsed by several threads; the caller validates the combined jobs
+     * with {@link #check(List)} because duplicate ids can span ranges.
+     * 
+     * @param filePath Path to the JSON file
+     * @param range Range of whole jobs
+     * @return Jobs in the range, in file order
+     * @throws DataAnomalyException if the range cannot be parsed
+     */
+    @Override
+    public List<CompetitorJob> parseRange(String filePath, JsonArraySplitter.Range range) throws DataAnomalyException {
+        long start = metrics.startTimer();
+        try (InputStream in = lineDelimited
+                 ? NdjsonSplitter.openRange(filePath, range.getStart(), range.getEnd())
+                 : JsonArraySplitter.openRange(filePath, range.getStart(), range.getEnd());
+             JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            List<CompetitorJob> jobs = readJobs(parser, filePath, false);
+            metrics.recordSince(Stage.PARSE, start);
+            if (metrics.isEnabled()) {
+                metrics.addRecords(Stage.PARSE, jobs.size());
+                metrics.addBytesRead(range.getLength());
+            }
+            return jobs;
+        } catch (IOException e) {
+            metrics.recordError(Stage.PARSE);
+            throw new InvalidJobDataException("Failed to parse JSON file: " + filePath, null,
+                "Bytes " + range + ": " + e.getMessage(), e);
+        } catch (DataAnomalyException e) {
+            metrics.recordError(Stage.PARSE);
+            throw e;
         }
+    }
+    
+    private List<CompetitorJob> readJobs(JsonParser parser, String filePath, boolean validate)
+            throws IOException, DataAnomalyException {
+        List<CompetitorJob> jobs = new ArrayList<>();
+        IntHashSet jobIds = validate ? new IntHashSet() : null;
+        List<String> errors = null;
         
-        Set<Integer> jobIds = new HashSet<>();
-        List<String> errors = new ArrayList<>();
+        beginJobs(parser, filePath);
         
-        for (CompetitorJob job : jobs) {
-            // Validate required fields
-            if (job.getJobId() == null) {
-                errors.add("Job missing required field: job_id");
+        String sourceFile = internPool.intern(StringInternPool.Field.SOURCE_FILE, filePath);
+        boolean first = true;
+        
+        JsonToken token;
+        while ((token = nextJobToken(parser, filePath)) != null) {
+            if (token == JsonToken.VALUE_NULL) {
                 continue;
             }
             
-            if (job.getJobName() == null || job.getJobName().trim().isEmpty()) {
-                errors.add("Job " + job.getJobId() + " missing required field: job_name");
+            CompetitorJob job;
+            if (first && token == JsonToken.START_OBJECT) {
+                // Inspect the first job's field names before binding it
+                JsonNode firstJob = parser.readValueAsTree();
+                checkJobFields(firstJob.fieldNames(), filePath);
+                job = objectMapper.treeToValue(firstJob, CompetitorJob.class);
+            } else {
+                job = objectMapper.readValue(parser, CompetitorJob.class);
             }
+            first = false;
             
-            // Check for duplicate job IDs
-            if (jobIds.contains(job.getJobId())) {
-                errors.add("Duplicate job_id found: " + job.getJobId());
-            } else {
-                jobIds.add(job.getJobId());
+            if (job != null) {
+                job.setSourceFile(sourceFile);
+                internStrings(job);
+                jobs.add(job);
+                if (validate) {
+                    errors = checkJob(job, jobIds, errors);
+                }
+            }
+        }
+        
+        if (validate) {
+            if (jobs.isEmpty()) {
+                throw ValidationResult.emptyJobList().toException();
+            }
+            if (errors != null) {
+                throw ValidationResult.of(errors).toException();
+            }
+        }
+        return jobs;
+    }
+    
+    /**
+     * Applies the {@link #check(List)} rules to one job.
+     * 
+     * @return The error list, allocated on the first error
+     */
+    private static List<String> checkJob(CompetitorJob job, IntHashSet jobIds, List<String> errors) {
+        if (job.getJobId() == null) {
+            return addError(errors, "Job missing required field: job_id");
+        }
+        
+        if (job.getJobName() == null || job.getJobName().trim().isEmpty()) {
+            errors = addError(errors, "Job " + job.getJobId() + " missing required field: job_name");
+        }
+        
+        if (!jobIds.add(job.getJobId())) {
+            errors = addError(errors, "Duplicate job_id found: " + job.getJobId());
+        }
+        
+        for (JobDependency dep : job.getDependencies()) {
+            if (dep == null) {
+                errors = addError(errors, "Job " + job.getJobId() + " has null dependency");
+            } else if (dep.getDependentJobId() == null) {
+                errors = addError(errors, "Job " + job.getJobId() + " has dependency with null job_id");
+            }
+        }
+        return errors;
+    }
+    
+    private static List<String> addError(List<String> errors, String error) {
+        if (errors == null) {
+            errors = new ArrayList<>();
+        }
+        errors.add(error);
+        return errors;
+    }
+    
+    /**
+     * Checks that a file looks like a JSON array of CompetitorJob objects without parsing it.
+     * Reads the root token and the field names of the first job only.
+     * 
+     * @param filePath Path to the JSON file
+     * @throws SchemaMismatchException if the document does not follow the CompetitorJob schema
+     * @throws DataAnomalyException if the file cannot be read
+     */
+    public void checkSchema(String filePath) throws DataAnomalyException {
+        File file = new File(filePath);
+        if (!file.exists()) {
+            throw new InvalidJobDataException("File not found: " + filePath, null, "File does not exist");
+        }
+        
+        try (JsonParser parser = objectMapper.getFactory().createParser(CompressedInput.openInline(filePath))) {
+            beginJobs(parser, filePath);
+            JsonToken token = nextJobToken(parser, filePath);
+            while (token == JsonToken.VALUE_NULL) {
+                token = nextJobToken(parser, filePath);
             }
+            if (token == JsonToken.START_OBJECT) {
+                List<String> fieldNames = new ArrayList<>();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    fieldNames.add(parser.getCurrentName());
+                    parser.nextToken();
+                    parser.skipChildren();
+                }
+                checkJobFields(fieldNames.iterator(), filePath);
+            } else if (token != null) {
+                throw new SchemaMismatchException("Schema mismatch in JSON file: " + filePath,
+                    schema, (lineDelimited ? "root " : "array element ") + describe(token));
+            }
+        } catch (IOException e) {
+            throw new InvalidJobDataException("Failed to parse JSON file: " + filePath, null, e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Positions the parser before the first job: past the root '[' of an array file,
+     * or at the start of a line-delimited file.
+     */
+    private void beginJobs(JsonParser parser, String filePath) throws IOException, SchemaMismatchException {
+        if (lineDelimited) {
+            return;
+        }
+        JsonToken root = parser.nextToken();
+        if (root != JsonToken.START_ARRAY) {
+            throw new SchemaMismatchException("Schema mismatch in JSON file: " + filePath,
+                schema, "root " + describe(root));
+        }
+    }
+    
+    /**
+     * Reads the first token of the next job.
+     * 
+     * @return The token, or null after the last job
+     */
+    private JsonToken nextJobToken(JsonParser parser, String filePath) throws IOException, DataAnomalyException {
+        JsonToken token = parser.nextToken();
+        if (lineDelimited) {
+            if (token == JsonToken.START_ARRAY) {
+                throw new SchemaMismatchException("Schema mismatch in JSON file: " + filePath,
+                    schema, "root array");
+            }
+            return token;
+        }
+        if (token == null) {
+            throw new InvalidJobDataException("Failed to parse JSON file: " + filePath, null,
+                "Unexpected end of input inside job array");
+        }
+        return token == JsonToken.END_ARRAY ? null : token;
+    }
+    
+    private void checkJobFields(Iterator<String> fieldNames, String filePath) throws SchemaMismatchException {
+        while (fieldNames.hasNext()) {
+            String field = fieldNames.next();
+            if (!JOB_FIELDS.contains(field)) {
+                throw new SchemaMismatchException("Schema mismatch in JSON file: " + filePath,
+                    schema, "unknown job field '" + field + "'");
+            }
+        }
+    }
+    
+    private static String describe(JsonToken token) {
+        if (token == null) {
+            return "empty document";
+        }
+        switch (token) {
+            case START_OBJECT:
+                return "object";
+            case START_ARRAY:
+                return "array";
+            case VALUE_STRING:
+                return "string";
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return "number";
+            default:
+                return token.asString() != null ? token.asString() : token.name();
+        }
+    }
+    
+    /**
+     * Replaces the job's strings with their shared instances from the intern pool.
+     */
+    private void internStrings(CompetitorJob job) {
+        job.setJobName(internPool.intern(StringInternPool.Field.JOB_NAME, job.getJobName()));
+        job.setNotes(internPool.intern(StringInternPool.Field.NOTES, job.getNotes()));
+        for (JobDependency dep : job.getDependencies()) {
+            if (dep != null) {
+                dep.setStatus(internPool.intern(StringInternPool.Field.DEPENDENCY_STATUS, dep.getStatus()));
+            }
+        }
+    }
+    
+    /**
+     * Streams the JSON array straight into CompactJob instances.
+     * No CompetitorJob, JobDependency or boxed Integer objects are created along the way.
+     */
+    @Override
+    public List<CompactJob> parseCompact(String filePath, JobStringPool pool) throws DataAnomalyException {
+        File file = new File(filePath);
+        if (!file.exists()) {
+            throw new InvalidJobDataException("File not found: " + filePath, null, "File does not exist");
+        }
+        
+        int sourceRef = pool.intern(filePath);
+        List<CompactJob> jobs = new ArrayList<>();
+        
+        try (JsonParser parser = objectMapper.getFactory().createParser(CompressedInput.open(filePath))) {
+            beginJobs(parser, filePath);
             
-            // Validate dependencies reference existing jobs
-            if (job.getDependencies() != null) {
-                for (JobDependency dep : job.getDependencies()) {
-                    if (dep.getDependentJobId() == null) {
-                        errors.add("Job " + job.getJobId() + " has dependency with null job_id");
-                    }
+            JsonToken token;
+            while ((token = nextJobToken(parser, filePath)) != null) {
+                if (token == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                if (token != JsonToken.START_OBJECT) {
+                    throw new InvalidJobDataException("Failed to parse JSON file: " + filePath, null,
+                        "Expected a job object but found " + token);
                 }
+                jobs.add(readCompactJob(parser, pool, sourceRef));
             }
+            
+            return jobs;
+            
+        } catch (IOException e) {
+            throw new InvalidJobDataException("Failed to parse JSON file: " + filePath, null, e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Reads one job object; the parser is positioned on its START_OBJECT token.
+     */
+    private CompactJob readCompactJob(JsonParser parser, JobStringPool pool, int sourceRef)
+            throws IOException, DataAnomalyException {
+        Integer jobId = null;
+        int nameRef = JobStringPool.NULL_REF;
+        int notesRef = JobStringPool.NULL_REF;
+        int[] dependencyIds = new int[0];
+        byte[] statuses = new byte[0];
+        int dependencyCount = 0;
+        
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "job_id":
+                    jobId = readNullableInt(parser, value);
+                    break;
+                case "job_name":
+                    nameRef = pool.intern(value == JsonToken.VALUE_NULL ? null : parser.getText());
+                    break;
+                case "notes":
+                    notesRef = pool.intern(value == JsonToken.VALUE_NULL ? null : parser.getText());
+                    break;
+                case "dependencies":
+                    if (value == JsonToken.VALUE_NULL) {
+                        break;
+                    }
+                    if (value != JsonToken.START_ARRAY) {
+                        throw new InvalidJobDataException("Job " + jobId + " has invalid dependencies", jobId,
+                            "Expected an array of dependencies but found " + describe(value));
+                    }
+                    JsonToken element;
+                    while ((element = parser.nextToken()) != JsonToken.END_ARRAY) {
+                        if (element == JsonToken.VALUE_NULL) {
+                            throw new InvalidJobDataException("Job " + jobId + " has null dependency",
+                                jobId, "Null dependency");
+                        }
+                        if (element != JsonToken.START_OBJECT) {
+                            throw new InvalidJobDataException("Job " + jobId + " has invalid dependency", jobId,
+                                "Expected a dependency object but found " + describe(element));
+                        }
+                        Integer dependentJobId = null;
+                        String status = null;
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String depField = parser.getCurrentName();
+                            JsonToken depValue = parser.nextToken();
+                            if ("job_id".equals(depField)) {
+                                dependentJobId = readNullableInt(parser, depValue);
+                            } else if ("status".equals(depField)) {
+                                status = depValue == JsonToken.VALUE_NULL ? null : parser.getText();
+                            } else {
+                                throw new InvalidJobDataException("Unrecognized dependency field: " + depField,
+                                    jobId, "Unknown field " + depField);
+                            }
+                        }
+                        if (dependentJobId == null) {
+                            throw new InvalidJobDataException("Job " + jobId + " has dependency with null job_id",
+                                jobId, "Null dependency job_id");
+                        }
+                        if (dependencyCount == dependencyIds.length) {
+                            int newLength = Math.max(4, dependencyCount * 2);
+                            dependencyIds = Arrays.copyOf(dependencyIds, newLength);
+                            statuses = Arrays.copyOf(statuses, newLength);
+                        }
+                        dependencyIds[dependencyCount] = dependentJobId;
+                        statuses[dependencyCount] = pool.internStatus(status);
+                        dependencyCount++;
+                    }
+                    break;
+                default:
+                    throw new SchemaMismatchException("Schema mismatch in JSON file: " + pool.get(sourceRef),
+                        schema, "unknown job field '" + field + "'");
+            }
+        }
+        
+        if (jobId == null) {
+            throw new InvalidJobDataException("Job missing required field: job_id", null, "Missing job_id");
+        }
+        if (dependencyCount != dependencyIds.length) {
+            dependencyIds = Arrays.copyOf(dependencyIds, dependencyCount);
+            statuses = Arrays.copyOf(statuses, dependencyCount);
+        }
+        return new CompactJob(jobId, nameRef, notesRef, sourceRef, dependencyIds, statuses);
+    }
+    
+    private static Integer readNullableInt(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (value == JsonToken.VALUE_STRING) {
+            try {
+                return Integer.valueOf(parser.getText().trim());
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid integer value: " + parser.getText(), e);
+            }
+        }
+        return parser.getIntValue();
+    }
+    
+    @Override
+    public void validate(List<CompetitorJob> jobs) throws DataAnomalyException {
+        check(jobs).throwIfInvalid();
+    }
+    
+    @Override
+    public ValidationResult check(List<CompetitorJob> jobs) {
+        if (jobs == null || jobs.isEmpty()) {
+            metrics.recordError(Stage.VALIDATE);
+            return ValidationResult.emptyJobList();
+        }
+        
+        long start = metrics.startTimer();
+        IntHashSet jobIds = new IntHashSet(jobs.size());
+        List<String> errors = null;
+        
+        for (CompetitorJob job : jobs) {
+            errors = checkJob(job, jobIds, errors);
         }
         
-        if (!errors.isEmpty()) {
-            throw new InvalidJobDataException(
-                "Validation failed: " + String.join("; ", errors),
-                null,
-                String.join("; ", errors)
-            );
+        metrics.recordSince(Stage.VALIDATE, start);
+        if (errors != null) {
+            metrics.recordError(Stage.VALIDATE);
         }
+        return ValidationResult.of(errors);
     }
 }
 
@@ -0,0 +1,33 @@
+package com.tana.migration.parser;
+
+import com.tana.migration.metrics.MigrationMetrics;
+
+/**
+ * Parser for newline-delimited JSON (NDJSON) competitor data files: one CompetitorJob object
+ * per line instead of one top-level array.
+ *
+ * Jobs are bound and validated exactly as by {@link JsonCompetitorParser}. Because job boundaries
+ * can be found by seeking to a line break, a large file is split without scanning it first
+ * (see {@link NdjsonSplitter}).
+ */
+public class NdjsonCompetitorParser extends JsonCompetitorParser {
+
+    public NdjsonCompetitorParser() {
+        this(StringInternPool.getDefault());
+    }
+
+    /**
+     * @param internPool Pool used to share repeated names, notes and statuses across parsed files
+     */
+    public NdjsonCompetitorParser(StringInternPool internPool) {
+        this(internPool, null);
+    }
+
+    /**
+     * @param internPool Pool used to share repeated names, notes and statuses across parsed files
+     * @param metrics Metrics receiving PARSE and VALIDATE timings, job counts and bytes read (if null, disabled)
+     */
+    public NdjsonCompetitorParser(StringInternPool internPool, MigrationMetrics metrics) {
+        super(internPool, metrics, true);
+    }
+}
@@ -0,0 +1,121 @@
+package com.tana.migration.parser;
+
+import com.tana.migration.util.IoThrottle;
+import com.tana.migration.util.ThrottledInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a newline-delimited JSON file into byte ranges that each hold whole job objects.
+ *
+ * Unlike {@link JsonArraySplitter}, no pass over the whole file is needed: for each range the splitter
+ * seeks to the target offset and reads forward to the next job boundary, a line break preceded by '}'
+ * and followed by '{' (ignoring whitespace). JSON strings cannot contain raw line breaks and nested
+ * objects are separated by commas, so that pattern only occurs between top-level objects; this also
+ * holds for streams of pretty-printed objects. Ranges are returned as {@link JsonArraySplitter.Range}
+ * so both splitters feed the same {@link SplittableParser} contract.
+ */
+public final class NdjsonSplitter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int SCAN_BUFFER_SIZE = 8 * 1024;
+
+    private NdjsonSplitter() {
+    }
+
+    /**
+     * Splits a file into ranges of roughly chunkSize bytes.
+     * Ranges end on a job boundary, so a range may be larger than chunkSize when a single job is
+     * or when no boundary follows the target offset.
+     *
+     * @param filePath Path to the NDJSON file
+     * @param chunkSize Target number of bytes per range
+     * @return Ranges covering the whole file in file order, or an empty list for an empty file
+     * @throws IOException if the file cannot be read
+     */
+    public static List<JsonArraySplitter.Range> split(String filePath, long chunkSize) throws IOException {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+
+        List<JsonArraySplitter.Range> ranges = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+            long start = 0;
+            while (size - start > chunkSize) {
+                long boundary = nextBoundary(channel, start + chunkSize, buffer);
+                if (boundary < 0) {
+                    break;
+                }
+                ranges.add(new JsonArraySplitter.Range(start, boundary));
+                start = boundary;
+            }
+            if (start < size) {
+                ranges.add(new JsonArraySplitter.Range(start, size));
+            }
+        }
+        return ranges;
+    }
+
+    /**
+     * Opens a range returned by {@link #split(String, long)}.
+     *
+     * @param filePath Path to the NDJSON file
+     * @param start First byte of the range
+     * @param end Byte after the range
+     * @return Stream of the range bytes
+     * @throws IOException if the file cannot be opened or positioned
+     */
+    public static InputStream openRange(String filePath, long start, long end) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+        try {
+            channel.position(start);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        InputStream file = new ThrottledInputStream(Channels.newInputStream(channel), IoThrottle.getDefault());
+        return new JsonArraySplitter.BoundedInputStream(new BufferedInputStream(file, BUFFER_SIZE), end - start);
+    }
+
+    /**
+     * Finds the first job boundary at or after from.
+     *
+     * @return Offset of the '{' that starts the next job, or -1 if there is none
+     */
+    private static long nextBoundary(FileChannel channel, long from, ByteBuffer buffer) throws IOException {
+        long position = from;
+        byte last = 0;
+        boolean lineBreakAfterObject = false;
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                return -1;
+            }
+            IoThrottle.getDefault().acquire(read);
+            for (int i = 0; i < read; i++, position++) {
+                byte b = buffer.get(i);
+                if (b == '\n') {
+                    lineBreakAfterObject |= last == '}';
+                } else if (b != ' ' && b != '\r' && b != '\t') {
+                    if (lineBreakAfterObject && b == '{') {
+                        return position;
+                    }
+                    lineBreakAfterObject = false;
+                    last = b;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.tana.migration.parser;
+
+import com.tana.migration.CompetitorParser;
+import com.tana.migration.exception.DataAnomalyException;
+import com.tana.migration.model.CompetitorJob;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A CompetitorParser that can parse one file as several independent byte ranges,
+ * so a large file can be spread over several threads.
+ *
+ * Ranges hold whole jobs. The caller joins the jobs of all ranges in file order and validates
+ * them together with {@link #check(List)}, because duplicate ids can span ranges.
+ */
+public interface SplittableParser extends CompetitorParser {
+
+    /**
+     * Splits a file into ranges of roughly chunkSize bytes.
+     *
+     * @param filePath Path to the file
+     * @param chunkSize Target number of bytes per range
+     * @return Ranges in file order, or an empty list if the file cannot be split
+     *         (the caller should then parse the file as a whole so the usual error is reported)
+     * @throws IOException if the file cannot be read
+     */
+    List<JsonArraySplitter.Range> split(String filePath, long chunkSize) throws IOException;
+
+    /**
+     * Parses the jobs in one range returned by {@link #split(String, long)}, without validating them.
+     *
+     * @param filePath Path to the file
+     * @param range Range of whole jobs
+     * @return Jobs in the range, in file order
+     * @throws DataAnomalyException if the range cannot be parsed
+     */
+    List<CompetitorJob> parseRange(String filePath, JsonArraySplitter.Range range) throws DataAnomalyException;
+}
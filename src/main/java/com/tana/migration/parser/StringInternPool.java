@@ -0,0 +1,323 @@
+package com.tana.migration.parser;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent, bounded interning pool for strings produced while parsing.
+ * Large exports repeat the same notes ("Part of cycle") and dependency statuses ("Success")
+ * thousands of times; the pool collapses them to one shared instance.
+ *
+ * Eviction:
+ * - Each field is bounded by its {@link Policy}. Its values are kept in two generations of half the bound
+ *   each; when the young generation is full, the old one is dropped and the young one becomes old
+ * - A value found in the old generation moves to the young one, so values still in use survive and values
+ *   of earlier migrations age out, roughly like an LRU cache without per-lookup bookkeeping
+ *
+ * Thread Safety:
+ * - Backed by ConcurrentHashMaps, safe to share across parser threads
+ * - Generations are replaced atomically, so {@link #clear()} and eviction are safe while parsers run
+ * - Hit/miss counters use LongAdder to avoid contention between threads
+ */
+public class StringInternPool {
+
+    /**
+     * Parsed fields that can be interned.
+     */
+    public enum Field {
+        JOB_NAME,
+        NOTES,
+        DEPENDENCY_STATUS,
+        SOURCE_FILE,
+        REPORT_TYPE,
+        STATUS_CODE
+    }
+
+    private static final StringInternPool DEFAULT = new StringInternPool();
+
+    private final Map<Field, FieldTable> tables = new EnumMap<>(Field.class);
+
+    /**
+     * Creates a pool with the default policy for every field.
+     */
+    public StringInternPool() {
+        this(new EnumMap<>(Field.class));
+    }
+
+    /**
+     * Creates a pool with the given per-field policies.
+     *
+     * @param policies Policy per field; fields without an entry use {@link Policy#defaultFor(Field)}
+     */
+    public StringInternPool(Map<Field, Policy> policies) {
+        for (Field field : Field.values()) {
+            Policy policy = policies != null ? policies.get(field) : null;
+            tables.put(field, new FieldTable(policy != null ? policy : Policy.defaultFor(field)));
+        }
+    }
+
+    /**
+     * Values of earlier migrations are evicted as later ones fill the default pool, so a long-running process
+     * keeps interning; {@link #clear()} releases them at once.
+     *
+     * @return Process-wide pool shared by parsers created with their default constructor
+     */
+    public static StringInternPool getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns the canonical instance of the given value for the field.
+     *
+     * @param field Field the value was read from
+     * @param value Parsed value (may be null)
+     * @return Shared instance, or the value itself if the policy does not allow interning it
+     */
+    public String intern(Field field, String value) {
+        if (value == null) {
+            return null;
+        }
+        return tables.get(field).intern(value);
+    }
+
+    /**
+     * @param field Field to report on
+     * @return Snapshot of the hit/miss statistics for the field
+     */
+    public Stats getStats(Field field) {
+        FieldTable table = tables.get(field);
+        return new Stats(field, table.hits.sum(), table.misses.sum(), table.bypassed.sum(), table.evicted.sum(),
+            table.size());
+    }
+
+    /**
+     * Removes all interned values and resets the statistics. Safe while other threads intern.
+     */
+    public void clear() {
+        for (FieldTable table : tables.values()) {
+            table.clear();
+        }
+    }
+
+    /**
+     * Interning policy for one field.
+     */
+    public static final class Policy {
+        private final boolean enabled;
+        private final int maxEntries;
+        private final int maxLength;
+
+        private Policy(boolean enabled, int maxEntries, int maxLength) {
+            this.enabled = enabled;
+            this.maxEntries = maxEntries;
+            this.maxLength = maxLength;
+        }
+
+        /**
+         * @param maxEntries Maximum number of distinct values kept for the field (at least 2, as two generations)
+         * @param maxLength Values longer than this are never interned
+         * @return Bounded policy
+         */
+        public static Policy bounded(int maxEntries, int maxLength) {
+            if (maxEntries <= 0 || maxLength <= 0) {
+                throw new IllegalArgumentException("maxEntries and maxLength must be positive");
+            }
+            return new Policy(true, maxEntries, maxLength);
+        }
+
+        /**
+         * @return Policy that never interns (for fields known to be unique)
+         */
+        public static Policy disabled() {
+            return new Policy(false, 0, 0);
+        }
+
+        /**
+         * Default policies: small tables for low-cardinality fields, larger ones for names and notes.
+         * Source file paths are not interned: each path is unique to one file, and a parser already shares
+         * one instance among the jobs of its file, so a table of paths would only fill up.
+         */
+        public static Policy defaultFor(Field field) {
+            switch (field) {
+                case DEPENDENCY_STATUS:
+                case REPORT_TYPE:
+                case STATUS_CODE:
+                    return bounded(256, 64);
+                case NOTES:
+                    return bounded(16_384, 512);
+                case SOURCE_FILE:
+                    return disabled();
+                case JOB_NAME:
+                default:
+                    return bounded(262_144, 256);
+            }
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public int getMaxLength() {
+            return maxLength;
+        }
+    }
+
+    /**
+     * Immutable snapshot of interning statistics for one field.
+     */
+    public static final class Stats {
+        private final Field field;
+        private final long hits;
+        private final long misses;
+        private final long bypassed;
+        private final long evicted;
+        private final int size;
+
+        Stats(Field field, long hits, long misses, long bypassed, long evicted, int size) {
+            this.field = field;
+            this.hits = hits;
+            this.misses = misses;
+            this.bypassed = bypassed;
+            this.evicted = evicted;
+            this.size = size;
+        }
+
+        public Field getField() {
+            return field;
+        }
+
+        /** Lookups that returned an already interned instance. */
+        public long getHits() {
+            return hits;
+        }
+
+        /** Lookups that added a new value to the pool. */
+        public long getMisses() {
+            return misses;
+        }
+
+        /** Lookups skipped because of the policy (disabled or too long). */
+        public long getBypassed() {
+            return bypassed;
+        }
+
+        /** Values dropped with an old generation. */
+        public long getEvicted() {
+            return evicted;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public double getHitRatio() {
+            long total = hits + misses + bypassed;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Stats{field=%s, hits=%d, misses=%d, bypassed=%d, evicted=%d, size=%d}",
+                    field, hits, misses, bypassed, evicted, size);
+        }
+    }
+
+    private static final class FieldTable {
+        private final Policy policy;
+        private final int generationSize;
+        private final AtomicReference<Generations> generations = new AtomicReference<>(new Generations());
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder bypassed = new LongAdder();
+        private final LongAdder evicted = new LongAdder();
+
+        FieldTable(Policy policy) {
+            this.policy = policy;
+            this.generationSize = Math.max(1, policy.getMaxEntries() / 2);
+        }
+
+        String intern(String value) {
+            if (!policy.isEnabled() || value.length() > policy.getMaxLength()) {
+                bypassed.increment();
+                return value;
+            }
+            while (true) {
+                Generations current = generations.get();
+                String existing = current.young.values.get(value);
+                if (existing != null) {
+                    hits.increment();
+                    return existing;
+                }
+                // Moved to the young generation, keeping the instance earlier jobs already share
+                String old = current.old.values.get(value);
+                String canonical = old != null ? old : value;
+                // Reserve a slot first so concurrent misses cannot overshoot the bound
+                if (current.young.size.incrementAndGet() > generationSize) {
+                    current.young.size.decrementAndGet();
+                    if (generations.compareAndSet(current, new Generations(current.young))) {
+                        evicted.add(current.old.size.get());
+                    }
+                    continue;
+                }
+                existing = current.young.values.putIfAbsent(value, canonical);
+                if (existing != null) {
+                    current.young.size.decrementAndGet();
+                    hits.increment();
+                    return existing;
+                }
+                if (old != null) {
+                    hits.increment();
+                } else {
+                    misses.increment();
+                }
+                return canonical;
+            }
+        }
+
+        int size() {
+            Generations current = generations.get();
+            return current.young.size.get() + current.old.size.get();
+        }
+
+        void clear() {
+            generations.set(new Generations());
+            hits.reset();
+            misses.reset();
+            bypassed.reset();
+            evicted.reset();
+        }
+    }
+
+    /**
+     * Young and old generation of a field; replaced as a whole, never modified in place.
+     */
+    private static final class Generations {
+        private final Generation young;
+        private final Generation old;
+
+        Generations() {
+            this(new Generation());
+        }
+
+        /**
+         * @param old Generation that was young until now
+         */
+        Generations(Generation old) {
+            this.young = new Generation();
+            this.old = old;
+        }
+    }
+
+    private static final class Generation {
+        private final ConcurrentHashMap<String, String> values = new ConcurrentHashMap<>();
+        private final AtomicInteger size = new AtomicInteger();
+    }
+}
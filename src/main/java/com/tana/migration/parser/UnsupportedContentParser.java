@@ -0,0 +1,46 @@
+package com.tana.migration.parser;
+
+import com.tana.migration.CompetitorParser;
+import com.tana.migration.ValidationResult;
+import com.tana.migration.exception.DataAnomalyException;
+import com.tana.migration.exception.InvalidJobDataException;
+import com.tana.migration.model.CompetitorJob;
+
+import java.util.List;
+
+/**
+ * Parser returned for files that do not contain competitor jobs.
+ * Fails immediately instead of running a full parse of the wrong schema.
+ */
+public class UnsupportedContentParser implements CompetitorParser {
+    
+    private final String contentDescription;
+    
+    /**
+     * @param contentDescription Human-readable description of the detected content
+     */
+    public UnsupportedContentParser(String contentDescription) {
+        this.contentDescription = contentDescription;
+    }
+    
+    @Override
+    public List<CompetitorJob> parse(String filePath) throws DataAnomalyException {
+        throw new InvalidJobDataException("Unsupported content in file: " + filePath, null,
+            "Detected " + contentDescription + ", not competitor job data");
+    }
+    
+    @Override
+    public void validate(List<CompetitorJob> jobs) throws DataAnomalyException {
+        check(jobs).throwIfInvalid();
+    }
+    
+    @Override
+    public ValidationResult check(List<CompetitorJob> jobs) {
+        return ValidationResult.rejected("No jobs found in data",
+            "Detected " + contentDescription + ", not competitor job data");
+    }
+    
+    public String getContentDescription() {
+        return contentDescription;
+    }
+}
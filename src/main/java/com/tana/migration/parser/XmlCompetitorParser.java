@@ -5,17 +5,29 @@ import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlElementWrapper;
 import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlProperty;
 import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlRootElement;
 import com.tana.migration.CompetitorParser;
+import com.tana.migration.ValidationResult;
 import com.tana.migration.exception.DataAnomalyException;
 import com.tana.migration.exception.InvalidJobDataException;
+import com.tana.migration.metrics.MigrationMetrics;
+import com.tana.migration.metrics.Stage;
+import com.tana.migration.metrics.jfr.MigrationEvents;
+import com.tana.migration.model.CompactJob;
 import com.tana.migration.model.CompetitorJob;
 import com.tana.migration.model.JobDependency;
+import com.tana.migration.model.JobStringPool;
 
+import com.tana.migration.util.CompressedInput;
+import com.tana.migration.util.IntHashSet;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 /**
  * XML parser implementation for competitor data files.
@@ -26,13 +38,94 @@ import java.util.Set;
 public class XmlCompetitorParser implements CompetitorParser {
     
     private final XmlMapper xmlMapper;
+    private final StringInternPool internPool;
+    private final MigrationMetrics metrics;
     
     public XmlCompetitorParser() {
+        this(StringInternPool.getDefault());
+    }
+    
+    /**
+     * @param internPool Pool used to share repeated names and paths across parsed files
+     */
+    public XmlCompetitorParser(StringInternPool internPool) {
+        this(internPool, null);
+    }
+    
+    /**
+     * @param internPool Pool used to share repeated names and paths across parsed files
+     * @param metrics Metrics receiving PARSE and VALIDATE timings, job counts and bytes read (if null, disabled)
+     */
+    public XmlCompetitorParser(StringInternPool internPool, MigrationMetrics metrics) {
         this.xmlMapper = new XmlMapper();
+        this.internPool = internPool != null ? internPool : StringInternPool.getDefault();
+        this.metrics = metrics != null ? metrics : MigrationMetrics.noOp();
     }
     
     @Override
     public List<CompetitorJob> parse(String filePath) throws DataAnomalyException {
+        MigrationEvents.Parse event = MigrationEvents.get().beginParse();
+        long start = metrics.startTimer();
+        List<CompetitorJob> jobs = null;
+        try {
+            jobs = recordParsed(filePath, start, readProcessChain(filePath));
+            return jobs;
+        } catch (DataAnomalyException e) {
+            metrics.recordError(Stage.PARSE);
+            throw e;
+        } finally {
+            commitParseEvent(event, filePath, jobs, false);
+        }
+    }
+    
+    /**
+     * Parses and validates in one streaming pass over the document (StAX).
+     * Each Job element is checked for required attributes and duplicate ids
+     * (tracked in a primitive int set) as soon as it is read.
+     */
+    @Override
+    public List<CompetitorJob> parseAndValidate(String filePath) throws DataAnomalyException {
+        return parseAndValidate(filePath, null);
+    }
+    
+    /**
+     * Same streaming pass as {@link #parseAndValidate(String)}, reading the document from content already in memory.
+     * A null content reads the file.
+     */
+    @Override
+    public List<CompetitorJob> parseAndValidate(String filePath, ByteBuffer content) throws DataAnomalyException {
+        MigrationEvents.Parse event = MigrationEvents.get().beginParse();
+        long start = metrics.startTimer();
+        List<CompetitorJob> jobs = null;
+        try {
+            jobs = recordParsed(filePath, start, streamAndValidate(filePath, content));
+            return jobs;
+        } catch (DataAnomalyException e) {
+            metrics.recordError(Stage.PARSE);
+            throw e;
+        } finally {
+            commitParseEvent(event, filePath, jobs, true);
+        }
+    }
+    
+    private List<CompetitorJob> recordParsed(String filePath, long start, List<CompetitorJob> jobs) {
+        metrics.recordSince(Stage.PARSE, start);
+        if (metrics.isEnabled()) {
+            metrics.addRecords(Stage.PARSE, jobs.size());
+            metrics.addBytesRead(new File(filePath).length());
+        }
+        return jobs;
+    }
+    
+    private static void commitParseEvent(MigrationEvents.Parse event, String filePath, List<CompetitorJob> jobs,
+                                         boolean validated) {
+        if (event.finish()) {
+            event.commit(filePath, "XML", new File(filePath).length(), jobs != null ? jobs.size() : 0, validated,
+                jobs != null);
+        }
+    }
+    
+    private List<CompetitorJob> readProcessChain(String filePath) throws DataAnomalyException {
         try {
             File file = new File(filePath);
             if (!file.exists()) {
@@ -40,15 +133,19 @@ public class XmlCompetitorParser implements CompetitorParser {
             }
             
             // Parse XML ProcessChain
-            ProcessChain processChain = xmlMapper.readValue(file, ProcessChain.class);
+            ProcessChain processChain;
+            try (InputStream in = CompressedInput.open(filePath)) {
+                processChain = xmlMapper.readValue(in, ProcessChain.class);
+            }
             List<CompetitorJob> jobs = new ArrayList<>();
             
             if (processChain != null && processChain.getJobs() != null) {
+                String sourceFile = internPool.intern(StringInternPool.Field.SOURCE_FILE, filePath);
                 for (XmlJob xmlJob : processChain.getJobs()) {
                     CompetitorJob job = new CompetitorJob();
                     job.setJobId(xmlJob.getId());
-                    job.setJobName(xmlJob.getName());
-                    job.setSourceFile(filePath);
+                    job.setJobName(internPool.intern(StringInternPool.Field.JOB_NAME, xmlJob.getName()));
+                    job.setSourceFile(sourceFile);
                     
                     // XML only supports single dependency via dependsOn attribute
                     if (xmlJob.getDependsOn() != null) {
@@ -67,41 +164,204 @@ public class XmlCompetitorParser implements CompetitorParser {
         }
     }
     
-    @Override
-    public void validate(List<CompetitorJob> jobs) throws DataAnomalyException {
-        if (jobs == null || jobs.isEmpty()) {
-            throw new InvalidJobDataException("No jobs found in data", null, "Empty job list");
+    private List<CompetitorJob> streamAndValidate(String filePath, ByteBuffer content) throws DataAnomalyException {
+        File file = new File(filePath);
+        if (content == null && !file.exists()) {
+            throw new InvalidJobDataException("File not found: " + filePath, null, "File does not exist");
         }
         
-        Set<Integer> jobIds = new HashSet<>();
-        List<String> errors = new ArrayList<>();
+        List<CompetitorJob> jobs = new ArrayList<>();
+        IntHashSet jobIds = new IntHashSet();
+        List<String> errors = null;
         
-        for (CompetitorJob job : jobs) {
-            // Validate required fields
-            if (job.getJobId() == null) {
-                errors.add("Job missing required field: id");
-                continue;
+        XMLStreamReader reader = null;
+        try (InputStream in = content != null ? CompressedInput.open(content, filePath) : CompressedInput.open(filePath)) {
+            reader = xmlMapper.getFactory().getXMLInputFactory().createXMLStreamReader(in);
+            String sourceFile = internPool.intern(StringInternPool.Field.SOURCE_FILE, filePath);
+            
+            reader.nextTag();
+            if (!"ProcessChain".equals(reader.getLocalName())) {
+                throw new InvalidJobDataException("Failed to parse XML file: " + filePath, null,
+                    "Unrecognized root element: " + reader.getLocalName());
+            }
+            while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                if (!"Job".equals(reader.getLocalName())) {
+                    throw new InvalidJobDataException("Failed to parse XML file: " + filePath, null,
+                        "Unrecognized element: " + reader.getLocalName());
+                }
+                
+                CompetitorJob job = readJob(reader, filePath);
+                job.setSourceFile(sourceFile);
+                jobs.add(job);
+                
+                // Validate while streaming
+                errors = checkJob(job, jobIds, errors);
+            }
+            
+        } catch (XMLStreamException | IOException e) {
+            throw new InvalidJobDataException("Failed to parse XML file: " + filePath, null, e.getMessage(), e);
+        } finally {
+            closeQuietly(reader);
+        }
+        
+        if (jobs.isEmpty()) {
+            throw ValidationResult.emptyJobList().toException();
+        }
+        if (errors != null) {
+            throw ValidationResult.of(errors).toException();
+        }
+        return jobs;
+    }
+    
+    /**
+     * Applies the {@link #check(List)} rules to one job.
+     * 
+     * @return The error list, allocated on the first error
+     */
+    private static List<String> checkJob(CompetitorJob job, IntHashSet jobIds, List<String> errors) {
+        if (job.getJobId() == null) {
+            return addError(errors, "Job missing required field: id");
+        }
+        
+        if (job.getJobName() == null || job.getJobName().trim().isEmpty()) {
+            errors = addError(errors, "Job " + job.getJobId() + " missing required field: name");
+        }
+        
+        if (!jobIds.add(job.getJobId())) {
+            errors = addError(errors, "Duplicate job id found: " + job.getJobId());
+        }
+        return errors;
+    }
+    
+    private static List<String> addError(List<String> errors, String error) {
+        if (errors == null) {
+            errors = new ArrayList<>();
+        }
+        errors.add(error);
+        return errors;
+    }
+    
+    /**
+     * Reads one Job element; the reader is positioned on its start tag and left on its end tag.
+     */
+    private CompetitorJob readJob(XMLStreamReader reader, String filePath)
+            throws XMLStreamException, DataAnomalyException {
+        CompetitorJob job = new CompetitorJob();
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String attribute = reader.getAttributeLocalName(i);
+            String value = reader.getAttributeValue(i);
+            switch (attribute) {
+                case "id":
+                    job.setJobId(parseIntAttribute(value, attribute, filePath));
+                    break;
+                case "name":
+                    job.setJobName(internPool.intern(StringInternPool.Field.JOB_NAME, value));
+                    break;
+                case "dependsOn":
+                    // XML only supports single dependency via dependsOn attribute
+                    Integer dependsOn = parseIntAttribute(value, attribute, filePath);
+                    if (dependsOn != null) {
+                        job.addDependency(new JobDependency(dependsOn));
+                    }
+                    break;
+                default:
+                    throw new InvalidJobDataException("Failed to parse XML file: " + filePath, null,
+                        "Unrecognized attribute: " + attribute);
+            }
+        }
+        if (reader.nextTag() != XMLStreamConstants.END_ELEMENT) {
+            throw new InvalidJobDataException("Failed to parse XML file: " + filePath, null,
+                "Unexpected child element in Job: " + reader.getLocalName());
+        }
+        return job;
+    }
+    
+    private static Integer parseIntAttribute(String value, String attribute, String filePath)
+            throws InvalidJobDataException {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            throw new InvalidJobDataException("Failed to parse XML file: " + filePath, null,
+                "Invalid integer for attribute " + attribute + ": " + value, e);
+        }
+    }
+    
+    private static void closeQuietly(XMLStreamReader reader) {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                // Nothing useful to do; the underlying stream is closed separately
+            }
+        }
+    }
+    
+    /**
+     * Maps the XML ProcessChain directly into CompactJob instances,
+     * skipping the intermediate CompetitorJob and JobDependency objects.
+     */
+    @Override
+    public List<CompactJob> parseCompact(String filePath, JobStringPool pool) throws DataAnomalyException {
+        try {
+            File file = new File(filePath);
+            if (!file.exists()) {
+                throw new InvalidJobDataException("File not found: " + filePath, null, "File does not exist");
             }
             
-            if (job.getJobName() == null || job.getJobName().trim().isEmpty()) {
-                errors.add("Job " + job.getJobId() + " missing required field: name");
+            ProcessChain processChain;
+            try (InputStream in = CompressedInput.open(filePath)) {
+                processChain = xmlMapper.readValue(in, ProcessChain.class);
             }
+            List<CompactJob> jobs = new ArrayList<>();
             
-            // Check for duplicate job IDs
-            if (jobIds.contains(job.getJobId())) {
-                errors.add("Duplicate job id found: " + job.getJobId());
-            } else {
-                jobIds.add(job.getJobId());
+            if (processChain != null && processChain.getJobs() != null) {
+                int sourceRef = pool.intern(filePath);
+                for (XmlJob xmlJob : processChain.getJobs()) {
+                    if (xmlJob.getId() == null) {
+                        throw new InvalidJobDataException("Job missing required field: id", null, "Missing id");
+                    }
+                    // XML only supports single dependency via dependsOn attribute
+                    int[] dependencyIds = xmlJob.getDependsOn() != null ? new int[] {xmlJob.getDependsOn()} : null;
+                    jobs.add(new CompactJob(xmlJob.getId(), pool.intern(xmlJob.getName()), JobStringPool.NULL_REF,
+                        sourceRef, dependencyIds, null));
+                }
             }
+            
+            return jobs;
+            
+        } catch (IOException e) {
+            throw new InvalidJobDataException("Failed to parse XML file: " + filePath, null, e.getMessage(), e);
+        }
+    }
+    
+    @Override
+    public void validate(List<CompetitorJob> jobs) throws DataAnomalyException {
+        check(jobs).throwIfInvalid();
+    }
+    
+    @Override
+    public ValidationResult check(List<CompetitorJob> jobs) {
+        if (jobs == null || jobs.isEmpty()) {
+            metrics.recordError(Stage.VALIDATE);
+            return ValidationResult.emptyJobList();
+        }
+        
+        long start = metrics.startTimer();
+        IntHashSet jobIds = new IntHashSet(jobs.size());
+        List<String> errors = null;
+        
+        for (CompetitorJob job : jobs) {
+            errors = checkJob(job, jobIds, errors);
         }
         
-        if (!errors.isEmpty()) {
-            throw new InvalidJobDataException(
-                "Validation failed: " + String.join("; ", errors),
-                null,
-                String.join("; ", errors)
-            );
+        metrics.recordSince(Stage.VALIDATE, start);
+        if (errors != null) {
+            metrics.recordError(Stage.VALIDATE);
         }
+        return ValidationResult.of(errors);
     }
     
     // Inner classes for XML structure mapping
@@ -0,0 +1,235 @@
+package com.tana.migration.service;
+
+import com.tana.migration.metrics.MigrationMetrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread pool that sizes itself from the wait/compute ratio of the tasks it runs, so the same
+ * configuration suits local disks, network file systems and compressed inputs.
+ *
+ * The wall time and CPU time ({@link ThreadMXBean#getCurrentThreadCpuTime()}) of every task are summed
+ * over a window of {@code sampleTasks} tasks. At the end of a window the pool size moves towards
+ * {@code cores * (1 + wait / compute)}, clamped to the configured bounds: up by one thread at a time
+ * (additive increase), down by a quarter of the pool at once (multiplicative decrease).
+ *
+ * When the process keeps every core busy, part of the measured wait is time spent waiting for a
+ * core rather than for I/O. The wait is then corrected by assuming every running task competes for the
+ * cores, and the pool does not grow; this stops a CPU-bound workload from inflating its own estimate.
+ * The pool does not grow either while its queue is empty, as more threads would have nothing to run.
+ *
+ * If the JVM cannot measure thread CPU time, the pool keeps its initial size.
+ */
+public class AdaptiveThreadPool extends ThreadPoolExecutor {
+
+    /** Default number of tasks per measurement window. */
+    public static final int DEFAULT_SAMPLE_TASKS = 32;
+
+    /** Share of the cores the pool's threads must use for the CPU to count as saturated. */
+    static final double SATURATED = 0.9;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final OperatingSystemMXBean OS = ManagementFactory.getOperatingSystemMXBean();
+    private static final ThreadLocal<long[]> TASK_START = ThreadLocal.withInitial(() -> new long[2]);
+
+    private final int minThreads;
+    private final int maxThreads;
+    private final int cores;
+    private final int sampleTasks;
+    private final MigrationMetrics metrics;
+    private final boolean measuring;
+    private final LongAdder wallNanos = new LongAdder();
+    private final LongAdder cpuNanos = new LongAdder();
+    private final AtomicInteger tasksInWindow = new AtomicInteger();
+    private final ReentrantLock adjustLock = new ReentrantLock();
+    private int reserved;
+    private long windowStart = System.nanoTime();
+    private long windowProcessCpu = processCpuTime();
+    private volatile double waitComputeRatio;
+
+    /**
+     * Creates a pool that starts at the number of cores, clamped to the bounds.
+     *
+     * @param minThreads Smallest pool size
+     * @param maxThreads Largest pool size
+     */
+    public AdaptiveThreadPool(int minThreads, int maxThreads) {
+        this(minThreads, maxThreads, DEFAULT_SAMPLE_TASKS, null);
+    }
+
+    /**
+     * @param minThreads Smallest pool size
+     * @param maxThreads Largest pool size
+     * @param sampleTasks Number of tasks measured before each adjustment
+     * @param metrics Metrics receiving every pool size chosen (if null, disabled)
+     */
+    public AdaptiveThreadPool(int minThreads, int maxThreads, int sampleTasks, MigrationMetrics metrics) {
+        this(minThreads, maxThreads, sampleTasks, metrics, Runtime.getRuntime().availableProcessors());
+    }
+
+    AdaptiveThreadPool(int minThreads, int maxThreads, int sampleTasks, MigrationMetrics metrics, int cores) {
+        super(clamp(cores, minThreads, maxThreads), clamp(cores, minThreads, maxThreads),
+            60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        if (minThreads < 1 || maxThreads < minThreads) {
+            throw new IllegalArgumentException("Thread bounds must satisfy 1 <= min <= max");
+        }
+        if (sampleTasks < 1) {
+            throw new IllegalArgumentException("Sample size must be positive");
+        }
+        this.minThreads = minThreads;
+        this.maxThreads = maxThreads;
+        this.cores = cores;
+        this.sampleTasks = sampleTasks;
+        this.metrics = metrics != null ? metrics : MigrationMetrics.noOp();
+        this.measuring = THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled();
+        this.metrics.poolSizeChanged(getCorePoolSize());
+    }
+
+    @Override
+    protected void beforeExecute(Thread thread, Runnable task) {
+        super.beforeExecute(thread, task);
+        if (measuring) {
+            long[] start = TASK_START.get();
+            start[0] = System.nanoTime();
+            start[1] = THREADS.getCurrentThreadCpuTime();
+        }
+    }
+
+    @Override
+    protected void afterExecute(Runnable task, Throwable failure) {
+        super.afterExecute(task, failure);
+        if (!measuring) {
+            return;
+        }
+        long[] start = TASK_START.get();
+        cpuNanos.add(THREADS.getCurrentThreadCpuTime() - start[1]);
+        wallNanos.add(System.nanoTime() - start[0]);
+        if (tasksInWindow.incrementAndGet() >= sampleTasks && adjustLock.tryLock()) {
+            try {
+                if (tasksInWindow.get() >= sampleTasks) {
+                    adjust();
+                }
+            } finally {
+                adjustLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Ends the current window and resizes the pool. Called with adjustLock held.
+     */
+    private void adjust() {
+        long now = System.nanoTime();
+        long elapsed = Math.max(1, now - windowStart);
+        tasksInWindow.set(0);
+        long wall = wallNanos.sumThenReset();
+        long cpu = Math.max(1, cpuNanos.sumThenReset());
+        long processCpu = processCpuTime();
+        windowStart = now;
+
+        // Average number of tasks running at once, and share of the cores used by the whole process,
+        // since other threads (parsers outside the pool, the JIT, GC) compete for the same cores
+        double active = (double) wall / elapsed;
+        double utilization = (double) Math.max(cpu, processCpu - windowProcessCpu) / elapsed / cores;
+        windowProcessCpu = processCpu;
+        boolean saturated = utilization >= SATURATED;
+        double contention = saturated ? Math.max(1.0, active / cores) : 1.0;
+        waitComputeRatio = Math.max(0.0, wall - cpu * contention) / cpu;
+
+        int current = getCorePoolSize() - reserved;
+        int next = nextPoolSize(current, minThreads, maxThreads, cores, waitComputeRatio);
+        if (next > current && (saturated || getQueue().isEmpty())) {
+            next = current;
+        }
+        if (next != current) {
+            resize(next + reserved);
+        }
+    }
+
+    /**
+     * Adds threads on top of the measured size, or removes them again, such as replacements for threads
+     * blocked in abandoned tasks. Reserved threads are not limited by the bounds.
+     *
+     * @param threads Number of threads to add (negative to remove)
+     */
+    void reserve(int threads) {
+        adjustLock.lock();
+        try {
+            reserved += threads;
+            resize(getCorePoolSize() + threads);
+        } finally {
+            adjustLock.unlock();
+        }
+    }
+
+    private void resize(int size) {
+        if (size > getMaximumPoolSize()) {
+            setMaximumPoolSize(size);
+            setCorePoolSize(size);
+        } else {
+            setCorePoolSize(size);
+            setMaximumPoolSize(size);
+        }
+        metrics.poolSizeChanged(size);
+    }
+
+    /**
+     * AIMD step towards {@code cores * (1 + waitComputeRatio)}.
+     *
+     * @return Pool size for the next window
+     */
+    static int nextPoolSize(int current, int minThreads, int maxThreads, int cores, double waitComputeRatio) {
+        int target = clamp(Math.round(cores * (1 + waitComputeRatio)), minThreads, maxThreads);
+        if (target > current) {
+            return current + 1;
+        }
+        if (target < current) {
+            return Math.max(target, current - Math.max(1, current / 4));
+        }
+        return current;
+    }
+
+    /**
+     * @return CPU time used by the process in nanoseconds, or 0 if the JVM does not report it
+     */
+    private static long processCpuTime() {
+        if (OS instanceof com.sun.management.OperatingSystemMXBean) {
+            return Math.max(0, ((com.sun.management.OperatingSystemMXBean) OS).getProcessCpuTime());
+        }
+        return 0;
+    }
+
+    private static int clamp(long size, int minThreads, int maxThreads) {
+        return (int) Math.max(minThreads, Math.min(maxThreads, size));
+    }
+
+    /**
+     * @return Wait/compute ratio measured over the last window (0 before the first adjustment)
+     */
+    public double getWaitComputeRatio() {
+        return waitComputeRatio;
+    }
+
+    public int getMinThreads() {
+        return minThreads;
+    }
+
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    /**
+     * @return false if thread CPU time cannot be measured, in which case the pool keeps its initial size
+     */
+    public boolean isAdaptive() {
+        return measuring;
+    }
+}
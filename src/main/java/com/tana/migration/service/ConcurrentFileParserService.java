@@ -1,30 +1,108 @@
 package com.tana.migration.service;
 
 import com.tana.migration.CompetitorParser;
+import com.tana.migration.ValidationResult;
 import com.tana.migration.exception.DataAnomalyException;
+import com.tana.migration.factory.ContentSniffingParserFactory;
 import com.tana.migration.factory.ParserFactory;
+import com.tana.migration.metrics.LatencyHistogram;
+import com.tana.migration.metrics.MigrationMetrics;
+import com.tana.migration.metrics.Stage;
 import com.tana.migration.model.CompetitorJob;
+import com.tana.migration.model.DiagnosticReport;
+import com.tana.migration.parser.DiagnosticReportParser;
+import com.tana.migration.parser.JsonArraySplitter;
+import com.tana.migration.parser.SplittableParser;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.NoSuchFileException;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
  * Service for parsing multiple competitor data files concurrently.
  * Uses ExecutorService for thread pool management and better control over concurrency.
  * 
+ * Scheduling:
+ * - Files are sized up front and submitted in the order of a pluggable comparator
+ *   (largest first by default), so a big file does not start last and become the tail of the run
+ * - JSON array and NDJSON files above an optional size threshold are split into ranges of whole jobs
+ *   that are parsed as separate tasks and validated together once all ranges are done. Finding the
+ *   ranges reads the whole file, so it is a pool task too, and the other files are submitted meanwhile
+ * - Results are always returned in the order of the input list
+ * - parseDirectories walks directory trees in parallel and submits files as they are found,
+ *   so parsing starts before discovery completes
+ * - With a ParseResultCache, files unchanged since an earlier run are loaded instead of parsed,
+ *   and valid files that had to be parsed are stored for the next run
+ * - parseDiagnosticReports parses diagnostic report files on the same pool and folds each file's
+ *   reports into a DiagnosticAggregator on the worker thread, so no combined report list is built
+ * 
+ * Stages:
+ * - By default each task reads and parses its file on a pool thread, so the pool size trades disk
+ *   concurrency against core count
+ * - With a FileReadStage, whole files are read asynchronously by the stage's I/O threads into pooled
+ *   buffers, and the pool, sized to the cores, only parses from memory. The stage's I/O threads and
+ *   buffer count are tuned separately from the parsing pool. Split files, files larger than a buffer
+ *   and files that may be cached are still read by the parsing pool
+ * - With a maximum pool size above the minimum, the parsing pool is an AdaptiveThreadPool that measures
+ *   the blocked and CPU time of its tasks and resizes itself between the two, so the pool size does not
+ *   have to be tuned for each storage type
+ * - With a MemoryBudget, a file's tasks start only while the estimated heap cost of all running tasks fits
+ *   in the budget; the others wait in scheduling order, so large files wait for capacity instead of
+ *   exhausting the heap. A hedged attempt is admitted like a new task, since it parses the file again
+ * - With a shared FairScheduler, the service has no pools of its own: each batch queues its parsing and
+ *   directory walking tasks on the scheduler, which divides one fixed set of threads between the batches of all services by weight and
+ *   runs small batches first, so several migrations in one JVM do not oversubscribe the cores
+ * - Every read of an input file, by parsers, splitters, the read stage or the cache, is accounted to
+ *   IoThrottle.getDefault(), so reads from shared storage can be capped in bytes and operations per second
+ *   without changing the number of threads
+ * 
+ * Deadlines:
+ * - With a DeadlinePolicy, a task that runs past the timeout fails with a timeout error instead of
+ *   holding up the batch; its threads are interrupted and parsers stop at their next read. A thread
+ *   stuck in a read that ignores interrupts is replaced in the pool until it returns. A hung read on the
+ *   read stage is abandoned, and its I/O thread and buffer slot are replaced until it returns, for up to
+ *   as many reads as the stage buffers files
+ * - With hedging, a task slower than a percentile of its peers in the batch gets a second attempt that
+ *   reads the file again, and the first attempt to finish wins. Tasks that started before enough peers had
+ *   finished get their hedge delay once they have, so the first wave, the largest files under LARGEST_FIRST,
+ *   is hedged as well
+ * - The deadlines of all services share one timer thread
+ * - The clock of a task starts when it starts running, or for a file read by the read stage, when the
+ *   stage starts its read, since a hung read is the usual reason to time out; the hedge delay is taken
+ *   from the peers finished by then
+ * 
  * Thread Safety:
  * - Each parsing task is independent (no shared mutable state during parsing)
- * - Results are collected using thread-safe Collections.synchronizedList
- * - Exceptions are collected in a thread-safe ConcurrentLinkedQueue
+ * - Results are gathered on the calling thread from each file's Futures
+ * - Files and errors found during discovery are collected in thread-safe ConcurrentLinkedQueues
  * - Final aggregation uses thread-safe operations
  */
 public class ConcurrentFileParserService {
     
+    /** Split threshold that disables splitting of large files. */
+    public static final long NO_SPLIT = Long.MAX_VALUE;
+    
     private final ExecutorService executorService;
-    private final int threadPoolSize;
+    private final FairScheduler scheduler;
+    private final double weight;
+    private final ForkJoinPool discoveryPool;
     private final ParserFactory parserFactory;
+    private final MigrationMetrics metrics;
+    private final Comparator<ScheduledFile> schedulingOrder;
+    private final long splitThresholdBytes;
+    private final ParseResultCache cache;
+    private final DiagnosticReportParser diagnosticParser;
+    private final FileReadStage readStage;
+    private final MemoryBudget memoryBudget;
+    private final DeadlinePolicy deadlinePolicy;
     
     /**
      * Creates a ConcurrentFileParserService with default thread pool size
@@ -47,13 +125,63 @@ public class ConcurrentFileParserService {
      * Creates a ConcurrentFileParserService with specified thread pool size and parser factory.
      * 
      * @param threadPoolSize Number of threads in the pool
-     * @param parserFactory Factory for creating parsers (if null, uses default FileExtensionParserFactory)
+     * @param parserFactory Factory for creating parsers (if null, uses default ContentSniffingParserFactory)
      */
     public ConcurrentFileParserService(int threadPoolSize, ParserFactory parserFactory) {
-        this.threadPoolSize = threadPoolSize;
-        this.executorService = Executors.newFixedThreadPool(threadPoolSize);
-        // Dependency Injection: Use provided factory or default implementation
-        this.parserFactory = parserFactory != null ? parserFactory : new com.tana.migration.factory.FileExtensionParserFactory();
+        this(threadPoolSize, parserFactory, null);
+    }
+    
+    /**
+     * Creates a ConcurrentFileParserService that reports per-file timings, queue depth and errors.
+     * The parser factory should be created with the same metrics to also get per-stage parser timings.
+     * 
+     * @param threadPoolSize Number of threads in the pool
+     * @param parserFactory Factory for creating parsers (if null, uses default ContentSniffingParserFactory)
+     * @param metrics Metrics to record into (if null, metrics are disabled)
+     */
+    public ConcurrentFileParserService(int threadPoolSize, ParserFactory parserFactory, MigrationMetrics metrics) {
+        this(builder().threadPoolSize(threadPoolSize).parserFactory(parserFactory).metrics(metrics));
+    }
+    
+    private ConcurrentFileParserService(Builder builder) {
+        if (builder.splitThresholdBytes < 1) {
+            throw new IllegalArgumentException("Split threshold must be positive");
+        }
+        if (!(builder.weight > 0)) {
+            throw new IllegalArgumentException("Weight must be positive");
+        }
+        int threadPoolSize = builder.threadPoolSize;
+        this.schedulingOrder = builder.schedulingOrder != null ? builder.schedulingOrder : ScheduledFile.LARGEST_FIRST;
+        this.splitThresholdBytes = builder.splitThresholdBytes;
+        this.cache = builder.cache;
+        this.readStage = builder.readStage;
+        this.memoryBudget = builder.memoryBudget;
+        this.deadlinePolicy = builder.deadlinePolicy;
+        // With a scheduler, directories are walked by the batch on the scheduler's threads
+        this.discoveryPool = builder.scheduler == null ? new ForkJoinPool(threadPoolSize) : null;
+        // Dependency Injection: Use provided factory or default implementation.
+        // The default sniffs file content so misrouted files are rejected without a full parse.
+        this.metrics = builder.metrics != null ? builder.metrics : MigrationMetrics.noOp();
+        this.scheduler = builder.scheduler;
+        this.weight = builder.weight;
+        if (scheduler != null) {
+            this.executorService = null;
+        } else {
+            this.executorService = builder.maxThreadPoolSize > threadPoolSize
+                ? new AdaptiveThreadPool(threadPoolSize, builder.maxThreadPoolSize, AdaptiveThreadPool.DEFAULT_SAMPLE_TASKS, this.metrics)
+                : Executors.newFixedThreadPool(threadPoolSize);
+        }
+        this.parserFactory = builder.parserFactory != null
+            ? builder.parserFactory : new ContentSniffingParserFactory(this.metrics);
+        this.diagnosticParser = new DiagnosticReportParser(null, this.metrics);
+    }
+    
+    /**
+     * @return Builder for a service with scheduling, splitting, caching, staging, admission or deadline options;
+     * options not set keep the defaults of {@link #ConcurrentFileParserService()}
+     */
+    public static Builder builder() {
+        return new Builder();
     }
     
     /**
@@ -67,22 +195,154 @@ public class ConcurrentFileParserService {
             return new ParsingResult(Collections.emptyList(), Collections.emptyList());
         }
         
-        // Thread-safe collections for results
-        List<CompetitorJob> allJobs = Collections.synchronizedList(new ArrayList<>());
-        Queue<FileParsingError> errors = new ConcurrentLinkedQueue<>();
+        // Size every file up front and submit in scheduling order
+        List<ScheduledFile> schedule = new ArrayList<>(filePaths.size());
+        for (int i = 0; i < filePaths.size(); i++) {
+            String filePath = filePaths.get(i);
+            schedule.add(new ScheduledFile(filePath, i, new File(filePath).length()));
+        }
+        schedule.sort(schedulingOrder);
+        
+        Batch batch = newBatch(filePaths.size());
+        List<FileTasks> tasks = new ArrayList<>(Collections.nCopies(filePaths.size(), (FileTasks) null));
+        for (ScheduledFile file : schedule) {
+            tasks.set(file.getIndex(), submit(file, batch));
+        }
+        
+        // Collect results from all tasks in input order
+        return collect(tasks, new ArrayList<>(), batch);
+    }
+    
+    /**
+     * Parses diagnostic report files concurrently and adds their reports to an aggregator.
+     * Each file is parsed and aggregated by the same task, so aggregation runs in parallel with the
+     * parsing of other files. A file with an invalid report contributes no reports.
+     * 
+     * @param filePaths Diagnostic report files to parse
+     * @param aggregator Aggregator receiving the reports of every valid file
+     * @return DiagnosticParsingResult with the number of reports added and any parsing errors
+     */
+    public DiagnosticParsingResult parseDiagnosticReports(List<String> filePaths, DiagnosticAggregator aggregator) {
+        if (filePaths == null || filePaths.isEmpty()) {
+            return new DiagnosticParsingResult(0, Collections.emptyList());
+        }
+        
+        List<ScheduledFile> schedule = new ArrayList<>(filePaths.size());
+        for (int i = 0; i < filePaths.size(); i++) {
+            String filePath = filePaths.get(i);
+            schedule.add(new ScheduledFile(filePath, i, new File(filePath).length()));
+        }
+        schedule.sort(schedulingOrder);
+        
+        Batch batch = newBatch(filePaths.size());
+        LongAdder reportsParsed = new LongAdder();
+        List<Future<FileParsingError>> futures =
+            new ArrayList<>(Collections.nCopies(filePaths.size(), (Future<FileParsingError>) null));
+        for (ScheduledFile file : schedule) {
+            String filePath = file.getFilePath();
+            futures.set(file.getIndex(), submitWithin(estimate(file),
+                () -> submitTask(batch, () -> parseDiagnosticFile(filePath, aggregator, reportsParsed))));
+        }
+        
+        // Collect errors in input order
+        List<FileParsingError> errors = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                FileParsingError error = futures.get(i).get();
+                if (error != null) {
+                    errors.add(error);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                errors.add(new FileParsingError(filePaths.get(i), "Parsing interrupted: " + e.getMessage()));
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                errors.add(new FileParsingError(filePaths.get(i), 
+                    "Execution error: " + (cause != null ? cause.getMessage() : e.getMessage())));
+            }
+        }
+        return new DiagnosticParsingResult(reportsParsed.sum(), errors);
+    }
+    
+    /**
+     * Parses one diagnostic report file and aggregates its reports.
+     * 
+     * @return The error, or null on success
+     */
+    private FileParsingError parseDiagnosticFile(String filePath, DiagnosticAggregator aggregator,
+                                                 LongAdder reportsParsed) {
+        long fileStart = metrics.startTimer();
+        FileParsingError error = null;
+        try {
+            List<DiagnosticReport> reports = diagnosticParser.parse(filePath);
+            long start = metrics.startTimer();
+            aggregator.addAll(reports);
+            metrics.recordSince(Stage.AGGREGATE, start);
+            metrics.addRecords(Stage.AGGREGATE, reports.size());
+            reportsParsed.add(reports.size());
+        } catch (DataAnomalyException e) {
+            error = new FileParsingError(filePath, "Data anomaly: " + e.getMessage());
+        } catch (Exception e) {
+            error = new FileParsingError(filePath, "Unexpected error: " + e.getMessage());
+        }
+        if (metrics.isEnabled()) {
+            if (error != null) {
+                metrics.recordError(Stage.FILE);
+            }
+            metrics.recordFile(filePath, new File(filePath).length(), System.nanoTime() - fileStart, error == null);
+        }
+        return error;
+    }
+    
+    /**
+     * Finds files under root directories and parses them concurrently. Directories are walked in parallel
+     * and each matching file is submitted for parsing as soon as it is found, so parsing overlaps discovery.
+     * 
+     * A glob without '/' matches file names (e.g. "*.json"); a glob with '/' matches paths relative to the
+     * root (e.g. "archive/**"). Exclude globs also skip whole directories. Symbolic links are not followed.
+     * 
+     * @param roots Directories to walk (a root that is a file is parsed if it matches the globs)
+     * @param includeGlobs Globs a file must match one of (if null or empty, all files are included)
+     * @param excludeGlobs Globs of files and directories to skip (can be null)
+     * @return ParsingResult with jobs in file path order, plus parsing errors and unreadable directories
+     */
+    public ParsingResult parseDirectories(List<String> roots, List<String> includeGlobs, List<String> excludeGlobs) {
+        if (roots == null || roots.isEmpty()) {
+            return new ParsingResult(Collections.emptyList(), Collections.emptyList());
+        }
+        
+        Queue<FileTasks> discovered = new ConcurrentLinkedQueue<>();
+        Queue<FileParsingError> discoveryErrors = new ConcurrentLinkedQueue<>();
+        AtomicInteger index = new AtomicInteger();
+        Batch batch = newBatch(0);
+        long start = metrics.startTimer();
         
-        // Create parsing tasks
-        List<Future<ParsingTaskResult>> futures = new ArrayList<>();
+        new DirectoryWalker(includeGlobs, excludeGlobs).walk(roots, discoveryPool != null ? discoveryPool : batch.executor,
+            (path, attributes) -> discovered.add(
+                submit(new ScheduledFile(path.toString(), index.getAndIncrement(), attributes.size()), batch)),
+            (path, e) -> discoveryErrors.add(new FileParsingError(path.toString(), 
+                e instanceof NoSuchFileException ? "Directory not found" : "Unreadable directory: " + e.getMessage())));
         
-        for (String filePath : filePaths) {
-            Future<ParsingTaskResult> future = executorService.submit(() -> parseFile(filePath));
-            futures.add(future);
+        metrics.recordSince(Stage.DISCOVERY, start);
+        metrics.addRecords(Stage.DISCOVERY, index.get());
+        for (int i = 0; i < discoveryErrors.size(); i++) {
+            metrics.recordError(Stage.DISCOVERY);
         }
         
-        // Collect results from all tasks
-        for (Future<ParsingTaskResult> future : futures) {
+        // Discovery order depends on thread timing, so results are returned in path order
+        List<FileTasks> tasks = new ArrayList<>(discovered);
+        tasks.sort(Comparator.comparing(fileTasks -> fileTasks.file.getFilePath()));
+        return collect(tasks, new ArrayList<>(discoveryErrors), batch);
+    }
+    
+    /**
+     * Waits for the tasks of each file in list order and gathers their jobs and errors.
+     */
+    private ParsingResult collect(List<FileTasks> tasks, List<FileParsingError> errors, Batch batch) {
+        List<CompetitorJob> allJobs = new ArrayList<>();
+        for (FileTasks fileTasks : tasks) {
             try {
-                ParsingTaskResult result = future.get(); // Wait for completion
+                ParsingTaskResult result = fileTasks.await();
                 if (result.getJobs() != null) {
                     allJobs.addAll(result.getJobs());
                 }
@@ -99,26 +359,221 @@ public class ConcurrentFileParserService {
             }
         }
         
-        return new ParsingResult(new ArrayList<>(allJobs), new ArrayList<>(errors));
+        return new ParsingResult(allJobs, errors, batch.timeouts.intValue(), batch.hedges.intValue(),
+            batch.hedgeWins.intValue());
+    }
+    
+    /**
+     * Submits one file, split into range tasks if its parser is splittable and it is above the split threshold,
+     * or read by the read stage before it is parsed if it fits in a buffer.
+     */
+    private FileTasks submit(ScheduledFile file, Batch batch) {
+        String filePath = file.getFilePath();
+        // A file that may be cached is neither split nor read ahead, so the whole-file task can load it
+        boolean mayBeCached = cache != null && cache.mayContain(filePath, file.getSize(), new File(filePath).lastModified());
+        long submittedAt = metrics.startTimer();
+        if (file.getSize() > splitThresholdBytes && !mayBeCached) {
+            CompetitorParser parser = parserFactory.createParser(filePath);
+            if (parser instanceof SplittableParser) {
+                // Finding the ranges reads the whole file, so it runs on the pool while the other files are submitted
+                Future<FileTasks> split = submitTask(batch,
+                    () -> submitSplit(file, (SplittableParser) parser, batch, submittedAt));
+                return new FileTasks(file, split, submittedAt);
+            }
+        }
+        return submitWhole(file, batch, mayBeCached, submittedAt);
+    }
+    
+    /**
+     * Splits a file into ranges and submits a task for each, or submits the whole file if it has a single range.
+     */
+    private FileTasks submitSplit(ScheduledFile file, SplittableParser parser, Batch batch, long submittedAt) {
+        String filePath = file.getFilePath();
+        List<JsonArraySplitter.Range> ranges;
+        try {
+            ranges = parser.split(filePath, splitThresholdBytes);
+        } catch (IOException e) {
+            ranges = Collections.emptyList();
+        }
+        if (ranges.size() <= 1) {
+            return submitWhole(file, batch, false, submittedAt);
+        }
+        // Keyed before the ranges are parsed, like a whole file
+        Future<ParseResultCache.Key> cacheKey = cache != null ? submitTask(batch, () -> cache.keyFor(filePath)) : null;
+        List<Future<ParsingTaskResult>> futures = new ArrayList<>(ranges.size());
+        for (JsonArraySplitter.Range range : ranges) {
+            long cost = memoryBudget != null ? memoryBudget.estimateUncompressed(filePath, range.getLength()) : 0;
+            futures.add(submitWithin(cost, () -> submitParse(batch, filePath,
+                () -> parseRange(parser, filePath, range), false, cost)));
+        }
+        return new FileTasks(file, parser, futures, cacheKey, submittedAt);
+    }
+    
+    /**
+     * Submits one task that parses the whole file.
+     */
+    private FileTasks submitWhole(ScheduledFile file, Batch batch, boolean mayBeCached, long submittedAt) {
+        String filePath = file.getFilePath();
+        boolean readAhead = readStage != null && readStage.accepts(file.getSize()) && !mayBeCached;
+        long cost = estimate(file);
+        Future<ParsingTaskResult> future = submitWithin(cost,
+            () -> submitParse(batch, filePath, () -> parseFile(filePath, null), readAhead, cost));
+        return new FileTasks(file, null, Collections.singletonList(future), null, submittedAt);
+    }
+    
+    /**
+     * @return Estimated heap cost of parsing the whole file, or 0 without a memory budget
+     */
+    private long estimate(ScheduledFile file) {
+        return memoryBudget != null ? memoryBudget.estimate(file.getFilePath(), file.getSize()) : 0;
+    }
+    
+    /**
+     * Starts a task once its estimated heap cost fits in the memory budget, and returns the cost once no attempt
+     * of the task is running. A task that timed out keeps its cost until its abandoned attempts return, since they
+     * still hold their buffers and parsed jobs. Without a budget the task starts at once.
+     */
+    private <T> CompletableFuture<T> submitWithin(long cost, Supplier<CompletableFuture<T>> start) {
+        if (memoryBudget == null) {
+            return start.get();
+        }
+        return memoryBudget.acquire(cost).thenCompose(admitted -> {
+            CompletableFuture<T> task;
+            try {
+                task = start.get();
+            } catch (RuntimeException e) {
+                memoryBudget.release(cost);
+                throw e;
+            }
+            CompletableFuture<?> settled = task instanceof DeadlineResult ? ((DeadlineResult) task).settled : task;
+            settled.whenComplete((result, failure) -> memoryBudget.release(cost));
+            return task;
+        });
+    }
+    
+    /**
+     * Submits a parsing task, under the deadline policy if there is one.
+     * 
+     * @param task Task that parses the file, or its range, from disk; also run by a hedged attempt
+     * @param readAhead true if the first attempt parses the file's content read by the read stage instead
+     * @param cost Estimated heap cost of one attempt, admitted by the memory budget again for a hedged attempt
+     */
+    private CompletableFuture<ParsingTaskResult> submitParse(Batch batch, String filePath,
+                                                             Callable<ParsingTaskResult> task, boolean readAhead,
+                                                             long cost) {
+        if (deadlinePolicy == null) {
+            return readAhead ? submitRead(batch, filePath, null) : submitTask(batch, task);
+        }
+        Deadline deadline = new Deadline(filePath, batch, task, cost);
+        if (readAhead) {
+            submitRead(batch, filePath, deadline);
+        } else {
+            submitTask(batch, () -> deadline.attempt(task, false));
+        }
+        return deadline.result;
+    }
+    
+    /**
+     * Reads a file on the read stage, then parses its content on the parsing pool.
+     * A file the stage cannot read is parsed from disk, so the parser reports the problem as before.
+     * 
+     * @param deadline Deadline the parse is an attempt of, started when the stage starts the read,
+     *                 so time spent waiting for a buffer or an I/O thread does not count (if null, the parse is the task)
+     */
+    private CompletableFuture<ParsingTaskResult> submitRead(Batch batch, String filePath, Deadline deadline) {
+        metrics.queueDepthChanged(1);
+        CompletableFuture<ByteBuffer> read = readStage.read(filePath, deadline != null ? deadline::start : null);
+        if (deadline != null) {
+            deadline.reading(read);
+        }
+        return read.handleAsync((content, failure) -> {
+            metrics.queueDepthChanged(-1);
+            try {
+                return deadline != null
+                    ? deadline.attempt(() -> parseFile(filePath, content), false) : parseFile(filePath, content);
+            } finally {
+                readStage.release(content);
+            }
+        }, batch.executor);
+    }
+    
+    private <T> CompletableFuture<T> submitTask(Batch batch, Callable<T> task) {
+        metrics.queueDepthChanged(1);
+        CompletableFuture<T> future = new CompletableFuture<>();
+        batch.executor.execute(() -> {
+            metrics.queueDepthChanged(-1);
+            try {
+                future.complete(task.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+    
+    /**
+     * Parses one range of a split file. Validation runs once all ranges are parsed.
+     */
+    private ParsingTaskResult parseRange(SplittableParser parser, String filePath, JsonArraySplitter.Range range) {
+        try {
+            return new ParsingTaskResult(parser.parseRange(filePath, range), null);
+        } catch (DataAnomalyException e) {
+            return new ParsingTaskResult(null, 
+                new FileParsingError(filePath, "Data anomaly: " + e.getMessage()));
+        } catch (Exception e) {
+            return new ParsingTaskResult(null, 
+                new FileParsingError(filePath, "Unexpected error: " + e.getMessage()));
+        }
     }
     
     /**
      * Parses a single file. This method is called by each thread.
      * 
      * @param filePath Path to the file to parse
+     * @param content Content of the file read by the read stage, or null to read the file
      * @return ParsingTaskResult with jobs and any error
      */
-    private ParsingTaskResult parseFile(String filePath) {
+    private ParsingTaskResult parseFile(String filePath, ByteBuffer content) {
+        long start = metrics.startTimer();
+        ParsingTaskResult result = parseFileUninstrumented(filePath, content);
+        if (metrics.isEnabled()) {
+            long nanos = System.nanoTime() - start;
+            boolean success = result.getError() == null;
+            if (!success) {
+                metrics.recordError(Stage.FILE);
+            }
+            metrics.recordFile(filePath, new File(filePath).length(), nanos, success);
+        }
+        return result;
+    }
+    
+    private ParsingTaskResult parseFileUninstrumented(String filePath, ByteBuffer content) {
         try {
-            // Use factory to get appropriate parser (Dependency Inversion Principle)
-            CompetitorParser parser = parserFactory.createParser(filePath);
+            ParseResultCache.Key key = null;
+            if (cache != null) {
+                key = cacheKey(filePath, content);
+                if (key != null) {
+                    long start = metrics.startTimer();
+                    List<CompetitorJob> cached = cache.get(key);
+                    if (cached != null) {
+                        metrics.recordSince(Stage.CACHE_LOAD, start);
+                        metrics.addRecords(Stage.CACHE_LOAD, cached.size());
+                        return new ParsingTaskResult(cached, null);
+                    }
+                }
+            }
             
-            // Parse the file
-            List<CompetitorJob> jobs = parser.parse(filePath);
+            // Use factory to get appropriate parser (Dependency Inversion Principle)
+            CompetitorParser parser = content != null
+                ? parserFactory.createParser(filePath, content) : parserFactory.createParser(filePath);
             
-            // Validate parsed jobs
-            parser.validate(jobs);
+            // Parse and validate in a single pass over the file
+            List<CompetitorJob> jobs = content != null
+                ? parser.parseAndValidate(filePath, content) : parser.parseAndValidate(filePath);
             
+            if (key != null) {
+                store(key, jobs);
+            }
             return new ParsingTaskResult(jobs, null);
             
         } catch (DataAnomalyException e) {
@@ -130,18 +585,94 @@ public class ConcurrentFileParserService {
         }
     }
     
+    /**
+     * @return Cache key of the file, or null if it cannot be read (the parser then reports the error)
+     */
+    private ParseResultCache.Key cacheKey(String filePath, ByteBuffer content) {
+        try {
+            return content != null ? cache.keyFor(filePath, content) : cache.keyFor(filePath);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+    
+    private void store(ParseResultCache.Key key, List<CompetitorJob> jobs) {
+        try {
+            cache.put(key, jobs);
+        } catch (IOException e) {
+            // The cache is only an optimisation; the file is parsed again next run
+            metrics.recordError(Stage.CACHE_LOAD);
+        }
+    }
+    
+    /**
+     * Arms the hedges of the tasks that started before enough peers of the batch had finished, once they have.
+     */
+    private void armAwaitingPeers(Batch batch) {
+        if (batch.awaitingPeers == null || batch.latencies.getCount() < deadlinePolicy.getMinPeers()) {
+            return;
+        }
+        List<Deadline> awaiting = batch.takeAwaitingPeers();
+        long hedgeDelay = deadlinePolicy.hedgeDelayNanos(batch.latencies);
+        if (awaiting == null || hedgeDelay < 0) {
+            return;
+        }
+        for (Deadline deadline : awaiting) {
+            deadline.armHedge(hedgeDelay);
+        }
+    }
+    
+    /**
+     * Grows or shrinks the parsing pool by threads that replace threads stuck in abandoned tasks.
+     */
+    private void compensate(int threads) {
+        if (scheduler != null) {
+            scheduler.reserve(threads);
+            return;
+        }
+        if (executorService instanceof AdaptiveThreadPool) {
+            ((AdaptiveThreadPool) executorService).reserve(threads);
+            return;
+        }
+        ThreadPoolExecutor pool = (ThreadPoolExecutor) executorService;
+        synchronized (pool) {
+            int size = pool.getCorePoolSize() + threads;
+            if (threads > 0) {
+                pool.setMaximumPoolSize(size);
+                pool.setCorePoolSize(size);
+            } else {
+                pool.setCorePoolSize(size);
+                pool.setMaximumPoolSize(size);
+            }
+        }
+    }
+    
+    /**
+     * @return Current number of parsing threads; changes over time when the pool is adaptive
+     * or replaces threads stuck in timed out tasks
+     */
+    public int getThreadPoolSize() {
+        return scheduler != null ? scheduler.getThreadCount() : ((ThreadPoolExecutor) executorService).getCorePoolSize();
+    }
+    
     /**
      * Shuts down the executor service. Should be called when done with the service.
+     * A shared scheduler is left running for its other services.
      */
     public void shutdown() {
-        executorService.shutdown();
-        try {
-            if (!executorService.awaitTermination(60, TimeUnit.SECONDS)) {
+        if (discoveryPool != null) {
+            discoveryPool.shutdown();
+        }
+        if (executorService != null) {
+            executorService.shutdown();
+            try {
+                if (!executorService.awaitTermination(60, TimeUnit.SECONDS)) {
+                    executorService.shutdownNow();
+                }
+            } catch (InterruptedException e) {
                 executorService.shutdownNow();
+                Thread.currentThread().interrupt();
             }
-        } catch (InterruptedException e) {
-            executorService.shutdownNow();
-            Thread.currentThread().interrupt();
         }
     }
     
@@ -151,10 +682,26 @@ public class ConcurrentFileParserService {
     public static class ParsingResult {
         private final List<CompetitorJob> jobs;
         private final List<FileParsingError> errors;
+        private final int timeouts;
+        private final int hedges;
+        private final int hedgeWins;
         
         public ParsingResult(List<CompetitorJob> jobs, List<FileParsingError> errors) {
+            this(jobs, errors, 0, 0, 0);
+        }
+        
+        /**
+         * @param timeouts Number of tasks that timed out
+         * @param hedges Number of tasks given a hedged second attempt
+         * @param hedgeWins Number of hedged tasks whose second attempt finished first
+         */
+        public ParsingResult(List<CompetitorJob> jobs, List<FileParsingError> errors, int timeouts, int hedges,
+                             int hedgeWins) {
             this.jobs = jobs != null ? jobs : Collections.emptyList();
             this.errors = errors != null ? errors : Collections.emptyList();
+            this.timeouts = timeouts;
+            this.hedges = hedges;
+            this.hedgeWins = hedgeWins;
         }
         
         public List<CompetitorJob> getJobs() {
@@ -172,6 +719,534 @@ public class ConcurrentFileParserService {
         public int getTotalJobsParsed() {
             return jobs.size();
         }
+        
+        /**
+         * @return Number of tasks (files, or ranges of split files) that timed out; each also has an error
+         */
+        public int getTimeouts() {
+            return timeouts;
+        }
+        
+        /**
+         * @return Number of tasks given a hedged second attempt
+         */
+        public int getHedges() {
+            return hedges;
+        }
+        
+        /**
+         * @return Number of hedged tasks whose second attempt finished first
+         */
+        public int getHedgeWins() {
+            return hedgeWins;
+        }
+    }
+    
+    /**
+     * Result of parsing diagnostic report files into a DiagnosticAggregator.
+     */
+    public static class DiagnosticParsingResult {
+        private final long reportsParsed;
+        private final List<FileParsingError> errors;
+        
+        public DiagnosticParsingResult(long reportsParsed, List<FileParsingError> errors) {
+            this.reportsParsed = reportsParsed;
+            this.errors = errors != null ? errors : Collections.emptyList();
+        }
+        
+        /**
+         * @return Number of reports added to the aggregator
+         */
+        public long getReportsParsed() {
+            return reportsParsed;
+        }
+        
+        public List<FileParsingError> getErrors() {
+            return errors;
+        }
+        
+        public boolean hasErrors() {
+            return !errors.isEmpty();
+        }
+    }
+    
+    /**
+     * Tasks submitted for one file: a single task, or one task per range of a split file.
+     */
+    private class FileTasks {
+        private final ScheduledFile file;
+        private final CompetitorParser splitParser;
+        private final List<Future<ParsingTaskResult>> futures;
+        private final Future<ParseResultCache.Key> cacheKey;
+        // Tasks submitted once the file is split, or null if they were submitted with this
+        private final Future<FileTasks> split;
+        private final long submittedAt;
+        
+        FileTasks(ScheduledFile file, CompetitorParser splitParser, List<Future<ParsingTaskResult>> futures,
+                  Future<ParseResultCache.Key> cacheKey, long submittedAt) {
+            this.file = file;
+            this.splitParser = splitParser;
+            this.futures = futures;
+            this.cacheKey = cacheKey;
+            this.split = null;
+            this.submittedAt = submittedAt;
+        }
+        
+        FileTasks(ScheduledFile file, Future<FileTasks> split, long submittedAt) {
+            this.file = file;
+            this.splitParser = null;
+            this.futures = null;
+            this.cacheKey = null;
+            this.split = split;
+            this.submittedAt = submittedAt;
+        }
+        
+        /**
+         * Waits for the file's tasks; the ranges of a split file are joined in file order and validated together.
+         */
+        ParsingTaskResult await() throws InterruptedException, ExecutionException {
+            if (split != null) {
+                return split.get().await();
+            }
+            if (splitParser == null) {
+                return futures.get(0).get();
+            }
+            
+            List<CompetitorJob> jobs = new ArrayList<>();
+            ParsingTaskResult result = null;
+            for (Future<ParsingTaskResult> future : futures) {
+                ParsingTaskResult rangeResult = future.get();
+                if (result == null && rangeResult.getError() != null) {
+                    result = rangeResult;
+                } else if (rangeResult.getJobs() != null) {
+                    jobs.addAll(rangeResult.getJobs());
+                }
+            }
+            if (result == null) {
+                ValidationResult validation = splitParser.check(jobs);
+                result = validation.isValid()
+                    ? new ParsingTaskResult(jobs, null)
+                    : new ParsingTaskResult(null, new FileParsingError(file.getFilePath(),
+                        "Data anomaly: " + validation.toException().getMessage()));
+                if (validation.isValid() && cacheKey != null) {
+                    try {
+                        store(cacheKey.get(), jobs);
+                    } catch (ExecutionException e) {
+                        // File could not be keyed; it is parsed again next run
+                    }
+                }
+            }
+            
+            if (metrics.isEnabled()) {
+                boolean success = result.getError() == null;
+                if (!success) {
+                    metrics.recordError(Stage.FILE);
+                }
+                metrics.recordFile(file.getFilePath(), file.getSize(), System.nanoTime() - submittedAt, success);
+            }
+            return result;
+        }
+    }
+    
+    /**
+     * Attempts at one parsing task under the deadline policy. The result completes with the first attempt
+     * to finish, or with a timeout error once the deadline passes; attempts still running then are interrupted,
+     * and each is replaced in the pool until it returns.
+     */
+    private class Deadline {
+        private final String filePath;
+        private final Batch batch;
+        private final Callable<ParsingTaskResult> hedge;
+        private final long cost;
+        private final DeadlineResult result = new DeadlineResult();
+        private final AtomicBoolean started = new AtomicBoolean();
+        // Whether the result is decided, threads running attempts, and how many of them the pool
+        // has replacements for; guarded by this
+        private final Set<Thread> running = new HashSet<>();
+        private boolean decided;
+        private int replaced;
+        private CompletableFuture<ByteBuffer> read;
+        private volatile long startedAt;
+        private volatile ScheduledFuture<?> timeout;
+        private volatile ScheduledFuture<?> hedgeTimer;
+        
+        Deadline(String filePath, Batch batch, Callable<ParsingTaskResult> hedge, long cost) {
+            this.filePath = filePath;
+            this.batch = batch;
+            this.hedge = hedge;
+            this.cost = cost;
+        }
+        
+        /**
+         * Starts the clock once; the hedge delay is taken from the peers finished so far.
+         */
+        void start() {
+            if (!started.compareAndSet(false, true)) {
+                return;
+            }
+            startedAt = System.nanoTime();
+            if (deadlinePolicy.hasTimeout()) {
+                timeout = DeadlineTimer.INSTANCE.schedule(this::expire, deadlinePolicy.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+            }
+            long hedgeDelay = deadlinePolicy.hedgeDelayNanos(batch.latencies);
+            if (hedgeDelay < 0 && deadlinePolicy.isHedging() && batch.awaitPeers(this)) {
+                return;
+            }
+            if (hedgeDelay < 0) {
+                // The peers may have finished since the delay was taken
+                hedgeDelay = deadlinePolicy.hedgeDelayNanos(batch.latencies);
+            }
+            if (hedgeDelay > 0) {
+                armHedge(hedgeDelay);
+            }
+        }
+        
+        /**
+         * Schedules the hedged attempt the given delay after the clock started, unless the task is decided.
+         */
+        void armHedge(long hedgeDelay) {
+            long remaining = hedgeDelay - (System.nanoTime() - startedAt);
+            synchronized (this) {
+                if (!decided) {
+                    hedgeTimer = DeadlineTimer.INSTANCE.schedule(this::hedge, Math.max(0, remaining), TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+        
+        /**
+         * Records the read stage's read of the file, abandoned with the attempts if the result is decided first.
+         */
+        void reading(CompletableFuture<ByteBuffer> read) {
+            synchronized (this) {
+                if (!decided) {
+                    this.read = read;
+                    return;
+                }
+            }
+            readStage.abandon(read);
+        }
+        
+        /**
+         * Runs one attempt on the current thread, unless the task is already decided.
+         * 
+         * @return The attempt's result, or null if it did not run
+         */
+        ParsingTaskResult attempt(Callable<ParsingTaskResult> task, boolean hedged) {
+            start();
+            Thread thread = Thread.currentThread();
+            synchronized (this) {
+                if (decided) {
+                    return null;
+                }
+                running.add(thread);
+            }
+            ParsingTaskResult attemptResult = null;
+            Throwable failure = null;
+            try {
+                attemptResult = task.call();
+            } catch (Throwable e) {
+                failure = e;
+            } finally {
+                synchronized (this) {
+                    running.remove(thread);
+                    // Interrupts are only sent under this lock, so none can reach the thread's next task
+                    Thread.interrupted();
+                    if (replaced > 0) {
+                        replaced--;
+                        compensate(-1);
+                    }
+                    if (decided && running.isEmpty()) {
+                        result.settled.complete(null);
+                    }
+                }
+            }
+            if (decide()) {
+                // Counted before the result completes, so the batch sees every outcome it waited for
+                batch.latencies.record(System.nanoTime() - startedAt);
+                armAwaitingPeers(batch);
+                if (hedged) {
+                    batch.hedgeWins.increment();
+                }
+                if (failure != null) {
+                    result.completeExceptionally(failure);
+                } else {
+                    result.complete(attemptResult);
+                }
+                abandon();
+            }
+            return attemptResult;
+        }
+        
+        private void hedge() {
+            synchronized (this) {
+                if (decided) {
+                    return;
+                }
+                batch.hedges.increment();
+            }
+            // A second parse holds as much heap as the first, so it waits for room in the budget like any task
+            submitWithin(cost, () -> submitTask(batch, () -> attempt(hedge, true)));
+        }
+        
+        private void expire() {
+            if (decide()) {
+                batch.timeouts.increment();
+                metrics.recordError(Stage.FILE);
+                result.complete(new ParsingTaskResult(null, new FileParsingError(filePath,
+                    "Timed out after " + deadlinePolicy.getTimeoutMillis() + " ms")));
+                abandon();
+            }
+        }
+        
+        /**
+         * @return true for the one caller that decides the result
+         */
+        private synchronized boolean decide() {
+            if (decided) {
+                return false;
+            }
+            decided = true;
+            return true;
+        }
+        
+        /**
+         * Cancels the timers, abandons the read and interrupts the attempts still running once the result is decided.
+         */
+        private void abandon() {
+            cancel(timeout);
+            cancel(hedgeTimer);
+            CompletableFuture<ByteBuffer> abandonedRead;
+            synchronized (this) {
+                abandonedRead = read;
+                read = null;
+            }
+            if (abandonedRead != null) {
+                // A read that has not returned is replaced on the read stage, like an attempt in the pool
+                readStage.abandon(abandonedRead);
+            }
+            synchronized (this) {
+                if (running.isEmpty()) {
+                    result.settled.complete(null);
+                    return;
+                }
+                for (Thread thread : running) {
+                    thread.interrupt();
+                }
+                // Replaced until they return, since a read may ignore the interrupt
+                replaced += running.size();
+                compensate(running.size());
+            }
+        }
+        
+        private void cancel(ScheduledFuture<?> timer) {
+            if (timer != null) {
+                timer.cancel(false);
+            }
+        }
+    }
+    
+    /**
+     * Options of a ConcurrentFileParserService. Every option is optional; a null object option means the default.
+     */
+    public static final class Builder {
+        private int threadPoolSize = Runtime.getRuntime().availableProcessors();
+        private int maxThreadPoolSize;
+        private ParserFactory parserFactory;
+        private MigrationMetrics metrics;
+        private Comparator<ScheduledFile> schedulingOrder;
+        private long splitThresholdBytes = NO_SPLIT;
+        private ParseResultCache cache;
+        private FileReadStage readStage;
+        private MemoryBudget memoryBudget;
+        private DeadlinePolicy deadlinePolicy;
+        private FairScheduler scheduler;
+        private double weight = 1.0;
+        
+        private Builder() {
+        }
+        
+        /**
+         * @param threadPoolSize Number of parsing threads, or the smallest number if the pool is adaptive;
+         *                       also the number of directory walking threads (default: available processors;
+         *                       ignored with a scheduler)
+         */
+        public Builder threadPoolSize(int threadPoolSize) {
+            this.threadPoolSize = threadPoolSize;
+            return this;
+        }
+        
+        /**
+         * Makes the parsing pool an {@link AdaptiveThreadPool} that resizes itself between threadPoolSize and this
+         * bound from the measured wait/compute ratio of its tasks. The chosen size is reported to the metrics.
+         * 
+         * @param maxThreadPoolSize Largest number of parsing threads; if not greater than threadPoolSize,
+         *                          the pool has a fixed threadPoolSize threads (ignored with a scheduler)
+         */
+        public Builder maxThreadPoolSize(int maxThreadPoolSize) {
+            this.maxThreadPoolSize = maxThreadPoolSize;
+            return this;
+        }
+        
+        /**
+         * @param parserFactory Factory for creating parsers (if null, uses default ContentSniffingParserFactory)
+         */
+        public Builder parserFactory(ParserFactory parserFactory) {
+            this.parserFactory = parserFactory;
+            return this;
+        }
+        
+        /**
+         * @param metrics Metrics receiving per-file timings, queue depth and errors (if null, metrics are disabled)
+         */
+        public Builder metrics(MigrationMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+        
+        /**
+         * @param schedulingOrder Order in which files are submitted (if null, uses {@link ScheduledFile#LARGEST_FIRST})
+         */
+        public Builder schedulingOrder(Comparator<ScheduledFile> schedulingOrder) {
+            this.schedulingOrder = schedulingOrder;
+            return this;
+        }
+        
+        /**
+         * @param splitThresholdBytes JSON files larger than this are split into ranges of about this size
+         *                            parsed in parallel ({@link #NO_SPLIT}, the default, to disable)
+         */
+        public Builder splitThreshold(long splitThresholdBytes) {
+            this.splitThresholdBytes = splitThresholdBytes;
+            return this;
+        }
+        
+        /**
+         * @param cache Cache of jobs from earlier runs; valid files are added to it (if null, every file is parsed)
+         */
+        public Builder cache(ParseResultCache cache) {
+            this.cache = cache;
+            return this;
+        }
+        
+        /**
+         * The stage is not shut down with the service, so several services, such as services sharing a
+         * scheduler, can share one stage and its I/O threads.
+         * 
+         * @param readStage Stage that reads files into memory before they are parsed
+         *                  (if null, each parsing thread reads its own file)
+         */
+        public Builder readStage(FileReadStage readStage) {
+            this.readStage = readStage;
+            return this;
+        }
+        
+        /**
+         * @param memoryBudget Budget that admits parsing tasks (if null, every task is queued at once)
+         */
+        public Builder memoryBudget(MemoryBudget memoryBudget) {
+            this.memoryBudget = memoryBudget;
+            return this;
+        }
+        
+        /**
+         * @param deadlinePolicy Timeout and hedging of parsing tasks (if null, tasks run for as long as they take)
+         */
+        public Builder deadlinePolicy(DeadlinePolicy deadlinePolicy) {
+            this.deadlinePolicy = deadlinePolicy;
+            return this;
+        }
+        
+        /**
+         * Runs parsing tasks, and the directory walks of parseDirectories, on a scheduler shared with other
+         * services instead of on pools of the service's own. Each call to parseFiles, parseDirectories or
+         * parseDiagnosticReports is one batch, queued fairly with the batches of the other services by the
+         * given weight.
+         * 
+         * @param scheduler Scheduler shared with other services, owned and shut down by the caller
+         *                  (if null, the service creates its own pool)
+         * @param weight Share of the scheduler's threads given to this service's batches relative to other batches
+         */
+        public Builder scheduler(FairScheduler scheduler, double weight) {
+            this.scheduler = scheduler;
+            this.weight = weight;
+            return this;
+        }
+        
+        public ConcurrentFileParserService build() {
+            return new ConcurrentFileParserService(this);
+        }
+    }
+    
+    /**
+     * Timer of the deadlines of all services, created on first use. Its tasks only decide a result or queue
+     * a hedged attempt, so one daemon thread serves every service in the JVM.
+     */
+    private static final class DeadlineTimer {
+        private static final ScheduledExecutorService INSTANCE = create();
+        
+        private static ScheduledExecutorService create() {
+            ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, task -> {
+                Thread thread = new Thread(task, "parse-deadline");
+                thread.setDaemon(true);
+                return thread;
+            });
+            // Most deadlines are cancelled when their task finishes, so they are not kept until they would expire
+            timer.setRemoveOnCancelPolicy(true);
+            return timer;
+        }
+    }
+    
+    /**
+     * Result of a task under a deadline, with a future completed once the result is decided and none of the
+     * task's attempts is still running.
+     */
+    private static final class DeadlineResult extends CompletableFuture<ParsingTaskResult> {
+        private final CompletableFuture<Void> settled = new CompletableFuture<>();
+    }
+    
+    /**
+     * @param files Number of files in the batch, or 0 if not known in advance
+     */
+    private Batch newBatch(int files) {
+        return new Batch(scheduler != null ? scheduler.newBatch(weight, files) : executorService);
+    }
+    
+    /**
+     * Executor, latencies and deadline outcomes of the tasks of one parseFiles, parseDirectories
+     * or parseDiagnosticReports call.
+     */
+    private static class Batch {
+        private final Executor executor;
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder hedges = new LongAdder();
+        private final LongAdder hedgeWins = new LongAdder();
+        // Deadlines started before enough peers finished to take a hedge delay; null once they are armed
+        private volatile List<Deadline> awaitingPeers = new ArrayList<>();
+        
+        Batch(Executor executor) {
+            this.executor = executor;
+        }
+        
+        /**
+         * @return true if the deadline will be armed once enough peers have finished, false if they already have
+         */
+        synchronized boolean awaitPeers(Deadline deadline) {
+            if (awaitingPeers == null) {
+                return false;
+            }
+            awaitingPeers.add(deadline);
+            return true;
+        }
+        
+        /**
+         * @return Deadlines waiting for peers, once; null if they were already taken
+         */
+        synchronized List<Deadline> takeAwaitingPeers() {
+            List<Deadline> awaiting = awaitingPeers;
+            awaitingPeers = null;
+            return awaiting;
+        }
     }
     
     /**
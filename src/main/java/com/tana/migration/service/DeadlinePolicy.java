@@ -0,0 +1,109 @@
+package com.tana.migration.service;
+
+import com.tana.migration.metrics.LatencyHistogram;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time limits for the tasks of the parsing service, so one hung read on a flaky mount cannot hold
+ * up a whole batch.
+ *
+ * A task that has not finished within the timeout fails with a timeout error, and the threads still
+ * running it are interrupted; parsers stop at their next read. A thread that does not respond, such as
+ * one blocked in a read the operating system will not interrupt, is replaced in the parsing pool until
+ * it returns.
+ *
+ * With hedging, a task still running after the given percentile of the latencies of its peers in the
+ * batch gets a second attempt that reads the file again from disk, and the first attempt to finish
+ * wins. No task is hedged until enough peers have finished to make the percentile meaningful; tasks
+ * already running by then are hedged the same delay after they started.
+ *
+ * Immutable.
+ */
+public class DeadlinePolicy {
+
+    /** Timeout that lets tasks run for as long as they take, for hedging without a time limit. */
+    public static final long NO_TIMEOUT = Long.MAX_VALUE;
+
+    /** Default percentile of peer latencies after which a task is hedged. */
+    public static final double DEFAULT_HEDGE_PERCENTILE = 99.0;
+
+    /** Default number of finished peers needed before tasks are hedged. */
+    public static final int DEFAULT_MIN_PEERS = 20;
+
+    private final long timeoutMillis;
+    private final double hedgePercentile;
+    private final int minPeers;
+
+    /**
+     * Creates a policy that times tasks out without hedging them.
+     *
+     * @param timeoutMillis Time a task may run before it fails
+     */
+    public DeadlinePolicy(long timeoutMillis) {
+        this(timeoutMillis, Double.NaN, DEFAULT_MIN_PEERS);
+    }
+
+    /**
+     * @param timeoutMillis Time a task may run before it fails ({@link #NO_TIMEOUT} to disable)
+     * @param hedgePercentile Percentile of peer latencies after which a task is hedged, between 0 and 100
+     *                        (NaN to disable hedging)
+     * @param minPeers Number of finished peers needed before tasks are hedged
+     */
+    public DeadlinePolicy(long timeoutMillis, double hedgePercentile, int minPeers) {
+        if (timeoutMillis < 1) {
+            throw new IllegalArgumentException("Timeout must be positive");
+        }
+        if (hedgePercentile <= 0 || hedgePercentile > 100 || minPeers < 1) {
+            throw new IllegalArgumentException("Hedge percentile must be in (0, 100] and peers positive");
+        }
+        this.timeoutMillis = timeoutMillis;
+        this.hedgePercentile = hedgePercentile;
+        this.minPeers = minPeers;
+    }
+
+    /**
+     * Creates a policy that times tasks out and hedges those slower than the p99 of their peers.
+     *
+     * @param timeoutMillis Time a task may run before it fails ({@link #NO_TIMEOUT} to disable)
+     */
+    public static DeadlinePolicy withHedging(long timeoutMillis) {
+        return new DeadlinePolicy(timeoutMillis, DEFAULT_HEDGE_PERCENTILE, DEFAULT_MIN_PEERS);
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * @return true unless tasks may run indefinitely
+     */
+    public boolean hasTimeout() {
+        return timeoutMillis != NO_TIMEOUT;
+    }
+
+    public boolean isHedging() {
+        return !Double.isNaN(hedgePercentile);
+    }
+
+    /**
+     * @return Number of finished peers needed before tasks are hedged
+     */
+    public int getMinPeers() {
+        return minPeers;
+    }
+
+    /**
+     * Delay after which a task that just started is hedged.
+     *
+     * @param peers Latencies of the tasks of the batch that have finished
+     * @return Delay in nanoseconds, or -1 if the task is not hedged
+     */
+    public long hedgeDelayNanos(LatencyHistogram peers) {
+        if (!isHedging() || peers.getCount() < minPeers) {
+            return -1;
+        }
+        long delay = Math.max(1, peers.getValueAtPercentile(hedgePercentile));
+        return hasTimeout() && delay >= TimeUnit.MILLISECONDS.toNanos(timeoutMillis) ? -1 : delay;
+    }
+}
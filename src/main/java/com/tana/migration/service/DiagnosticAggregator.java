@@ -0,0 +1,264 @@
+package com.tana.migration.service;
+
+import com.tana.migration.model.DiagnosticReport;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Folds diagnostic reports into per-VIN, per-report-type and per-status aggregates.
+ *
+ * Built to be fed by many parsing threads at once without a global lock:
+ * - The latest status of each VIN lives in a ConcurrentHashMap and is replaced with an atomic
+ *   merge only when a report is newer, so concurrent reports for different VINs never contend
+ * - Counts are LongAdders held in ConcurrentHashMaps; a counter is created once per key and then
+ *   incremented without locking, with contention spread over the adder's cells
+ * - Sequence ids can also be fed to a {@link SequenceGapIndex} to find missing and late reports,
+ *   and counts to a {@link DiagnosticRollupStore} for time-range queries
+ *
+ * The result does not depend on the order in which reports are added: "latest" is decided by
+ * timestamp, then sequence id, then report type and status code.
+ *
+ * Thread-safe. Getters return snapshots, except {@link #getLatestStatuses()}, which is a live view.
+ */
+public class DiagnosticAggregator {
+
+    private final ConcurrentMap<String, VinStatus> latestByVin = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LongAdder> reportTypeCounts = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LongAdder> statusCounts = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ConcurrentMap<String, LongAdder>> statusCountsByReportType =
+        new ConcurrentHashMap<>();
+    private final LongAdder reportCount = new LongAdder();
+    private final SequenceGapIndex sequenceIndex;
+    private final DiagnosticRollupStore rollupStore;
+
+    public DiagnosticAggregator() {
+        this(null);
+    }
+
+    /**
+     * @param sequenceIndex Index receiving the sequence id of every report (if null, sequences are not indexed)
+     */
+    public DiagnosticAggregator(SequenceGapIndex sequenceIndex) {
+        this(sequenceIndex, null);
+    }
+
+    /**
+     * @param sequenceIndex Index receiving the sequence id of every report (if null, sequences are not indexed)
+     * @param rollupStore Store receiving time-bucketed counts of every report (if null, no rollups are kept)
+     */
+    public DiagnosticAggregator(SequenceGapIndex sequenceIndex, DiagnosticRollupStore rollupStore) {
+        this.sequenceIndex = sequenceIndex;
+        this.rollupStore = rollupStore;
+    }
+
+    /**
+     * Adds one report.
+     *
+     * @param report Report with a VIN, report type, timestamp and status code
+     * @throws IllegalArgumentException if a required field is missing
+     */
+    public void add(DiagnosticReport report) {
+        addToAggregates(report);
+        if (rollupStore != null) {
+            rollupStore.add(report);
+        }
+    }
+
+    /**
+     * Adds every report in a list. Rollups are written once per list, taking each time bucket's lock once.
+     */
+    public void addAll(Iterable<DiagnosticReport> reports) {
+        for (DiagnosticReport report : reports) {
+            addToAggregates(report);
+        }
+        if (rollupStore != null) {
+            rollupStore.addAll(reports);
+        }
+    }
+
+    private void addToAggregates(DiagnosticReport report) {
+        if (report.getVin() == null || report.getReportType() == null
+                || report.getTimestampUtc() == null || report.getStatusCode() == null) {
+            throw new IllegalArgumentException("Diagnostic report missing required field: " + report);
+        }
+
+        VinStatus status = new VinStatus(report);
+        VinStatus current = latestByVin.get(status.vin);
+        // Skip the atomic merge when an equal or newer report is already recorded
+        if (current == null || status.isNewerThan(current)) {
+            latestByVin.merge(status.vin, status, (existing, added) -> added.isNewerThan(existing) ? added : existing);
+        }
+
+        counter(reportTypeCounts, status.reportType).increment();
+        counter(statusCounts, status.statusCode).increment();
+        ConcurrentMap<String, LongAdder> byStatus = statusCountsByReportType.get(status.reportType);
+        if (byStatus == null) {
+            byStatus = statusCountsByReportType.computeIfAbsent(status.reportType, type -> new ConcurrentHashMap<>());
+        }
+        counter(byStatus, status.statusCode).increment();
+        if (sequenceIndex != null) {
+            sequenceIndex.add(report);
+        }
+        reportCount.increment();
+    }
+
+    private static LongAdder counter(ConcurrentMap<String, LongAdder> counters, String key) {
+        LongAdder counter = counters.get(key);
+        return counter != null ? counter : counters.computeIfAbsent(key, k -> new LongAdder());
+    }
+
+    /**
+     * @return Latest status of the VIN, or null if no report for it was added
+     */
+    public VinStatus getLatestStatus(String vin) {
+        return latestByVin.get(vin);
+    }
+
+    /**
+     * @return Unmodifiable live view of the latest status of every VIN
+     */
+    public Map<String, VinStatus> getLatestStatuses() {
+        return Collections.unmodifiableMap(latestByVin);
+    }
+
+    /**
+     * @return Number of reports per report type, sorted by type
+     */
+    public Map<String, Long> getReportTypeCounts() {
+        return snapshot(reportTypeCounts);
+    }
+
+    /**
+     * @return Number of reports per status code, sorted by status code
+     */
+    public Map<String, Long> getStatusCounts() {
+        return snapshot(statusCounts);
+    }
+
+    /**
+     * @return Status code histogram of each report type, both sorted
+     */
+    public Map<String, Map<String, Long>> getStatusCountsByReportType() {
+        Map<String, Map<String, Long>> result = new TreeMap<>();
+        for (Map.Entry<String, ConcurrentMap<String, LongAdder>> entry : statusCountsByReportType.entrySet()) {
+            result.put(entry.getKey(), snapshot(entry.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * @return Number of VINs whose latest report has each status code, sorted by status code
+     */
+    public Map<String, Long> getLatestStatusCounts() {
+        Map<String, Long> result = new TreeMap<>();
+        for (VinStatus status : latestByVin.values()) {
+            result.merge(status.statusCode, 1L, Long::sum);
+        }
+        return result;
+    }
+
+    /**
+     * @return Index of report sequence ids, or null if sequences are not indexed
+     */
+    public SequenceGapIndex getSequenceIndex() {
+        return sequenceIndex;
+    }
+
+    /**
+     * @return Store of time-bucketed counts, or null if no rollups are kept
+     */
+    public DiagnosticRollupStore getRollupStore() {
+        return rollupStore;
+    }
+
+    public long getReportCount() {
+        return reportCount.sum();
+    }
+
+    public int getVinCount() {
+        return latestByVin.size();
+    }
+
+    private static Map<String, Long> snapshot(Map<String, LongAdder> counters) {
+        Map<String, Long> result = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().sum());
+        }
+        return result;
+    }
+
+    /**
+     * Latest known status of one vehicle. Immutable.
+     */
+    public static final class VinStatus {
+        private final String vin;
+        private final String reportType;
+        private final String statusCode;
+        private final long timestampUtc;
+        private final long sequenceId;
+
+        VinStatus(DiagnosticReport report) {
+            this.vin = report.getVin();
+            this.reportType = report.getReportType();
+            this.statusCode = report.getStatusCode();
+            this.timestampUtc = report.getTimestampUtc();
+            this.sequenceId = report.getSequenceId() != null ? report.getSequenceId() : Long.MIN_VALUE;
+        }
+
+        boolean isNewerThan(VinStatus other) {
+            if (timestampUtc != other.timestampUtc) {
+                return timestampUtc > other.timestampUtc;
+            }
+            if (sequenceId != other.sequenceId) {
+                return sequenceId > other.sequenceId;
+            }
+            int byType = reportType.compareTo(other.reportType);
+            if (byType != 0) {
+                return byType > 0;
+            }
+            return statusCode.compareTo(other.statusCode) > 0;
+        }
+
+        public String getVin() {
+            return vin;
+        }
+
+        public String getReportType() {
+            return reportType;
+        }
+
+        public String getStatusCode() {
+            return statusCode;
+        }
+
+        /**
+         * @return Report time in seconds since the epoch (UTC)
+         */
+        public long getTimestampUtc() {
+            return timestampUtc;
+        }
+
+        /**
+         * @return Sequence id of the report, or Long.MIN_VALUE if it had none
+         */
+        public long getSequenceId() {
+            return sequenceId;
+        }
+
+        @Override
+        public String toString() {
+            return "VinStatus{" +
+                    "vin='" + vin + '\'' +
+                    ", reportType='" + reportType + '\'' +
+                    ", statusCode='" + statusCode + '\'' +
+                    ", timestampUtc=" + timestampUtc +
+                    ", sequenceId=" + sequenceId +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,515 @@
+package com.tana.migration.service;
+
+import com.tana.migration.model.DiagnosticReport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time-bucketed counts of diagnostic reports by report type and status code, stored in a
+ * memory-mapped file so they survive restarts and can be queried without reading any report file.
+ *
+ * Layout: a header holding the bucket layout and the report type and status code dictionaries,
+ * followed by one fixed-width array of long counters per time bucket, with one counter per
+ * (report type, status code) pair. Bucket i covers the timestamps
+ * [origin + i * bucketSeconds, origin + (i + 1) * bucketSeconds). The file is sparse: buckets that
+ * were never written take no disk space.
+ *
+ * Parser threads add reports concurrently. Each bucket is guarded by one of a fixed set of stripe
+ * locks, and {@link #addAll(Iterable)} sorts a file's reports by counter first so it takes each
+ * bucket's lock once per file rather than once per report. A query over months of hourly buckets
+ * reads a few thousand counters per type and status pair.
+ *
+ * Report types and status codes beyond the dictionary capacity, or with names longer than
+ * {@value #MAX_NAME_BYTES} bytes, are counted under {@value #OTHER}. Reports outside the bucket range
+ * are not counted; see {@link #getDroppedCount()}.
+ *
+ * Thread-safe.
+ */
+public class DiagnosticRollupStore implements Closeable {
+
+    /** Bucket width of an hourly rollup. */
+    public static final long HOUR = 3600;
+    /** Bucket width of a daily rollup. */
+    public static final long DAY = 86400;
+    /** Name under which overflowing report types and status codes are counted. */
+    public static final String OTHER = "(other)";
+    /** Default number of distinct report types, including {@value #OTHER}. */
+    public static final int DEFAULT_MAX_REPORT_TYPES = 16;
+    /** Default number of distinct status codes, including {@value #OTHER}. */
+    public static final int DEFAULT_MAX_STATUS_CODES = 16;
+    /** Longest report type or status code name, in UTF-8 bytes. */
+    public static final int MAX_NAME_BYTES = 62;
+
+    private static final int MAGIC = 0x44524C31;
+    private static final int VERSION = 1;
+    private static final int NAME_TABLE_OFFSET = 64;
+    private static final int NAME_ENTRY_BYTES = 2 + MAX_NAME_BYTES;
+    private static final int PAGE_SIZE = 4096;
+    private static final long MAX_SEGMENT_BYTES = 1L << 30;
+    private static final int STRIPES = 64;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final MappedByteBuffer[] segments;
+    private final long bucketSeconds;
+    private final long originEpochSeconds;
+    private final int bucketCount;
+    private final int maxReportTypes;
+    private final int maxStatusCodes;
+    private final int slotsPerBucket;
+    private final int bucketsPerSegment;
+    private final Object[] stripes = new Object[STRIPES];
+    private final ConcurrentMap<String, Integer> reportTypes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Integer> statusCodes = new ConcurrentHashMap<>();
+    private final Set<String> overflowReportTypes = ConcurrentHashMap.newKeySet();
+    private final Set<String> overflowStatusCodes = ConcurrentHashMap.newKeySet();
+    private final AtomicLong dropped = new AtomicLong();
+    private int reportTypeCount;
+    private int statusCodeCount;
+    private volatile boolean closed;
+
+    /**
+     * Opens an existing rollup file, taking the bucket layout from its header.
+     *
+     * @param filePath Rollup file
+     * @throws IOException if the file cannot be read or is not a rollup file
+     */
+    public DiagnosticRollupStore(String filePath) throws IOException {
+        this(filePath, 0, 0, 0, 0, 0, false);
+    }
+
+    /**
+     * Opens a rollup file, creating it if it does not exist, with the default dictionary capacity.
+     *
+     * @param filePath Rollup file
+     * @param bucketSeconds Width of a bucket in seconds (e.g. {@link #HOUR} or {@link #DAY})
+     * @param originEpochSeconds Start of the first bucket, in seconds since the epoch (UTC)
+     * @param bucketCount Number of buckets
+     * @throws IOException if the file cannot be opened, or exists with a different layout
+     */
+    public DiagnosticRollupStore(String filePath, long bucketSeconds, long originEpochSeconds, int bucketCount)
+            throws IOException {
+        this(filePath, bucketSeconds, originEpochSeconds, bucketCount, DEFAULT_MAX_REPORT_TYPES, DEFAULT_MAX_STATUS_CODES);
+    }
+
+    /**
+     * Opens a rollup file, creating it if it does not exist.
+     *
+     * @param filePath Rollup file
+     * @param bucketSeconds Width of a bucket in seconds (e.g. {@link #HOUR} or {@link #DAY})
+     * @param originEpochSeconds Start of the first bucket, in seconds since the epoch (UTC)
+     * @param bucketCount Number of buckets
+     * @param maxReportTypes Number of distinct report types, including {@value #OTHER}
+     * @param maxStatusCodes Number of distinct status codes, including {@value #OTHER}
+     * @throws IOException if the file cannot be opened, or exists with a different layout
+     */
+    public DiagnosticRollupStore(String filePath, long bucketSeconds, long originEpochSeconds, int bucketCount,
+                                 int maxReportTypes, int maxStatusCodes) throws IOException {
+        this(filePath, bucketSeconds, originEpochSeconds, bucketCount, maxReportTypes, maxStatusCodes, true);
+        if (bucketSeconds != this.bucketSeconds || originEpochSeconds != this.originEpochSeconds
+                || bucketCount != this.bucketCount || maxReportTypes != this.maxReportTypes
+                || maxStatusCodes != this.maxStatusCodes) {
+            close();
+            throw new IOException("Rollup file " + filePath + " has a different bucket layout");
+        }
+    }
+
+    private DiagnosticRollupStore(String filePath, long bucketSeconds, long originEpochSeconds, int bucketCount,
+                                  int maxReportTypes, int maxStatusCodes, boolean create) throws IOException {
+        Path path = Paths.get(filePath);
+        boolean exists = Files.exists(path) && Files.size(path) > 0;
+        if (!exists && !create) {
+            throw new IOException("Rollup file not found: " + filePath);
+        }
+        if (!exists && (bucketSeconds < 1 || bucketCount < 1 || maxReportTypes < 2 || maxStatusCodes < 2)) {
+            throw new IllegalArgumentException("Bucket width and count must be positive, "
+                + "and there must be room for at least one report type and status code besides " + OTHER);
+        }
+
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (exists) {
+                MappedByteBuffer fixed = channel.map(FileChannel.MapMode.READ_ONLY, 0, NAME_TABLE_OFFSET);
+                if (fixed.getInt(0) != MAGIC || fixed.getInt(4) != VERSION) {
+                    throw new IOException("Not a rollup file: " + filePath);
+                }
+                bucketSeconds = fixed.getLong(8);
+                originEpochSeconds = fixed.getLong(16);
+                bucketCount = fixed.getInt(24);
+                maxReportTypes = fixed.getInt(28);
+                maxStatusCodes = fixed.getInt(32);
+            }
+            this.bucketSeconds = bucketSeconds;
+            this.originEpochSeconds = originEpochSeconds;
+            this.bucketCount = bucketCount;
+            this.maxReportTypes = maxReportTypes;
+            this.maxStatusCodes = maxStatusCodes;
+            this.slotsPerBucket = maxReportTypes * maxStatusCodes;
+
+            long headerSize = headerSize(maxReportTypes, maxStatusCodes);
+            long bucketBytes = slotsPerBucket * 8L;
+            this.bucketsPerSegment = (int) Math.max(1, Math.min(bucketCount, MAX_SEGMENT_BYTES / bucketBytes));
+            this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, headerSize);
+            this.segments = new MappedByteBuffer[(bucketCount + bucketsPerSegment - 1) / bucketsPerSegment];
+            for (int i = 0; i < segments.length; i++) {
+                int buckets = Math.min(bucketsPerSegment, bucketCount - i * bucketsPerSegment);
+                segments[i] = channel.map(FileChannel.MapMode.READ_WRITE,
+                    headerSize + (long) i * bucketsPerSegment * bucketBytes, buckets * bucketBytes);
+            }
+
+            if (exists) {
+                readDictionaries();
+            } else {
+                writeHeader();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    private static long headerSize(int maxReportTypes, int maxStatusCodes) {
+        long size = NAME_TABLE_OFFSET + (long) (maxReportTypes + maxStatusCodes) * NAME_ENTRY_BYTES;
+        return (size + PAGE_SIZE - 1) / PAGE_SIZE * PAGE_SIZE;
+    }
+
+    private void writeHeader() {
+        header.putInt(0, MAGIC);
+        header.putInt(4, VERSION);
+        header.putLong(8, bucketSeconds);
+        header.putLong(16, originEpochSeconds);
+        header.putInt(24, bucketCount);
+        header.putInt(28, maxReportTypes);
+        header.putInt(32, maxStatusCodes);
+        writeName(maxReportTypes - 1, OTHER);
+        writeName(maxReportTypes + maxStatusCodes - 1, OTHER);
+        reportTypes.put(OTHER, maxReportTypes - 1);
+        statusCodes.put(OTHER, maxStatusCodes - 1);
+        writeCounts();
+    }
+
+    private void writeCounts() {
+        header.putInt(36, reportTypeCount);
+        header.putInt(40, statusCodeCount);
+    }
+
+    private void readDictionaries() {
+        reportTypeCount = header.getInt(36);
+        statusCodeCount = header.getInt(40);
+        for (int i = 0; i < reportTypeCount; i++) {
+            reportTypes.put(readName(i), i);
+        }
+        for (int i = 0; i < statusCodeCount; i++) {
+            statusCodes.put(readName(maxReportTypes + i), i);
+        }
+        reportTypes.put(OTHER, maxReportTypes - 1);
+        statusCodes.put(OTHER, maxStatusCodes - 1);
+    }
+
+    private void writeName(int entry, String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int offset = NAME_TABLE_OFFSET + entry * NAME_ENTRY_BYTES;
+        header.putShort(offset, (short) bytes.length);
+        for (int i = 0; i < bytes.length; i++) {
+            header.put(offset + 2 + i, bytes[i]);
+        }
+    }
+
+    private String readName(int entry) {
+        int offset = NAME_TABLE_OFFSET + entry * NAME_ENTRY_BYTES;
+        byte[] bytes = new byte[header.getShort(offset)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = header.get(offset + 2 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Counts one report.
+     *
+     * @return false if the report's timestamp is outside the bucket range or it has no timestamp
+     */
+    public boolean add(DiagnosticReport report) {
+        long counter = counterOf(report);
+        if (counter < 0) {
+            return false;
+        }
+        int bucket = (int) (counter / slotsPerBucket);
+        synchronized (stripe(bucket)) {
+            increment(bucket, (int) (counter % slotsPerBucket), 1);
+        }
+        return true;
+    }
+
+    /**
+     * Counts a batch of reports, taking each bucket's lock once.
+     *
+     * @return Number of reports counted
+     */
+    public int addAll(Iterable<DiagnosticReport> reports) {
+        long[] counters = new long[16];
+        int size = 0;
+        for (DiagnosticReport report : reports) {
+            long counter = counterOf(report);
+            if (counter >= 0) {
+                if (size == counters.length) {
+                    counters = Arrays.copyOf(counters, size * 2);
+                }
+                counters[size++] = counter;
+            }
+        }
+        Arrays.sort(counters, 0, size);
+
+        int i = 0;
+        while (i < size) {
+            int bucket = (int) (counters[i] / slotsPerBucket);
+            synchronized (stripe(bucket)) {
+                while (i < size && counters[i] / slotsPerBucket == bucket) {
+                    long counter = counters[i];
+                    int run = 1;
+                    while (i + run < size && counters[i + run] == counter) {
+                        run++;
+                    }
+                    increment(bucket, (int) (counter % slotsPerBucket), run);
+                    i += run;
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return Global index of the report's counter (bucket * slotsPerBucket + slot), or -1 if it is not counted
+     */
+    private long counterOf(DiagnosticReport report) {
+        checkOpen();
+        if (report.getTimestampUtc() == null) {
+            dropped.incrementAndGet();
+            return -1;
+        }
+        long offset = report.getTimestampUtc() - originEpochSeconds;
+        long bucket = Math.floorDiv(offset, bucketSeconds);
+        if (bucket < 0 || bucket >= bucketCount) {
+            dropped.incrementAndGet();
+            return -1;
+        }
+        int slot = index(report.getReportType(), true) * maxStatusCodes + index(report.getStatusCode(), false);
+        return bucket * slotsPerBucket + slot;
+    }
+
+    /**
+     * Returns the dictionary index of a name, adding it to the dictionary and the file header if it is new.
+     */
+    private int index(String name, boolean reportType) {
+        ConcurrentMap<String, Integer> dictionary = reportType ? reportTypes : statusCodes;
+        Set<String> overflow = reportType ? overflowReportTypes : overflowStatusCodes;
+        int capacity = (reportType ? maxReportTypes : maxStatusCodes) - 1;
+        Integer index = dictionary.get(name != null ? name : OTHER);
+        if (index != null) {
+            return index;
+        }
+        if (overflow.contains(name)) {
+            return capacity;
+        }
+        synchronized (header) {
+            index = dictionary.get(name);
+            if (index != null) {
+                return index;
+            }
+            int count = reportType ? reportTypeCount : statusCodeCount;
+            if (count == capacity || name.getBytes(StandardCharsets.UTF_8).length > MAX_NAME_BYTES) {
+                overflow.add(name);
+                return capacity;
+            }
+            writeName(reportType ? count : maxReportTypes + count, name);
+            if (reportType) {
+                reportTypeCount++;
+            } else {
+                statusCodeCount++;
+            }
+            writeCounts();
+            dictionary.put(name, count);
+            return count;
+        }
+    }
+
+    private Object stripe(int bucket) {
+        return stripes[bucket & (STRIPES - 1)];
+    }
+
+    private void increment(int bucket, int slot, long delta) {
+        MappedByteBuffer segment = segments[bucket / bucketsPerSegment];
+        int position = ((bucket % bucketsPerSegment) * slotsPerBucket + slot) * 8;
+        segment.putLong(position, segment.getLong(position) + delta);
+    }
+
+    private long read(int bucket, int slot) {
+        MappedByteBuffer segment = segments[bucket / bucketsPerSegment];
+        return segment.getLong(((bucket % bucketsPerSegment) * slotsPerBucket + slot) * 8);
+    }
+
+    /**
+     * @param fromEpochSeconds Start of the range, inclusive
+     * @param toEpochSeconds End of the range, exclusive
+     * @param reportType Report type to count (if null, counts every type)
+     * @param statusCode Status code to count (if null, counts every status)
+     * @return Number of reports in the buckets overlapping the range
+     */
+    public long count(long fromEpochSeconds, long toEpochSeconds, String reportType, String statusCode) {
+        long total = 0;
+        for (long count : series(fromEpochSeconds, toEpochSeconds, reportType, statusCode)) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * @param fromEpochSeconds Start of the range, inclusive
+     * @param toEpochSeconds End of the range, exclusive
+     * @param reportType Report type to count (if null, counts every type)
+     * @param statusCode Status code to count (if null, counts every status)
+     * @return Number of reports in each bucket overlapping the range, starting with the bucket
+     *         at {@link #getBucketStart(long) getBucketStart(fromEpochSeconds)}
+     */
+    public long[] series(long fromEpochSeconds, long toEpochSeconds, String reportType, String statusCode) {
+        checkOpen();
+        int first = (int) Math.max(0, Math.floorDiv(fromEpochSeconds - originEpochSeconds, bucketSeconds));
+        int last = (int) Math.min(bucketCount - 1L, Math.floorDiv(toEpochSeconds - 1 - originEpochSeconds, bucketSeconds));
+        if (toEpochSeconds <= fromEpochSeconds || first > last) {
+            return new long[0];
+        }
+        int[] types = lookup(reportTypes, reportType, maxReportTypes);
+        int[] statuses = lookup(statusCodes, statusCode, maxStatusCodes);
+
+        long[] series = new long[last - first + 1];
+        if (types.length == 0 || statuses.length == 0) {
+            return series;
+        }
+        for (int bucket = first; bucket <= last; bucket++) {
+            long sum = 0;
+            synchronized (stripe(bucket)) {
+                for (int type : types) {
+                    for (int status : statuses) {
+                        sum += read(bucket, type * maxStatusCodes + status);
+                    }
+                }
+            }
+            series[bucket - first] = sum;
+        }
+        return series;
+    }
+
+    /**
+     * @param fromEpochSeconds Start of the range, inclusive
+     * @param toEpochSeconds End of the range, exclusive
+     * @return Status code counts of each report type in the buckets overlapping the range,
+     *         sorted and without zero counts
+     */
+    public Map<String, Map<String, Long>> countsByReportType(long fromEpochSeconds, long toEpochSeconds) {
+        Map<String, Map<String, Long>> result = new TreeMap<>();
+        for (String type : reportTypes.keySet()) {
+            for (String status : statusCodes.keySet()) {
+                long count = count(fromEpochSeconds, toEpochSeconds, type, status);
+                if (count > 0) {
+                    result.computeIfAbsent(type, t -> new TreeMap<>()).put(status, count);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return Dictionary indexes matching the name: every index if it is null, none if it is unknown
+     */
+    private static int[] lookup(Map<String, Integer> dictionary, String name, int capacity) {
+        if (name == null) {
+            int[] all = new int[capacity];
+            for (int i = 0; i < capacity; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+        Integer index = dictionary.get(name);
+        return index != null ? new int[] {index} : new int[0];
+    }
+
+    /**
+     * @return Start of the bucket holding the timestamp, in seconds since the epoch
+     */
+    public long getBucketStart(long epochSeconds) {
+        return originEpochSeconds + Math.floorDiv(epochSeconds - originEpochSeconds, bucketSeconds) * bucketSeconds;
+    }
+
+    public long getBucketSeconds() {
+        return bucketSeconds;
+    }
+
+    public long getOriginEpochSeconds() {
+        return originEpochSeconds;
+    }
+
+    public int getBucketCount() {
+        return bucketCount;
+    }
+
+    /**
+     * @return Number of reports not counted since this store was opened, because their timestamp
+     *         was missing or outside the bucket range
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Forces the counters and dictionaries to the storage device.
+     */
+    public void flush() {
+        checkOpen();
+        synchronized (header) {
+            header.force();
+        }
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Rollup store is closed");
+        }
+    }
+
+    /**
+     * Flushes and closes the file. The mapping is released when the store is garbage collected.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            closed = true;
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.tana.migration.service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Walks directory trees in parallel and reports the regular files that match include/exclude globs.
+ *
+ * Every directory is listed with a {@link DirectoryStream} in its own task, so sibling subtrees
+ * are listed concurrently and each file is reported as soon as its directory entry is read.
+ * Tasks never wait for each other, so the walk can share an executor with other work, such as
+ * a FairScheduler batch, without holding its threads.
+ *
+ * Glob rules:
+ * - A glob without '/' matches the file name, e.g. "*.json"
+ * - A glob with '/' matches the path relative to the root, e.g. "archive/**" or "2024/**.json"
+ * - Exclude globs also apply to directories, whose subtrees are then skipped
+ * - With no include globs every regular file is included
+ * - Symbolic links are not followed
+ */
+final class DirectoryWalker {
+
+    private final List<Glob> includes;
+    private final List<Glob> excludes;
+
+    /**
+     * @param includeGlobs Globs a file must match one of (null or empty to include all files)
+     * @param excludeGlobs Globs that exclude matching files and directories (null for none)
+     */
+    DirectoryWalker(List<String> includeGlobs, List<String> excludeGlobs) {
+        this.includes = compile(includeGlobs);
+        this.excludes = compile(excludeGlobs);
+    }
+
+    /**
+     * Walks the roots on the given executor and returns once every directory has been listed.
+     * The callbacks are invoked from executor threads and must be thread-safe.
+     * Must not be called from a thread of the executor.
+     *
+     * @param roots Directories to walk (a root that is a regular file is reported if it matches)
+     * @param executor Executor that lists the directories
+     * @param onFile Called with each matching regular file and its attributes
+     * @param onError Called with each root or directory that could not be read
+     */
+    void walk(List<String> roots, Executor executor,
+              BiConsumer<Path, BasicFileAttributes> onFile, BiConsumer<Path, IOException> onError) {
+        Walk walk = new Walk(executor, onFile, onError);
+        List<Path> directories = new ArrayList<>();
+        for (String root : roots) {
+            Path rootPath = Paths.get(root).toAbsolutePath().normalize();
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(rootPath, BasicFileAttributes.class);
+            } catch (IOException e) {
+                onError.accept(rootPath, e);
+                continue;
+            }
+            if (attributes.isDirectory()) {
+                directories.add(rootPath);
+            } else if (attributes.isRegularFile() && matches(rootPath.getParent(), rootPath)) {
+                onFile.accept(rootPath, attributes);
+            }
+        }
+        for (Path directory : directories) {
+            walk.submit(directory, directory);
+        }
+        walk.await();
+    }
+
+    private boolean matches(Path root, Path file) {
+        if (isExcluded(root, file)) {
+            return false;
+        }
+        if (includes.isEmpty()) {
+            return true;
+        }
+        for (Glob glob : includes) {
+            if (glob.matches(root, file)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isExcluded(Path root, Path path) {
+        for (Glob glob : excludes) {
+            if (glob.matches(root, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<Glob> compile(List<String> globs) {
+        if (globs == null || globs.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Glob> compiled = new ArrayList<>(globs.size());
+        for (String glob : globs) {
+            compiled.add(new Glob(glob));
+        }
+        return compiled;
+    }
+
+    /**
+     * Compiled glob that matches either the file name or the root-relative path.
+     */
+    private static final class Glob {
+        private final PathMatcher matcher;
+        private final boolean matchesName;
+
+        Glob(String pattern) {
+            this.matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+            this.matchesName = pattern.indexOf('/') < 0;
+        }
+
+        boolean matches(Path root, Path path) {
+            Path target = matchesName ? path.getFileName() : root.relativize(path);
+            return target != null && matcher.matches(target);
+        }
+    }
+
+    /**
+     * One walk: lists each directory in a task of its own and counts the directories not yet listed.
+     */
+    private final class Walk {
+        private final Executor executor;
+        private final BiConsumer<Path, BasicFileAttributes> onFile;
+        private final BiConsumer<Path, IOException> onError;
+        // One for the caller until all roots are submitted, plus one per directory not yet listed
+        private final AtomicInteger pending = new AtomicInteger(1);
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        Walk(Executor executor, BiConsumer<Path, BasicFileAttributes> onFile, BiConsumer<Path, IOException> onError) {
+            this.executor = executor;
+            this.onFile = onFile;
+            this.onError = onError;
+        }
+
+        void submit(Path root, Path directory) {
+            pending.incrementAndGet();
+            try {
+                executor.execute(() -> {
+                    try {
+                        list(root, directory);
+                    } finally {
+                        finished();
+                    }
+                });
+            } catch (RuntimeException e) {
+                finished();
+                throw e;
+            }
+        }
+
+        /**
+         * Waits, ignoring interrupts like the walk's tasks, until every directory has been listed.
+         */
+        void await() {
+            finished();
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    done.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void finished() {
+            if (pending.decrementAndGet() == 0) {
+                done.countDown();
+            }
+        }
+
+        /**
+         * Lists one directory, reports its matching files and submits its subdirectories.
+         */
+        private void list(Path root, Path directory) {
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    BasicFileAttributes attributes;
+                    try {
+                        attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    } catch (NoSuchFileException e) {
+                        // Deleted while listing
+                        continue;
+                    }
+                    if (attributes.isDirectory()) {
+                        if (!isExcluded(root, entry)) {
+                            submit(root, entry);
+                        }
+                    } else if (attributes.isRegularFile() && matches(root, entry)) {
+                        onFile.accept(entry, attributes);
+                    }
+                }
+            } catch (IOException e) {
+                onError.accept(directory, e);
+            } catch (DirectoryIteratorException e) {
+                onError.accept(directory, e.getCause());
+            }
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.tana.migration.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread pool shared by several parsing services, so migrations running in the same JVM share one
+ * concurrency limit instead of each creating a pool sized for the whole machine.
+ *
+ * Each batch submits its tasks to its own {@link BatchQueue}. Whenever a thread is free it takes the
+ * next task from the queues by weighted fair queuing (stride scheduling): a queue's pass advances by
+ * 1 / weight for every task it runs, and the non-empty queue with the lowest pass runs next, so a batch
+ * of weight 2 gets twice the threads of a batch of weight 1 while both have work. A queue that was idle
+ * resumes at the current pass rather than with credit for the time it was idle.
+ *
+ * Small batches have a priority lane: the first smallBatchTasks tasks of a batch declared small run before
+ * any other queued task, so an interactive batch of a few files is not stuck behind a large migration.
+ * Tasks past that limit are queued fairly like any other.
+ *
+ * Thread-safe.
+ */
+public class FairScheduler {
+
+    /** Default number of tasks a small batch runs in the priority lane. */
+    public static final int DEFAULT_SMALL_BATCH_TASKS = 16;
+
+    private final ThreadPoolExecutor pool;
+    private final int smallBatchTasks;
+    // Queues with tasks waiting, in the order they became non-empty; guarded by itself
+    private final List<BatchQueue> waiting = new ArrayList<>();
+    private double virtualTime;
+
+    /**
+     * Creates a scheduler with one thread per available processor.
+     */
+    public FairScheduler() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param threads Number of threads shared by all batches
+     */
+    public FairScheduler(int threads) {
+        this(threads, DEFAULT_SMALL_BATCH_TASKS);
+    }
+
+    /**
+     * @param threads Number of threads shared by all batches
+     * @param smallBatchTasks Largest batch, in tasks, that runs in the priority lane
+     */
+    public FairScheduler(int threads, int smallBatchTasks) {
+        if (threads < 1 || smallBatchTasks < 0) {
+            throw new IllegalArgumentException("Threads must be positive and small batch size not negative");
+        }
+        // Each queued entry runs whichever task is fairest once a thread is free
+        this.pool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), new SchedulerThreadFactory());
+        this.smallBatchTasks = smallBatchTasks;
+    }
+
+    /**
+     * Creates the queue for one batch.
+     *
+     * @param weight Share of the threads relative to other batches with work (positive)
+     * @param expectedTasks Number of tasks the batch expects to run, or 0 if unknown;
+     *                      batches of at most smallBatchTasks tasks run in the priority lane
+     * @return Executor for the batch's tasks
+     */
+    public BatchQueue newBatch(double weight, int expectedTasks) {
+        if (!(weight > 0)) {
+            throw new IllegalArgumentException("Weight must be positive");
+        }
+        return new BatchQueue(weight, expectedTasks > 0 && expectedTasks <= smallBatchTasks ? smallBatchTasks : 0);
+    }
+
+    private void runNext() {
+        Runnable task = next();
+        if (task != null) {
+            task.run();
+        }
+    }
+
+    private Runnable next() {
+        synchronized (waiting) {
+            BatchQueue best = null;
+            for (BatchQueue queue : waiting) {
+                if (queue.priorityTasks > 0) {
+                    best = queue;
+                    break;
+                }
+                if (best == null || queue.pass < best.pass) {
+                    best = queue;
+                }
+            }
+            if (best == null) {
+                return null;
+            }
+            Runnable task = best.tasks.poll();
+            if (best.priorityTasks > 0) {
+                best.priorityTasks--;
+            }
+            virtualTime = best.pass;
+            best.pass += 1 / best.weight;
+            if (best.tasks.isEmpty()) {
+                waiting.remove(best);
+            }
+            return task;
+        }
+    }
+
+    /**
+     * Adds threads to the shared limit, or removes them again, such as replacements for threads
+     * blocked in abandoned tasks.
+     *
+     * @param threads Number of threads to add (negative to remove)
+     */
+    public void reserve(int threads) {
+        synchronized (pool) {
+            int size = pool.getCorePoolSize() + threads;
+            if (threads > 0) {
+                pool.setMaximumPoolSize(size);
+                pool.setCorePoolSize(size);
+            } else {
+                pool.setCorePoolSize(size);
+                pool.setMaximumPoolSize(size);
+            }
+        }
+    }
+
+    /**
+     * @return Number of threads shared by all batches
+     */
+    public int getThreadCount() {
+        return pool.getCorePoolSize();
+    }
+
+    /**
+     * @return Number of tasks waiting for a thread, over all batches
+     */
+    public int getQueuedTasks() {
+        return pool.getQueue().size();
+    }
+
+    /**
+     * Stops the threads once queued tasks have run.
+     */
+    public void shutdown() {
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(60, TimeUnit.SECONDS)) {
+                pool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Tasks of one batch, run on the scheduler's threads in fair order with the other batches.
+     */
+    public final class BatchQueue implements Executor {
+        private final double weight;
+        // Guarded by the scheduler's waiting list
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+        private int priorityTasks;
+        private double pass;
+
+        private BatchQueue(double weight, int priorityTasks) {
+            this.weight = weight;
+            this.priorityTasks = priorityTasks;
+        }
+
+        /**
+         * @throws RejectedExecutionException if the scheduler is shut down
+         */
+        @Override
+        public void execute(Runnable task) {
+            synchronized (waiting) {
+                if (pool.isShutdown()) {
+                    throw new RejectedExecutionException("Fair scheduler is shut down");
+                }
+                if (tasks.isEmpty()) {
+                    pass = Math.max(pass, virtualTime);
+                    waiting.add(this);
+                }
+                tasks.add(task);
+            }
+            try {
+                pool.execute(FairScheduler.this::runNext);
+            } catch (RejectedExecutionException e) {
+                // Shut down in the meantime: the task is withdrawn, unless a thread has already taken it
+                synchronized (waiting) {
+                    if (!tasks.remove(task)) {
+                        return;
+                    }
+                    if (tasks.isEmpty()) {
+                        waiting.remove(this);
+                    }
+                }
+                throw e;
+            }
+        }
+
+        public double getWeight() {
+            return weight;
+        }
+
+        /**
+         * @return true while the batch still has tasks to run in the priority lane
+         */
+        public boolean isPriority() {
+            synchronized (waiting) {
+                return priorityTasks > 0;
+            }
+        }
+    }
+
+    private static final class SchedulerThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            return new Thread(task, "fair-scheduler-" + count.incrementAndGet());
+        }
+    }
+}
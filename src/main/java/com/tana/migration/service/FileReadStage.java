@@ -0,0 +1,457 @@
+package com.tana.migration.service;
+
+import com.tana.migration.metrics.MigrationMetrics;
+import com.tana.migration.metrics.Stage;
+import com.tana.migration.util.DirectBufferPool;
+import com.tana.migration.util.IoThrottle;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * I/O stage of a two-stage parse: reads whole files into pooled direct buffers with an
+ * {@link AsynchronousFileChannel}, so parsing threads receive file content in memory
+ * instead of blocking on disk reads.
+ *
+ * Completion handlers run on a small pool of I/O threads owned by the stage, sized for the disk
+ * rather than for the CPU. At most maxBufferedFiles files are read or waiting to be parsed at once;
+ * further reads queue in submission order and start as buffers are released, so a slow parsing
+ * stage bounds the memory held by the reading stage without blocking the caller.
+ *
+ * Reads are accounted to the process-wide {@link IoThrottle}; a capped throttle delays the next read
+ * on the I/O thread.
+ *
+ * Only files that fit in one buffer are read; callers check {@link #accepts(long)} and read larger
+ * files themselves.
+ *
+ * A caller that gives up on a read, such as one that hangs on a slow mount, {@link #abandon abandons} it:
+ * the read fails at once, and while it keeps its I/O thread and buffer the stage adds a thread and frees its
+ * slot for the next read. At most maxBufferedFiles abandoned reads are replaced at once; further abandoned
+ * reads keep their slot until they return.
+ *
+ * Thread-safe.
+ */
+public class FileReadStage {
+
+    /** Default buffer size: files up to this size are read by the stage. */
+    public static final int DEFAULT_BUFFER_SIZE = 4 * 1024 * 1024;
+
+    private final ThreadPoolExecutor ioExecutor;
+    private final DirectBufferPool bufferPool;
+    private final int maxBufferedFiles;
+    private final MigrationMetrics metrics;
+    // Queued reads, slots held by reads, and abandoned reads the stage has replaced; guarded by pending
+    private final Queue<PendingRead> pending = new ArrayDeque<>();
+    private int buffered;
+    private int replaced;
+
+    /**
+     * Creates a stage with two I/O threads and {@link #DEFAULT_BUFFER_SIZE} buffers.
+     *
+     * @param maxBufferedFiles Maximum number of files read or waiting to be parsed at once
+     */
+    public FileReadStage(int maxBufferedFiles) {
+        this(2, maxBufferedFiles, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param ioThreads Number of threads completing reads
+     * @param maxBufferedFiles Maximum number of files read or waiting to be parsed at once
+     * @param bufferSize Size of each buffer; larger files are not read by the stage
+     */
+    public FileReadStage(int ioThreads, int maxBufferedFiles, int bufferSize) {
+        this(ioThreads, maxBufferedFiles, bufferSize, null);
+    }
+
+    /**
+     * @param ioThreads Number of threads completing reads
+     * @param maxBufferedFiles Maximum number of files read or waiting to be parsed at once
+     * @param bufferSize Size of each buffer; larger files are not read by the stage
+     * @param metrics Metrics receiving READ timings, files read and read errors (if null, disabled)
+     */
+    public FileReadStage(int ioThreads, int maxBufferedFiles, int bufferSize, MigrationMetrics metrics) {
+        if (ioThreads < 1 || maxBufferedFiles < 1) {
+            throw new IllegalArgumentException("I/O threads and buffered files must be positive");
+        }
+        this.ioExecutor = new ThreadPoolExecutor(ioThreads, ioThreads, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(), new ReaderThreadFactory());
+        this.bufferPool = new DirectBufferPool(bufferSize, maxBufferedFiles);
+        this.maxBufferedFiles = maxBufferedFiles;
+        this.metrics = metrics != null ? metrics : MigrationMetrics.noOp();
+    }
+
+    /**
+     * @param size Size of a file in bytes
+     * @return true if a file of this size fits in one buffer
+     */
+    public boolean accepts(long size) {
+        return size <= bufferPool.getBufferSize();
+    }
+
+    /**
+     * Reads a whole file. The returned future completes with a buffer positioned at the first byte
+     * and limited to the file size, which the caller must pass to {@link #release(ByteBuffer)} once it
+     * has been parsed. It completes exceptionally, with no buffer to release, if the file cannot be
+     * read or no longer fits in a buffer.
+     *
+     * @param filePath File to read
+     * @return Future of the file content
+     */
+    public CompletableFuture<ByteBuffer> read(String filePath) {
+        return read(filePath, null);
+    }
+
+    /**
+     * Reads a whole file like {@link #read(String)}, and reports when the read starts.
+     *
+     * @param filePath File to read
+     * @param onStart Run on an I/O thread when the read starts, once it has a buffer and a thread (can be null)
+     * @return Future of the file content
+     */
+    public CompletableFuture<ByteBuffer> read(String filePath, Runnable onStart) {
+        PendingRead read = new PendingRead(filePath, onStart);
+        if (ioExecutor.isShutdown()) {
+            read.completeExceptionally(new IOException("File read stage is shut down: " + filePath));
+            return read;
+        }
+        boolean start;
+        synchronized (pending) {
+            start = buffered < maxBufferedFiles;
+            if (start) {
+                buffered++;
+                read.inFlight = true;
+            } else {
+                pending.add(read);
+            }
+        }
+        if (start) {
+            start(read, bufferPool.acquire());
+        }
+        return read;
+    }
+
+    /**
+     * Gives up on a read from {@link #read(String)}: the future fails at once, and a queued read is dropped.
+     * A started read keeps its I/O thread and buffer until it returns, so the stage replaces both while
+     * fewer than maxBufferedFiles abandoned reads are replaced.
+     *
+     * @param read Future returned by {@link #read(String)}
+     * @return true if the read had not completed and is now abandoned
+     */
+    public boolean abandon(CompletableFuture<ByteBuffer> read) {
+        if (!(read instanceof PendingRead)) {
+            return false;
+        }
+        PendingRead abandoned = (PendingRead) read;
+        boolean replace = false;
+        PendingRead next = null;
+        synchronized (pending) {
+            if (abandoned.finished || abandoned.abandoned) {
+                return false;
+            }
+            abandoned.abandoned = true;
+            if (!abandoned.inFlight) {
+                pending.remove(abandoned);
+            } else if (replaced < maxBufferedFiles) {
+                replace = true;
+                abandoned.replaced = true;
+                replaced++;
+                next = pending.poll();
+                if (next != null) {
+                    next.inFlight = true;
+                } else {
+                    buffered--;
+                }
+            }
+        }
+        if (replace) {
+            resize(1);
+            if (next != null) {
+                start(next, bufferPool.acquire());
+            }
+        }
+        abandoned.completeExceptionally(new IOException("Read abandoned: " + abandoned.filePath));
+        return true;
+    }
+
+    /**
+     * Returns a buffer from {@link #read(String)}, letting the next queued read start.
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+        PendingRead next;
+        synchronized (pending) {
+            next = pending.poll();
+            if (next != null) {
+                next.inFlight = true;
+            } else {
+                buffered--;
+            }
+        }
+        if (next != null) {
+            buffer.clear();
+            start(next, buffer);
+        } else {
+            bufferPool.release(buffer);
+        }
+    }
+
+    /**
+     * @return Number of files read or waiting to be parsed
+     */
+    public int getBufferedCount() {
+        synchronized (pending) {
+            return buffered;
+        }
+    }
+
+    /**
+     * @return Number of reads waiting for a buffer
+     */
+    public int getQueuedCount() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * @return Current number of I/O threads, including those replacing threads held by abandoned reads
+     */
+    public int getIoThreadCount() {
+        return ioExecutor.getCorePoolSize();
+    }
+
+    /**
+     * Stops the I/O threads once started reads complete. Reads still queued fail.
+     */
+    public void shutdown() {
+        ioExecutor.shutdown();
+        PendingRead read;
+        while ((read = pollPending()) != null) {
+            read.completeExceptionally(new IOException("File read stage is shut down: " + read.filePath));
+        }
+        try {
+            if (!ioExecutor.awaitTermination(60, TimeUnit.SECONDS)) {
+                ioExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            ioExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private PendingRead pollPending() {
+        synchronized (pending) {
+            PendingRead read = pending.poll();
+            if (read != null) {
+                read.finished = true;
+            }
+            return read;
+        }
+    }
+
+    /**
+     * Grows or shrinks the I/O pool by threads that replace threads held by abandoned reads.
+     */
+    private void resize(int threads) {
+        synchronized (ioExecutor) {
+            int size = ioExecutor.getCorePoolSize() + threads;
+            if (threads > 0) {
+                ioExecutor.setMaximumPoolSize(size);
+                ioExecutor.setCorePoolSize(size);
+            } else {
+                ioExecutor.setCorePoolSize(size);
+                ioExecutor.setMaximumPoolSize(size);
+            }
+        }
+    }
+
+    private boolean isAbandoned(PendingRead read) {
+        synchronized (pending) {
+            return read.abandoned;
+        }
+    }
+
+    /**
+     * Marks a read finished before its future completes, unless it was abandoned; an abandoned read gives
+     * back its buffer, and its thread if the stage replaced them.
+     *
+     * @return true if the read was abandoned and must not complete
+     */
+    private boolean finish(PendingRead read, ByteBuffer buffer) {
+        boolean wasReplaced;
+        synchronized (pending) {
+            if (!read.abandoned) {
+                read.finished = true;
+                return false;
+            }
+            wasReplaced = read.replaced;
+            if (wasReplaced) {
+                replaced--;
+            }
+        }
+        if (wasReplaced) {
+            // Its slot was handed on when it was abandoned
+            resize(-1);
+            bufferPool.release(buffer);
+        } else {
+            release(buffer);
+        }
+        return true;
+    }
+
+    /**
+     * Opens and reads the file on an I/O thread, so neither the caller nor a parsing thread
+     * releasing a buffer waits for the file to be opened.
+     */
+    private void start(PendingRead read, ByteBuffer buffer) {
+        try {
+            ioExecutor.execute(() -> begin(read, buffer));
+        } catch (RejectedExecutionException e) {
+            fail(read, buffer, new IOException("File read stage is shut down: " + read.filePath, e));
+        }
+    }
+
+    private void begin(PendingRead read, ByteBuffer buffer) {
+        if (isAbandoned(read)) {
+            finish(read, buffer);
+            return;
+        }
+        read.start = metrics.startTimer();
+        if (read.onStart != null) {
+            read.onStart.run();
+        }
+        AsynchronousFileChannel channel;
+        try {
+            channel = AsynchronousFileChannel.open(Paths.get(read.filePath),
+                Collections.singleton(StandardOpenOption.READ), ioExecutor);
+            long size = channel.size();
+            if (size > buffer.capacity()) {
+                closeQuietly(channel);
+                throw new IOException("File is larger than the read buffer (" + size + " bytes): " + read.filePath);
+            }
+            buffer.limit((int) size);
+        } catch (IOException | RuntimeException e) {
+            fail(read, buffer, e);
+            return;
+        }
+        ReadHandler handler = new ReadHandler(read, channel);
+        try {
+            channel.read(buffer, 0, buffer, handler);
+        } catch (RuntimeException e) {
+            handler.failed(e, buffer);
+        }
+    }
+
+    private void fail(PendingRead read, ByteBuffer buffer, Throwable failure) {
+        if (finish(read, buffer)) {
+            return;
+        }
+        metrics.recordError(Stage.READ);
+        // The caller never sees the buffer, so it is released here
+        release(buffer);
+        read.completeExceptionally(failure);
+    }
+
+    private static void closeQuietly(AsynchronousFileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Ignore
+        }
+    }
+
+    /**
+     * Continues reading until the buffer is full or the end of the file is reached.
+     */
+    private class ReadHandler implements CompletionHandler<Integer, ByteBuffer> {
+        private final PendingRead read;
+        private final AsynchronousFileChannel channel;
+
+        ReadHandler(PendingRead read, AsynchronousFileChannel channel) {
+            this.read = read;
+            this.channel = channel;
+        }
+
+        @Override
+        public void completed(Integer bytes, ByteBuffer buffer) {
+            if (bytes > 0) {
+                try {
+                    // Waits on the I/O thread, so a capped stage issues its reads no faster than the cap
+                    IoThrottle.getDefault().acquire(bytes);
+                } catch (InterruptedIOException e) {
+                    failed(e, buffer);
+                    return;
+                }
+            }
+            if (bytes >= 0 && buffer.hasRemaining() && !isAbandoned(read)) {
+                try {
+                    channel.read(buffer, buffer.position(), buffer, this);
+                } catch (RuntimeException e) {
+                    failed(e, buffer);
+                }
+                return;
+            }
+            closeQuietly(channel);
+            if (finish(read, buffer)) {
+                return;
+            }
+            buffer.flip();
+            metrics.recordSince(Stage.READ, read.start);
+            if (metrics.isEnabled()) {
+                metrics.addRecords(Stage.READ, 1);
+            }
+            read.complete(buffer);
+        }
+
+        @Override
+        public void failed(Throwable failure, ByteBuffer buffer) {
+            closeQuietly(channel);
+            fail(read, buffer, failure);
+        }
+    }
+
+    private static final class PendingRead extends CompletableFuture<ByteBuffer> {
+        private final String filePath;
+        private final Runnable onStart;
+        private long start;
+        // Whether the read holds a slot, has completed, was abandoned, and was replaced; guarded by pending
+        private boolean inFlight;
+        private boolean finished;
+        private boolean abandoned;
+        private boolean replaced;
+
+        PendingRead(String filePath, Runnable onStart) {
+            this.filePath = filePath;
+            this.onStart = onStart;
+        }
+    }
+
+    private static final class ReaderThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "file-reader-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
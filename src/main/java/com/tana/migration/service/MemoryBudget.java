@@ -0,0 +1,230 @@
+package com.tana.migration.service;
+
+import com.tana.migration.util.CompressedInput;
+import com.tana.migration.util.Compression;
+import com.tana.migration.util.IoThrottle;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Admission control for parsing tasks: a task starts only while the estimated heap cost of all
+ * running tasks fits in a fixed budget, so a batch of large files waits for capacity instead of
+ * exhausting the heap.
+ *
+ * The heap cost of a file is estimated from its uncompressed size and format: parsed jobs, Jackson
+ * buffers and interned strings take a roughly constant multiple of the input bytes. The uncompressed
+ * size of a gzip file is read from its trailer, or guessed from a typical compression ratio if the
+ * trailer cannot be trusted.
+ *
+ * Tasks are admitted in the order they ask, so a large file is not overtaken indefinitely by smaller
+ * ones. A file whose cost exceeds the whole budget is admitted alone once nothing else is running.
+ * The budget covers files being parsed; the jobs of finished files are held by the caller.
+ *
+ * Thread-safe.
+ */
+public class MemoryBudget {
+
+    /** Default heap bytes per byte of JSON or NDJSON input. */
+    public static final double DEFAULT_JSON_FACTOR = 3.0;
+
+    /** Default heap bytes per byte of XML input, which is more verbose per job. */
+    public static final double DEFAULT_XML_FACTOR = 2.0;
+
+    /** Default expansion assumed for gzip files whose trailer does not give their size. */
+    public static final double DEFAULT_GZIP_EXPANSION = 8.0;
+
+    private final long budgetBytes;
+    private final double jsonFactor;
+    private final double xmlFactor;
+    private final double gzipExpansion;
+    private final Queue<Admission> waiting = new ArrayDeque<>();
+    private long inFlightBytes;
+    private int running;
+    private long peakInFlightBytes;
+
+    /**
+     * @param budgetBytes Estimated heap that running tasks may use together
+     */
+    public MemoryBudget(long budgetBytes) {
+        this(budgetBytes, DEFAULT_JSON_FACTOR, DEFAULT_XML_FACTOR, DEFAULT_GZIP_EXPANSION);
+    }
+
+    /**
+     * @param budgetBytes Estimated heap that running tasks may use together
+     * @param jsonFactor Heap bytes per byte of uncompressed JSON or NDJSON input
+     * @param xmlFactor Heap bytes per byte of uncompressed XML input
+     * @param gzipExpansion Expansion assumed for gzip files whose trailer does not give their size
+     */
+    public MemoryBudget(long budgetBytes, double jsonFactor, double xmlFactor, double gzipExpansion) {
+        if (budgetBytes < 1) {
+            throw new IllegalArgumentException("Memory budget must be positive");
+        }
+        if (jsonFactor <= 0 || xmlFactor <= 0 || gzipExpansion < 1) {
+            throw new IllegalArgumentException("Cost factors must be positive and expansion at least 1");
+        }
+        this.budgetBytes = budgetBytes;
+        this.jsonFactor = jsonFactor;
+        this.xmlFactor = xmlFactor;
+        this.gzipExpansion = gzipExpansion;
+    }
+
+    /**
+     * Creates a budget from a share of the maximum heap.
+     *
+     * @param heapFraction Share of {@link Runtime#maxMemory()} that running tasks may use, between 0 and 1
+     */
+    public static MemoryBudget ofMaxHeap(double heapFraction) {
+        if (heapFraction <= 0 || heapFraction > 1) {
+            throw new IllegalArgumentException("Heap fraction must be in (0, 1]");
+        }
+        return new MemoryBudget((long) (Runtime.getRuntime().maxMemory() * heapFraction));
+    }
+
+    /**
+     * Estimates the heap needed to parse a whole file.
+     *
+     * @param filePath Path to the file
+     * @param size Size of the file on disk
+     * @return Estimated heap cost in bytes
+     */
+    public long estimate(String filePath, long size) {
+        long uncompressed = size;
+        try {
+            Compression compression = CompressedInput.detect(filePath);
+            if (compression == Compression.GZIP) {
+                uncompressed = gzipSize(filePath, size);
+            } else if (compression != Compression.NONE) {
+                uncompressed = (long) (size * gzipExpansion);
+            }
+        } catch (IOException e) {
+            // Unreadable: the parser fails fast, so the size on disk is a fair guess
+        }
+        return estimateUncompressed(filePath, uncompressed);
+    }
+
+    /**
+     * Estimates the heap needed to parse uncompressed bytes of a file, such as one range of a split file.
+     *
+     * @param filePath Path to the file, used for its format
+     * @param bytes Number of uncompressed bytes parsed
+     * @return Estimated heap cost in bytes
+     */
+    public long estimateUncompressed(String filePath, long bytes) {
+        String name = filePath.toLowerCase();
+        boolean xml = name.endsWith(".xml") || name.endsWith(".xml.gz");
+        return Math.max(1, (long) (bytes * (xml ? xmlFactor : jsonFactor)));
+    }
+
+    /**
+     * Uncompressed size from the ISIZE trailer (size mod 2^32 of the last member). A value smaller
+     * than the compressed size means the file is larger than 4 GB or has several members, in which
+     * case the typical expansion is used. The trailer read is accounted to the I/O throttle as one read.
+     */
+    private long gzipSize(String filePath, long size) throws IOException {
+        if (size >= 18) {
+            try (RandomAccessFile file = new RandomAccessFile(filePath, "r")) {
+                file.seek(size - 4);
+                long trailer = Integer.reverseBytes(file.readInt()) & 0xFFFFFFFFL;
+                IoThrottle.getDefault().acquire(4);
+                if (trailer >= size) {
+                    return trailer;
+                }
+            }
+        }
+        return (long) (size * gzipExpansion);
+    }
+
+    /**
+     * Waits, without blocking the caller, for the cost to fit in the budget.
+     * Every admission must be followed by one {@link #release(long)} of the same cost.
+     *
+     * @param cost Estimated heap cost of the task
+     * @return Future completed once the task may start, on the thread that made room for it
+     */
+    public CompletableFuture<Void> acquire(long cost) {
+        Admission admission = new Admission(cost);
+        synchronized (waiting) {
+            if (waiting.isEmpty() && fits(cost)) {
+                admit(cost);
+                admission.future.complete(null);
+                return admission.future;
+            }
+            waiting.add(admission);
+        }
+        return admission.future;
+    }
+
+    /**
+     * Returns the cost of a finished task and admits the waiting tasks that now fit.
+     */
+    public void release(long cost) {
+        Queue<Admission> admitted = new ArrayDeque<>();
+        synchronized (waiting) {
+            inFlightBytes -= cost;
+            running--;
+            while (!waiting.isEmpty() && fits(waiting.peek().cost)) {
+                Admission next = waiting.poll();
+                admit(next.cost);
+                admitted.add(next);
+            }
+        }
+        // Completed outside the lock: the futures start tasks
+        for (Admission admission : admitted) {
+            admission.future.complete(null);
+        }
+    }
+
+    private boolean fits(long cost) {
+        return running == 0 || inFlightBytes + cost <= budgetBytes;
+    }
+
+    private void admit(long cost) {
+        inFlightBytes += cost;
+        running++;
+        peakInFlightBytes = Math.max(peakInFlightBytes, inFlightBytes);
+    }
+
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    /**
+     * @return Estimated heap cost of the tasks running now
+     */
+    public long getInFlightBytes() {
+        synchronized (waiting) {
+            return inFlightBytes;
+        }
+    }
+
+    /**
+     * @return Highest estimated heap cost of tasks running at the same time
+     */
+    public long getPeakInFlightBytes() {
+        synchronized (waiting) {
+            return peakInFlightBytes;
+        }
+    }
+
+    /**
+     * @return Number of tasks waiting for capacity
+     */
+    public int getWaitingCount() {
+        synchronized (waiting) {
+            return waiting.size();
+        }
+    }
+
+    private static final class Admission {
+        private final long cost;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        Admission(long cost) {
+            this.cost = cost;
+        }
+    }
+}
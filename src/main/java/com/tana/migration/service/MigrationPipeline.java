@@ -0,0 +1,442 @@
+package com.tana.migration.service;
+
+import com.tana.migration.CdmMapper;
+import com.tana.migration.CompetitorParser;
+import com.tana.migration.exception.DataAnomalyException;
+import com.tana.migration.factory.ContentSniffingParserFactory;
+import com.tana.migration.factory.ParserFactory;
+import com.tana.migration.mapper.CdmMapperImpl;
+import com.tana.migration.mapper.ReconciliationIndex;
+import com.tana.migration.model.CompactJob;
+import com.tana.migration.model.CompetitorJob;
+import com.tana.migration.model.JobStringPool;
+import com.tana.migration.model.RmjJob;
+import com.tana.migration.output.RmjJobSink;
+import com.tana.migration.parser.XmlCompetitorParser;
+import com.tana.migration.service.ConcurrentFileParserService.FileParsingError;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * End-to-end migration engine that streams jobs through
+ * parse → source tagging → reconciliation index → graph building → mapping.
+ *
+ * Stages are connected by bounded queues, so parsing (I/O bound, on a thread pool) overlaps with
+ * reconciliation and graph building (CPU bound, one thread each), and a slow downstream stage
+ * applies back-pressure instead of letting parsed files pile up in memory. Cycle detection and
+ * mapping need the complete graph and run once the graph stage has drained.
+ *
+ * The result is the same as the sequential chain
+ * {@code parseFiles → reconcileData(json, xml) → detectCircularDependencies → mapToRmj}:
+ * jobs parsed by the XML parser are the cross-reference source, everything else is the preferred source,
+ * and {@link ReconciliationIndex} restores file order for jobs that arrive out of order.
+ *
+ * Thread Safety:
+ * - One pipeline may be used by one {@link #run(List)} call at a time
+ * - The reconciliation index and graph are each owned by a single stage thread
+ */
+public class MigrationPipeline {
+
+    /** Default number of batches each queue between stages can hold. */
+    public static final int DEFAULT_QUEUE_CAPACITY = 16;
+
+    private static final ParsedBatch END_OF_FILES = new ParsedBatch(-1, null, Collections.emptyList());
+    private static final List<CompetitorJob> END_OF_JOBS = Collections.unmodifiableList(new ArrayList<>());
+
+    private final ExecutorService parseExecutor;
+    private final ExecutorService stageExecutor;
+    private final int queueCapacity;
+    private final ParserFactory parserFactory;
+    private final CdmMapper mapper;
+
+    /**
+     * Creates a pipeline with one parse thread per available processor and default components.
+     */
+    public MigrationPipeline() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param parseThreads Number of threads parsing files
+     */
+    public MigrationPipeline(int parseThreads) {
+        this(parseThreads, DEFAULT_QUEUE_CAPACITY, null, null);
+    }
+
+    /**
+     * @param parseThreads Number of threads parsing files
+     * @param queueCapacity Number of batches each queue between stages can hold
+     * @param parserFactory Factory for creating parsers (if null, uses default ContentSniffingParserFactory)
+     * @param mapper Mapper used for cycle detection and mapping (if null, uses CdmMapperImpl)
+     */
+    public MigrationPipeline(int parseThreads, int queueCapacity, ParserFactory parserFactory, CdmMapper mapper) {
+        if (parseThreads < 1) {
+            throw new IllegalArgumentException("Parse threads must be at least 1");
+        }
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("Queue capacity must be at least 1");
+        }
+        this.parseExecutor = Executors.newFixedThreadPool(parseThreads);
+        this.stageExecutor = Executors.newFixedThreadPool(2);
+        this.queueCapacity = queueCapacity;
+        this.parserFactory = parserFactory != null ? parserFactory : new ContentSniffingParserFactory();
+        this.mapper = mapper != null ? mapper : new CdmMapperImpl();
+    }
+
+    /**
+     * Migrates the given files to RMJ format.
+     * Files that fail to parse are reported in the result and left out, as in ConcurrentFileParserService.
+     *
+     * @param filePaths Files to migrate (JSON or XML)
+     * @return Mapped jobs, parse errors and per-stage throughput
+     * @throws DataAnomalyException if the sources contradict each other or the jobs contain a cycle
+     */
+    public PipelineResult run(List<String> filePaths) throws DataAnomalyException {
+        List<RmjJob> rmjJobs = new ArrayList<>();
+        try {
+            return run(filePaths, rmjJobs::add, rmjJobs);
+        } catch (IOException e) {
+            // Adding to a list does not throw
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Migrates the given files to RMJ format and streams the mapped jobs into a sink
+     * (e.g., a {@link com.tana.migration.output.StreamingRmjWriter}) instead of collecting them.
+     *
+     * @param filePaths Files to migrate (JSON or XML)
+     * @param sink Receiver of the mapped jobs
+     * @return Parse errors and per-stage throughput; the result holds no jobs
+     * @throws DataAnomalyException if the sources contradict each other or the jobs contain a cycle
+     * @throws IOException if the sink fails
+     */
+    public PipelineResult run(List<String> filePaths, RmjJobSink sink) throws DataAnomalyException, IOException {
+        return run(filePaths, sink, Collections.emptyList());
+    }
+
+    private PipelineResult run(List<String> filePaths, RmjJobSink sink, List<RmjJob> rmjJobs)
+            throws DataAnomalyException, IOException {
+        long start = System.nanoTime();
+        StageStats parseStats = new StageStats("parse");
+        StageStats reconcileStats = new StageStats("reconcile");
+        StageStats graphStats = new StageStats("graph");
+        StageStats mapStats = new StageStats("map");
+        List<StageStats> stats = Arrays.asList(parseStats, reconcileStats, graphStats, mapStats);
+
+        if (filePaths == null || filePaths.isEmpty()) {
+            return new PipelineResult(Collections.emptyList(), Collections.emptyList(), stats, System.nanoTime() - start);
+        }
+
+        BlockingQueue<ParsedBatch> parsedQueue = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<List<CompetitorJob>> reconciledQueue = new ArrayBlockingQueue<>(queueCapacity);
+        JobStringPool pool = new JobStringPool();
+
+        Future<?> reconcileStage = stageExecutor.submit(() -> reconcile(parsedQueue, reconciledQueue, reconcileStats));
+        Future<List<CompactJob>> graphStage = stageExecutor.submit(() -> buildGraph(reconciledQueue, pool, graphStats));
+
+        List<Future<FileParsingError>> parseTasks = new ArrayList<>(filePaths.size());
+        for (int i = 0; i < filePaths.size(); i++) {
+            int fileOrder = i;
+            String filePath = filePaths.get(i);
+            parseTasks.add(parseExecutor.submit(() -> parse(fileOrder, filePath, parsedQueue, parseStats)));
+        }
+
+        List<FileParsingError> errors = new ArrayList<>();
+        for (Future<FileParsingError> task : parseTasks) {
+            FileParsingError error = await(task, "Parsing");
+            if (error != null) {
+                errors.add(error);
+            }
+        }
+        putUninterruptibly(parsedQueue, END_OF_FILES);
+
+        // The graph stage always drains, so wait for it before surfacing a reconciliation failure
+        List<CompactJob> graph = await(graphStage, "Graph building");
+        await(reconcileStage, "Reconciliation");
+
+        long mapStart = System.nanoTime();
+        int mapped = mapper.mapCompactToRmj(graph, pool, sink);
+        mapStats.record(mapped, System.nanoTime() - mapStart);
+
+        return new PipelineResult(rmjJobs, errors, stats, System.nanoTime() - start);
+    }
+
+    /**
+     * Parse stage: parses and validates one file and tags its jobs with their source.
+     */
+    private FileParsingError parse(int fileOrder, String filePath, BlockingQueue<ParsedBatch> out, StageStats stats) {
+        long start = System.nanoTime();
+        List<CompetitorJob> jobs;
+        Source source;
+        try {
+            CompetitorParser parser = parserFactory.createParser(filePath);
+            jobs = parser.parseAndValidate(filePath);
+            source = parser instanceof XmlCompetitorParser ? Source.CROSS_REFERENCE : Source.PREFERRED;
+        } catch (DataAnomalyException e) {
+            return new FileParsingError(filePath, "Data anomaly: " + e.getMessage());
+        } catch (Exception e) {
+            return new FileParsingError(filePath, "Unexpected error: " + e.getMessage());
+        }
+        stats.record(jobs.size(), System.nanoTime() - start);
+
+        try {
+            out.put(new ParsedBatch(fileOrder, source, jobs));
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new FileParsingError(filePath, "Parsing interrupted: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reconciliation stage: indexes every batch and forwards preferred jobs as soon as they win their id.
+     * Cross-reference jobs are resolved and forwarded once all files are parsed.
+     * Always drains its input and ends its output, so upstream and downstream never block forever.
+     */
+    private Void reconcile(BlockingQueue<ParsedBatch> in, BlockingQueue<List<CompetitorJob>> out,
+                           StageStats stats) throws Exception {
+        ReconciliationIndex index = new ReconciliationIndex();
+        boolean drained = false;
+        try {
+            ParsedBatch batch;
+            while ((batch = in.take()) != END_OF_FILES) {
+                long start = System.nanoTime();
+                List<CompetitorJob> winners = new ArrayList<>();
+                List<CompetitorJob> jobs = batch.jobs;
+                for (int position = 0; position < jobs.size(); position++) {
+                    CompetitorJob job = jobs.get(position);
+                    if (batch.source == Source.CROSS_REFERENCE) {
+                        index.addSecondary(job, batch.fileOrder, position);
+                    } else if (index.addPrimary(job, batch.fileOrder, position)) {
+                        winners.add(job);
+                    }
+                }
+                stats.record(jobs.size(), System.nanoTime() - start);
+                if (!winners.isEmpty()) {
+                    out.put(winners);
+                }
+            }
+            drained = true;
+
+            long start = System.nanoTime();
+            List<CompetitorJob> crossReferenceOnly = index.finish();
+            stats.record(0, System.nanoTime() - start);
+            if (!crossReferenceOnly.isEmpty()) {
+                out.put(crossReferenceOnly);
+            }
+            return null;
+        } catch (Exception e) {
+            // Keep parse threads from blocking on a full queue
+            while (!drained && in.take() != END_OF_FILES) {
+                // Discard
+            }
+            throw e;
+        } finally {
+            putUninterruptibly(out, END_OF_JOBS);
+        }
+    }
+
+    /**
+     * Graph stage: converts reconciled jobs into the primitive CompactJob graph.
+     * A later job with the same id replaces the earlier one, mirroring the reconciliation index.
+     */
+    private List<CompactJob> buildGraph(BlockingQueue<List<CompetitorJob>> in, JobStringPool pool,
+                                        StageStats stats) throws InterruptedException {
+        Map<Integer, CompactJob> jobsById = new LinkedHashMap<>();
+        RuntimeException failure = null;
+        List<CompetitorJob> jobs;
+        while ((jobs = in.take()) != END_OF_JOBS) {
+            if (failure != null) {
+                continue;
+            }
+            long start = System.nanoTime();
+            try {
+                for (CompetitorJob job : jobs) {
+                    jobsById.put(job.getJobId(), CompactJob.from(job, pool));
+                }
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            stats.record(jobs.size(), System.nanoTime() - start);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return new ArrayList<>(jobsById.values());
+    }
+
+    private static <T> T await(Future<T> future, String stage) throws DataAnomalyException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof DataAnomalyException) {
+                        throw (DataAnomalyException) cause;
+                    }
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    throw new IllegalStateException(stage + " stage failed: " + cause.getMessage(), cause);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static <T> void putUninterruptibly(BlockingQueue<T> queue, T element) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    queue.put(element);
+                    return;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Shuts down the pipeline threads. Should be called when done with the pipeline.
+     */
+    public void shutdown() {
+        for (ExecutorService executor : Arrays.asList(parseExecutor, stageExecutor)) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Role of a file's jobs in reconciliation (JSON-first strategy).
+     */
+    private enum Source {
+        PREFERRED,
+        CROSS_REFERENCE
+    }
+
+    /**
+     * Jobs of one parsed file, tagged with their source and file order.
+     */
+    private static class ParsedBatch {
+        private final int fileOrder;
+        private final Source source;
+        private final List<CompetitorJob> jobs;
+
+        ParsedBatch(int fileOrder, Source source, List<CompetitorJob> jobs) {
+            this.fileOrder = fileOrder;
+            this.source = source;
+            this.jobs = jobs;
+        }
+    }
+
+    /**
+     * Throughput of one pipeline stage.
+     * Busy time excludes time spent waiting on queues; for the parse stage it is summed over all parse threads.
+     */
+    public static class StageStats {
+        private final String name;
+        private final LongAdder records = new LongAdder();
+        private final LongAdder busyNanos = new LongAdder();
+
+        StageStats(String name) {
+            this.name = name;
+        }
+
+        void record(long count, long nanos) {
+            records.add(count);
+            busyNanos.add(nanos);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getRecords() {
+            return records.sum();
+        }
+
+        public long getBusyNanos() {
+            return busyNanos.sum();
+        }
+
+        /**
+         * @return Records processed per second of busy time
+         */
+        public double getRecordsPerSecond() {
+            long nanos = busyNanos.sum();
+            return nanos == 0 ? 0.0 : records.sum() * 1_000_000_000.0 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d records in %d ms busy (%.0f records/s)",
+                name, getRecords(), getBusyNanos() / 1_000_000, getRecordsPerSecond());
+        }
+    }
+
+    /**
+     * Result of a pipeline run.
+     */
+    public static class PipelineResult {
+        private final List<RmjJob> rmjJobs;
+        private final List<FileParsingError> errors;
+        private final List<StageStats> stageStats;
+        private final long wallNanos;
+
+        public PipelineResult(List<RmjJob> rmjJobs, List<FileParsingError> errors,
+                              List<StageStats> stageStats, long wallNanos) {
+            this.rmjJobs = rmjJobs != null ? rmjJobs : Collections.emptyList();
+            this.errors = errors != null ? errors : Collections.emptyList();
+            this.stageStats = stageStats != null ? Collections.unmodifiableList(stageStats) : Collections.emptyList();
+            this.wallNanos = wallNanos;
+        }
+
+        public List<RmjJob> getRmjJobs() {
+            return rmjJobs;
+        }
+
+        public List<FileParsingError> getErrors() {
+            return errors;
+        }
+
+        public boolean hasErrors() {
+            return !errors.isEmpty();
+        }
+
+        /**
+         * @return Throughput of each stage, in pipeline order
+         */
+        public List<StageStats> getStageStats() {
+            return stageStats;
+        }
+
+        public long getWallNanos() {
+            return wallNanos;
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package com.tana.migration.service;
+
+import com.tana.migration.model.CompetitorJob;
+import com.tana.migration.snapshot.JobSnapshotReader;
+import com.tana.migration.snapshot.JobSnapshotWriter;
+import com.tana.migration.snapshot.SnapshotKind;
+import com.tana.migration.util.IoThrottle;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent cache of parsed jobs, so files that have not changed since an earlier run are loaded
+ * instead of parsed again.
+ *
+ * An entry is keyed by the file path, size, modification time and a CRC32 of the content. The
+ * content is hashed through a memory-mapped view of the file, which is much cheaper than parsing it.
+ * Each entry file holds the key followed by the jobs as a {@link JobSnapshotWriter binary snapshot},
+ * one file per input file in the cache directory.
+ *
+ * The cache is bounded by the total size of its entry files; the least recently used entries are
+ * deleted first. Recency survives restarts through the modification time of the entry files.
+ *
+ * Thread-safe: entries can be read and written from several parsing threads at once.
+ */
+public class ParseResultCache {
+
+    /** Default bound on the total size of the entry files. */
+    public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+    private static final int MAGIC = 0x504A4331;
+    private static final byte VERSION = 2;
+    private static final String ENTRY_SUFFIX = ".jobs";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final long HASH_CHUNK_SIZE = 64L * 1024 * 1024;
+
+    private final Path directory;
+    private final long maxBytes;
+    // Entry file name -> size in bytes, in least recently used order
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    /**
+     * Opens a cache with the default size bound, creating the directory if needed.
+     *
+     * @param directory Directory that holds the entry files
+     * @throws IOException if the directory cannot be created or listed
+     */
+    public ParseResultCache(String directory) throws IOException {
+        this(directory, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Opens a cache, creating the directory if needed. Entries left by earlier runs are kept.
+     *
+     * @param directory Directory that holds the entry files
+     * @param maxBytes Bound on the total size of the entry files
+     * @throws IOException if the directory cannot be created or listed
+     */
+    public ParseResultCache(String directory, long maxBytes) throws IOException {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        this.directory = Files.createDirectories(Paths.get(directory));
+        this.maxBytes = maxBytes;
+        loadEntries();
+    }
+
+    /**
+     * Identity of a file's content when it was read.
+     */
+    public static final class Key {
+        private final String filePath;
+        private final long size;
+        private final long lastModified;
+        private final long contentHash;
+
+        Key(String filePath, long size, long lastModified, long contentHash) {
+            this.filePath = filePath;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.contentHash = contentHash;
+        }
+
+        public String getFilePath() {
+            return filePath;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public long getContentHash() {
+            return contentHash;
+        }
+    }
+
+    /**
+     * Reads the size and modification time of a file and hashes its content.
+     * Call this before parsing the file, so a change made during the parse is not cached.
+     *
+     * @param filePath Path to the input file
+     * @return Key of the file's current content
+     * @throws IOException if the file cannot be read
+     */
+    public Key keyFor(String filePath) throws IOException {
+        Path path = Paths.get(filePath);
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        return new Key(filePath, attributes.size(), attributes.lastModifiedTime().toMillis(), hash(path));
+    }
+
+    /**
+     * Keys a file from content that was already read, hashing the buffer instead of the file.
+     *
+     * @param filePath Path to the input file
+     * @param content Whole current content of the file; its position is not changed
+     * @return Key of the content
+     * @throws IOException if the file cannot be read or its size no longer matches the content
+     */
+    public Key keyFor(String filePath, ByteBuffer content) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(Paths.get(filePath), BasicFileAttributes.class);
+        if (attributes.size() != content.remaining()) {
+            throw new IOException("File changed after it was read: " + filePath);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(content.duplicate());
+        return new Key(filePath, attributes.size(), attributes.lastModifiedTime().toMillis(), crc.getValue());
+    }
+
+    /**
+     * Cheap check, without hashing, whether an entry exists for this version of the file.
+     * A true result still has to be confirmed with {@link #get(Key)}.
+     *
+     * @param filePath Path to the input file
+     * @param size Current size of the file
+     * @param lastModified Current modification time of the file in milliseconds
+     * @return true if an entry with the same path, size and modification time exists
+     */
+    public boolean mayContain(String filePath, long size, long lastModified) {
+        Path entry = entryPath(filePath);
+        if (!Files.exists(entry)) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry), 512))) {
+            Key stored = readHeader(in);
+            return stored != null && stored.filePath.equals(filePath)
+                && stored.size == size && stored.lastModified == lastModified;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Loads the jobs cached for a file.
+     *
+     * @param key Key of the file's current content
+     * @return Cached jobs, or null if there is no entry for exactly this content
+     */
+    public List<CompetitorJob> get(Key key) {
+        String name = entryName(key.filePath);
+        Path entry = directory.resolve(name);
+        List<CompetitorJob> jobs;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry)))) {
+            Key stored = readHeader(in);
+            if (stored == null) {
+                remove(name);
+                return null;
+            }
+            if (!stored.filePath.equals(key.filePath) || stored.size != key.size
+                    || stored.lastModified != key.lastModified || stored.contentHash != key.contentHash) {
+                return null;
+            }
+            jobs = readJobs(in);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            // Truncated or corrupt entry
+            remove(name);
+            return null;
+        }
+
+        synchronized (this) {
+            entries.get(name);
+        }
+        try {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // Recency is only lost across restarts
+        }
+        return jobs;
+    }
+
+    /**
+     * Stores the jobs parsed from a file, replacing any older entry for the same path,
+     * and evicts least recently used entries beyond the size bound.
+     *
+     * @param key Key computed before the file was parsed
+     * @param jobs Jobs parsed from the file
+     * @throws IOException if the entry cannot be written
+     */
+    public void put(Key key, List<CompetitorJob> jobs) throws IOException {
+        String name = entryName(key.filePath);
+        Path temp = Files.createTempFile(directory, "entry", TEMP_SUFFIX);
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                writeHeader(out, key);
+                writeJobs(out, jobs);
+            }
+            Files.move(temp, directory.resolve(name), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        long bytes = Files.size(directory.resolve(name));
+        synchronized (this) {
+            Long previous = entries.put(name, bytes);
+            totalBytes += bytes - (previous != null ? previous : 0);
+            evict();
+        }
+    }
+
+    /**
+     * @return Number of cached files
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return Total size of the entry files in bytes
+     */
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Deletes every entry.
+     */
+    public synchronized void clear() {
+        for (String name : new ArrayList<>(entries.keySet())) {
+            remove(name);
+        }
+    }
+
+    private synchronized void remove(String name) {
+        Long bytes = entries.remove(name);
+        if (bytes != null) {
+            totalBytes -= bytes;
+        }
+        try {
+            Files.deleteIfExists(directory.resolve(name));
+        } catch (IOException e) {
+            // Left for the next eviction or clear
+        }
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            eldest.remove();
+            totalBytes -= entry.getValue();
+            try {
+                Files.deleteIfExists(directory.resolve(entry.getKey()));
+            } catch (IOException e) {
+                // Left for the next eviction or clear
+            }
+        }
+    }
+
+    /**
+     * Indexes the entries of earlier runs, least recently used first, and deletes unfinished writes.
+     */
+    private void loadEntries() throws IOException {
+        Map<String, BasicFileAttributes> found = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEMP_SUFFIX)) {
+                    Files.deleteIfExists(file);
+                } else if (name.endsWith(ENTRY_SUFFIX)) {
+                    found.put(name, Files.readAttributes(file, BasicFileAttributes.class));
+                }
+            }
+        }
+        List<String> names = new ArrayList<>(found.keySet());
+        names.sort(Comparator.comparing(name -> found.get(name).lastModifiedTime()));
+        synchronized (this) {
+            for (String name : names) {
+                long bytes = found.get(name).size();
+                entries.put(name, bytes);
+                totalBytes += bytes;
+            }
+            evict();
+        }
+    }
+
+    private Path entryPath(String filePath) {
+        return directory.resolve(entryName(filePath));
+    }
+
+    private static String entryName(String filePath) {
+        return UUID.nameUUIDFromBytes(filePath.getBytes(StandardCharsets.UTF_8)) + ENTRY_SUFFIX;
+    }
+
+    /**
+     * CRC32 of a file's content, read through memory-mapped chunks accounted to the I/O throttle.
+     */
+    static long hash(Path path) throws IOException {
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += HASH_CHUNK_SIZE) {
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                    Math.min(HASH_CHUNK_SIZE, size - position));
+                crc.update(chunk);
+                IoThrottle.getDefault().acquire(chunk.limit());
+            }
+        }
+        return crc.getValue();
+    }
+
+    private static void writeHeader(DataOutputStream out, Key key) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeUTF(key.filePath);
+        out.writeLong(key.size);
+        out.writeLong(key.lastModified);
+        out.writeLong(key.contentHash);
+    }
+
+    /**
+     * @return Key stored in the header, or null if the entry is from another format version
+     */
+    private static Key readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+            return null;
+        }
+        return new Key(in.readUTF(), in.readLong(), in.readLong(), in.readLong());
+    }
+
+    private static void writeJobs(OutputStream out, List<CompetitorJob> jobs) throws IOException {
+        try (JobSnapshotWriter writer = new JobSnapshotWriter(out, SnapshotKind.COMPETITOR_JOBS)) {
+            for (CompetitorJob job : jobs) {
+                writer.write(job);
+            }
+        }
+    }
+
+    private static List<CompetitorJob> readJobs(InputStream in) throws IOException {
+        return new JobSnapshotReader(in).readAllCompetitorJobs();
+    }
+}
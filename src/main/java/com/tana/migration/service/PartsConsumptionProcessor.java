@@ -2,6 +2,8 @@ package com.tana.migration.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tana.migration.metrics.MigrationMetrics;
+import com.tana.migration.metrics.Stage;
 import com.tana.migration.model.PartInfo;
 import com.tana.migration.model.PartTransaction;
 
@@ -23,9 +25,18 @@ import java.util.List;
 public class PartsConsumptionProcessor {
     
     private final ObjectMapper objectMapper;
+    private final MigrationMetrics metrics;
     
     public PartsConsumptionProcessor() {
+        this(null);
+    }
+    
+    /**
+     * @param metrics Metrics receiving PARTS_PROCESS and PARTS_SUMMARY timings, transaction counts and bytes read (if null, disabled)
+     */
+    public PartsConsumptionProcessor(MigrationMetrics metrics) {
         this.objectMapper = new ObjectMapper();
+        this.metrics = metrics != null ? metrics : MigrationMetrics.noOp();
     }
     
     /**
@@ -38,8 +49,15 @@ public class PartsConsumptionProcessor {
      * @return List of enriched transactions
      */
     public List<EnrichedTransaction> processPartsConsumption(String filePath) throws IOException {
+        long start = metrics.startTimer();
         File file = new File(filePath);
-        JsonNode root = objectMapper.readTree(file);
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(file);
+        } catch (IOException e) {
+            metrics.recordError(Stage.PARTS_PROCESS);
+            throw e;
+        }
         
         // Parse transactions
         JsonNode transactionsNode = root.get("daily_consumption_log");
@@ -84,6 +102,11 @@ public class PartsConsumptionProcessor {
             enrichedTransactions.add(enriched);
         }
         
+        metrics.recordSince(Stage.PARTS_PROCESS, start);
+        if (metrics.isEnabled()) {
+            metrics.addRecords(Stage.PARTS_PROCESS, enrichedTransactions.size());
+            metrics.addBytesRead(file.length());
+        }
         return enrichedTransactions;
     }
     
@@ -97,6 +120,7 @@ public class PartsConsumptionProcessor {
      */
     public ConsumptionSummary getSummary(String filePath) throws IOException {
         List<EnrichedTransaction> transactions = processPartsConsumption(filePath);
+        long start = metrics.startTimer();
         
         ConsumptionSummary summary = new ConsumptionSummary();
         summary.setTotalTransactions(transactions.size());
@@ -131,6 +155,7 @@ public class PartsConsumptionProcessor {
         summary.setUniquePartSkus(uniquePartSkus.size());
         summary.setTotalQuantity(totalQuantity);
         
+        metrics.recordSince(Stage.PARTS_SUMMARY, start);
         return summary;
     }
     
@@ -2,11 +2,16 @@ package com.tana.migration.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tana.migration.metrics.MigrationMetrics;
+import com.tana.migration.metrics.Stage;
+import com.tana.migration.metrics.jfr.MigrationEvents;
 import com.tana.migration.model.PartInfo;
 import com.tana.migration.model.PartTransaction;
+import com.tana.migration.util.CompressedInput;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
 
 /**
@@ -16,15 +21,25 @@ import java.util.*;
  * 1. Uses HashMap for O(1) part lookup instead of ArrayList.contains() - O(n)
  * 2. Uses HashSet for tracking unique values instead of ArrayList.contains()
  * 3. Single pass through data where possible
+ * 4. Reads gzip-compressed files directly, decompressing ahead of the JSON parser
  * 
  * This is the refactored version that fixes the performance bottlenecks.
  */
 public class PartsConsumptionProcessorOptimized {
     
     private final ObjectMapper objectMapper;
+    private final MigrationMetrics metrics;
     
     public PartsConsumptionProcessorOptimized() {
+        this(null);
+    }
+    
+    /**
+     * @param metrics Metrics receiving PARTS_PROCESS and PARTS_SUMMARY timings, transaction counts and bytes read (if null, disabled)
+     */
+    public PartsConsumptionProcessorOptimized(MigrationMetrics metrics) {
         this.objectMapper = new ObjectMapper();
+        this.metrics = metrics != null ? metrics : MigrationMetrics.noOp();
     }
     
     /**
@@ -36,8 +51,15 @@ public class PartsConsumptionProcessorOptimized {
      * @return List of enriched transactions
      */
     public List<PartsConsumptionProcessor.EnrichedTransaction> processPartsConsumption(String filePath) throws IOException {
+        long start = metrics.startTimer();
         File file = new File(filePath);
-        JsonNode root = objectMapper.readTree(file);
+        JsonNode root;
+        try (InputStream in = CompressedInput.open(filePath)) {
+            root = objectMapper.readTree(in);
+        } catch (IOException e) {
+            metrics.recordError(Stage.PARTS_PROCESS);
+            throw e;
+        }
         
         // Parse transactions
         JsonNode transactionsNode = root.get("daily_consumption_log");
@@ -74,6 +96,11 @@ public class PartsConsumptionProcessorOptimized {
             enrichedTransactions.add(enriched);
         }
         
+        metrics.recordSince(Stage.PARTS_PROCESS, start);
+        if (metrics.isEnabled()) {
+            metrics.addRecords(Stage.PARTS_PROCESS, enrichedTransactions.size());
+            metrics.addBytesRead(file.length());
+        }
         return enrichedTransactions;
     }
     
@@ -86,7 +113,15 @@ public class PartsConsumptionProcessorOptimized {
      * @return Summary statistics
      */
     public PartsConsumptionProcessor.ConsumptionSummary getSummary(String filePath) throws IOException {
-        List<PartsConsumptionProcessor.EnrichedTransaction> transactions = processPartsConsumption(filePath);
+        MigrationEvents.PartsSummary event = MigrationEvents.get().beginPartsSummary();
+        List<PartsConsumptionProcessor.EnrichedTransaction> transactions;
+        try {
+            transactions = processPartsConsumption(filePath);
+        } catch (IOException e) {
+            commitSummaryEvent(event, filePath, null);
+            throw e;
+        }
+        long start = metrics.startTimer();
         
         PartsConsumptionProcessor.ConsumptionSummary summary = new PartsConsumptionProcessor.ConsumptionSummary();
         summary.setTotalTransactions(transactions.size());
@@ -121,7 +156,17 @@ public class PartsConsumptionProcessorOptimized {
         summary.setUniquePartSkus(uniquePartSkus.size());
         summary.setTotalQuantity(totalQuantity);
         
+        metrics.recordSince(Stage.PARTS_SUMMARY, start);
+        commitSummaryEvent(event, filePath, summary);
         return summary;
     }
+    
+    private static void commitSummaryEvent(MigrationEvents.PartsSummary event, String filePath,
+                                           PartsConsumptionProcessor.ConsumptionSummary summary) {
+        if (event.finish()) {
+            event.commit(filePath, new File(filePath).length(), summary != null ? summary.getTotalTransactions() : 0,
+                summary != null ? summary.getUniquePartSkus() : 0, summary != null);
+        }
+    }
 }
 
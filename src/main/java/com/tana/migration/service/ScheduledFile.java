@@ -0,0 +1,55 @@
+package com.tana.migration.service;
+
+import java.util.Comparator;
+
+/**
+ * A file queued for parsing, with the size read when the batch was scheduled.
+ * {@link ConcurrentFileParserService} submits files in the order of a {@code Comparator<ScheduledFile>}.
+ */
+public final class ScheduledFile {
+
+    /**
+     * Largest file first (LPT scheduling), ties in submission order.
+     * Keeps a large file from being picked up last and becoming the tail of the whole batch.
+     */
+    public static final Comparator<ScheduledFile> LARGEST_FIRST =
+        Comparator.comparingLong(ScheduledFile::getSize).reversed().thenComparingInt(ScheduledFile::getIndex);
+
+    /**
+     * Files in the order they were passed to parseFiles.
+     */
+    public static final Comparator<ScheduledFile> SUBMISSION_ORDER = Comparator.comparingInt(ScheduledFile::getIndex);
+
+    private final String filePath;
+    private final int index;
+    private final long size;
+
+    public ScheduledFile(String filePath, int index, long size) {
+        this.filePath = filePath;
+        this.index = index;
+        this.size = size;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    /**
+     * @return Position of the file in the list passed to parseFiles
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return File size in bytes (0 if the file does not exist)
+     */
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return filePath + " (" + size + " bytes)";
+    }
+}
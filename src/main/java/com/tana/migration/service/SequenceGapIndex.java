@@ -0,0 +1,266 @@
+package com.tana.migration.service;
+
+import com.tana.migration.model.DiagnosticReport;
+import com.tana.migration.util.SequenceBitmap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Incremental per-VIN index of diagnostic report sequence ids, answering which sequences are
+ * missing and which arrived out of order without collecting or sorting the reports.
+ *
+ * Each VIN has a {@link SequenceBitmap} of the sequence ids seen so far, costing about one bit per
+ * sequence in its range, and a second bitmap of late arrivals: sequences that were added after a
+ * higher sequence of the same VIN. Reports may be added in any order from any number of threads;
+ * each VIN is locked separately, so threads adding reports for different VINs do not contend.
+ *
+ * Which sequences count as late depends on the order reports are added; missing sequences and
+ * duplicate counts do not.
+ *
+ * Thread-safe.
+ */
+public class SequenceGapIndex {
+
+    /** First sequence id that uses the lowest id seen for each VIN as the start of its range. */
+    public static final long FROM_LOWEST_SEEN = Long.MAX_VALUE;
+
+    private final ConcurrentMap<String, VinSequences> sequencesByVin = new ConcurrentHashMap<>();
+    private final long firstSequenceId;
+
+    /**
+     * Creates an index whose range for each VIN starts at the lowest sequence id seen for it.
+     */
+    public SequenceGapIndex() {
+        this(FROM_LOWEST_SEEN);
+    }
+
+    /**
+     * @param firstSequenceId First sequence id expected for every VIN, so missing leading sequences are
+     *                        reported ({@link #FROM_LOWEST_SEEN} to start at the lowest id seen)
+     */
+    public SequenceGapIndex(long firstSequenceId) {
+        this.firstSequenceId = firstSequenceId;
+    }
+
+    /**
+     * Adds the sequence id of a report. Reports without a sequence id are ignored.
+     *
+     * @return true if the sequence id was new for the report's VIN
+     */
+    public boolean add(DiagnosticReport report) {
+        if (report.getVin() == null || report.getSequenceId() == null) {
+            return false;
+        }
+        return add(report.getVin(), report.getSequenceId());
+    }
+
+    /**
+     * @param vin Vehicle the sequence belongs to
+     * @param sequenceId Sequence id to add
+     * @return true if the sequence id was new for the VIN
+     */
+    public boolean add(String vin, long sequenceId) {
+        VinSequences sequences = sequencesByVin.get(vin);
+        if (sequences == null) {
+            sequences = sequencesByVin.computeIfAbsent(vin, v -> new VinSequences());
+        }
+        return sequences.add(sequenceId);
+    }
+
+    /**
+     * Adds the sequence ids of every report in a list.
+     */
+    public void addAll(Iterable<DiagnosticReport> reports) {
+        for (DiagnosticReport report : reports) {
+            add(report);
+        }
+    }
+
+    /**
+     * @return Number of missing sequences of the VIN, computed without walking its bitmap
+     */
+    public long getMissingCount(String vin) {
+        VinSequences sequences = sequencesByVin.get(vin);
+        return sequences != null ? sequences.missingCount(firstSequenceId) : 0;
+    }
+
+    /**
+     * @return Runs of missing sequences of the VIN, in ascending order
+     */
+    public List<SequenceRange> getMissingRanges(String vin) {
+        VinSequences sequences = sequencesByVin.get(vin);
+        return sequences != null ? sequences.missingRanges(firstSequenceId) : Collections.emptyList();
+    }
+
+    /**
+     * @return Missing sequences of the VIN, in ascending order
+     * @throws IllegalStateException if there are too many to return in an array
+     */
+    public long[] getMissingSequences(String vin) {
+        long count = getMissingCount(vin);
+        if (count > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Too many missing sequences for " + vin + ": " + count);
+        }
+        long[] missing = new long[(int) count];
+        int index = 0;
+        for (SequenceRange range : getMissingRanges(vin)) {
+            for (long sequence = range.getFirst(); sequence <= range.getLast(); sequence++) {
+                missing[index++] = sequence;
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * @return Sequences of the VIN that were added after a higher sequence, in ascending order
+     */
+    public long[] getOutOfOrderSequences(String vin) {
+        VinSequences sequences = sequencesByVin.get(vin);
+        return sequences != null ? sequences.lateSequences() : new long[0];
+    }
+
+    /**
+     * @return Number of times a sequence id already seen for the VIN was added again
+     */
+    public long getDuplicateCount(String vin) {
+        VinSequences sequences = sequencesByVin.get(vin);
+        return sequences != null ? sequences.duplicateCount() : 0;
+    }
+
+    /**
+     * @return VINs with at least one missing sequence, sorted
+     */
+    public Set<String> getVinsWithGaps() {
+        Set<String> vins = new TreeSet<>();
+        sequencesByVin.forEach((vin, sequences) -> {
+            if (sequences.missingCount(firstSequenceId) > 0) {
+                vins.add(vin);
+            }
+        });
+        return vins;
+    }
+
+    /**
+     * @return VINs with at least one sequence that arrived out of order, sorted
+     */
+    public Set<String> getVinsOutOfOrder() {
+        Set<String> vins = new TreeSet<>();
+        sequencesByVin.forEach((vin, sequences) -> {
+            if (sequences.lateCount() > 0) {
+                vins.add(vin);
+            }
+        });
+        return vins;
+    }
+
+    public int getVinCount() {
+        return sequencesByVin.size();
+    }
+
+    /**
+     * @return Bytes held by the sequence bitmaps of all VINs
+     */
+    public long getBitmapBytes() {
+        long bytes = 0;
+        for (VinSequences sequences : sequencesByVin.values()) {
+            bytes += sequences.bitmapBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Sequence ids of one VIN. Guarded by its own monitor.
+     */
+    private static final class VinSequences {
+        private final SequenceBitmap seen = new SequenceBitmap();
+        private final SequenceBitmap late = new SequenceBitmap();
+        private long duplicates;
+
+        synchronized boolean add(long sequenceId) {
+            boolean wasLate = !seen.isEmpty() && sequenceId < seen.getHighest();
+            if (!seen.add(sequenceId)) {
+                duplicates++;
+                return false;
+            }
+            if (wasLate) {
+                late.add(sequenceId);
+            }
+            return true;
+        }
+
+        synchronized long missingCount(long firstSequenceId) {
+            return seen.countGaps(firstSequenceId);
+        }
+
+        synchronized List<SequenceRange> missingRanges(long firstSequenceId) {
+            List<SequenceRange> ranges = new ArrayList<>();
+            seen.forEachGap(firstSequenceId, (first, last) -> ranges.add(new SequenceRange(first, last)));
+            return ranges;
+        }
+
+        synchronized long[] lateSequences() {
+            return late.toArray();
+        }
+
+        synchronized long lateCount() {
+            return late.size();
+        }
+
+        synchronized long duplicateCount() {
+            return duplicates;
+        }
+
+        synchronized long bitmapBytes() {
+            return seen.getBitmapBytes() + late.getBitmapBytes();
+        }
+    }
+
+    /**
+     * Run of consecutive sequence ids, both ends inclusive.
+     */
+    public static final class SequenceRange {
+        private final long first;
+        private final long last;
+
+        SequenceRange(long first, long last) {
+            this.first = first;
+            this.last = last;
+        }
+
+        public long getFirst() {
+            return first;
+        }
+
+        public long getLast() {
+            return last;
+        }
+
+        public long getLength() {
+            return last - first + 1;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            SequenceRange that = (SequenceRange) o;
+            return first == that.first && last == that.last;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(first) * 31 + Long.hashCode(last);
+        }
+
+        @Override
+        public String toString() {
+            return "[" + first + ", " + last + "]";
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package com.tana.migration.snapshot;
+
+import com.tana.migration.model.CompetitorJob;
+import com.tana.migration.model.JobDependency;
+import com.tana.migration.model.RmjJob;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads jobs from a snapshot written by {@link JobSnapshotWriter}.
+ *
+ * Two sources are supported with the same decoder:
+ * - A stream, via the constructor, for snapshots embedded in other files or read over the network
+ * - A memory-mapped file, via {@link #map(String)}, which decodes straight from the page cache
+ *   without stream buffers or copies of the file content
+ *
+ * Counts read from the snapshot are not trusted: each must fit in the bytes left in a mapped file, and
+ * lists and strings read from a stream grow as their elements arrive, so a corrupt count fails as a
+ * corrupt or truncated snapshot rather than allocating memory for it.
+ *
+ * Not thread-safe.
+ */
+public class JobSnapshotReader implements Closeable {
+
+    /** Largest dependency list allocated before its elements are read. */
+    private static final int MAX_PRESIZED = 64;
+
+    private final Input input;
+    private final SnapshotKind kind;
+    private final List<String> strings = new ArrayList<>();
+    private int count;
+    private boolean finished;
+
+    /**
+     * Starts reading a snapshot from a stream. The stream is closed by {@link #close()}.
+     *
+     * @param in Stream positioned at the start of the snapshot
+     * @throws IOException if the header cannot be read or is not a snapshot header
+     */
+    public JobSnapshotReader(InputStream in) throws IOException {
+        this(new StreamInput(in));
+    }
+
+    private JobSnapshotReader(Input input) throws IOException {
+        this.input = input;
+        int magic = (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+        if (magic != JobSnapshotWriter.MAGIC) {
+            throw new IOException("Not a job snapshot");
+        }
+        int version = readByte();
+        if (version != JobSnapshotWriter.VERSION) {
+            throw new IOException("Unsupported snapshot version: " + version);
+        }
+        int code = readByte();
+        this.kind = SnapshotKind.fromCode(code);
+        if (kind == null) {
+            throw new IOException("Unknown snapshot kind: " + code);
+        }
+    }
+
+    /**
+     * Opens a snapshot file through a read-only memory mapping.
+     *
+     * @param filePath Snapshot file (at most 2 GB; use the stream constructor for larger files)
+     * @return Reader positioned at the first job
+     * @throws IOException if the file cannot be mapped or is not a snapshot
+     */
+    public static JobSnapshotReader map(String filePath) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot is too large to map: " + filePath);
+            }
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        return new JobSnapshotReader(new BufferInput(buffer));
+    }
+
+    /**
+     * Reads all competitor jobs of a snapshot file through a memory mapping.
+     *
+     * @param filePath Snapshot file
+     * @return Jobs in the order they were written
+     * @throws IOException if the file cannot be read or holds another kind of job
+     */
+    public static List<CompetitorJob> readCompetitorJobs(String filePath) throws IOException {
+        try (JobSnapshotReader reader = map(filePath)) {
+            return reader.readAllCompetitorJobs();
+        }
+    }
+
+    /**
+     * Reads all RMJ jobs of a snapshot file through a memory mapping.
+     *
+     * @param filePath Snapshot file
+     * @return Jobs in the order they were written
+     * @throws IOException if the file cannot be read or holds another kind of job
+     */
+    public static List<RmjJob> readRmjJobs(String filePath) throws IOException {
+        try (JobSnapshotReader reader = map(filePath)) {
+            return reader.readAllRmjJobs();
+        }
+    }
+
+    public SnapshotKind getKind() {
+        return kind;
+    }
+
+    /**
+     * Reads the next competitor job.
+     *
+     * @return Next job, or null after the last one
+     * @throws IOException if the snapshot is truncated or corrupt, or holds another kind of job
+     */
+    public CompetitorJob readCompetitorJob() throws IOException {
+        if (!nextRecord(SnapshotKind.COMPETITOR_JOBS)) {
+            return null;
+        }
+        CompetitorJob job = new CompetitorJob();
+        job.setJobId(readNullableInt());
+        job.setJobName(readString());
+        job.setNotes(readString());
+        job.setSourceFile(readString());
+        int dependencyCount = readCount();
+        List<JobDependency> dependencies = new ArrayList<>(Math.min(dependencyCount, MAX_PRESIZED));
+        for (int i = 0; i < dependencyCount; i++) {
+            dependencies.add(new JobDependency(readNullableInt(), readString()));
+        }
+        job.setDependencies(dependencies);
+        return job;
+    }
+
+    /**
+     * Reads the next RMJ job.
+     *
+     * @return Next job, or null after the last one
+     * @throws IOException if the snapshot is truncated or corrupt, or holds another kind of job
+     */
+    public RmjJob readRmjJob() throws IOException {
+        if (!nextRecord(SnapshotKind.RMJ_JOBS)) {
+            return null;
+        }
+        RmjJob job = new RmjJob();
+        job.setJobId(readNullableInt());
+        job.setJobName(readString());
+        job.setNotes(readString());
+        job.setTriggerType(readString());
+        int dependencyCount = readCount();
+        List<Integer> dependencyIds = new ArrayList<>(Math.min(dependencyCount, MAX_PRESIZED));
+        for (int i = 0; i < dependencyCount; i++) {
+            dependencyIds.add(readNullableInt());
+        }
+        job.setDependencyJobIds(dependencyIds);
+        return job;
+    }
+
+    /**
+     * @return All remaining competitor jobs
+     * @throws IOException if the snapshot is truncated or corrupt, or holds another kind of job
+     */
+    public List<CompetitorJob> readAllCompetitorJobs() throws IOException {
+        List<CompetitorJob> jobs = new ArrayList<>();
+        CompetitorJob job;
+        while ((job = readCompetitorJob()) != null) {
+            jobs.add(job);
+        }
+        return jobs;
+    }
+
+    /**
+     * @return All remaining RMJ jobs
+     * @throws IOException if the snapshot is truncated or corrupt, or holds another kind of job
+     */
+    public List<RmjJob> readAllRmjJobs() throws IOException {
+        List<RmjJob> jobs = new ArrayList<>();
+        RmjJob job;
+        while ((job = readRmjJob()) != null) {
+            jobs.add(job);
+        }
+        return jobs;
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    /**
+     * Reads the tag of the next record; at the trailer, checks the record count.
+     */
+    private boolean nextRecord(SnapshotKind recordKind) throws IOException {
+        if (kind != recordKind) {
+            throw new IOException("Snapshot holds " + kind + ", not " + recordKind);
+        }
+        if (finished) {
+            return false;
+        }
+        int tag = readByte();
+        if (tag == JobSnapshotWriter.TAG_RECORD) {
+            count++;
+            return true;
+        }
+        if (tag != JobSnapshotWriter.TAG_END) {
+            throw new IOException("Corrupt snapshot: unexpected tag " + tag);
+        }
+        long expected = readVarLong();
+        if (expected != count) {
+            throw new IOException("Corrupt snapshot: " + count + " records, trailer says " + expected);
+        }
+        finished = true;
+        return false;
+    }
+
+    private String readString() throws IOException {
+        long ref = readVarLong();
+        if (ref == JobSnapshotWriter.REF_NULL) {
+            return null;
+        }
+        if (ref == JobSnapshotWriter.REF_NEW) {
+            String value = input.readUtf8(readCount());
+            strings.add(value);
+            return value;
+        }
+        long index = ref - JobSnapshotWriter.REF_FIRST_INDEX;
+        if (index >= strings.size()) {
+            throw new IOException("Corrupt snapshot: string reference " + index + " is not defined");
+        }
+        return strings.get((int) index);
+    }
+
+    private Integer readNullableInt() throws IOException {
+        long encoded = readVarLong();
+        if (encoded == 0) {
+            return null;
+        }
+        long zigZag = encoded - 1;
+        return (int) ((zigZag >>> 1) ^ -(zigZag & 1));
+    }
+
+    /**
+     * Reads a count of bytes or of list elements; each takes at least one byte, so the count cannot
+     * exceed the bytes left in the input.
+     */
+    private int readCount() throws IOException {
+        long count = readVarLong();
+        if (count < 0 || count > Integer.MAX_VALUE || count > input.remaining()) {
+            throw new IOException("Corrupt snapshot: count out of range: " + count);
+        }
+        return (int) count;
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt snapshot: malformed varint");
+    }
+
+    private int readByte() throws IOException {
+        int b = input.read();
+        if (b < 0) {
+            throw new EOFException("Truncated snapshot");
+        }
+        return b;
+    }
+
+    /**
+     * Source of snapshot bytes.
+     */
+    private interface Input extends Closeable {
+        /**
+         * @return Next byte, or -1 at the end of the input
+         */
+        int read() throws IOException;
+
+        String readUtf8(int length) throws IOException;
+
+        /**
+         * @return Number of bytes left, or Long.MAX_VALUE if unknown
+         */
+        long remaining();
+    }
+
+    private static final class StreamInput implements Input {
+        private final InputStream in;
+        private byte[] scratch = new byte[256];
+
+        StreamInput(InputStream in) {
+            this.in = in instanceof BufferedInputStream ? in : new BufferedInputStream(in, 64 * 1024);
+        }
+
+        @Override
+        public int read() throws IOException {
+            return in.read();
+        }
+
+        @Override
+        public String readUtf8(int length) throws IOException {
+            int offset = 0;
+            while (offset < length) {
+                if (offset == scratch.length) {
+                    // Grown as bytes arrive, so a corrupt length ends at the end of the stream instead of allocating it
+                    scratch = Arrays.copyOf(scratch, (int) Math.min(length, scratch.length * 2L));
+                }
+                int n = in.read(scratch, offset, Math.min(length, scratch.length) - offset);
+                if (n < 0) {
+                    throw new EOFException("Truncated snapshot");
+                }
+                offset += n;
+            }
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public long remaining() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private static final class BufferInput implements Input {
+        private final ByteBuffer buffer;
+        private byte[] scratch = new byte[256];
+
+        BufferInput(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public String readUtf8(int length) throws IOException {
+            if (buffer.remaining() < length) {
+                throw new EOFException("Truncated snapshot");
+            }
+            if (buffer.hasArray()) {
+                String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+                buffer.position(buffer.position() + length);
+                return value;
+            }
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            buffer.get(scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public long remaining() {
+            return buffer.remaining();
+        }
+
+        @Override
+        public void close() {
+            // The mapping is released when the buffer is garbage collected
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.tana.migration.snapshot;
+
+import com.tana.migration.model.CompetitorJob;
+import com.tana.migration.model.JobDependency;
+import com.tana.migration.model.RmjJob;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes jobs to a binary snapshot, one job at a time.
+ *
+ * Format (all integers are unsigned LEB128 varints unless noted):
+ * - Header: magic (4 bytes), format version (1 byte), {@link SnapshotKind} code (1 byte)
+ * - One record per job, each starting with a record tag byte
+ * - Trailer: end tag byte and the number of records, so a truncated snapshot is detected
+ *
+ * Ids are zig-zag encoded with 0 meaning null. Strings are references into a string table that is
+ * built inline: the first use of a string stores its UTF-8 bytes, later uses store its index. This keeps
+ * repeated names, notes, source files and statuses to one or two bytes each and lets the writer stream.
+ *
+ * Not thread-safe.
+ */
+public class JobSnapshotWriter implements Closeable {
+
+    static final int MAGIC = 0x4A534E50;
+    static final int VERSION = 1;
+    static final int TAG_END = 0;
+    static final int TAG_RECORD = 1;
+    static final long REF_NULL = 0;
+    static final long REF_NEW = 1;
+    static final long REF_FIRST_INDEX = 2;
+
+    private final OutputStream out;
+    private final SnapshotKind kind;
+    private final Map<String, Integer> strings = new HashMap<>();
+    private int count;
+    private boolean closed;
+
+    /**
+     * Starts a snapshot on a stream. The stream is closed by {@link #close()}.
+     *
+     * @param out Stream to write to
+     * @param kind Type of the jobs that will be written
+     * @throws IOException if the header cannot be written
+     */
+    public JobSnapshotWriter(OutputStream out, SnapshotKind kind) throws IOException {
+        this.out = out instanceof BufferedOutputStream ? out : new BufferedOutputStream(out, 64 * 1024);
+        this.kind = kind;
+        this.out.write(MAGIC >>> 24);
+        this.out.write(MAGIC >>> 16);
+        this.out.write(MAGIC >>> 8);
+        this.out.write(MAGIC);
+        this.out.write(VERSION);
+        this.out.write(kind.getCode());
+    }
+
+    /**
+     * Writes all jobs to a new snapshot file.
+     *
+     * @param filePath Snapshot file to create or replace
+     * @param jobs Jobs to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeCompetitorJobs(String filePath, List<CompetitorJob> jobs) throws IOException {
+        try (JobSnapshotWriter writer = new JobSnapshotWriter(new FileOutputStream(filePath), SnapshotKind.COMPETITOR_JOBS)) {
+            for (CompetitorJob job : jobs) {
+                writer.write(job);
+            }
+        }
+    }
+
+    /**
+     * Writes all jobs to a new snapshot file.
+     *
+     * @param filePath Snapshot file to create or replace
+     * @param jobs Jobs to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeRmjJobs(String filePath, List<RmjJob> jobs) throws IOException {
+        try (JobSnapshotWriter writer = new JobSnapshotWriter(new FileOutputStream(filePath), SnapshotKind.RMJ_JOBS)) {
+            for (RmjJob job : jobs) {
+                writer.write(job);
+            }
+        }
+    }
+
+    /**
+     * Appends a competitor job.
+     *
+     * @param job Job to write
+     * @throws IOException if the job cannot be written
+     * @throws IllegalStateException if this is not a {@link SnapshotKind#COMPETITOR_JOBS} snapshot
+     */
+    public void write(CompetitorJob job) throws IOException {
+        startRecord(SnapshotKind.COMPETITOR_JOBS);
+        writeNullableInt(job.getJobId());
+        writeString(job.getJobName());
+        writeString(job.getNotes());
+        writeString(job.getSourceFile());
+        List<JobDependency> dependencies = job.getDependencies();
+        int dependencyCount = dependencies != null ? dependencies.size() : 0;
+        writeVarLong(dependencyCount);
+        for (int i = 0; i < dependencyCount; i++) {
+            JobDependency dependency = dependencies.get(i);
+            writeNullableInt(dependency.getDependentJobId());
+            writeString(dependency.getStatus());
+        }
+    }
+
+    /**
+     * Appends an RMJ job.
+     *
+     * @param job Job to write
+     * @throws IOException if the job cannot be written
+     * @throws IllegalStateException if this is not a {@link SnapshotKind#RMJ_JOBS} snapshot
+     */
+    public void write(RmjJob job) throws IOException {
+        startRecord(SnapshotKind.RMJ_JOBS);
+        writeNullableInt(job.getJobId());
+        writeString(job.getJobName());
+        writeString(job.getNotes());
+        writeString(job.getTriggerType());
+        List<Integer> dependencyIds = job.getDependencyJobIds();
+        int dependencyCount = dependencyIds != null ? dependencyIds.size() : 0;
+        writeVarLong(dependencyCount);
+        for (int i = 0; i < dependencyCount; i++) {
+            writeNullableInt(dependencyIds.get(i));
+        }
+    }
+
+    /**
+     * @return Number of jobs written so far
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Writes the trailer and closes the stream.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            out.write(TAG_END);
+            writeVarLong(count);
+            out.flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void startRecord(SnapshotKind recordKind) throws IOException {
+        if (kind != recordKind) {
+            throw new IllegalStateException("Cannot write " + recordKind + " to a " + kind + " snapshot");
+        }
+        if (closed) {
+            throw new IllegalStateException("Snapshot is closed");
+        }
+        out.write(TAG_RECORD);
+        count++;
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            writeVarLong(REF_NULL);
+            return;
+        }
+        Integer index = strings.get(value);
+        if (index != null) {
+            writeVarLong(REF_FIRST_INDEX + index);
+            return;
+        }
+        strings.put(value, strings.size());
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(REF_NEW);
+        writeVarLong(bytes.length);
+        out.write(bytes);
+    }
+
+    private void writeNullableInt(Integer value) throws IOException {
+        // Zig-zag encoded so small negative ids stay short
+        writeVarLong(value == null ? 0 : (((long) value << 1) ^ ((long) value >> 63)) + 1);
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+}
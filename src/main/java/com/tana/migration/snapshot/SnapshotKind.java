@@ -0,0 +1,30 @@
+package com.tana.migration.snapshot;
+
+/**
+ * Type of the jobs held by a snapshot.
+ */
+public enum SnapshotKind {
+    /** Parsed or reconciled {@link com.tana.migration.model.CompetitorJob}s. */
+    COMPETITOR_JOBS(1),
+    /** Mapped {@link com.tana.migration.model.RmjJob}s. */
+    RMJ_JOBS(2);
+
+    private final int code;
+
+    SnapshotKind(int code) {
+        this.code = code;
+    }
+
+    int getCode() {
+        return code;
+    }
+
+    static SnapshotKind fromCode(int code) {
+        for (SnapshotKind kind : values()) {
+            if (kind.code == code) {
+                return kind;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,124 @@
+package com.tana.migration.util;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Opens input files that may be compressed, so parsers read compressed exports directly
+ * instead of from a decompressed copy on disk.
+ *
+ * The format is detected from the file's magic bytes, not its name. Uncompressed files are returned
+ * as plain streams. gzip and Zstandard files opened with {@link #open(String)} are decompressed ahead of
+ * the reader by a {@link ReadAheadGzipInputStream} or {@link ReadAheadZstdInputStream}, so parsing overlaps
+ * decompression, and independent members or frames are decompressed in parallel.
+ *
+ * File reads are accounted to the process-wide {@link IoThrottle}.
+ * Every stream checks the reading thread's interrupt status between reads, so an interrupted parse
+ * stops at its next read with an InterruptedIOException.
+ */
+public final class CompressedInput {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private CompressedInput() {
+    }
+
+    /**
+     * Detects the compression of a file.
+     *
+     * @param filePath Path to the file
+     * @return Detected compression
+     * @throws IOException if the file cannot be read
+     */
+    public static Compression detect(String filePath) throws IOException {
+        try (InputStream in = openFile(filePath)) {
+            byte[] magic = new byte[Compression.MAGIC_LENGTH];
+            return Compression.detect(magic, readFully(in, magic));
+        }
+    }
+
+    /**
+     * Opens a file for reading its decompressed content, decompressing on a read-ahead thread.
+     * Suited to reading a whole file.
+     *
+     * @param filePath Path to the file
+     * @return Stream of the decompressed content; the caller must close it
+     * @throws IOException if the file cannot be opened
+     */
+    public static InputStream open(String filePath) throws IOException {
+        return open(filePath, true);
+    }
+
+    /**
+     * Opens a file for reading its decompressed content, decompressing on the calling thread.
+     * Suited to reading only the start of a file, where starting a read-ahead thread does not pay off.
+     *
+     * @param filePath Path to the file
+     * @return Stream of the decompressed content; the caller must close it
+     * @throws IOException if the file cannot be opened
+     */
+    public static InputStream openInline(String filePath) throws IOException {
+        return open(filePath, false);
+    }
+
+    /**
+     * Wraps content that was already read into memory so it is read decompressed.
+     * Decompression runs on the calling thread.
+     *
+     * @param content Raw file content, possibly compressed
+     * @param filePath Path the content was read from
+     * @return Stream of the decompressed content
+     * @throws IOException if the content cannot be read
+     */
+    public static InputStream open(ByteBuffer content, String filePath) throws IOException {
+        return open(new ByteBufferInputStream(content), false);
+    }
+
+    private static InputStream open(String filePath, boolean readAhead) throws IOException {
+        return open(openFile(filePath), readAhead);
+    }
+
+    /**
+     * Opens a file for raw reads accounted to {@link IoThrottle#getDefault()}.
+     *
+     * @param filePath Path to the file
+     * @return Unbuffered stream of the file's bytes; the caller must close it
+     * @throws IOException if the file cannot be opened
+     */
+    public static InputStream openFile(String filePath) throws IOException {
+        return new ThrottledInputStream(new FileInputStream(filePath), IoThrottle.getDefault());
+    }
+
+    private static InputStream open(InputStream source, boolean readAhead) throws IOException {
+        PushbackInputStream in = new PushbackInputStream(new InterruptibleInputStream(source), Compression.MAGIC_LENGTH);
+        try {
+            byte[] magic = new byte[Compression.MAGIC_LENGTH];
+            int length = readFully(in, magic);
+            in.unread(magic, 0, length);
+            switch (Compression.detect(magic, length)) {
+                case GZIP:
+                    return readAhead ? new ReadAheadGzipInputStream(in) : new GZIPInputStream(in, BUFFER_SIZE);
+                case ZSTD:
+                    return readAhead ? new ReadAheadZstdInputStream(in) : ZstdFrames.open(in);
+                default:
+                    return in;
+            }
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    private static int readFully(InputStream in, byte[] buffer) throws IOException {
+        int length = 0;
+        int read;
+        while (length < buffer.length && (read = in.read(buffer, length, buffer.length - length)) > 0) {
+            length += read;
+        }
+        return length;
+    }
+}
@@ -0,0 +1,34 @@
+package com.tana.migration.util;
+
+/**
+ * Compression formats recognised by {@link CompressedInput} from a file's magic bytes.
+ */
+public enum Compression {
+    /** Not compressed. */
+    NONE,
+    /** gzip (RFC 1952), possibly several concatenated members. */
+    GZIP,
+    /** Zstandard frame. */
+    ZSTD;
+
+    /** Number of leading bytes needed by {@link #detect(byte[], int)}. */
+    public static final int MAGIC_LENGTH = 4;
+
+    /**
+     * Classifies a file from its first bytes.
+     *
+     * @param prefix Leading bytes of the file
+     * @param length Number of valid bytes in prefix
+     * @return Detected compression, NONE if no magic number matches
+     */
+    public static Compression detect(byte[] prefix, int length) {
+        if (length >= 2 && (prefix[0] & 0xFF) == 0x1F && (prefix[1] & 0xFF) == 0x8B) {
+            return GZIP;
+        }
+        if (length >= 4 && (prefix[0] & 0xFF) == 0x28 && (prefix[1] & 0xFF) == 0xB5
+                && (prefix[2] & 0xFF) == 0x2F && (prefix[3] & 0xFF) == 0xFD) {
+            return ZSTD;
+        }
+        return NONE;
+    }
+}
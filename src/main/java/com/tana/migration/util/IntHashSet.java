@@ -0,0 +1,107 @@
+package com.tana.migration.util;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash set of primitive ints.
+ * Used on hot paths (e.g., duplicate job id detection) where a HashSet&lt;Integer&gt;
+ * would box every id and allocate one node per entry.
+ * 
+ * Not thread-safe.
+ */
+public final class IntHashSet {
+    private static final int EMPTY = Integer.MIN_VALUE;
+    
+    private int[] keys;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+    private boolean containsEmptyKey;
+    
+    public IntHashSet() {
+        this(16);
+    }
+    
+    /**
+     * @param expectedSize Number of elements the set should hold without resizing
+     */
+    public IntHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+        allocate(capacity);
+    }
+    
+    /**
+     * @param key Value to add
+     * @return true if the value was not already present
+     */
+    public boolean add(int key) {
+        if (key == EMPTY) {
+            if (containsEmptyKey) {
+                return false;
+            }
+            containsEmptyKey = true;
+            size++;
+            return true;
+        }
+        int index = slot(key);
+        while (keys[index] != EMPTY) {
+            if (keys[index] == key) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        if (++size > resizeThreshold) {
+            rehash(keys.length << 1);
+        }
+        return true;
+    }
+    
+    public boolean contains(int key) {
+        if (key == EMPTY) {
+            return containsEmptyKey;
+        }
+        int index = slot(key);
+        while (keys[index] != EMPTY) {
+            if (keys[index] == key) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    private int slot(int key) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+    
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * 0.6f);
+    }
+    
+    private void rehash(int newCapacity) {
+        int[] oldKeys = keys;
+        allocate(newCapacity);
+        for (int key : oldKeys) {
+            if (key != EMPTY) {
+                int index = slot(key);
+                while (keys[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+            }
+        }
+    }
+}
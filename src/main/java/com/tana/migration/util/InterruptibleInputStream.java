@@ -0,0 +1,47 @@
+package com.tana.migration.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+/**
+ * Input stream that fails with an {@link InterruptedIOException} once the reading thread is interrupted,
+ * so a parse can be cancelled between two reads even when the underlying stream ignores interrupts.
+ * The interrupt status is left set for the caller to clear.
+ *
+ * Not thread-safe.
+ */
+public final class InterruptibleInputStream extends FilterInputStream {
+
+    /**
+     * @param in Stream to read from
+     */
+    public InterruptibleInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkInterrupted();
+        return in.read();
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        checkInterrupted();
+        return in.read(bytes, offset, length);
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        checkInterrupted();
+        return in.skip(n);
+    }
+
+    private static void checkInterrupted() throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Read cancelled");
+        }
+    }
+}
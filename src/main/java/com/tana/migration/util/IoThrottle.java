@@ -0,0 +1,163 @@
+package com.tana.migration.util;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token-bucket limiter for reads from input files, so a migration against shared storage can be capped
+ * in bytes per second and read operations per second without changing its thread count.
+ *
+ * Each bucket refills at its rate up to its burst size. A read takes one operation token and one token per
+ * byte after it completes; if a bucket goes into debt, the reader sleeps until the debt is repaid, so a read
+ * larger than the burst is still admitted and the average rate holds. The limits can be changed at any time,
+ * for example to run at full speed off-hours and capped during business hours.
+ *
+ * {@link #getDefault()} is shared by every file the parsers and file stages read, and is unlimited until
+ * configured.
+ *
+ * Thread-safe.
+ */
+public final class IoThrottle {
+
+    /** Rate that disables a bucket. */
+    public static final long UNLIMITED = Long.MAX_VALUE;
+
+    private static final IoThrottle DEFAULT = new IoThrottle(UNLIMITED, UNLIMITED);
+
+    private final Bucket bytes = new Bucket();
+    private final Bucket operations = new Bucket();
+    private final LongAdder throttledNanos = new LongAdder();
+    private volatile boolean unlimited;
+
+    /**
+     * Creates a throttle whose burst is one second of each rate.
+     *
+     * @param bytesPerSecond Bytes read per second ({@link #UNLIMITED} for no limit)
+     * @param operationsPerSecond Read operations per second ({@link #UNLIMITED} for no limit)
+     */
+    public IoThrottle(long bytesPerSecond, long operationsPerSecond) {
+        setLimits(bytesPerSecond, operationsPerSecond);
+    }
+
+    /**
+     * @param bytesPerSecond Bytes read per second ({@link #UNLIMITED} for no limit)
+     * @param operationsPerSecond Read operations per second ({@link #UNLIMITED} for no limit)
+     * @param burstBytes Bytes that may be read at once after an idle period
+     * @param burstOperations Read operations that may be issued at once after an idle period
+     */
+    public IoThrottle(long bytesPerSecond, long operationsPerSecond, long burstBytes, long burstOperations) {
+        setLimits(bytesPerSecond, operationsPerSecond, burstBytes, burstOperations);
+    }
+
+    /**
+     * @return Process-wide throttle applied to input files, unlimited until configured
+     */
+    public static IoThrottle getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Changes the rates, with a burst of one second of each rate. Reads already waiting keep their wait.
+     *
+     * @param bytesPerSecond Bytes read per second ({@link #UNLIMITED} for no limit)
+     * @param operationsPerSecond Read operations per second ({@link #UNLIMITED} for no limit)
+     */
+    public void setLimits(long bytesPerSecond, long operationsPerSecond) {
+        setLimits(bytesPerSecond, operationsPerSecond, bytesPerSecond, operationsPerSecond);
+    }
+
+    /**
+     * Changes the rates and burst sizes. Reads already waiting keep their wait.
+     *
+     * @param bytesPerSecond Bytes read per second ({@link #UNLIMITED} for no limit)
+     * @param operationsPerSecond Read operations per second ({@link #UNLIMITED} for no limit)
+     * @param burstBytes Bytes that may be read at once after an idle period
+     * @param burstOperations Read operations that may be issued at once after an idle period
+     */
+    public void setLimits(long bytesPerSecond, long operationsPerSecond, long burstBytes, long burstOperations) {
+        if (bytesPerSecond < 1 || operationsPerSecond < 1 || burstBytes < 1 || burstOperations < 1) {
+            throw new IllegalArgumentException("Rates and bursts must be positive");
+        }
+        synchronized (this) {
+            bytes.configure(bytesPerSecond, burstBytes);
+            operations.configure(operationsPerSecond, burstOperations);
+            unlimited = bytesPerSecond == UNLIMITED && operationsPerSecond == UNLIMITED;
+        }
+    }
+
+    /**
+     * Removes both limits.
+     */
+    public void setUnlimited() {
+        setLimits(UNLIMITED, UNLIMITED);
+    }
+
+    public boolean isUnlimited() {
+        return unlimited;
+    }
+
+    /**
+     * Accounts for one completed read, sleeping while either bucket is in debt.
+     *
+     * @param byteCount Number of bytes the read returned
+     * @throws InterruptedIOException if the thread is interrupted while it waits
+     */
+    public void acquire(long byteCount) throws InterruptedIOException {
+        if (unlimited) {
+            return;
+        }
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            waitNanos = Math.max(bytes.take(byteCount, now), operations.take(1, now));
+        }
+        if (waitNanos <= 0) {
+            return;
+        }
+        throttledNanos.add(waitNanos);
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while throttled");
+        }
+    }
+
+    /**
+     * @return Total time readers were made to wait, in nanoseconds
+     */
+    public long getThrottledNanos() {
+        return throttledNanos.sum();
+    }
+
+    /**
+     * One token bucket; guarded by the throttle.
+     */
+    private static final class Bucket {
+        private long rate;
+        private double capacity;
+        private double tokens;
+        private long refilledAt;
+
+        void configure(long rate, long burst) {
+            this.rate = rate;
+            this.capacity = burst;
+            this.tokens = burst;
+            this.refilledAt = System.nanoTime();
+        }
+
+        /**
+         * @return Nanoseconds until the bucket is out of debt, or 0
+         */
+        long take(long amount, long now) {
+            if (rate == UNLIMITED) {
+                return 0;
+            }
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * (double) rate / TimeUnit.SECONDS.toNanos(1));
+            refilledAt = now;
+            tokens -= amount;
+            return tokens < 0 ? (long) (-tokens * TimeUnit.SECONDS.toNanos(1) / rate) : 0;
+        }
+    }
+}
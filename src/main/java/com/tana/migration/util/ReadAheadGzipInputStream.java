@@ -0,0 +1,465 @@
+package com.tana.migration.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Decompresses a gzip stream on a dedicated read-ahead thread, so the reader parses one chunk
+ * while the next ones are being decompressed.
+ *
+ * gzip members normally record neither their compressed size nor where the next member starts, so
+ * concatenated members can only be found for certain by inflating them in order:
+ * - Block-indexed files, whose members carry their size in a "BC" extra field (the BGZF layout written
+ *   by bgzip and similar tools), are read member by member by the read-ahead thread, and the members
+ *   are inflated in parallel on an executor
+ * - In other files, the read-ahead thread reads up to 4 MB of compressed data at a time and looks for
+ *   gzip headers in it. Each member that may start at a header is inflated in parallel on the executor;
+ *   a member is used only once the member before it is known to end where it starts, so a header-like
+ *   byte sequence inside compressed data costs some wasted work but never changes the output. A member
+ *   that does not fit in 4 MB of compressed or decompressed data, including the single member of a file
+ *   written by gzip, is inflated on the read-ahead thread itself, since a deflate stream cannot be split
+ *
+ * Members are returned in file order, with their CRC-32 and size checked. Bytes after the last member that
+ * do not start another member are ignored, as by GZIPInputStream.
+ *
+ * Not thread-safe for readers; one thread reads the stream.
+ */
+public class ReadAheadGzipInputStream extends ReadAheadInputStream {
+
+    private static final int HEADER_SIZE = 10;
+    private static final int TRAILER_SIZE = 8;
+    private static final int FLAG_HEADER_CRC = 0x02;
+    private static final int FLAG_EXTRA = 0x04;
+    private static final int FLAG_NAME = 0x08;
+    private static final int FLAG_COMMENT = 0x10;
+    private static final int FLAG_RESERVED = 0xE0;
+    /** Compressed bytes searched for members at a time, and the largest member inflated in parallel. */
+    private static final int WINDOW_SIZE = 4 * 1024 * 1024;
+    /** Largest decompressed member inflated in parallel. */
+    private static final int MAX_MEMBER_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * Creates a stream that inflates members in parallel on the common fork/join pool.
+     *
+     * @param source gzip data; closed by this stream
+     */
+    public ReadAheadGzipInputStream(InputStream source) {
+        this(source, null, DEFAULT_RING_SIZE);
+    }
+
+    /**
+     * @param source gzip data; closed by this stream
+     * @param inflaters Executor inflating members in parallel (if null, uses the common fork/join pool)
+     * @param ringSize Number of decompressed chunks or members buffered ahead of the reader; also the most
+     *                 members inflated in parallel from one window of a file that is not block-indexed
+     */
+    public ReadAheadGzipInputStream(InputStream source, Executor inflaters, int ringSize) {
+        super(source, inflaters, ringSize, "gzip-read-ahead");
+        start();
+    }
+
+    @Override
+    protected void decompress(InputStream in) throws IOException, InterruptedException {
+        byte[] header = new byte[HEADER_SIZE];
+        while (!isClosed()) {
+            int headerLength = readFully(in, header, 0, HEADER_SIZE);
+            if (headerLength == 0) {
+                return;
+            }
+            if (headerLength < HEADER_SIZE) {
+                throw new EOFException("Truncated gzip member header");
+            }
+            if ((header[0] & 0xFF) != 0x1F || (header[1] & 0xFF) != 0x8B || header[2] != 8) {
+                throw new ZipException("Not in gzip format");
+            }
+            if ((header[3] & 0xFF) != FLAG_EXTRA) {
+                inflateMembers(in, header);
+                return;
+            }
+
+            byte[] xlenBytes = new byte[2];
+            if (readFully(in, xlenBytes, 0, 2) < 2) {
+                throw new EOFException("Truncated gzip member header");
+            }
+            int xlen = readShort(xlenBytes, 0);
+            byte[] extra = new byte[xlen];
+            if (readFully(in, extra, 0, xlen) < xlen) {
+                throw new EOFException("Truncated gzip member header");
+            }
+            int blockSize = blockSize(extra);
+            if (blockSize < 0) {
+                byte[] consumed = new byte[HEADER_SIZE + 2 + xlen];
+                System.arraycopy(header, 0, consumed, 0, HEADER_SIZE);
+                System.arraycopy(xlenBytes, 0, consumed, HEADER_SIZE, 2);
+                System.arraycopy(extra, 0, consumed, HEADER_SIZE + 2, xlen);
+                inflateMembers(in, consumed);
+                return;
+            }
+
+            int bodyLength = blockSize - HEADER_SIZE - 2 - xlen;
+            if (bodyLength < TRAILER_SIZE) {
+                throw new ZipException("Invalid gzip block size " + blockSize);
+            }
+            byte[] body = new byte[bodyLength];
+            if (readFully(in, body, 0, bodyLength) < bodyLength) {
+                throw new EOFException("Truncated gzip member");
+            }
+            putAsync(() -> inflateBlock(body));
+        }
+    }
+
+    /**
+     * Inflates the rest of a stream that is not block-indexed, starting with the already consumed bytes,
+     * one window of compressed data at a time.
+     */
+    private void inflateMembers(InputStream in, byte[] consumed) throws IOException, InterruptedException {
+        byte[] carried = consumed;
+        boolean inflatedAny = false;
+        while (!isClosed()) {
+            // Grown as data arrives, so a small file does not cost a whole window
+            byte[] window = Arrays.copyOf(carried, Math.max(carried.length, CHUNK_SIZE));
+            int length = carried.length;
+            int n = 0;
+            while (length < WINDOW_SIZE && n >= 0) {
+                if (length == window.length) {
+                    window = Arrays.copyOf(window, Math.min(2 * window.length, WINDOW_SIZE));
+                }
+                n = in.read(window, length, window.length - length);
+                length += Math.max(n, 0);
+            }
+            if (length == 0) {
+                return;
+            }
+
+            // Offsets at which a member may start; the search stops after one candidate per ring slot
+            List<Integer> starts = new ArrayList<>();
+            int searched = 0;
+            while (searched + 4 <= length && starts.size() < getRingSize()) {
+                if (isMemberStart(window, searched)) {
+                    starts.add(searched);
+                }
+                searched++;
+            }
+            if (starts.isEmpty() || starts.get(0) != 0) {
+                if (inflatedAny) {
+                    // Bytes after the last member that do not start another one
+                    return;
+                }
+                throw length < 4 ? new EOFException("Truncated gzip member header") : new ZipException("Not in gzip format");
+            }
+
+            // A single member in the window is inflated on this thread, however large it turns out to be
+            int position = 0;
+            boolean sequential = starts.size() == 1;
+            if (!sequential) {
+                Map<Integer, CompletableFuture<Member>> members = new HashMap<>();
+                byte[] filled = window;
+                int filledLength = length;
+                for (int start : starts) {
+                    members.put(start, CompletableFuture.supplyAsync(
+                        () -> inflateMember(filled, start, filledLength), getDecoders()));
+                }
+                CompletableFuture<Member> next;
+                while ((next = members.get(position)) != null) {
+                    Member member = await(next);
+                    if (member.data == null) {
+                        sequential = member.tooLarge;
+                        break;
+                    }
+                    put(member.data);
+                    inflatedAny = true;
+                    position = member.end;
+                }
+                if (members.get(position) == null) {
+                    if (position < searched && inflatedAny) {
+                        // Bytes after the last member that do not start another one
+                        return;
+                    }
+                    carried = Arrays.copyOfRange(window, position, length);
+                    continue;
+                }
+                if (position > 0 && !sequential) {
+                    // The member may fit in a window that starts with it
+                    carried = Arrays.copyOfRange(window, position, length);
+                    continue;
+                }
+            }
+            carried = inflateSequentially(in, window, position, length);
+            if (carried == null) {
+                return;
+            }
+            inflatedAny = true;
+        }
+    }
+
+    /**
+     * Inflates one member on the read-ahead thread in chunks, starting in the window and reading the rest of it
+     * from the stream.
+     *
+     * @return Bytes read after the member, or null if the reader closed the stream
+     */
+    private byte[] inflateSequentially(InputStream in, byte[] window, int start, int length)
+            throws IOException, InterruptedException {
+        int headerLength = headerLength(window, start, length);
+        if (headerLength < 0) {
+            throw length < WINDOW_SIZE ? new EOFException("Truncated gzip member header")
+                : new ZipException("gzip member header too long");
+        }
+        byte[] input = window;
+        int inputStart = start + headerLength;
+        int inputEnd = length;
+        Inflater inflater = new Inflater(true);
+        CRC32 crc = new CRC32();
+        long size = 0;
+        try {
+            inflater.setInput(input, inputStart, inputEnd - inputStart);
+            byte[] chunk = new byte[CHUNK_SIZE];
+            int chunkLength = 0;
+            while (!inflater.finished()) {
+                if (isClosed()) {
+                    return null;
+                }
+                int n = inflater.inflate(chunk, chunkLength, CHUNK_SIZE - chunkLength);
+                crc.update(chunk, chunkLength, n);
+                chunkLength += n;
+                size += n;
+                if (chunkLength == CHUNK_SIZE) {
+                    put(chunk);
+                    chunk = new byte[CHUNK_SIZE];
+                    chunkLength = 0;
+                } else if (n == 0 && inflater.needsInput()) {
+                    input = new byte[CHUNK_SIZE];
+                    inputStart = 0;
+                    inputEnd = in.read(input);
+                    if (inputEnd <= 0) {
+                        throw new EOFException("Unexpected end of gzip member");
+                    }
+                    inflater.setInput(input, 0, inputEnd);
+                } else if (n == 0 && inflater.needsDictionary()) {
+                    throw new ZipException("Corrupt gzip member");
+                }
+            }
+            if (chunkLength > 0) {
+                put(Arrays.copyOf(chunk, chunkLength));
+            }
+            inputStart = inputEnd - inflater.getRemaining();
+        } catch (DataFormatException e) {
+            throw new ZipException("Corrupt gzip member: " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+
+        byte[] rest = Arrays.copyOfRange(input, inputStart, inputEnd);
+        if (rest.length < TRAILER_SIZE) {
+            int missing = TRAILER_SIZE - rest.length;
+            rest = Arrays.copyOf(rest, TRAILER_SIZE);
+            if (readFully(in, rest, TRAILER_SIZE - missing, missing) < missing) {
+                throw new EOFException("Unexpected end of gzip member");
+            }
+        }
+        checkTrailer(rest, 0, crc.getValue(), size);
+        return Arrays.copyOfRange(rest, TRAILER_SIZE, rest.length);
+    }
+
+    /**
+     * Inflates the member that may start at an offset of the window, if it ends in the window and is small enough.
+     *
+     * @return The member; its data is null if it does not fit
+     * @throws UncheckedIOException if the bytes at the offset are not a valid member
+     */
+    private static Member inflateMember(byte[] window, int start, int length) {
+        try {
+            int headerLength = headerLength(window, start, length);
+            if (headerLength < 0) {
+                return new Member(null, 0, false);
+            }
+            int dataStart = start + headerLength;
+            byte[] data = new byte[Math.min(CHUNK_SIZE, MAX_MEMBER_SIZE)];
+            int size = 0;
+            Inflater inflater = new Inflater(true);
+            try {
+                inflater.setInput(window, dataStart, length - dataStart);
+                while (!inflater.finished()) {
+                    if (size == data.length) {
+                        if (size == MAX_MEMBER_SIZE) {
+                            return new Member(null, 0, true);
+                        }
+                        data = Arrays.copyOf(data, Math.min(size * 2, MAX_MEMBER_SIZE));
+                    }
+                    int n = inflater.inflate(data, size, data.length - size);
+                    size += n;
+                    if (n == 0 && inflater.needsInput()) {
+                        return new Member(null, 0, false);
+                    }
+                    if (n == 0 && inflater.needsDictionary()) {
+                        throw new ZipException("Corrupt gzip member");
+                    }
+                }
+                int trailer = length - inflater.getRemaining();
+                if (trailer + TRAILER_SIZE > length) {
+                    return new Member(null, 0, false);
+                }
+                CRC32 crc = new CRC32();
+                crc.update(data, 0, size);
+                checkTrailer(window, trailer, crc.getValue(), size);
+                return new Member(size == data.length ? data : Arrays.copyOf(data, size), trailer + TRAILER_SIZE, false);
+            } finally {
+                inflater.end();
+            }
+        } catch (ZipException e) {
+            throw new UncheckedIOException(e);
+        } catch (DataFormatException e) {
+            throw new UncheckedIOException(new ZipException("Corrupt gzip member: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Inflates one block-indexed member and checks it against its trailer.
+     *
+     * @param body Deflate data followed by the CRC-32 and size trailer
+     */
+    private static byte[] inflateBlock(byte[] body) {
+        int dataLength = body.length - TRAILER_SIZE;
+        long expectedCrc = readInt(body, dataLength) & 0xFFFFFFFFL;
+        int size = readInt(body, dataLength + 4);
+        if (size < 0) {
+            throw new UncheckedIOException(new ZipException("gzip block larger than 2 GB"));
+        }
+
+        byte[] data = new byte[size];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(body, 0, dataLength);
+            int length = 0;
+            while (length < size) {
+                int n = inflater.inflate(data, length, size - length);
+                if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += n;
+            }
+            if (length != size) {
+                throw new ZipException("Corrupt gzip block (size mismatch)");
+            }
+        } catch (ZipException e) {
+            throw new UncheckedIOException(e);
+        } catch (DataFormatException e) {
+            throw new UncheckedIOException(new ZipException("Corrupt gzip block: " + e.getMessage()));
+        } finally {
+            inflater.end();
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, size);
+        if (crc.getValue() != expectedCrc) {
+            throw new UncheckedIOException(new ZipException("Corrupt gzip block (CRC mismatch)"));
+        }
+        return data;
+    }
+
+    /**
+     * Checks a member's trailer against the CRC-32 and size of its inflated data.
+     */
+    private static void checkTrailer(byte[] bytes, int offset, long crc, long size) throws ZipException {
+        if ((readInt(bytes, offset) & 0xFFFFFFFFL) != crc) {
+            throw new ZipException("Corrupt gzip member (CRC mismatch)");
+        }
+        if ((readInt(bytes, offset + 4) & 0xFFFFFFFFL) != (size & 0xFFFFFFFFL)) {
+            throw new ZipException("Corrupt gzip member (size mismatch)");
+        }
+    }
+
+    /**
+     * @return true if the bytes at an offset look like the start of a gzip member header
+     */
+    private static boolean isMemberStart(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) == 0x1F && (bytes[offset + 1] & 0xFF) == 0x8B && bytes[offset + 2] == 8
+            && (bytes[offset + 3] & FLAG_RESERVED) == 0;
+    }
+
+    /**
+     * Measures the header of the member starting at an offset.
+     *
+     * @return Header length, or -1 if the header does not end before length
+     * @throws ZipException if the bytes are not a gzip header
+     */
+    private static int headerLength(byte[] bytes, int start, int length) throws ZipException {
+        if (length - start < HEADER_SIZE) {
+            return -1;
+        }
+        if (!isMemberStart(bytes, start)) {
+            throw new ZipException("Not in gzip format");
+        }
+        int flags = bytes[start + 3] & 0xFF;
+        int position = start + HEADER_SIZE;
+        if ((flags & FLAG_EXTRA) != 0) {
+            if (position + 2 > length) {
+                return -1;
+            }
+            position += 2 + readShort(bytes, position);
+        }
+        for (int flag : new int[] {FLAG_NAME, FLAG_COMMENT}) {
+            if ((flags & flag) != 0) {
+                while (position < length && bytes[position] != 0) {
+                    position++;
+                }
+                position++;
+            }
+        }
+        if ((flags & FLAG_HEADER_CRC) != 0) {
+            position += 2;
+        }
+        return position <= length ? position - start : -1;
+    }
+
+    /**
+     * Returns the total member size recorded in a "BC" extra subfield, or -1 if there is none.
+     */
+    private static int blockSize(byte[] extra) {
+        int offset = 0;
+        while (offset + 4 <= extra.length) {
+            int length = readShort(extra, offset + 2);
+            if (extra[offset] == 'B' && extra[offset + 1] == 'C' && length == 2 && offset + 6 <= extra.length) {
+                return readShort(extra, offset + 4) + 1;
+            }
+            offset += 4 + length;
+        }
+        return -1;
+    }
+
+    private static int readShort(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) | (bytes[offset + 1] & 0xFF) << 8;
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return readShort(bytes, offset) | readShort(bytes, offset + 2) << 16;
+    }
+
+    /**
+     * A member inflated from a window: its data and where it ends, or why it could not be inflated there.
+     */
+    private static final class Member {
+        private final byte[] data;
+        private final int end;
+        private final boolean tooLarge;
+
+        Member(byte[] data, int end, boolean tooLarge) {
+            this.data = data;
+            this.end = end;
+            this.tooLarge = tooLarge;
+        }
+    }
+}
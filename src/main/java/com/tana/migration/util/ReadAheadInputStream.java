@@ -0,0 +1,269 @@
+package com.tana.migration.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Decompresses a stream on a dedicated read-ahead thread, so the reader parses one chunk
+ * while the next ones are being decompressed.
+ *
+ * Decompressed chunks are handed over through a bounded ring of futures; when the ring is full the
+ * read-ahead thread waits, so memory use is bounded by the ring size whatever the file size.
+ * Subclasses read the compressed format on the read-ahead thread, and either decompress chunks there
+ * or hand independent members to an executor, whose results are still returned in file order.
+ *
+ * Not thread-safe for readers; one thread reads the stream.
+ */
+public abstract class ReadAheadInputStream extends InputStream {
+
+    /** Default number of decompressed chunks or members buffered ahead of the reader. */
+    public static final int DEFAULT_RING_SIZE = 16;
+
+    /** Size of the chunks decompressed on the read-ahead thread. */
+    protected static final int CHUNK_SIZE = 64 * 1024;
+
+    private static final Future<byte[]> END = CompletableFuture.completedFuture(new byte[0]);
+
+    private final InputStream source;
+    private final Executor decoders;
+    private final int ringSize;
+    private final BlockingQueue<Future<byte[]>> ring;
+    private final Thread readAhead;
+    private volatile boolean closed;
+    private byte[] chunk;
+    private int position;
+    private boolean finished;
+
+    /**
+     * Creates the stream; the subclass calls {@link #start()} once it is constructed.
+     *
+     * @param source Compressed data; closed by this stream
+     * @param decoders Executor decompressing independent members (if null, uses the common fork/join pool)
+     * @param ringSize Number of decompressed chunks or members buffered ahead of the reader
+     * @param threadName Name of the read-ahead thread
+     */
+    protected ReadAheadInputStream(InputStream source, Executor decoders, int ringSize, String threadName) {
+        if (ringSize < 1) {
+            throw new IllegalArgumentException("Ring size must be positive");
+        }
+        this.source = source;
+        this.decoders = decoders != null ? decoders : ForkJoinPool.commonPool();
+        this.ringSize = ringSize;
+        this.ring = new ArrayBlockingQueue<>(ringSize);
+        this.readAhead = new Thread(this::readAhead, threadName);
+        readAhead.setDaemon(true);
+    }
+
+    /**
+     * Starts the read-ahead thread.
+     */
+    protected final void start() {
+        readAhead.start();
+    }
+
+    /**
+     * Reads the compressed stream on the read-ahead thread and queues its decompressed content in order.
+     * Called once; the stream is closed afterwards.
+     *
+     * @param in Compressed data
+     * @throws InterruptedException if the reader closed the stream
+     */
+    protected abstract void decompress(InputStream in) throws IOException, InterruptedException;
+
+    /**
+     * Queues decompressed bytes, waiting while the ring is full.
+     */
+    protected final void put(byte[] decompressed) throws InterruptedException {
+        ring.put(CompletableFuture.completedFuture(decompressed));
+    }
+
+    /**
+     * Decompresses an independent member on the executor and queues its result, waiting while the ring is full.
+     *
+     * @param member Decompresses the member, throwing UncheckedIOException if it is corrupt
+     */
+    protected final void putAsync(Supplier<byte[]> member) throws InterruptedException {
+        ring.put(CompletableFuture.supplyAsync(member, decoders));
+    }
+
+    /**
+     * Queues a decompressed stream in chunks, until it ends or the reader closes this stream.
+     */
+    protected final void putChunks(InputStream decompressed) throws IOException, InterruptedException {
+        while (!closed) {
+            byte[] buffer = new byte[CHUNK_SIZE];
+            int length = readFully(decompressed, buffer, 0, CHUNK_SIZE);
+            if (length == 0) {
+                return;
+            }
+            if (length < CHUNK_SIZE) {
+                byte[] last = new byte[length];
+                System.arraycopy(buffer, 0, last, 0, length);
+                buffer = last;
+            }
+            put(buffer);
+        }
+    }
+
+    /**
+     * @return Executor decompressing independent members
+     */
+    protected final Executor getDecoders() {
+        return decoders;
+    }
+
+    /**
+     * @return Number of decompressed chunks or members buffered ahead of the reader
+     */
+    protected final int getRingSize() {
+        return ringSize;
+    }
+
+    /**
+     * @return true once the reader has closed the stream
+     */
+    protected final boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!nextChunk()) {
+            return -1;
+        }
+        return chunk[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!nextChunk()) {
+            return -1;
+        }
+        int n = Math.min(length, chunk.length - position);
+        System.arraycopy(chunk, position, bytes, offset, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return chunk != null ? chunk.length - position : 0;
+    }
+
+    /**
+     * Stops the read-ahead thread, discards buffered chunks and closes the source.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        readAhead.interrupt();
+        Future<byte[]> future;
+        while ((future = ring.poll()) != null) {
+            future.cancel(false);
+        }
+        try {
+            readAhead.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Chunks queued while the thread was stopping
+        ring.clear();
+    }
+
+    /**
+     * Makes the next non-empty chunk current.
+     *
+     * @return false at the end of the stream
+     */
+    private boolean nextChunk() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (chunk == null || position == chunk.length) {
+            if (finished) {
+                return false;
+            }
+            Future<byte[]> future;
+            try {
+                future = ring.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for decompressed data");
+            }
+            if (future == END) {
+                finished = true;
+                return false;
+            }
+            chunk = await(future);
+            position = 0;
+        }
+        return true;
+    }
+
+    /**
+     * Waits for a member decompressed on the executor.
+     *
+     * @throws IOException if the member is corrupt
+     */
+    protected static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof UncheckedIOException ? e.getCause().getCause() : e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for decompressed data");
+        }
+    }
+
+    /**
+     * Body of the read-ahead thread: queues every chunk, then the end marker or the failure.
+     */
+    private void readAhead() {
+        try (InputStream in = source) {
+            decompress(in);
+            ring.put(END);
+        } catch (InterruptedException e) {
+            // Closed by the reader
+        } catch (IOException | RuntimeException e) {
+            CompletableFuture<byte[]> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            try {
+                ring.put(failed);
+            } catch (InterruptedException ignored) {
+                // Closed by the reader
+            }
+        }
+    }
+
+    /**
+     * Reads until the buffer range is full or the stream ends.
+     *
+     * @return Number of bytes read, less than length only at the end of the stream
+     */
+    protected static int readFully(InputStream in, byte[] buffer, int offset, int length) throws IOException {
+        int total = 0;
+        int read;
+        while (total < length && (read = in.read(buffer, offset + total, length - total)) > 0) {
+            total += read;
+        }
+        return total;
+    }
+}
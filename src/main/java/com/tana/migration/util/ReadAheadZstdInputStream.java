@@ -0,0 +1,65 @@
+package com.tana.migration.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.Executor;
+
+/**
+ * Decodes a Zstandard stream on a dedicated read-ahead thread, so the reader parses one chunk
+ * while the next ones are being decoded.
+ *
+ * Unlike gzip members, Zstandard frames can be delimited without decoding them, from their block headers.
+ * The read-ahead thread reads each frame whose header records a decoded size of up to 4 MB, as written by
+ * pzstd or the seekable format, and the frames are decoded in parallel on an executor, then returned in
+ * file order. A larger frame, or one whose size is not recorded, is decoded in chunks on the read-ahead
+ * thread itself, so a file written by zstd as a single frame is still read with bounded memory.
+ * Skippable frames are skipped.
+ *
+ * Not thread-safe for readers; one thread reads the stream.
+ */
+public class ReadAheadZstdInputStream extends ReadAheadInputStream {
+
+    /** Largest decoded frame decoded in parallel. */
+    private static final int MAX_PARALLEL_FRAME_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * Creates a stream that decodes frames in parallel on the common fork/join pool.
+     *
+     * @param source Zstandard data; closed by this stream
+     */
+    public ReadAheadZstdInputStream(InputStream source) {
+        this(source, null, DEFAULT_RING_SIZE);
+    }
+
+    /**
+     * @param source Zstandard data; closed by this stream
+     * @param decoders Executor decoding frames in parallel (if null, uses the common fork/join pool)
+     * @param ringSize Number of decoded chunks or frames buffered ahead of the reader
+     */
+    public ReadAheadZstdInputStream(InputStream source, Executor decoders, int ringSize) {
+        super(source, decoders, ringSize, "zstd-read-ahead");
+        start();
+    }
+
+    @Override
+    protected void decompress(InputStream in) throws IOException, InterruptedException {
+        ZstdFrames.Header header;
+        while (!isClosed() && (header = ZstdFrames.nextFrame(in)) != null) {
+            long contentSize = header.getContentSize();
+            if (contentSize < 0 || contentSize > MAX_PARALLEL_FRAME_SIZE) {
+                putChunks(ZstdFrames.decoding(ZstdFrames.frame(in, header)));
+                continue;
+            }
+            // Raw blocks add a few bytes per block, so a valid frame is never twice its decoded size
+            byte[] frame = ZstdFrames.readFrame(in, header, 2 * (int) contentSize + 1024);
+            putAsync(() -> {
+                try {
+                    return ZstdFrames.decode(frame, (int) contentSize);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.tana.migration.util;
+
+import java.util.Arrays;
+
+/**
+ * Set of long sequence numbers stored as a paged bitmap.
+ *
+ * Pages cover 4096 consecutive sequences (512 bytes) and are kept in sorted primitive arrays, so a
+ * dense run of sequences costs about one bit each, and a sparse set only pays for pages that hold a
+ * member. A page whose 4096 sequences are all present is replaced by a shared marker and costs nothing.
+ *
+ * The gaps of the set are walked page by page and word by word, skipping full pages and full words,
+ * so finding them takes time proportional to the number of partial pages plus the number of gaps.
+ *
+ * Not thread-safe.
+ */
+public final class SequenceBitmap {
+
+    /** Receives the gaps found by {@link #forEachGap}. */
+    public interface GapVisitor {
+        /**
+         * @param first First missing sequence
+         * @param last Last missing sequence (inclusive)
+         */
+        void gap(long first, long last);
+    }
+
+    private static final int PAGE_SHIFT = 12;
+    private static final int PAGE_BITS = 1 << PAGE_SHIFT;
+    private static final int PAGE_WORDS = PAGE_BITS / 64;
+    private static final long[] FULL = new long[0];
+
+    private long[] keys = new long[4];
+    private long[][] pages = new long[4][];
+    private int[] counts = new int[4];
+    private int pageCount;
+    private long size;
+    private long lowest = Long.MAX_VALUE;
+    private long highest = Long.MIN_VALUE;
+
+    /**
+     * @param sequence Sequence to add
+     * @return true if the sequence was not already present
+     */
+    public boolean add(long sequence) {
+        long key = sequence >> PAGE_SHIFT;
+        int index = Arrays.binarySearch(keys, 0, pageCount, key);
+        if (index < 0) {
+            index = insertPage(-index - 1, key);
+        }
+        long[] page = pages[index];
+        if (page == FULL) {
+            return false;
+        }
+        int bit = (int) (sequence & (PAGE_BITS - 1));
+        long mask = 1L << bit;
+        if ((page[bit >>> 6] & mask) != 0) {
+            return false;
+        }
+        page[bit >>> 6] |= mask;
+        if (++counts[index] == PAGE_BITS) {
+            pages[index] = FULL;
+        }
+        size++;
+        lowest = Math.min(lowest, sequence);
+        highest = Math.max(highest, sequence);
+        return true;
+    }
+
+    public boolean contains(long sequence) {
+        int index = Arrays.binarySearch(keys, 0, pageCount, sequence >> PAGE_SHIFT);
+        if (index < 0) {
+            return false;
+        }
+        long[] page = pages[index];
+        int bit = (int) (sequence & (PAGE_BITS - 1));
+        return page == FULL || (page[bit >>> 6] & 1L << bit) != 0;
+    }
+
+    private int insertPage(int index, long key) {
+        if (pageCount == keys.length) {
+            int capacity = pageCount * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            pages = Arrays.copyOf(pages, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        System.arraycopy(keys, index, keys, index + 1, pageCount - index);
+        System.arraycopy(pages, index, pages, index + 1, pageCount - index);
+        System.arraycopy(counts, index, counts, index + 1, pageCount - index);
+        keys[index] = key;
+        pages[index] = new long[PAGE_WORDS];
+        counts[index] = 0;
+        pageCount++;
+        return index;
+    }
+
+    /**
+     * @return Number of sequences in the set
+     */
+    public long size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return Smallest sequence in the set, or Long.MAX_VALUE if the set is empty
+     */
+    public long getLowest() {
+        return lowest;
+    }
+
+    /**
+     * @return Largest sequence in the set, or Long.MIN_VALUE if the set is empty
+     */
+    public long getHighest() {
+        return highest;
+    }
+
+    /**
+     * @param from First sequence expected in the set
+     * @return Number of sequences from {@code from} (or the lowest member, if smaller) up to the
+     *         highest member that are not in the set; 0 if the set is empty
+     */
+    public long countGaps(long from) {
+        if (size == 0) {
+            return 0;
+        }
+        long start = Math.min(from, lowest);
+        return highest - start + 1 - size;
+    }
+
+    /**
+     * Reports each run of missing sequences, in ascending order, from {@code from} (or the lowest
+     * member, if smaller) up to the highest member.
+     *
+     * @param from First sequence expected in the set
+     * @param visitor Receives each gap
+     */
+    public void forEachGap(long from, GapVisitor visitor) {
+        if (size == 0) {
+            return;
+        }
+        long cursor = Math.min(from, lowest);
+        for (int i = 0; i < pageCount; i++) {
+            long pageStart = keys[i] << PAGE_SHIFT;
+            long[] page = pages[i];
+            if (page == FULL) {
+                if (cursor < pageStart) {
+                    visitor.gap(cursor, pageStart - 1);
+                }
+                cursor = pageStart + PAGE_BITS;
+                continue;
+            }
+            int position = cursor > pageStart ? (int) (cursor - pageStart) : 0;
+            while (position < PAGE_BITS) {
+                int set = nextSetBit(page, position);
+                if (set < 0) {
+                    break;
+                }
+                if (cursor < pageStart + set) {
+                    visitor.gap(cursor, pageStart + set - 1);
+                }
+                position = nextClearBit(page, set);
+                cursor = pageStart + position;
+            }
+        }
+    }
+
+    /**
+     * @return Members of the set in ascending order
+     * @throws IllegalStateException if the set is too large to return in an array
+     */
+    public long[] toArray() {
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Too many sequences for an array: " + size);
+        }
+        long[] members = new long[(int) size];
+        int index = 0;
+        for (int i = 0; i < pageCount; i++) {
+            long pageStart = keys[i] << PAGE_SHIFT;
+            if (pages[i] == FULL) {
+                for (int bit = 0; bit < PAGE_BITS; bit++) {
+                    members[index++] = pageStart + bit;
+                }
+                continue;
+            }
+            for (int bit = nextSetBit(pages[i], 0); bit >= 0; bit = bit + 1 < PAGE_BITS ? nextSetBit(pages[i], bit + 1) : -1) {
+                members[index++] = pageStart + bit;
+            }
+        }
+        return members;
+    }
+
+    /**
+     * @return Bytes held by bitmap pages (full pages and array headers are not counted)
+     */
+    public long getBitmapBytes() {
+        long bytes = 0;
+        for (int i = 0; i < pageCount; i++) {
+            if (pages[i] != FULL) {
+                bytes += PAGE_WORDS * 8L;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * @return Index of the first set bit at or after {@code from}, or -1 if there is none
+     */
+    private static int nextSetBit(long[] page, int from) {
+        int word = from >>> 6;
+        long bits = page[word] & -1L << from;
+        while (true) {
+            if (bits != 0) {
+                return word * 64 + Long.numberOfTrailingZeros(bits);
+            }
+            if (++word == PAGE_WORDS) {
+                return -1;
+            }
+            bits = page[word];
+        }
+    }
+
+    /**
+     * @return Index of the first clear bit at or after {@code from}, or PAGE_BITS if there is none
+     */
+    private static int nextClearBit(long[] page, int from) {
+        int word = from >>> 6;
+        long bits = ~page[word] & -1L << from;
+        while (true) {
+            if (bits != 0) {
+                return word * 64 + Long.numberOfTrailingZeros(bits);
+            }
+            if (++word == PAGE_WORDS) {
+                return PAGE_BITS;
+            }
+            bits = ~page[word];
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.tana.migration.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream that accounts every read of the underlying stream to an {@link IoThrottle}.
+ * Wraps the file stream itself, below any buffering, so each read is one read of the file.
+ *
+ * Not thread-safe.
+ */
+public final class ThrottledInputStream extends FilterInputStream {
+
+    private final IoThrottle throttle;
+
+    /**
+     * @param in File stream to read from
+     * @param throttle Throttle the reads are accounted to
+     */
+    public ThrottledInputStream(InputStream in, IoThrottle throttle) {
+        super(in);
+        this.throttle = throttle;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b >= 0) {
+            throttle.acquire(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        int n = in.read(bytes, offset, length);
+        if (n > 0) {
+            throttle.acquire(n);
+        }
+        return n;
+    }
+}
@@ -0,0 +1,340 @@
+package com.tana.migration.util;
+
+import io.airlift.compress.MalformedInputException;
+import io.airlift.compress.zstd.ZstdDecompressor;
+import io.airlift.compress.zstd.ZstdInputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the frame layout of Zstandard data (RFC 8878) without decoding it, so frames can be delimited
+ * from their block headers, skippable frames skipped, and each frame decoded on its own by the
+ * pure-Java aircompressor decoder.
+ *
+ * Frames that use a dictionary are rejected, since exports are not compressed with one.
+ */
+final class ZstdFrames {
+
+    private static final int MAGIC = 0xFD2FB528;
+    private static final int SKIPPABLE_MAGIC = 0x184D2A50;
+    private static final int SKIPPABLE_MASK = 0xFFFFFFF0;
+    private static final int MAX_BLOCK_SIZE = 128 * 1024;
+    private static final int BLOCK_HEADER_SIZE = 3;
+    private static final int CHECKSUM_SIZE = 4;
+
+    private ZstdFrames() {
+    }
+
+    /**
+     * Reads the header of the next frame, skipping skippable frames.
+     *
+     * @return The frame's header, or null at the end of the stream
+     * @throws IOException if the stream does not continue with a frame
+     */
+    static Header nextFrame(InputStream in) throws IOException {
+        byte[] magic = new byte[4];
+        while (true) {
+            int length = ReadAheadInputStream.readFully(in, magic, 0, 4);
+            if (length == 0) {
+                return null;
+            }
+            if (length < 4) {
+                throw new EOFException("Truncated Zstandard frame header");
+            }
+            int value = readInt(magic, 0);
+            if ((value & SKIPPABLE_MASK) == SKIPPABLE_MAGIC) {
+                byte[] size = readExactly(in, 4);
+                skipExactly(in, readInt(size, 0) & 0xFFFFFFFFL);
+                continue;
+            }
+            if (value != MAGIC) {
+                throw new IOException("Not in Zstandard format");
+            }
+            return readHeader(in, magic);
+        }
+    }
+
+    /**
+     * @return Stream of a frame's bytes, from its header to the end of its last block and checksum
+     */
+    static InputStream frame(InputStream in, Header header) {
+        return new FrameInputStream(in, header);
+    }
+
+    /**
+     * Reads a whole frame into memory.
+     *
+     * @param maxLength Largest frame read; a longer frame is corrupt
+     */
+    static byte[] readFrame(InputStream in, Header header, int maxLength) throws IOException {
+        ByteArrayOutputStream frame = new ByteArrayOutputStream();
+        byte[] buffer = new byte[ReadAheadInputStream.CHUNK_SIZE];
+        try (InputStream bytes = frame(in, header)) {
+            int n;
+            while ((n = bytes.read(buffer)) > 0) {
+                frame.write(buffer, 0, n);
+                if (frame.size() > maxLength) {
+                    throw new IOException("Corrupt Zstandard frame (too many blocks)");
+                }
+            }
+        }
+        return frame.toByteArray();
+    }
+
+    /**
+     * Decodes a whole frame held in memory.
+     *
+     * @param contentSize Decoded size recorded in the frame header
+     */
+    static byte[] decode(byte[] frame, int contentSize) throws IOException {
+        byte[] content = new byte[contentSize];
+        int length;
+        try {
+            length = new ZstdDecompressor().decompress(frame, 0, frame.length, content, 0, contentSize);
+        } catch (MalformedInputException e) {
+            throw new IOException("Corrupt Zstandard frame: " + e.getMessage(), e);
+        }
+        if (length != contentSize) {
+            throw new IOException("Corrupt Zstandard frame (size mismatch)");
+        }
+        return content;
+    }
+
+    /**
+     * @return Stream decoding the bytes of one frame on the reading thread
+     */
+    static InputStream decoding(InputStream frame) {
+        return new FilterInputStream(new ZstdInputStream(frame)) {
+            @Override
+            public int read() throws IOException {
+                try {
+                    return super.read();
+                } catch (MalformedInputException e) {
+                    throw new IOException("Corrupt Zstandard frame: " + e.getMessage(), e);
+                }
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) throws IOException {
+                try {
+                    return super.read(bytes, offset, length);
+                } catch (MalformedInputException e) {
+                    throw new IOException("Corrupt Zstandard frame: " + e.getMessage(), e);
+                }
+            }
+        };
+    }
+
+    /**
+     * @return Stream decoding every frame of Zstandard data on the reading thread
+     */
+    static InputStream open(InputStream in) {
+        return new InputStream() {
+            private InputStream frame;
+            private boolean finished;
+
+            @Override
+            public int read() throws IOException {
+                byte[] single = new byte[1];
+                return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) throws IOException {
+                if (length == 0) {
+                    return 0;
+                }
+                while (!finished) {
+                    if (frame == null) {
+                        Header header = nextFrame(in);
+                        if (header == null) {
+                            finished = true;
+                            break;
+                        }
+                        frame = decoding(frame(in, header));
+                    }
+                    int n = frame.read(bytes, offset, length);
+                    if (n > 0) {
+                        return n;
+                    }
+                    frame = null;
+                }
+                return -1;
+            }
+
+            @Override
+            public void close() throws IOException {
+                in.close();
+            }
+        };
+    }
+
+    private static Header readHeader(InputStream in, byte[] magic) throws IOException {
+        int descriptor = readExactly(in, 1)[0] & 0xFF;
+        if ((descriptor & 0x08) != 0) {
+            throw new IOException("Corrupt Zstandard frame header");
+        }
+        boolean singleSegment = (descriptor & 0x20) != 0;
+        int dictionaryIdSize = new int[] {0, 1, 2, 4}[descriptor & 0x03];
+        int fcsFlag = descriptor >>> 6;
+        int contentSizeSize = fcsFlag == 0 ? (singleSegment ? 1 : 0) : 1 << fcsFlag;
+        byte[] rest = readExactly(in, (singleSegment ? 0 : 1) + dictionaryIdSize + contentSizeSize);
+
+        int offset = singleSegment ? 0 : 1;
+        if (readLittleEndian(rest, offset, dictionaryIdSize) != 0) {
+            throw new IOException("Zstandard dictionaries are not supported");
+        }
+        offset += dictionaryIdSize;
+        long contentSize = contentSizeSize == 0 ? -1 : readLittleEndian(rest, offset, contentSizeSize);
+        if (contentSizeSize == 2) {
+            contentSize += 256;
+        }
+
+        byte[] bytes = new byte[4 + 1 + rest.length];
+        System.arraycopy(magic, 0, bytes, 0, 4);
+        bytes[4] = (byte) descriptor;
+        System.arraycopy(rest, 0, bytes, 5, rest.length);
+        return new Header(bytes, contentSize, (descriptor & 0x04) != 0);
+    }
+
+    private static byte[] readExactly(InputStream in, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        if (ReadAheadInputStream.readFully(in, bytes, 0, length) < length) {
+            throw new EOFException("Truncated Zstandard frame");
+        }
+        return bytes;
+    }
+
+    private static void skipExactly(InputStream in, long length) throws IOException {
+        byte[] buffer = new byte[(int) Math.min(length, ReadAheadInputStream.CHUNK_SIZE)];
+        while (length > 0) {
+            int n = in.read(buffer, 0, (int) Math.min(length, buffer.length));
+            if (n < 0) {
+                throw new EOFException("Truncated Zstandard skippable frame");
+            }
+            length -= n;
+        }
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return (int) readLittleEndian(bytes, offset, 4);
+    }
+
+    private static long readLittleEndian(byte[] bytes, int offset, int length) {
+        long value = 0;
+        for (int i = length - 1; i >= 0; i--) {
+            value = value << 8 | (bytes[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * Header of a Zstandard frame: its bytes, and the fields needed to delimit and size the frame.
+     */
+    static final class Header {
+        private final byte[] bytes;
+        private final long contentSize;
+        private final boolean checksum;
+
+        Header(byte[] bytes, long contentSize, boolean checksum) {
+            this.bytes = bytes;
+            this.contentSize = contentSize;
+            this.checksum = checksum;
+        }
+
+        /**
+         * @return Decoded size of the frame, or -1 if the header does not record it
+         */
+        long getContentSize() {
+            return contentSize;
+        }
+    }
+
+    /**
+     * The bytes of one frame: its header, then each block and the checksum as its block headers delimit them.
+     * The source is left at the start of the next frame.
+     */
+    private static final class FrameInputStream extends InputStream {
+        private final InputStream in;
+        private final boolean checksum;
+        // Header or block header bytes not yet returned
+        private byte[] pending;
+        private int pendingPosition;
+        // Bytes of the current block, or of the checksum, still to copy from the source
+        private long remaining;
+        private boolean lastBlock;
+        private boolean finished;
+
+        FrameInputStream(InputStream in, Header header) {
+            this.in = in;
+            this.checksum = header.checksum;
+            this.pending = header.bytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            while (true) {
+                if (pendingPosition < pending.length) {
+                    int n = Math.min(length, pending.length - pendingPosition);
+                    System.arraycopy(pending, pendingPosition, bytes, offset, n);
+                    pendingPosition += n;
+                    return n;
+                }
+                if (remaining > 0) {
+                    int n = in.read(bytes, offset, (int) Math.min(length, remaining));
+                    if (n < 0) {
+                        throw new EOFException("Truncated Zstandard frame");
+                    }
+                    remaining -= n;
+                    return n;
+                }
+                if (finished) {
+                    return -1;
+                }
+                if (lastBlock) {
+                    finished = true;
+                    remaining = checksum ? CHECKSUM_SIZE : 0;
+                    continue;
+                }
+                nextBlock();
+            }
+        }
+
+        /**
+         * Reads the next block header and sets up its content to be copied.
+         */
+        private void nextBlock() throws IOException {
+            pending = readExactly(in, BLOCK_HEADER_SIZE);
+            pendingPosition = 0;
+            int blockHeader = (int) readLittleEndian(pending, 0, BLOCK_HEADER_SIZE);
+            lastBlock = (blockHeader & 1) != 0;
+            int type = blockHeader >>> 1 & 0x03;
+            int size = blockHeader >>> 3;
+            if (type == 3 || size > MAX_BLOCK_SIZE) {
+                throw new IOException("Corrupt Zstandard frame (invalid block header)");
+            }
+            // An RLE block holds one byte repeated size times
+            remaining = type == 1 ? 1 : size;
+        }
+
+        /**
+         * Leaves the source open; it continues with the next frame.
+         */
+        @Override
+        public void close() {
+        }
+    }
+}
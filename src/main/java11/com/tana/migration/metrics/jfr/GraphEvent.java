@@ -0,0 +1,51 @@
+package com.tana.migration.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event emitted by the dependency graph operations of {@code CdmMapperImpl}:
+ * cycle detection and mapping to RMJ format.
+ */
+@Name("com.tana.migration.Graph")
+@Label("Dependency Graph Operation")
+@Category({"Migration", "Mapping"})
+@Description("Cycle detection or RMJ mapping over the job dependency graph")
+@StackTrace(false)
+public class GraphEvent extends jdk.jfr.Event implements MigrationEvents.Graph {
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Compact")
+    @Description("Operation ran on the primitive CompactJob model")
+    public boolean compact;
+
+    @Label("Jobs")
+    public int jobCount;
+
+    @Label("Cycles")
+    public int cycleCount;
+
+    @Label("Mapped Jobs")
+    public int mappedJobs;
+
+    @Override
+    public boolean finish() {
+        end();
+        return shouldCommit();
+    }
+
+    @Override
+    public void commit(String operation, boolean compact, int jobCount, int cycleCount, int mappedJobs) {
+        this.operation = operation;
+        this.compact = compact;
+        this.jobCount = jobCount;
+        this.cycleCount = cycleCount;
+        this.mappedJobs = mappedJobs;
+        commit();
+    }
+}
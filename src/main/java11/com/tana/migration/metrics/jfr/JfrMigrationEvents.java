@@ -0,0 +1,41 @@
+package com.tana.migration.metrics.jfr;
+
+/**
+ * Flight Recorder implementation of {@link MigrationEvents}, loaded by name on JVMs that have {@code jdk.jfr}.
+ * Compiled for Java 11 apart from the Java 8 sources.
+ */
+final class JfrMigrationEvents extends MigrationEvents {
+
+    @Override
+    public boolean isRecording() {
+        return true;
+    }
+
+    @Override
+    public Parse beginParse() {
+        ParseEvent event = new ParseEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public Reconcile beginReconcile() {
+        ReconcileEvent event = new ReconcileEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public Graph beginGraph() {
+        GraphEvent event = new GraphEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public PartsSummary beginPartsSummary() {
+        PartsSummaryEvent event = new PartsSummaryEvent();
+        event.begin();
+        return event;
+    }
+}
@@ -0,0 +1,57 @@
+package com.tana.migration.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event emitted for every competitor file parsed.
+ * Enable with {@code -XX:StartFlightRecording} or a custom .jfc that turns on {@code com.tana.migration.Parse}.
+ */
+@Name("com.tana.migration.Parse")
+@Label("Parse Competitor File")
+@Category({"Migration", "Parsing"})
+@Description("Parsing (and optionally validating) one competitor data file")
+@StackTrace(false)
+public class ParseEvent extends jdk.jfr.Event implements MigrationEvents.Parse {
+
+    @Label("File Path")
+    public String filePath;
+
+    @Label("Format")
+    public String format;
+
+    @Label("File Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("Jobs")
+    public int jobCount;
+
+    @Label("Validated")
+    @Description("Validation was fused into the parse")
+    public boolean validated;
+
+    @Label("Succeeded")
+    public boolean success;
+
+    @Override
+    public boolean finish() {
+        end();
+        return shouldCommit();
+    }
+
+    @Override
+    public void commit(String filePath, String format, long bytes, int jobCount, boolean validated, boolean success) {
+        this.filePath = filePath;
+        this.format = format;
+        this.bytes = bytes;
+        this.jobCount = jobCount;
+        this.validated = validated;
+        this.success = success;
+        commit();
+    }
+}
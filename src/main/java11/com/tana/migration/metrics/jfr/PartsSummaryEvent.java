@@ -0,0 +1,51 @@
+package com.tana.migration.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event emitted by {@code PartsConsumptionProcessorOptimized.getSummary}.
+ */
+@Name("com.tana.migration.PartsSummary")
+@Label("Parts Consumption Summary")
+@Category({"Migration", "Parts"})
+@Description("Reading and summarising one EOD parts consumption file")
+@StackTrace(false)
+public class PartsSummaryEvent extends jdk.jfr.Event implements MigrationEvents.PartsSummary {
+
+    @Label("File Path")
+    public String filePath;
+
+    @Label("File Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("Transactions")
+    public int transactionCount;
+
+    @Label("Unique Part SKUs")
+    public int uniquePartSkus;
+
+    @Label("Succeeded")
+    public boolean success;
+
+    @Override
+    public boolean finish() {
+        end();
+        return shouldCommit();
+    }
+
+    @Override
+    public void commit(String filePath, long bytes, int transactionCount, int uniquePartSkus, boolean success) {
+        this.filePath = filePath;
+        this.bytes = bytes;
+        this.transactionCount = transactionCount;
+        this.uniquePartSkus = uniquePartSkus;
+        this.success = success;
+        commit();
+    }
+}
@@ -0,0 +1,45 @@
+package com.tana.migration.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event emitted by {@code CdmMapperImpl.reconcileData}.
+ */
+@Name("com.tana.migration.Reconcile")
+@Label("Reconcile Sources")
+@Category({"Migration", "Mapping"})
+@Description("Reconciling jobs parsed from two competitor sources")
+@StackTrace(false)
+public class ReconcileEvent extends jdk.jfr.Event implements MigrationEvents.Reconcile {
+
+    @Label("Source 1 Jobs")
+    public int source1Jobs;
+
+    @Label("Source 2 Jobs")
+    public int source2Jobs;
+
+    @Label("Reconciled Jobs")
+    public int reconciledJobs;
+
+    @Label("Conflicts")
+    public int conflicts;
+
+    @Override
+    public boolean finish() {
+        end();
+        return shouldCommit();
+    }
+
+    @Override
+    public void commit(int source1Jobs, int source2Jobs, int reconciledJobs, int conflicts) {
+        this.source1Jobs = source1Jobs;
+        this.source2Jobs = source2Jobs;
+        this.reconciledJobs = reconciledJobs;
+        this.conflicts = conflicts;
+        commit();
+    }
+}
@@ -0,0 +1,138 @@
+package com.tana.migration.factory;
+
+import com.tana.migration.CompetitorParser;
+import com.tana.migration.exception.DataAnomalyException;
+import com.tana.migration.exception.InvalidJobDataException;
+import com.tana.migration.parser.JsonCompetitorParser;
+import com.tana.migration.parser.NdjsonCompetitorParser;
+import com.tana.migration.parser.UnsupportedContentParser;
+import com.tana.migration.parser.XmlCompetitorParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ContentSniffingParserFactory.
+ */
+public class ContentSniffingParserFactoryTest {
+    
+    private final ContentSniffingParserFactory factory = new ContentSniffingParserFactory();
+    private final List<String> tempFiles = new ArrayList<>();
+    
+    @AfterEach
+    public void tearDown() {
+        for (String filePath : tempFiles) {
+            new File(filePath).delete();
+        }
+    }
+    
+    @Test
+    public void testClassify() {
+        assertEquals(ContentType.COMPETITOR_JSON_ARRAY, classify("[\n  {\n    \"job_id\": 1001"));
+        assertEquals(ContentType.COMPETITOR_JSON_ARRAY, classify("[]"));
+        assertEquals(ContentType.COMPETITOR_NDJSON, classify("{\"job_id\": 1, \"job_name\": \"A\"}\n{\"job_id\": 2"));
+        assertEquals(ContentType.PROCESS_CHAIN_XML, classify("<?xml version=\"1.0\" ?>\n<ProcessChain>"));
+        assertEquals(ContentType.DIAGNOSTIC_REPORT, classify("{\n  \"vin\": \"WDDE03EAFF783D143\","));
+        assertEquals(ContentType.EOD_PARTS_DOCUMENT, classify("{\"daily_consumption_log\": ["));
+        assertEquals(ContentType.UNKNOWN, classify("[{\"vin\": \"X\"}]"));
+        assertEquals(ContentType.UNKNOWN, classify("<Other/>"));
+        assertEquals(ContentType.UNKNOWN, classify("{\"jobId\": 1}"));
+        assertEquals(ContentType.UNKNOWN, classify("   "));
+    }
+    
+    @Test
+    public void testClassifyXmlAfterLongProlog() throws IOException, DataAnomalyException {
+        StringBuilder comment = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<!--");
+        while (comment.length() < ContentSniffingParserFactory.SNIFF_SIZE) {
+            comment.append(" Exported by the nightly scheduler.");
+        }
+        String prolog = comment.append(" -->\n").toString();
+        
+        // Cut off before the root element: left to the XML parser
+        String chain = createTempFile("sniff_long_prolog.xml", prolog + "<ProcessChain><Job id=\"1\" name=\"A\"/></ProcessChain>");
+        assertEquals(ContentType.PROCESS_CHAIN_XML, factory.detect(chain));
+        assertTrue(factory.createParser(chain) instanceof XmlCompetitorParser);
+        assertEquals(1, factory.createParser(chain).parseAndValidate(chain).size());
+        assertEquals(ContentType.PROCESS_CHAIN_XML, classify("<?xml version=\"1.0\"?>\n<!DOCTYPE ProcessChain ["));
+        // The root element decides once it is in the prefix
+        assertEquals(ContentType.PROCESS_CHAIN_XML,
+            classify("<?xml version=\"1.0\"?><!DOCTYPE ProcessChain [<!ELEMENT Job ANY>]><!-- x --><ProcessChain>"));
+        assertEquals(ContentType.UNKNOWN, classify("<?xml version=\"1.0\"?><!-- <ProcessChain> --><Other/>"));
+        assertEquals(ContentType.UNKNOWN, classify("<ProcessChainArchive>"));
+    }
+    
+    @Test
+    public void testRoutesByContentNotExtension() throws IOException {
+        String jsonWithXmlName = createTempFile("sniff_jobs.xml", "[{\"job_id\": 1, \"job_name\": \"A\"}]");
+        String xmlWithJsonName = createTempFile("sniff_chain.json", "<ProcessChain><Job id=\"1\" name=\"A\"/></ProcessChain>");
+        
+        assertTrue(factory.createParser(jsonWithXmlName) instanceof JsonCompetitorParser);
+        assertTrue(factory.createParser(xmlWithJsonName) instanceof XmlCompetitorParser);
+    }
+    
+    @Test
+    public void testRoutesNdjsonToNdjsonParser() throws IOException {
+        String ndjson = createTempFile("sniff_jobs.json", "{\"job_id\": 1, \"job_name\": \"A\"}\n{\"job_id\": 2, \"job_name\": \"B\"}\n");
+        
+        CompetitorParser parser = factory.createParser(ndjson);
+        
+        assertTrue(parser instanceof NdjsonCompetitorParser);
+        assertEquals(2, assertDoesNotThrow(() -> parser.parseAndValidate(ndjson)).size());
+        assertTrue(new FileExtensionParserFactory().createParser("/nonexistent/jobs.ndjson") instanceof NdjsonCompetitorParser);
+        assertTrue(new FileExtensionParserFactory().createParser("/nonexistent/jobs.jsonl") instanceof NdjsonCompetitorParser);
+    }
+    
+    @Test
+    public void testRejectsDiagnosticReportImmediately() throws IOException {
+        String diagFile = createTempFile("sniff_diag.json",
+            "{\"vin\": \"WDDE03EAFF783D143\", \"sequence_id\": 1, \"report_type\": \"ECU_FIRMWARE_UPDATE\"}");
+        
+        CompetitorParser parser = factory.createParser(diagFile);
+        
+        assertTrue(parser instanceof UnsupportedContentParser);
+        InvalidJobDataException e = assertThrows(InvalidJobDataException.class, () -> parser.parse(diagFile));
+        assertTrue(e.getValidationError().contains(ContentType.DIAGNOSTIC_REPORT.getDescription()));
+    }
+    
+    @Test
+    public void testRoutesContentAlreadyRead() {
+        ByteBuffer xml = ByteBuffer.wrap("<ProcessChain><Job id=\"1\" name=\"A\"/></ProcessChain>".getBytes(StandardCharsets.UTF_8));
+        ByteBuffer diag = ByteBuffer.wrap("{\"vin\": \"WDDE03EAFF783D143\"}".getBytes(StandardCharsets.UTF_8));
+        
+        // The file is never opened, so its name and existence do not matter
+        CompetitorParser parser = factory.createParser("/nonexistent/chain.json", xml);
+        assertTrue(parser instanceof XmlCompetitorParser);
+        assertEquals(1, assertDoesNotThrow(() -> parser.parseAndValidate("/nonexistent/chain.json", xml)).size());
+        assertEquals(0, xml.position());
+        assertTrue(factory.createParser("/nonexistent/diag.json", diag) instanceof UnsupportedContentParser);
+    }
+    
+    @Test
+    public void testUnreadableFileFallsBackToExtension() {
+        assertTrue(factory.createParser("/nonexistent/file.json") instanceof JsonCompetitorParser);
+        assertTrue(factory.createParser("/nonexistent/file.xml") instanceof XmlCompetitorParser);
+    }
+    
+    private ContentType classify(String prefix) {
+        byte[] bytes = prefix.getBytes(StandardCharsets.UTF_8);
+        return ContentSniffingParserFactory.classify(bytes, bytes.length);
+    }
+    
+    private String createTempFile(String fileName, String content) throws IOException {
+        String filePath = System.getProperty("java.io.tmpdir") + "/" + fileName;
+        try (FileWriter writer = new FileWriter(filePath)) {
+            writer.write(content);
+        }
+        tempFiles.add(filePath);
+        return filePath;
+    }
+}
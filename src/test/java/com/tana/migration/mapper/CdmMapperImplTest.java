@@ -2,8 +2,10 @@ package com.tana.migration.mapper;
 
 import com.tana.migration.exception.CircularDependencyException;
 import com.tana.migration.exception.DataAnomalyException;
+import com.tana.migration.model.CompactJob;
 import com.tana.migration.model.CompetitorJob;
 import com.tana.migration.model.JobDependency;
+import com.tana.migration.model.JobStringPool;
 import com.tana.migration.model.RmjJob;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -88,6 +90,52 @@ public class CdmMapperImplTest {
         });
     }
     
+    @Test
+    public void testMapCompactToRmj_MatchesBeanMapping() throws DataAnomalyException {
+        JobStringPool pool = new JobStringPool();
+        List<CompactJob> compactJobs = new ArrayList<>();
+        for (CompetitorJob job : createValidJobs()) {
+            compactJobs.add(CompactJob.from(job, pool));
+        }
+        
+        List<RmjJob> expected = mapper.mapToRmj(createValidJobs());
+        List<RmjJob> actual = mapper.mapCompactToRmj(compactJobs, pool);
+        
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getJobId(), actual.get(i).getJobId());
+            assertEquals(expected.get(i).getJobName(), actual.get(i).getJobName());
+            assertEquals(expected.get(i).getDependencyJobIds(), actual.get(i).getDependencyJobIds());
+            assertEquals(expected.get(i).getTriggerType(), actual.get(i).getTriggerType());
+        }
+    }
+    
+    @Test
+    public void testMapCompactToRmj_CircularDependency() {
+        JobStringPool pool = new JobStringPool();
+        List<CompactJob> compactJobs = new ArrayList<>();
+        for (CompetitorJob job : createCircularDependencyJobs()) {
+            compactJobs.add(CompactJob.from(job, pool));
+        }
+        
+        CircularDependencyException e = assertThrows(CircularDependencyException.class, () -> {
+            mapper.mapCompactToRmj(compactJobs, pool);
+        });
+        List<Integer> cycle = e.getCyclePath();
+        assertEquals(cycle.get(0), cycle.get(cycle.size() - 1));
+    }
+    
+    @Test
+    public void testDetectCompactCircularDependencies_NoCycle() {
+        JobStringPool pool = new JobStringPool();
+        List<CompactJob> compactJobs = new ArrayList<>();
+        for (CompetitorJob job : createValidJobs()) {
+            compactJobs.add(CompactJob.from(job, pool));
+        }
+        
+        assertTrue(mapper.detectCompactCircularDependencies(compactJobs).isEmpty());
+    }
+    
     // Helper methods to create test data
     private List<CompetitorJob> createValidJobs() {
         List<CompetitorJob> jobs = new ArrayList<>();
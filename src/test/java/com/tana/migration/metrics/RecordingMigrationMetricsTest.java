@@ -0,0 +1,119 @@
+package com.tana.migration.metrics;
+
+import com.tana.migration.exception.DataAnomalyException;
+import com.tana.migration.mapper.CdmMapperImpl;
+import com.tana.migration.model.CompetitorJob;
+import com.tana.migration.parser.JsonCompetitorParser;
+import com.tana.migration.parser.StringInternPool;
+import com.tana.migration.service.ConcurrentFileParserService;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LatencyHistogram, RecordingMigrationMetrics and their wiring into the pipeline.
+ */
+public class RecordingMigrationMetricsTest {
+
+    @Test
+    public void testHistogramPercentilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 10_000; value++) {
+            histogram.record(value * 1_000);
+        }
+
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(10_000_000, histogram.getMax());
+        assertEquals(5_000_000, histogram.getValueAtPercentile(50.0), 5_000_000 * 0.04);
+        assertEquals(9_900_000, histogram.getValueAtPercentile(99.0), 9_900_000 * 0.04);
+        assertEquals(10_000_000, histogram.getValueAtPercentile(100.0));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(50.0));
+    }
+
+    @Test
+    public void testNoOpIsDisabled() {
+        MigrationMetrics metrics = MigrationMetrics.noOp();
+        assertFalse(metrics.isEnabled());
+        assertEquals(0L, metrics.startTimer());
+    }
+
+    @Test
+    public void testServiceRecordsFilesStagesAndErrors() {
+        RecordingMigrationMetrics metrics = new RecordingMigrationMetrics(3);
+        ConcurrentFileParserService service = new ConcurrentFileParserService(4, null, metrics);
+        List<String> files = new ArrayList<>();
+        files.add(new File("src/test/resources/testdata/circular_dependency.json").getAbsolutePath());
+        files.add(new File("src/test/resources/testdata/duplicate_job_ids.json").getAbsolutePath());
+        files.add(new File("src/test/resources/testdata/contradictory_xml.xml").getAbsolutePath());
+        files.add(new File("src/test/resources/concurrency-challenge/diag_report_001.json").getAbsolutePath());
+
+        ConcurrentFileParserService.ParsingResult result;
+        try {
+            result = service.parseFiles(files);
+        } finally {
+            service.shutdown();
+        }
+
+        assertEquals(4, metrics.getFilesProcessed());
+        assertEquals(result.getErrors().size(), metrics.getFilesFailed());
+        assertEquals(result.getErrors().size(), metrics.getErrors(Stage.FILE));
+        assertEquals(result.getTotalJobsParsed(), metrics.getRecords(Stage.PARSE));
+        assertTrue(metrics.getBytesRead() > 0);
+        assertEquals(0, metrics.getQueueDepth());
+        assertTrue(metrics.getMaxQueueDepth() >= 0);
+        assertEquals(4, metrics.getLatency(Stage.FILE).getCount());
+        assertEquals(3, metrics.getSlowestFiles().length);
+    }
+
+    @Test
+    public void testMapperRecordsCycleDetectionAndMapping() throws DataAnomalyException {
+        RecordingMigrationMetrics metrics = new RecordingMigrationMetrics();
+        CdmMapperImpl mapper = new CdmMapperImpl(metrics);
+        JsonCompetitorParser parser = new JsonCompetitorParser(StringInternPool.getDefault(), metrics);
+        List<CompetitorJob> jobs = parser.parse("src/test/resources/testdata/empty_dependencies.json");
+
+        mapper.mapToRmj(jobs);
+        assertTrue(parser.check(jobs).isValid());
+
+        assertEquals(1, metrics.getLatency(Stage.PARSE).getCount());
+        assertEquals(1, metrics.getLatency(Stage.VALIDATE).getCount());
+        assertEquals(1, metrics.getLatency(Stage.CYCLE_DETECTION).getCount());
+        assertEquals(1, metrics.getLatency(Stage.MAP).getCount());
+        assertEquals(jobs.size(), metrics.getRecords(Stage.MAP));
+    }
+
+    @Test
+    public void testJmxExport() throws Exception {
+        RecordingMigrationMetrics metrics = new RecordingMigrationMetrics();
+        String name = RecordingMigrationMetrics.DEFAULT_OBJECT_NAME + ",name=test";
+        metrics.registerMBean(name);
+        try {
+            metrics.recordLatency(Stage.PARSE, 2_000_000);
+            metrics.addBytesRead(42);
+
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(name);
+            assertEquals(42L, server.getAttribute(objectName, "BytesRead"));
+            assertNotNull(server.getAttribute(objectName, "StageP99Micros"));
+            assertEquals(2_000L, metrics.getStageMaxMicros().get("PARSE").longValue());
+            assertThrows(IllegalStateException.class, () -> metrics.registerMBean(name));
+        } finally {
+            metrics.unregisterMBean();
+        }
+
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(new ObjectName(name)));
+        Map<String, Long> counts = metrics.getStageCounts();
+        assertEquals(1L, counts.get("PARSE").longValue());
+    }
+}
@@ -0,0 +1,118 @@
+package com.tana.migration.metrics.jfr;
+
+import com.tana.migration.exception.DataAnomalyException;
+import com.tana.migration.mapper.CdmMapperImpl;
+import com.tana.migration.model.CompetitorJob;
+import com.tana.migration.parser.JsonCompetitorParser;
+import com.tana.migration.parser.XmlCompetitorParser;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies that the custom Flight Recorder events are emitted with their payload.
+ */
+public class MigrationEventsTest {
+
+    private static final String JSON_FILE = "src/test/resources/testdata/empty_dependencies.json";
+    private static final String XML_FILE = "src/test/resources/testdata/contradictory_xml.xml";
+
+    @Test
+    public void testParseReconcileAndGraphEventsAreRecorded() throws Exception {
+        // Loaded in place of the no-op events, since this JVM has jdk.jfr
+        assertTrue(MigrationEvents.get().isRecording());
+        assertTrue(MigrationEvents.get().beginParse() instanceof ParseEvent);
+
+        List<RecordedEvent> events = record(() -> {
+            List<CompetitorJob> jsonJobs = new JsonCompetitorParser().parse(JSON_FILE);
+            List<CompetitorJob> xmlJobs = new XmlCompetitorParser().parse(XML_FILE);
+            CdmMapperImpl mapper = new CdmMapperImpl();
+            try {
+                mapper.reconcileData(jsonJobs, xmlJobs);
+            } catch (DataAnomalyException e) {
+                // Conflicts are reported in the event as well
+            }
+            mapper.mapToRmj(jsonJobs);
+        });
+
+        RecordedEvent jsonParse = find(events, "com.tana.migration.Parse", "JSON");
+        assertEquals(new File(JSON_FILE).getPath(), jsonParse.getString("filePath"));
+        assertEquals(new File(JSON_FILE).length(), jsonParse.getLong("bytes"));
+        assertTrue(jsonParse.getInt("jobCount") > 0);
+        assertTrue(jsonParse.getBoolean("success"));
+        assertFalse(jsonParse.getBoolean("validated"));
+        assertNotNull(find(events, "com.tana.migration.Parse", "XML"));
+
+        RecordedEvent reconcile = find(events, "com.tana.migration.Reconcile", null);
+        assertEquals(jsonParse.getInt("jobCount"), reconcile.getInt("source1Jobs"));
+
+        RecordedEvent map = findGraph(events, MigrationEvents.MAP);
+        assertEquals(jsonParse.getInt("jobCount"), map.getInt("mappedJobs"));
+        assertNotNull(findGraph(events, MigrationEvents.CYCLE_DETECTION));
+    }
+
+    @Test
+    public void testFailedParseIsRecorded() throws Exception {
+        List<RecordedEvent> events = record(() -> {
+            try {
+                new JsonCompetitorParser().parseAndValidate("src/test/resources/testdata/malformed_json.json");
+            } catch (DataAnomalyException e) {
+                // Expected
+            }
+        });
+
+        RecordedEvent parse = find(events, "com.tana.migration.Parse", "JSON");
+        assertFalse(parse.getBoolean("success"));
+        assertTrue(parse.getBoolean("validated"));
+    }
+
+    private interface Workload {
+        void run() throws Exception;
+    }
+
+    private static List<RecordedEvent> record(Workload workload) throws Exception {
+        Path dump = Files.createTempFile("migration-events", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(ParseEvent.class);
+            recording.enable(ReconcileEvent.class);
+            recording.enable(GraphEvent.class);
+            recording.enable(PartsSummaryEvent.class);
+            recording.start();
+            workload.run();
+            recording.stop();
+            recording.dump(dump);
+            return new ArrayList<>(RecordingFile.readAllEvents(dump));
+        } finally {
+            Files.deleteIfExists(dump);
+        }
+    }
+
+    private static RecordedEvent find(List<RecordedEvent> events, String type, String format) {
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals(type)
+                    && (format == null || format.equals(event.getString("format")))) {
+                return event;
+            }
+        }
+        return fail("No " + type + " event recorded");
+    }
+
+    private static RecordedEvent findGraph(List<RecordedEvent> events, String operation) {
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals("com.tana.migration.Graph")
+                    && operation.equals(event.getString("operation"))) {
+                return event;
+            }
+        }
+        return fail("No " + operation + " graph event recorded");
+    }
+}
@@ -0,0 +1,211 @@
+package com.tana.migration.output;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tana.migration.mapper.CdmMapperImpl;
+import com.tana.migration.model.CompetitorJob;
+import com.tana.migration.model.JobDependency;
+import com.tana.migration.model.RmjJob;
+import com.tana.migration.util.DirectBufferPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit and performance tests for StreamingRmjWriter.
+ * Output is compared with Jackson's serialization of the same RmjJob objects.
+ */
+public class StreamingRmjWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private File tempDir;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("rmj-output").toFile();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        File[] files = tempDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        tempDir.delete();
+    }
+
+    @Test
+    public void testJsonArrayMatchesJacksonShape() throws IOException {
+        List<RmjJob> jobs = sampleJobs();
+        String filePath = path("jobs.json");
+
+        StreamingRmjWriter.write(filePath, RmjOutputFormat.JSON_ARRAY, jobs);
+
+        assertEquals(objectMapper.valueToTree(jobs), objectMapper.readTree(new File(filePath)));
+    }
+
+    @Test
+    public void testJsonLinesHasOneJobPerLine() throws IOException {
+        List<RmjJob> jobs = sampleJobs();
+        String filePath = path("jobs.jsonl");
+
+        StreamingRmjWriter.write(filePath, RmjOutputFormat.JSON_LINES, jobs);
+
+        String content = new String(Files.readAllBytes(new File(filePath).toPath()), StandardCharsets.UTF_8);
+        assertTrue(content.endsWith("\n"));
+        String[] lines = content.split("\n");
+        assertEquals(jobs.size(), lines.length);
+        for (int i = 0; i < jobs.size(); i++) {
+            JsonNode expected = objectMapper.valueToTree(jobs.get(i));
+            assertEquals(expected, objectMapper.readTree(lines[i]));
+        }
+    }
+
+    @Test
+    public void testEmptyOutput() throws IOException {
+        StreamingRmjWriter.write(path("empty.json"), RmjOutputFormat.JSON_ARRAY, new ArrayList<>());
+        StreamingRmjWriter.write(path("empty.jsonl"), RmjOutputFormat.JSON_LINES, new ArrayList<>());
+
+        assertEquals("[]", new String(Files.readAllBytes(new File(path("empty.json")).toPath()), StandardCharsets.UTF_8));
+        assertEquals(0, new File(path("empty.jsonl")).length());
+    }
+
+    @Test
+    public void testFlushPolicy() throws IOException {
+        DirectBufferPool pool = new DirectBufferPool(4096, 2);
+
+        try (StreamingRmjWriter buffered = new StreamingRmjWriter(path("buffered.jsonl"), RmjOutputFormat.JSON_LINES,
+                StreamingRmjWriter.FLUSH_WHEN_FULL, SyncPolicy.NONE, pool)) {
+            buffered.write(new RmjJob(1, "A"));
+            buffered.write(new RmjJob(2, "B"));
+            assertEquals(0, buffered.getBytesWritten());
+        }
+        assertEquals(1, pool.getPooledCount());
+
+        try (StreamingRmjWriter flushing = new StreamingRmjWriter(path("flushing.jsonl"), RmjOutputFormat.JSON_LINES,
+                2, SyncPolicy.ON_FLUSH, pool)) {
+            assertEquals(0, pool.getPooledCount());
+            flushing.write(new RmjJob(1, "A"));
+            assertEquals(0, flushing.getBytesWritten());
+            flushing.write(new RmjJob(2, "B"));
+            assertEquals(new File(path("flushing.jsonl")).length(), flushing.getBytesWritten());
+            assertTrue(flushing.getBytesWritten() > 0);
+            assertEquals(2, flushing.getCount());
+        }
+        assertEquals(1, pool.getPooledCount());
+    }
+
+    @Test
+    public void testOutputLargerThanBuffer() throws IOException {
+        List<RmjJob> jobs = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            RmjJob job = new RmjJob(i, "Job_" + i);
+            job.setDependencyJobIds(Arrays.asList(i - 1, i - 2));
+            jobs.add(job);
+        }
+        String filePath = path("large.json");
+
+        try (StreamingRmjWriter writer = new StreamingRmjWriter(filePath, RmjOutputFormat.JSON_ARRAY,
+                StreamingRmjWriter.FLUSH_WHEN_FULL, null, new DirectBufferPool(1024, 1))) {
+            for (RmjJob job : jobs) {
+                writer.write(job);
+            }
+        }
+
+        assertEquals(objectMapper.valueToTree(jobs), objectMapper.readTree(new File(filePath)));
+    }
+
+    @Test
+    public void testWriteAfterClose() throws IOException {
+        StreamingRmjWriter writer = new StreamingRmjWriter(path("closed.json"), RmjOutputFormat.JSON_ARRAY);
+        writer.close();
+        writer.close();
+
+        assertThrows(IllegalStateException.class, () -> writer.write(new RmjJob(1, "A")));
+    }
+
+    @Test
+    public void testMapperStreamsIntoWriter() throws Exception {
+        List<CompetitorJob> competitorJobs = competitorChain(1_000);
+        CdmMapperImpl mapper = new CdmMapperImpl();
+        String filePath = path("mapped.json");
+
+        int mapped;
+        try (StreamingRmjWriter writer = new StreamingRmjWriter(filePath, RmjOutputFormat.JSON_ARRAY)) {
+            mapped = mapper.mapToRmj(competitorJobs, writer);
+        }
+
+        assertEquals(1_000, mapped);
+        assertEquals(objectMapper.valueToTree(mapper.mapToRmj(competitorJobs)), objectMapper.readTree(new File(filePath)));
+    }
+
+    @Test
+    public void testStreamingVsListSerialization_PerformanceComparison() throws Exception {
+        List<CompetitorJob> competitorJobs = competitorChain(200_000);
+        CdmMapperImpl mapper = new CdmMapperImpl();
+        String listPath = path("list.json");
+        String streamPath = path("stream.json");
+
+        // Warm up
+        objectMapper.writeValue(new File(listPath), mapper.mapToRmj(competitorJobs));
+        try (StreamingRmjWriter writer = new StreamingRmjWriter(streamPath, RmjOutputFormat.JSON_ARRAY)) {
+            mapper.mapToRmj(competitorJobs, writer);
+        }
+
+        long start = System.nanoTime();
+        objectMapper.writeValue(new File(listPath), mapper.mapToRmj(competitorJobs));
+        long listTime = (System.nanoTime() - start) / 1_000_000;
+
+        start = System.nanoTime();
+        try (StreamingRmjWriter writer = new StreamingRmjWriter(streamPath, RmjOutputFormat.JSON_ARRAY)) {
+            mapper.mapToRmj(competitorJobs, writer);
+        }
+        long streamTime = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.println("\n=== RMJ Output: " + competitorJobs.size() + " jobs ===");
+        System.out.println("Map to list + ObjectMapper: " + listTime + " ms");
+        System.out.println("Map into StreamingRmjWriter: " + streamTime + " ms (synced on close)");
+
+        assertEquals(objectMapper.readTree(new File(listPath)), objectMapper.readTree(new File(streamPath)));
+    }
+
+    private String path(String name) {
+        return new File(tempDir, name).getPath();
+    }
+
+    private static List<RmjJob> sampleJobs() {
+        RmjJob first = new RmjJob(1, "Load \"daily\" \\ files ✓");
+        first.setNotes("Line one\nline two");
+        first.setTriggerType("MANUAL");
+        RmjJob second = new RmjJob(2, "Report");
+        second.setDependencyJobIds(Arrays.asList(1, null, -7));
+        RmjJob third = new RmjJob(null, null);
+        third.setDependencyJobIds(null);
+        return Arrays.asList(first, second, third);
+    }
+
+    private static List<CompetitorJob> competitorChain(int count) {
+        List<CompetitorJob> jobs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            CompetitorJob job = new CompetitorJob(i, "Job_" + i);
+            job.setNotes("Batch " + i % 5);
+            if (i > 0) {
+                job.addDependency(new JobDependency(i - 1, "Success"));
+            }
+            jobs.add(job);
+        }
+        return jobs;
+    }
+}
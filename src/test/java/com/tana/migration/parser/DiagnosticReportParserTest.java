@@ -0,0 +1,137 @@
+package com.tana.migration.parser;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tana.migration.exception.InvalidJobDataException;
+import com.tana.migration.exception.SchemaMismatchException;
+import com.tana.migration.model.DiagnosticReport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DiagnosticReportParser.
+ * Reports are compared with Jackson's binding of the same files to DiagnosticReport.
+ */
+public class DiagnosticReportParserTest {
+
+    private static final String REPORT_1 = "{\"vin\": \"V1\", \"sequence_id\": 1, \"report_type\": \"INITIAL_DIAGNOSTIC\", "
+        + "\"timestamp_utc\": 1690000100, \"status_code\": \"WARN\"}";
+    private static final String REPORT_2 = "{\"vin\": \"V2\", \"sequence_id\": 2, \"report_type\": \"FINAL_VALIDATION\", "
+        + "\"timestamp_utc\": 1690000200, \"status_code\": \"OK\"}";
+
+    private File tempDir;
+    private DiagnosticReportParser parser;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("diag-parser").toFile();
+        parser = new DiagnosticReportParser();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        File[] files = tempDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        tempDir.delete();
+    }
+
+    @Test
+    public void testResourceFilesMatchJacksonBinding() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        File[] files = new File("src/test/resources/concurrency-challenge")
+            .listFiles((dir, name) -> name.startsWith("diag_report_"));
+        assertNotNull(files);
+        assertEquals(90, files.length);
+
+        for (File file : files) {
+            List<DiagnosticReport> reports = parser.parse(file.getPath());
+
+            DiagnosticReport expected = objectMapper.readValue(file, DiagnosticReport.class);
+            assertEquals(1, reports.size());
+            assertEquals(expected, reports.get(0));
+            assertEquals(file.getPath(), reports.get(0).getSourceFile());
+        }
+    }
+
+    @Test
+    public void testArrayAndLineDelimitedFiles() throws Exception {
+        List<DiagnosticReport> array = parser.parse(writeFile("array.json", "[" + REPORT_1 + ", null, " + REPORT_2 + "]"));
+        List<DiagnosticReport> lines = parser.parse(writeFile("lines.ndjson", REPORT_1 + "\n\n" + REPORT_2 + "\n"));
+
+        assertEquals(2, array.size());
+        assertEquals(array, lines);
+        assertEquals("V2", lines.get(1).getVin());
+        assertEquals(Long.valueOf(1690000200), lines.get(1).getTimestampUtc());
+    }
+
+    @Test
+    public void testStringsAreInternedAndNumericStringsAccepted() throws Exception {
+        String filePath = writeFile("strings.json", "[" + REPORT_1 + ", {\"vin\": \"V3\", \"report_type\": \"INITIAL_DIAGNOSTIC\", "
+            + "\"timestamp_utc\": \"1690000300\", \"status_code\": \"WARN\"}]");
+
+        List<DiagnosticReport> reports = parser.parse(filePath);
+
+        assertSame(reports.get(0).getReportType(), reports.get(1).getReportType());
+        assertSame(reports.get(0).getStatusCode(), reports.get(1).getStatusCode());
+        assertEquals(Long.valueOf(1690000300), reports.get(1).getTimestampUtc());
+        assertNull(reports.get(1).getSequenceId());
+    }
+
+    @Test
+    public void testGzipFile() throws Exception {
+        File file = new File(tempDir, "reports.json.gz");
+        try (OutputStream out = new GZIPOutputStream(new FileOutputStream(file))) {
+            out.write((REPORT_1 + "\n" + REPORT_2).getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertEquals(2, parser.parse(file.getPath()).size());
+    }
+
+    @Test
+    public void testCompetitorFileIsSchemaMismatch() throws Exception {
+        String filePath = writeFile("jobs.json", "[{\"job_id\": 1, \"job_name\": \"A\", \"dependencies\": []}]");
+
+        SchemaMismatchException e = assertThrows(SchemaMismatchException.class, () -> parser.parse(filePath));
+        assertTrue(e.getActualContent().startsWith("unknown report field"));
+    }
+
+    @Test
+    public void testInvalidReports() throws Exception {
+        String missing = writeFile("missing.json", "{\"vin\": \"V1\", \"report_type\": \"X\", \"timestamp_utc\": 1}");
+        String badNumber = writeFile("bad.json", "{\"vin\": \"V1\", \"report_type\": \"X\", \"timestamp_utc\": \"soon\", \"status_code\": \"OK\"}");
+        String empty = writeFile("empty.json", "[]");
+        String truncated = writeFile("truncated.json", "[" + REPORT_1);
+
+        InvalidJobDataException e = assertThrows(InvalidJobDataException.class, () -> parser.parse(missing));
+        assertEquals("Report 0 missing required field: status_code", e.getValidationError());
+        assertThrows(InvalidJobDataException.class, () -> parser.parse(badNumber));
+        assertThrows(InvalidJobDataException.class, () -> parser.parse(empty));
+        assertThrows(InvalidJobDataException.class, () -> parser.parse(truncated));
+        assertThrows(InvalidJobDataException.class, () -> parser.parse(new File(tempDir, "none.json").getPath()));
+        assertThrows(SchemaMismatchException.class, () -> parser.parse(writeFile("scalar.json", "42")));
+    }
+
+    private String writeFile(String name, String content) throws IOException {
+        File file = new File(tempDir, name);
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write(content);
+        }
+        return file.getPath();
+    }
+}
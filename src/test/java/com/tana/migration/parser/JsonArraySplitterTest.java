@@ -0,0 +1,132 @@
+package com.tana.migration.parser;
+
+import com.tana.migration.model.CompetitorJob;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for JsonArraySplitter and JsonCompetitorParser.parseRange.
+ */
+public class JsonArraySplitterTest {
+
+    private File tempDir;
+    private JsonCompetitorParser parser;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("json-splitter").toFile();
+        parser = new JsonCompetitorParser();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        File[] files = tempDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        tempDir.delete();
+    }
+
+    @Test
+    public void testRangesParseToSameJobsAsWholeFile() throws Exception {
+        StringBuilder json = new StringBuilder("\n[\n");
+        for (int i = 1; i <= 200; i++) {
+            if (i > 1) {
+                json.append(",\n");
+            }
+            // Brackets, braces, commas and escaped quotes inside strings must not affect the split
+            json.append("  {\"job_id\": ").append(i)
+                .append(", \"job_name\": \"Job [").append(i).append("], {x}\"")
+                .append(", \"notes\": \"say \\\"hi\\\", \\\\\"")
+                .append(", \"dependencies\": [");
+            if (i > 1) {
+                json.append("{\"job_id\": ").append(i - 1).append("}");
+            }
+            json.append("]}");
+        }
+        String filePath = writeFile("jobs.json", json.append("\n]\n").toString());
+
+        List<JsonArraySplitter.Range> ranges = JsonArraySplitter.split(filePath, 1024);
+        assertTrue(ranges.size() > 1);
+
+        List<CompetitorJob> expected = parser.parse(filePath);
+        List<CompetitorJob> actual = new ArrayList<>();
+        long previousEnd = -1;
+        for (JsonArraySplitter.Range range : ranges) {
+            assertTrue(range.getStart() > previousEnd);
+            previousEnd = range.getEnd();
+            actual.addAll(parser.parseRange(filePath, range));
+        }
+
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getJobId(), actual.get(i).getJobId());
+            assertEquals(expected.get(i).getJobName(), actual.get(i).getJobName());
+            assertEquals(expected.get(i).getNotes(), actual.get(i).getNotes());
+            assertEquals(expected.get(i).getDependencies().size(), actual.get(i).getDependencies().size());
+            assertEquals(filePath, actual.get(i).getSourceFile());
+        }
+    }
+
+    @Test
+    public void testSmallFileIsOneRange() throws Exception {
+        String filePath = writeFile("small.json", "[{\"job_id\": 1}, {\"job_id\": 2}]");
+
+        List<JsonArraySplitter.Range> ranges = JsonArraySplitter.split(filePath, 1024 * 1024);
+
+        assertEquals(1, ranges.size());
+        try (InputStream in = JsonArraySplitter.openRange(filePath, ranges.get(0).getStart(), ranges.get(0).getEnd())) {
+            assertEquals("[{\"job_id\": 1}, {\"job_id\": 2}]", new String(readAll(in), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testEmptyArrayHasNoRanges() throws Exception {
+        assertTrue(JsonArraySplitter.split(writeFile("empty.json", " [ ] "), 1).isEmpty());
+    }
+
+    @Test
+    public void testNonArrayInputHasNoRanges() throws Exception {
+        assertTrue(JsonArraySplitter.split(writeFile("object.json", "{\"job_id\": 1}"), 1).isEmpty());
+        assertTrue(JsonArraySplitter.split(writeFile("unclosed.json", "[{\"job_id\": 1},"), 1).isEmpty());
+        assertTrue(JsonArraySplitter.split(writeFile("trailing.json", "[{\"job_id\": 1}] x"), 1).isEmpty());
+    }
+
+    @Test
+    public void testInvalidChunkSize() {
+        assertThrows(IllegalArgumentException.class, () -> JsonArraySplitter.split("any.json", 0));
+    }
+
+    private String writeFile(String name, String content) throws IOException {
+        File file = new File(tempDir, name);
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write(content);
+        }
+        return file.getAbsolutePath();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[256];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+}
@@ -2,7 +2,10 @@ package com.tana.migration.parser;
 
 import com.tana.migration.exception.DataAnomalyException;
 import com.tana.migration.exception.InvalidJobDataException;
+import com.tana.migration.exception.SchemaMismatchException;
+import com.tana.migration.model.CompactJob;
 import com.tana.migration.model.CompetitorJob;
+import com.tana.migration.model.JobStringPool;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -190,6 +193,181 @@ public class JsonCompetitorParserTest {
         assertTrue(true);
     }
     
+    // Compact Representation Tests
+    @Test
+    public void testParseCompact() throws DataAnomalyException {
+        JobStringPool pool = new JobStringPool();
+        List<CompactJob> jobs = parser.parseCompact(testJsonFile, pool);
+        
+        assertEquals(2, jobs.size());
+        CompactJob job1 = jobs.get(0);
+        assertEquals(1001, job1.getJobId());
+        assertEquals("Test_Job_1", pool.get(job1.getNameRef()));
+        assertEquals("Test notes", pool.get(job1.getNotesRef()));
+        assertEquals(testJsonFile, pool.get(job1.getSourceRef()));
+        assertEquals(1, job1.getDependencyCount());
+        assertEquals(1002, job1.getDependencyId(0));
+        assertEquals("Success", pool.getStatus(job1.getDependencyStatus(0)));
+    }
+    
+    @Test
+    public void testParseCompact_SharesRepeatedStrings() throws DataAnomalyException {
+        JobStringPool pool = new JobStringPool();
+        String circularFile = getTestResourcePath("testdata/circular_dependency.json");
+        List<CompactJob> jobs = parser.parseCompact(circularFile, pool);
+        
+        assertEquals(4, jobs.size());
+        // "Part of cycle" notes appear three times but are stored once
+        assertEquals(jobs.get(1).getNotesRef(), jobs.get(2).getNotesRef());
+        assertEquals(jobs.get(2).getNotesRef(), jobs.get(3).getNotesRef());
+        assertEquals(jobs.get(0).getDependencyStatus(0), jobs.get(1).getDependencyStatus(0));
+    }
+    
+    @Test
+    public void testParseCompact_MatchesBeanParse() throws DataAnomalyException {
+        JobStringPool pool = new JobStringPool();
+        String circularFile = getTestResourcePath("testdata/circular_dependency.json");
+        List<CompetitorJob> beans = parser.parse(circularFile);
+        List<CompactJob> compact = parser.parseCompact(circularFile, pool);
+        
+        for (int i = 0; i < beans.size(); i++) {
+            CompetitorJob expanded = compact.get(i).toCompetitorJob(pool);
+            assertEquals(beans.get(i).getJobId(), expanded.getJobId());
+            assertEquals(beans.get(i).getJobName(), expanded.getJobName());
+            assertEquals(beans.get(i).getNotes(), expanded.getNotes());
+            assertEquals(beans.get(i).getDependencies(), expanded.getDependencies());
+        }
+    }
+    
+    @Test
+    public void testParseCompact_NullJobId() {
+        String nullValuesFile = getTestResourcePath("testdata/null_values.json");
+        assertThrows(InvalidJobDataException.class, () -> {
+            parser.parseCompact(nullValuesFile, new JobStringPool());
+        });
+    }
+    
+    @Test
+    public void testParseCompact_RejectsMalformedDependencies() throws IOException, DataAnomalyException {
+        String[][] shapes = {
+            {"null element", "[null, {\"job_id\": 2, \"status\": \"Success\"}]", "Null dependency"},
+            {"number element", "[2]", "Expected a dependency object but found number"},
+            {"nested array", "[[{\"job_id\": 2}]]", "Expected a dependency object but found array"},
+            {"string", "\"2\"", "Expected an array of dependencies but found string"},
+            {"object", "{\"job_id\": 2}", "Expected an array of dependencies but found object"}
+        };
+        String malformed = System.getProperty("java.io.tmpdir") + "/test_malformed_dependencies.json";
+        try {
+            for (String[] shape : shapes) {
+                try (FileWriter writer = new FileWriter(malformed)) {
+                    // Fields after dependencies must not be read out of sync
+                    writer.write("[{\"job_id\": 1, \"dependencies\": " + shape[1] + ", \"job_name\": \"A\"},"
+                        + " {\"job_id\": 2, \"job_name\": \"B\"}]");
+                }
+                InvalidJobDataException e = assertThrows(InvalidJobDataException.class,
+                    () -> parser.parseCompact(malformed, new JobStringPool()), shape[0]);
+                assertEquals(shape[2], e.getValidationError(), shape[0]);
+                assertEquals(Integer.valueOf(1), e.getJobId(), shape[0]);
+            }
+            
+            try (FileWriter writer = new FileWriter(malformed)) {
+                writer.write("[{\"job_id\": 1, \"dependencies\": null, \"job_name\": \"A\"}]");
+            }
+            List<CompactJob> jobs = parser.parseCompact(malformed, new JobStringPool());
+            assertEquals(0, jobs.get(0).getDependencyCount());
+        } finally {
+            new File(malformed).delete();
+        }
+    }
+    
+    @Test
+    public void testParseAndValidate_ReportsNullDependency() throws IOException {
+        String nullDependency = System.getProperty("java.io.tmpdir") + "/test_null_dependency.json";
+        try (FileWriter writer = new FileWriter(nullDependency)) {
+            writer.write("[{\"job_id\": 1, \"job_name\": \"A\", \"dependencies\": [null]}]");
+        }
+        try {
+            InvalidJobDataException e = assertThrows(InvalidJobDataException.class,
+                () -> parser.parseAndValidate(nullDependency));
+            assertTrue(e.getMessage().contains("Job 1 has null dependency"), e.getMessage());
+        } finally {
+            new File(nullDependency).delete();
+        }
+    }
+    
+    // Fused Parse-and-Validate Tests
+    @Test
+    public void testParseAndValidate_ValidFile() throws DataAnomalyException {
+        List<CompetitorJob> fused = parser.parseAndValidate(testJsonFile);
+        List<CompetitorJob> separate = parser.parse(testJsonFile);
+        
+        assertEquals(separate, fused);
+        assertEquals(testJsonFile, fused.get(0).getSourceFile());
+    }
+    
+    @Test
+    public void testParseAndValidate_MatchesValidateErrors() throws DataAnomalyException {
+        for (String resource : new String[] {"testdata/duplicate_job_ids.json", "testdata/null_values.json"}) {
+            String file = getTestResourcePath(resource);
+            InvalidJobDataException separate = assertThrows(InvalidJobDataException.class, () -> {
+                parser.validate(parser.parse(file));
+            });
+            InvalidJobDataException fused = assertThrows(InvalidJobDataException.class, () -> {
+                parser.parseAndValidate(file);
+            });
+            assertEquals(separate.getMessage(), fused.getMessage());
+        }
+    }
+    
+    @Test
+    public void testParseAndValidate_EmptyArray() {
+        String emptyArrayFile = getTestResourcePath("testdata/empty_array.json");
+        assertThrows(InvalidJobDataException.class, () -> {
+            parser.parseAndValidate(emptyArrayFile);
+        });
+    }
+    
+    // Schema Mismatch Tests
+    @Test
+    public void testParseDiagnosticReport_SchemaMismatch() {
+        String diagFile = getTestResourcePath("concurrency-challenge/diag_report_001.json");
+        SchemaMismatchException e = assertThrows(SchemaMismatchException.class, () -> {
+            parser.parse(diagFile);
+        });
+        assertEquals("root object", e.getActualContent());
+    }
+    
+    @Test
+    public void testParseUnknownFirstJobField_SchemaMismatch() throws IOException {
+        String wrongFields = System.getProperty("java.io.tmpdir") + "/test_wrong_fields.json";
+        try (FileWriter writer = new FileWriter(wrongFields)) {
+            writer.write("[{\"vin\": \"WDDE03EAFF783D143\", \"sequence_id\": 1}]");
+        }
+        try {
+            SchemaMismatchException e = assertThrows(SchemaMismatchException.class, () -> {
+                parser.parse(wrongFields);
+            });
+            assertEquals("unknown job field 'vin'", e.getActualContent());
+            assertThrows(SchemaMismatchException.class, () -> parser.checkSchema(wrongFields));
+        } finally {
+            new File(wrongFields).delete();
+        }
+    }
+    
+    @Test
+    public void testCheckSchema_ValidFile() {
+        assertDoesNotThrow(() -> parser.checkSchema(testJsonFile));
+        assertDoesNotThrow(() -> parser.checkSchema(getTestResourcePath("testdata/empty_array.json")));
+    }
+    
+    @Test
+    public void testParseMalformedJson() {
+        String malformedFile = getTestResourcePath("testdata/malformed_json.json");
+        assertThrows(InvalidJobDataException.class, () -> {
+            parser.parse(malformedFile);
+        });
+    }
+    
     // Error Handling Tests
     @Test
     public void testParseNonExistentFile() {
@@ -0,0 +1,233 @@
+package com.tana.migration.parser;
+
+import com.tana.migration.exception.InvalidJobDataException;
+import com.tana.migration.exception.SchemaMismatchException;
+import com.tana.migration.model.CompactJob;
+import com.tana.migration.model.CompetitorJob;
+import com.tana.migration.model.JobStringPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit and performance tests for NdjsonCompetitorParser and NdjsonSplitter.
+ * Results are compared with JsonCompetitorParser on the same jobs written as a JSON array.
+ */
+public class NdjsonCompetitorParserTest {
+
+    private File tempDir;
+    private NdjsonCompetitorParser parser;
+    private JsonCompetitorParser arrayParser;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("ndjson-parser").toFile();
+        parser = new NdjsonCompetitorParser();
+        arrayParser = new JsonCompetitorParser();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        File[] files = tempDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        tempDir.delete();
+    }
+
+    @Test
+    public void testParseMatchesJsonArray() throws Exception {
+        List<String> lines = jobLines(50);
+        String ndjson = writeFile("jobs.ndjson", String.join("\n", lines) + "\n");
+        String array = writeFile("jobs.json", "[" + String.join(",\n", lines) + "]");
+
+        assertSameJobs(arrayParser.parseAndValidate(array), parser.parseAndValidate(ndjson), ndjson);
+    }
+
+    @Test
+    public void testBlankLinesAndCrlf() throws Exception {
+        String filePath = writeFile("crlf.ndjson",
+            "\r\n{\"job_id\": 1, \"job_name\": \"A\"}\r\n\r\n{\"job_id\": 2, \"job_name\": \"B\", "
+                + "\"dependencies\": [{\"job_id\": 1, \"status\": \"Success\"}]}");
+
+        List<CompetitorJob> jobs = parser.parseAndValidate(filePath);
+
+        assertEquals(2, jobs.size());
+        assertEquals("Success", jobs.get(1).getDependencies().get(0).getStatus());
+    }
+
+    @Test
+    public void testEmptyFile() throws Exception {
+        String filePath = writeFile("empty.ndjson", "\n");
+
+        assertTrue(parser.parse(filePath).isEmpty());
+        assertThrows(InvalidJobDataException.class, () -> parser.parseAndValidate(filePath));
+        assertTrue(NdjsonSplitter.split(writeFile("zero.ndjson", ""), 1).isEmpty());
+    }
+
+    @Test
+    public void testDuplicateIdRejected() throws Exception {
+        String filePath = writeFile("dup.ndjson", "{\"job_id\": 1, \"job_name\": \"A\"}\n{\"job_id\": 1, \"job_name\": \"B\"}\n");
+
+        InvalidJobDataException e = assertThrows(InvalidJobDataException.class, () -> parser.parseAndValidate(filePath));
+        assertTrue(e.getMessage().contains("Duplicate job_id found: 1"));
+    }
+
+    @Test
+    public void testSchemaMismatch() throws Exception {
+        String array = writeFile("array.ndjson", "[{\"job_id\": 1, \"job_name\": \"A\"}]");
+        String unknownField = writeFile("unknown.ndjson", "{\"vin\": \"X\"}\n");
+
+        SchemaMismatchException e = assertThrows(SchemaMismatchException.class, () -> parser.parse(array));
+        assertEquals("root array", e.getActualContent());
+        assertThrows(SchemaMismatchException.class, () -> parser.parse(unknownField));
+        assertThrows(SchemaMismatchException.class, () -> parser.checkSchema(unknownField));
+        assertThrows(SchemaMismatchException.class, () -> parser.parseCompact(unknownField, new JobStringPool()));
+    }
+
+    @Test
+    public void testParseCompactMatchesParse() throws Exception {
+        String filePath = writeFile("compact.ndjson", String.join("\n", jobLines(20)));
+        JobStringPool pool = new JobStringPool();
+
+        List<CompactJob> compactJobs = parser.parseCompact(filePath, pool);
+        List<CompetitorJob> jobs = parser.parse(filePath);
+
+        assertEquals(jobs.size(), compactJobs.size());
+        for (int i = 0; i < jobs.size(); i++) {
+            assertEquals(jobs.get(i).getJobId().intValue(), compactJobs.get(i).getJobId());
+            assertEquals(jobs.get(i).getJobName(), pool.get(compactJobs.get(i).getNameRef()));
+            assertEquals(jobs.get(i).getDependencies().size(), compactJobs.get(i).getDependencyCount());
+        }
+    }
+
+    @Test
+    public void testRangesParseToSameJobsAsWholeFile() throws Exception {
+        String filePath = writeFile("split.ndjson", String.join("\n", jobLines(300)) + "\n");
+
+        List<JsonArraySplitter.Range> ranges = parser.split(filePath, 1024);
+        assertTrue(ranges.size() > 1);
+
+        List<CompetitorJob> actual = new ArrayList<>();
+        long previousEnd = 0;
+        for (JsonArraySplitter.Range range : ranges) {
+            assertEquals(previousEnd, range.getStart());
+            previousEnd = range.getEnd();
+            actual.addAll(parser.parseRange(filePath, range));
+        }
+        assertEquals(new File(filePath).length(), previousEnd);
+        assertSameJobs(parser.parse(filePath), actual, filePath);
+    }
+
+    @Test
+    public void testPrettyPrintedObjectsSplitBetweenObjects() throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int i = 1; i <= 100; i++) {
+            // Line breaks inside an object, and "}" / "{" inside strings, are not job boundaries
+            content.append("{\n  \"job_id\": ").append(i).append(",\n  \"job_name\": \"Job }\\n{ ").append(i)
+                .append("\",\n  \"dependencies\": [\n    {\"job_id\": ").append(i + 1000).append("},\n    {\"job_id\": ")
+                .append(i + 2000).append("}\n  ]\n}\n");
+        }
+        String filePath = writeFile("pretty.ndjson", content.toString());
+
+        List<JsonArraySplitter.Range> ranges = NdjsonSplitter.split(filePath, 500);
+        assertTrue(ranges.size() > 1);
+
+        List<CompetitorJob> actual = new ArrayList<>();
+        for (JsonArraySplitter.Range range : ranges) {
+            actual.addAll(parser.parseRange(filePath, range));
+        }
+        assertSameJobs(parser.parse(filePath), actual, filePath);
+    }
+
+    @Test
+    public void testFileWithoutBoundaryIsOneRange() throws Exception {
+        String filePath = writeFile("single.ndjson", "{\"job_id\": 1, \"job_name\": \"A long job name that spans the chunk\"}\n");
+
+        List<JsonArraySplitter.Range> ranges = NdjsonSplitter.split(filePath, 8);
+
+        assertEquals(1, ranges.size());
+        assertEquals(new File(filePath).length(), ranges.get(0).getLength());
+    }
+
+    @Test
+    public void testInvalidChunkSize() {
+        assertThrows(IllegalArgumentException.class, () -> NdjsonSplitter.split("any.ndjson", 0));
+    }
+
+    @Test
+    public void testSplitCost_NdjsonVsJsonArray() throws Exception {
+        List<String> lines = jobLines(200_000);
+        String ndjson = writeFile("large.ndjson", String.join("\n", lines) + "\n");
+        String array = writeFile("large.json", "[" + String.join(",\n", lines) + "]");
+        long chunkSize = new File(ndjson).length() / 8;
+
+        // Warm up
+        JsonArraySplitter.split(array, chunkSize);
+        NdjsonSplitter.split(ndjson, chunkSize);
+
+        long start = System.nanoTime();
+        List<JsonArraySplitter.Range> arrayRanges = JsonArraySplitter.split(array, chunkSize);
+        long arrayTime = (System.nanoTime() - start) / 1_000;
+
+        start = System.nanoTime();
+        List<JsonArraySplitter.Range> lineRanges = NdjsonSplitter.split(ndjson, chunkSize);
+        long lineTime = (System.nanoTime() - start) / 1_000;
+
+        int parsed = 0;
+        for (JsonArraySplitter.Range range : lineRanges) {
+            parsed += parser.parseRange(ndjson, range).size();
+        }
+
+        System.out.println("\n=== Split Cost: " + new File(ndjson).length() / 1024 + " KB, " + lines.size() + " jobs ===");
+        System.out.println("JsonArraySplitter (full scan): " + arrayTime + " us, " + arrayRanges.size() + " ranges");
+        System.out.println("NdjsonSplitter (seek to line): " + lineTime + " us, " + lineRanges.size() + " ranges");
+
+        assertTrue(lineRanges.size() > 1);
+        assertEquals(lines.size(), parsed);
+    }
+
+    private static List<String> jobLines(int count) {
+        List<String> lines = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            StringBuilder line = new StringBuilder("{\"job_id\": ").append(i)
+                .append(", \"job_name\": \"Job ").append(i).append("\", \"notes\": \"Batch ").append(i % 5)
+                .append("\", \"dependencies\": [");
+            if (i > 1) {
+                line.append("{\"job_id\": ").append(i - 1).append(", \"status\": \"Success\"}");
+            }
+            lines.add(line.append("]}").toString());
+        }
+        return lines;
+    }
+
+    private static void assertSameJobs(List<CompetitorJob> expected, List<CompetitorJob> actual, String sourceFile) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getJobId(), actual.get(i).getJobId());
+            assertEquals(expected.get(i).getJobName(), actual.get(i).getJobName());
+            assertEquals(expected.get(i).getNotes(), actual.get(i).getNotes());
+            assertEquals(expected.get(i).getDependencies().size(), actual.get(i).getDependencies().size());
+            assertEquals(sourceFile, actual.get(i).getSourceFile());
+        }
+    }
+
+    private String writeFile(String name, String content) throws IOException {
+        File file = new File(tempDir, name);
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write(content);
+        }
+        return file.getAbsolutePath();
+    }
+}
@@ -0,0 +1,197 @@
+package com.tana.migration.parser;
+
+import com.tana.migration.exception.DataAnomalyException;
+import com.tana.migration.model.CompetitorJob;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for StringInternPool and its use by the JSON and XML parsers.
+ */
+public class StringInternPoolTest {
+
+    @Test
+    public void testInternReturnsSharedInstance() {
+        StringInternPool pool = new StringInternPool();
+        String first = pool.intern(StringInternPool.Field.NOTES, new String("Part of cycle"));
+        String second = pool.intern(StringInternPool.Field.NOTES, new String("Part of cycle"));
+
+        assertSame(first, second);
+        StringInternPool.Stats stats = pool.getStats(StringInternPool.Field.NOTES);
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getMisses());
+        assertEquals(1, stats.getSize());
+    }
+
+    @Test
+    public void testPolicyBounds() {
+        Map<StringInternPool.Field, StringInternPool.Policy> policies = new EnumMap<>(StringInternPool.Field.class);
+        policies.put(StringInternPool.Field.JOB_NAME, StringInternPool.Policy.bounded(2, 5));
+        policies.put(StringInternPool.Field.NOTES, StringInternPool.Policy.disabled());
+        StringInternPool pool = new StringInternPool(policies);
+
+        String a = pool.intern(StringInternPool.Field.JOB_NAME, new String("a"));
+        pool.intern(StringInternPool.Field.JOB_NAME, "b");
+        // Evicts the generation holding "a"
+        String c = pool.intern(StringInternPool.Field.JOB_NAME, new String("c"));
+        assertSame(c, pool.intern(StringInternPool.Field.JOB_NAME, new String("c")));
+        assertNotSame(a, pool.intern(StringInternPool.Field.JOB_NAME, new String("a")));
+        String tooLong = new String("abcdefgh");
+        assertSame(tooLong, pool.intern(StringInternPool.Field.JOB_NAME, tooLong));
+        pool.intern(StringInternPool.Field.NOTES, "note");
+
+        assertEquals(2, pool.getStats(StringInternPool.Field.JOB_NAME).getSize());
+        assertEquals(1, pool.getStats(StringInternPool.Field.JOB_NAME).getBypassed());
+        assertEquals(2, pool.getStats(StringInternPool.Field.JOB_NAME).getEvicted());
+        assertEquals(0, pool.getStats(StringInternPool.Field.NOTES).getSize());
+        assertNull(pool.intern(StringInternPool.Field.NOTES, null));
+    }
+
+    @Test
+    public void testConcurrentInterningStaysBounded() throws Exception {
+        Map<StringInternPool.Field, StringInternPool.Policy> policies = new EnumMap<>(StringInternPool.Field.class);
+        policies.put(StringInternPool.Field.JOB_NAME, StringInternPool.Policy.bounded(50, 64));
+        StringInternPool pool = new StringInternPool(policies);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        pool.intern(StringInternPool.Field.JOB_NAME, "Job_" + (i % 100));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        StringInternPool.Stats stats = pool.getStats(StringInternPool.Field.JOB_NAME);
+        assertTrue(stats.getSize() <= 50, "Size " + stats.getSize());
+        assertEquals(8000, stats.getHits() + stats.getMisses() + stats.getBypassed());
+    }
+
+    @Test
+    public void testLaterMigrationsKeepInterning() {
+        Map<StringInternPool.Field, StringInternPool.Policy> policies = new EnumMap<>(StringInternPool.Field.class);
+        policies.put(StringInternPool.Field.JOB_NAME, StringInternPool.Policy.bounded(1_000, 64));
+        StringInternPool pool = new StringInternPool(policies);
+        for (int i = 0; i < 1_000; i++) {
+            pool.intern(StringInternPool.Field.JOB_NAME, "First_" + i);
+        }
+        // A value in use across migrations survives them
+        String shared = pool.intern(StringInternPool.Field.JOB_NAME, new String("Shared"));
+
+        for (int migration = 0; migration < 3; migration++) {
+            for (int i = 0; i < 400; i++) {
+                pool.intern(StringInternPool.Field.JOB_NAME, "Run_" + migration + "_" + i);
+            }
+            assertSame(shared, pool.intern(StringInternPool.Field.JOB_NAME, new String("Shared")));
+        }
+        String name = pool.intern(StringInternPool.Field.JOB_NAME, new String("Run_2_7"));
+
+        assertSame(name, pool.intern(StringInternPool.Field.JOB_NAME, new String("Run_2_7")));
+        StringInternPool.Stats stats = pool.getStats(StringInternPool.Field.JOB_NAME);
+        assertTrue(stats.getSize() <= 1_000, "Size " + stats.getSize());
+        assertTrue(stats.getEvicted() >= 1_000, "Evicted " + stats.getEvicted());
+        assertEquals(0, stats.getBypassed());
+    }
+
+    @Test
+    public void testClearWhileInterning() throws Exception {
+        Map<StringInternPool.Field, StringInternPool.Policy> policies = new EnumMap<>(StringInternPool.Field.class);
+        policies.put(StringInternPool.Field.JOB_NAME, StringInternPool.Policy.bounded(100, 64));
+        StringInternPool pool = new StringInternPool(policies);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 20_000; i++) {
+                        pool.intern(StringInternPool.Field.JOB_NAME, "Job_" + (i % 300));
+                    }
+                }));
+            }
+            for (int i = 0; i < 50; i++) {
+                pool.clear();
+                assertTrue(pool.getStats(StringInternPool.Field.JOB_NAME).getSize() <= 100);
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertTrue(pool.getStats(StringInternPool.Field.JOB_NAME).getSize() <= 100);
+        pool.clear();
+        assertEquals(0, pool.getStats(StringInternPool.Field.JOB_NAME).getSize());
+        String value = pool.intern(StringInternPool.Field.JOB_NAME, new String("Job_1"));
+        assertSame(value, pool.intern(StringInternPool.Field.JOB_NAME, new String("Job_1")));
+    }
+
+    @Test
+    public void testParsersShareInstancesAcrossFiles() throws IOException, DataAnomalyException {
+        StringInternPool pool = new StringInternPool();
+        JsonCompetitorParser jsonParser = new JsonCompetitorParser(pool);
+        String content = "[{\"job_id\": 1, \"job_name\": \"Load\", " +
+                "\"dependencies\": [{\"job_id\": 2, \"status\": \"Success\"}], \"notes\": \"Part of cycle\"}]";
+        String file1 = writeTempFile("intern_pool_1.json", content);
+        String file2 = writeTempFile("intern_pool_2.json", content);
+
+        try {
+            CompetitorJob job1 = jsonParser.parse(file1).get(0);
+            CompetitorJob job2 = jsonParser.parse(file2).get(0);
+
+            assertSame(job1.getNotes(), job2.getNotes());
+            assertSame(job1.getJobName(), job2.getJobName());
+            assertSame(job1.getDependencies().get(0).getStatus(), job2.getDependencies().get(0).getStatus());
+            assertEquals(1, pool.getStats(StringInternPool.Field.DEPENDENCY_STATUS).getHits());
+        } finally {
+            new File(file1).delete();
+            new File(file2).delete();
+        }
+    }
+
+    @Test
+    public void testSourceFilesAreNotInternedByDefault() throws IOException, DataAnomalyException {
+        StringInternPool pool = new StringInternPool();
+        JsonCompetitorParser jsonParser = new JsonCompetitorParser(pool);
+        String file = writeTempFile("intern_pool_source.json",
+                "[{\"job_id\": 1, \"job_name\": \"Load\"}, {\"job_id\": 2, \"job_name\": \"Load\"}]");
+
+        try {
+            List<CompetitorJob> jobs = jsonParser.parse(file);
+
+            // Jobs of one file still share their path, but paths do not fill the pool
+            assertSame(jobs.get(0).getSourceFile(), jobs.get(1).getSourceFile());
+            assertFalse(StringInternPool.Policy.defaultFor(StringInternPool.Field.SOURCE_FILE).isEnabled());
+            assertEquals(0, pool.getStats(StringInternPool.Field.SOURCE_FILE).getSize());
+        } finally {
+            new File(file).delete();
+        }
+    }
+
+    private String writeTempFile(String fileName, String content) throws IOException {
+        String filePath = System.getProperty("java.io.tmpdir") + "/" + fileName;
+        try (FileWriter writer = new FileWriter(filePath)) {
+            writer.write(content);
+        }
+        return filePath;
+    }
+}
@@ -2,7 +2,9 @@ package com.tana.migration.parser;
 
 import com.tana.migration.exception.DataAnomalyException;
 import com.tana.migration.exception.InvalidJobDataException;
+import com.tana.migration.model.CompactJob;
 import com.tana.migration.model.CompetitorJob;
+import com.tana.migration.model.JobStringPool;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -53,6 +55,21 @@ public class XmlCompetitorParserTest {
         assertEquals(Integer.valueOf(2001), job3100.getDependencies().get(0).getDependentJobId());
     }
     
+    @Test
+    public void testParseCompact() throws DataAnomalyException {
+        String xmlFile = getTestResourcePath("testdata/contradictory_xml.xml");
+        JobStringPool pool = new JobStringPool();
+        List<CompactJob> jobs = parser.parseCompact(xmlFile, pool);
+        
+        assertEquals(4, jobs.size());
+        assertEquals(2001, jobs.get(0).getJobId());
+        assertEquals("Backup_Production_Databases_Oracle", pool.get(jobs.get(0).getNameRef()));
+        assertEquals(0, jobs.get(0).getDependencyCount());
+        assertEquals(3100, jobs.get(1).getJobId());
+        assertEquals(2001, jobs.get(1).getDependencyId(0));
+        assertEquals(JobStringPool.NO_STATUS, jobs.get(1).getDependencyStatus(0));
+    }
+    
     // Edge Case Tests - Empty XML
     @Test
     public void testParseEmptyXml() throws DataAnomalyException {
@@ -92,6 +109,62 @@ public class XmlCompetitorParserTest {
         assertEquals(Integer.valueOf(9999), job1001.getDependencies().get(0).getDependentJobId());
     }
     
+    // Fused Parse-and-Validate Tests
+    @Test
+    public void testParseAndValidate_MatchesParse() throws DataAnomalyException {
+        String xmlFile = getTestResourcePath("testdata/contradictory_xml.xml");
+        List<CompetitorJob> separate = parser.parse(xmlFile);
+        List<CompetitorJob> fused = parser.parseAndValidate(xmlFile);
+        
+        assertEquals(separate.size(), fused.size());
+        for (int i = 0; i < separate.size(); i++) {
+            assertEquals(separate.get(i).getJobId(), fused.get(i).getJobId());
+            assertEquals(separate.get(i).getJobName(), fused.get(i).getJobName());
+            assertEquals(separate.get(i).getDependencies(), fused.get(i).getDependencies());
+            assertEquals(xmlFile, fused.get(i).getSourceFile());
+        }
+    }
+    
+    @Test
+    public void testParseAndValidate_EmptyXml() {
+        String emptyXmlFile = getTestResourcePath("testdata/empty_xml.xml");
+        assertThrows(InvalidJobDataException.class, () -> {
+            parser.parseAndValidate(emptyXmlFile);
+        });
+    }
+    
+    @Test
+    public void testParseAndValidate_DuplicateIds() throws java.io.IOException {
+        String xmlFile = System.getProperty("java.io.tmpdir") + "/test_duplicate_ids.xml";
+        try (java.io.FileWriter writer = new java.io.FileWriter(xmlFile)) {
+            writer.write("<ProcessChain><Job name=\"A\" id=\"1\"/><Job name=\"B\" id=\"1\"/></ProcessChain>");
+        }
+        try {
+            InvalidJobDataException e = assertThrows(InvalidJobDataException.class, () -> {
+                parser.parseAndValidate(xmlFile);
+            });
+            assertEquals("Duplicate job id found: 1", e.getValidationError());
+        } finally {
+            new java.io.File(xmlFile).delete();
+        }
+    }
+    
+    @Test
+    public void testParseAndValidate_RejectsOtherRootElement() throws java.io.IOException {
+        String xmlFile = System.getProperty("java.io.tmpdir") + "/test_other_root.xml";
+        try (java.io.FileWriter writer = new java.io.FileWriter(xmlFile)) {
+            writer.write("<Archive><Job name=\"A\" id=\"1\"/></Archive>");
+        }
+        try {
+            InvalidJobDataException e = assertThrows(InvalidJobDataException.class, () -> {
+                parser.parseAndValidate(xmlFile);
+            });
+            assertEquals("Unrecognized root element: Archive", e.getValidationError());
+        } finally {
+            new java.io.File(xmlFile).delete();
+        }
+    }
+    
     // Error Handling Tests
     @Test
     public void testParseNonExistentFile() {
@@ -0,0 +1,207 @@
+package com.tana.migration.service;
+
+import com.tana.migration.CompetitorParser;
+import com.tana.migration.exception.DataAnomalyException;
+import com.tana.migration.factory.ContentSniffingParserFactory;
+import com.tana.migration.factory.ParserFactory;
+import com.tana.migration.metrics.RecordingMigrationMetrics;
+import com.tana.migration.model.CompetitorJob;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Unit and performance tests for AdaptiveThreadPool.
+ * Slow storage is simulated by parsers that wait before reading their file.
+ */
+public class AdaptiveThreadPoolTest {
+
+    private File tempDir;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("adaptive-pool").toFile();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        File[] files = tempDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        tempDir.delete();
+    }
+
+    @Test
+    public void testNextPoolSizeSteps() {
+        // Compute-bound: stays at the number of cores
+        assertEquals(4, AdaptiveThreadPool.nextPoolSize(4, 1, 32, 4, 0.0));
+        // Wait/compute 3 on 4 cores targets 16: one thread at a time
+        assertEquals(5, AdaptiveThreadPool.nextPoolSize(4, 1, 32, 4, 3.0));
+        // Too many threads: a quarter at a time, not below the target
+        assertEquals(12, AdaptiveThreadPool.nextPoolSize(16, 1, 32, 4, 0.0));
+        assertEquals(4, AdaptiveThreadPool.nextPoolSize(5, 1, 32, 4, 0.0));
+        // Bounds
+        assertEquals(32, AdaptiveThreadPool.nextPoolSize(32, 1, 32, 4, 100.0));
+        assertEquals(6, AdaptiveThreadPool.nextPoolSize(6, 6, 32, 4, 0.0));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveThreadPool(4, 2));
+    }
+
+    @Test
+    public void testGrowsForBlockingTasks() throws Exception {
+        RecordingMigrationMetrics metrics = new RecordingMigrationMetrics();
+        AdaptiveThreadPool pool = new AdaptiveThreadPool(1, 16, 8, metrics, 1);
+        assumeTrue(pool.isAdaptive());
+        try {
+            assertEquals(1, metrics.getPoolSize());
+            runAll(pool, 400, () -> sleep(5));
+
+            assertTrue(pool.getCorePoolSize() > 8, "Pool size " + pool.getCorePoolSize());
+            assertTrue(pool.getWaitComputeRatio() > 1.0);
+            assertEquals(pool.getCorePoolSize(), metrics.getPoolSize());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testSettlesAtCoresForComputeBoundTasks() throws Exception {
+        AdaptiveThreadPool pool = new AdaptiveThreadPool(1, 16, 8, null, 1);
+        assumeTrue(pool.isAdaptive());
+        try {
+            runAll(pool, 300, () -> spin(2));
+
+            // CPU stolen by other processes can look like waiting for a while, but is corrected once the core is busy
+            assertTrue(pool.getCorePoolSize() <= 2, "Pool size " + pool.getCorePoolSize());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testAdaptiveServiceOnSlowStorage_PerformanceComparison() throws IOException {
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            files.add(writeJobs("slow_" + i + ".json", i * 1_000, 200));
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+        ParserFactory slowStorage = slowStorage(new ContentSniffingParserFactory(), 10);
+        RecordingMigrationMetrics metrics = new RecordingMigrationMetrics();
+
+        ConcurrentFileParserService fixed = new ConcurrentFileParserService(cores, slowStorage);
+        ConcurrentFileParserService adaptive = ConcurrentFileParserService.builder().threadPoolSize(1).maxThreadPoolSize(64)
+            .parserFactory(slowStorage).metrics(metrics).build();
+        try {
+            // Warm up; also lets the adaptive pool find its size
+            fixed.parseFiles(files);
+            adaptive.parseFiles(files);
+
+            long start = System.nanoTime();
+            ConcurrentFileParserService.ParsingResult fixedResult = fixed.parseFiles(files);
+            long fixedTime = (System.nanoTime() - start) / 1_000_000;
+
+            start = System.nanoTime();
+            ConcurrentFileParserService.ParsingResult adaptiveResult = adaptive.parseFiles(files);
+            long adaptiveTime = (System.nanoTime() - start) / 1_000_000;
+
+            System.out.println("\n=== Adaptive Pool: " + files.size() + " files, 10 ms storage latency each ===");
+            System.out.println("Fixed pool of " + cores + " threads: " + fixedTime + " ms");
+            System.out.println("Adaptive pool (1-64 threads): " + adaptiveTime + " ms, settled on "
+                + adaptive.getThreadPoolSize() + " threads");
+
+            assertFalse(adaptiveResult.hasErrors());
+            assertEquals(fixedResult.getTotalJobsParsed(), adaptiveResult.getTotalJobsParsed());
+            assertEquals(adaptive.getThreadPoolSize(), metrics.getPoolSize());
+        } finally {
+            fixed.shutdown();
+            adaptive.shutdown();
+        }
+    }
+
+    private static void runAll(AdaptiveThreadPool pool, int tasks, Runnable task) throws Exception {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < tasks; i++) {
+            futures.add(pool.submit(task));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Wraps each parser so that reading a file first waits, like a high-latency network file system.
+     */
+    private static ParserFactory slowStorage(ParserFactory delegate, long latencyMillis) {
+        return filePath -> {
+            CompetitorParser parser = delegate.createParser(filePath);
+            return new CompetitorParser() {
+                @Override
+                public List<CompetitorJob> parse(String path) throws DataAnomalyException {
+                    sleep(latencyMillis);
+                    return parser.parse(path);
+                }
+
+                @Override
+                public List<CompetitorJob> parseAndValidate(String path) throws DataAnomalyException {
+                    sleep(latencyMillis);
+                    return parser.parseAndValidate(path);
+                }
+
+                @Override
+                public void validate(List<CompetitorJob> jobs) throws DataAnomalyException {
+                    parser.validate(jobs);
+                }
+            };
+        };
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void spin(long millis) {
+        long end = System.nanoTime() + millis * 1_000_000;
+        long sink = 0;
+        while (System.nanoTime() < end) {
+            sink += sink * 31 + 7;
+        }
+        if (sink == 42) {
+            System.out.println(sink);
+        }
+    }
+
+    private String writeJobs(String fileName, int firstJobId, int jobCount) throws IOException {
+        File file = new File(tempDir, fileName);
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write('[');
+            for (int i = 0; i < jobCount; i++) {
+                if (i > 0) {
+                    writer.write(",\n");
+                }
+                int jobId = firstJobId + i;
+                writer.write("{\"job_id\": " + jobId + ", \"job_name\": \"Job_" + jobId
+                    + "\", \"dependencies\": [], \"notes\": \"\"}");
+            }
+            writer.write(']');
+        }
+        return file.getPath();
+    }
+}
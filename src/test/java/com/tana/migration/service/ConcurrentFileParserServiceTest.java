@@ -1,6 +1,11 @@
 package com.tana.migration.service;
 
+import com.tana.migration.exception.DataAnomalyException;
+import com.tana.migration.factory.ContentSniffingParserFactory;
+import com.tana.migration.factory.ParserFactory;
 import com.tana.migration.model.CompetitorJob;
+import com.tana.migration.parser.JsonArraySplitter;
+import com.tana.migration.parser.JsonCompetitorParser;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -8,9 +13,14 @@ import org.junit.jupiter.api.Test;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -135,7 +145,318 @@ public class ConcurrentFileParserServiceTest {
         }
     }
     
+    @Test
+    public void testParseFiles_LargestFileSubmittedFirst() throws IOException {
+        String small = createTempJsonFile("sched_small.json", 3001, "Small");
+        String large = createTempJsonArray("sched_large.json", 4000, 50);
+        List<String> submitted = Collections.synchronizedList(new ArrayList<>());
+        ParserFactory delegate = new ContentSniffingParserFactory();
+        ParserFactory recording = filePath -> {
+            submitted.add(filePath);
+            return delegate.createParser(filePath);
+        };
+        
+        ConcurrentFileParserService largestFirst = new ConcurrentFileParserService(1, recording);
+        ConcurrentFileParserService.ParsingResult result;
+        try {
+            result = largestFirst.parseFiles(Arrays.asList(small, large));
+        } finally {
+            largestFirst.shutdown();
+        }
+        
+        assertEquals(Arrays.asList(large, small), submitted);
+        // Results stay in input order
+        assertEquals(Integer.valueOf(3001), result.getJobs().get(0).getJobId());
+        assertEquals(51, result.getTotalJobsParsed());
+        
+        submitted.clear();
+        ConcurrentFileParserService inOrder = ConcurrentFileParserService.builder().threadPoolSize(1)
+            .parserFactory(recording).schedulingOrder(ScheduledFile.SUBMISSION_ORDER).build();
+        try {
+            inOrder.parseFiles(Arrays.asList(small, large));
+        } finally {
+            inOrder.shutdown();
+        }
+        assertEquals(Arrays.asList(small, large), submitted);
+    }
+    
+    @Test
+    public void testParseFiles_SplitFileMatchesWholeFile() throws IOException {
+        String large = createTempJsonArray("split_large.json", 5000, 500);
+        List<String> filePaths = Arrays.asList(tempFiles.get(0), large, tempFiles.get(2));
+        
+        ConcurrentFileParserService splitting = ConcurrentFileParserService.builder().threadPoolSize(4).splitThreshold(1024).build();
+        ConcurrentFileParserService.ParsingResult split;
+        try {
+            split = splitting.parseFiles(filePaths);
+        } finally {
+            splitting.shutdown();
+        }
+        ConcurrentFileParserService.ParsingResult whole = service.parseFiles(filePaths);
+        
+        assertFalse(split.hasErrors());
+        assertEquals(502, split.getTotalJobsParsed());
+        assertEquals(whole.getJobs().size(), split.getJobs().size());
+        for (int i = 0; i < whole.getJobs().size(); i++) {
+            assertEquals(whole.getJobs().get(i).getJobId(), split.getJobs().get(i).getJobId());
+        }
+    }
+    
+    @Test
+    public void testParseFiles_SmallFilesParsedWhileLargeFileIsSplit() throws IOException {
+        String small = createTempJsonFile("split_small.json", 3001, "Small");
+        String large = createTempJsonArray("split_while.json", 6000, 500);
+        CountDownLatch smallParsed = new CountDownLatch(1);
+        AtomicBoolean splitOverlapped = new AtomicBoolean();
+        ParserFactory factory = filePath -> filePath.equals(large)
+            ? new JsonCompetitorParser() {
+                @Override
+                public List<JsonArraySplitter.Range> split(String path, long chunkSize) throws IOException {
+                    // Only returns early if the small file is parsed while the large one is being split
+                    try {
+                        splitOverlapped.set(smallParsed.await(5, TimeUnit.SECONDS));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return super.split(path, chunkSize);
+                }
+            }
+            : new JsonCompetitorParser() {
+                @Override
+                public List<CompetitorJob> parseAndValidate(String path) throws DataAnomalyException {
+                    List<CompetitorJob> jobs = super.parseAndValidate(path);
+                    smallParsed.countDown();
+                    return jobs;
+                }
+            };
+        
+        ConcurrentFileParserService splitting = ConcurrentFileParserService.builder().threadPoolSize(2)
+            .parserFactory(factory).schedulingOrder(ScheduledFile.LARGEST_FIRST).splitThreshold(1024).build();
+        ConcurrentFileParserService.ParsingResult result;
+        try {
+            result = splitting.parseFiles(Arrays.asList(small, large));
+        } finally {
+            splitting.shutdown();
+        }
+        
+        assertTrue(splitOverlapped.get(), "Small file waited for the large file to be split");
+        assertFalse(result.hasErrors());
+        assertEquals(501, result.getTotalJobsParsed());
+        assertEquals(Integer.valueOf(3001), result.getJobs().get(0).getJobId());
+        assertEquals(Integer.valueOf(6000), result.getJobs().get(1).getJobId());
+    }
+    
+    @Test
+    public void testParseFiles_SplitFileValidatedAcrossRanges() throws IOException {
+        // Last job repeats the first id, so the duplicate is in a different range
+        StringBuilder json = jsonArray(6000, 300);
+        json.setLength(json.length() - 1);
+        json.append(", {\"job_id\": 6000, \"job_name\": \"Again\", \"dependencies\": []}]");
+        String filePath = writeTempFile("split_duplicate.json", json.toString());
+        
+        ConcurrentFileParserService splitting = ConcurrentFileParserService.builder().threadPoolSize(4).splitThreshold(1024).build();
+        ConcurrentFileParserService.ParsingResult result;
+        try {
+            result = splitting.parseFiles(Arrays.asList(filePath));
+        } finally {
+            splitting.shutdown();
+        }
+        
+        assertEquals(0, result.getTotalJobsParsed());
+        assertEquals(1, result.getErrors().size());
+        assertTrue(result.getErrors().get(0).getErrorMessage().contains("Duplicate job_id found: 6000"));
+    }
+    
+    @Test
+    public void testParseFiles_NdjsonSplitAndValidatedAcrossRanges() throws IOException {
+        String valid = writeTempFile("split_lines.ndjson", jsonLines(8000, 300, 8300));
+        // Last job repeats the first id, so the duplicate is in a different range
+        String duplicate = writeTempFile("split_lines_duplicate.ndjson", jsonLines(9000, 300, 9000));
+        
+        ConcurrentFileParserService splitting = ConcurrentFileParserService.builder().threadPoolSize(4).splitThreshold(1024).build();
+        ConcurrentFileParserService.ParsingResult result;
+        try {
+            result = splitting.parseFiles(Arrays.asList(valid, duplicate));
+        } finally {
+            splitting.shutdown();
+        }
+        
+        assertEquals(301, result.getTotalJobsParsed());
+        assertEquals(Integer.valueOf(8000), result.getJobs().get(0).getJobId());
+        assertEquals(Integer.valueOf(8300), result.getJobs().get(300).getJobId());
+        assertEquals(1, result.getErrors().size());
+        assertEquals(duplicate, result.getErrors().get(0).getFilePath());
+        assertTrue(result.getErrors().get(0).getErrorMessage().contains("Duplicate job_id found: 9000"));
+    }
+    
+    @Test
+    public void testInvalidSplitThreshold() {
+        assertThrows(IllegalArgumentException.class,
+            () -> ConcurrentFileParserService.builder().splitThreshold(0).build());
+    }
+    
+    @Test
+    public void testParseDirectories_IncludeAndExcludeGlobs() throws IOException {
+        File root = Files.createTempDirectory("ingest").toFile();
+        try {
+            writeTreeFile(root, "a.json", "[{\"job_id\": 7001, \"job_name\": \"A\", \"dependencies\": []}]");
+            writeTreeFile(root, "drop/2024/b.json", "[{\"job_id\": 7002, \"job_name\": \"B\", \"dependencies\": []}]");
+            writeTreeFile(root, "drop/c.xml", "<ProcessChain><Job id=\"7003\" name=\"C\"/></ProcessChain>");
+            writeTreeFile(root, "drop/readme.txt", "not a job file");
+            writeTreeFile(root, "archive/old.json", "[{\"job_id\": 7004, \"job_name\": \"Old\", \"dependencies\": []}]");
+            
+            ConcurrentFileParserService.ParsingResult result = service.parseDirectories(
+                Arrays.asList(root.getPath()), Arrays.asList("*.json", "*.xml"), Arrays.asList("archive"));
+            
+            assertFalse(result.hasErrors());
+            List<Integer> jobIds = new ArrayList<>();
+            for (CompetitorJob job : result.getJobs()) {
+                jobIds.add(job.getJobId());
+            }
+            // Path order: a.json, drop/2024/b.json, drop/c.xml
+            assertEquals(Arrays.asList(7001, 7002, 7003), jobIds);
+            
+            ConcurrentFileParserService.ParsingResult relative = service.parseDirectories(
+                Arrays.asList(root.getPath()), Arrays.asList("drop/**.json"), null);
+            assertEquals(1, relative.getTotalJobsParsed());
+            assertEquals(Integer.valueOf(7002), relative.getJobs().get(0).getJobId());
+        } finally {
+            deleteTree(root);
+        }
+    }
+    
+    @Test
+    public void testParseDirectories_MissingRoot() {
+        ConcurrentFileParserService.ParsingResult result = service.parseDirectories(
+            Arrays.asList("/nonexistent/export/drop"), null, null);
+        
+        assertEquals(0, result.getTotalJobsParsed());
+        assertEquals(1, result.getErrors().size());
+        assertEquals("Directory not found", result.getErrors().get(0).getErrorMessage());
+    }
+    
+    @Test
+    public void testParseDirectories_FileRoot() {
+        ConcurrentFileParserService.ParsingResult result = service.parseDirectories(tempFiles, null, null);
+        
+        assertFalse(result.hasErrors());
+        assertEquals(3, result.getTotalJobsParsed());
+    }
+
+    @Test
+    public void testParseDiagnosticReports_AggregatesValidFiles() throws IOException {
+        String first = writeTempFile("diag_a.json",
+            "{\"vin\": \"V1\", \"sequence_id\": 1, \"report_type\": \"INITIAL_DIAGNOSTIC\", "
+                + "\"timestamp_utc\": 100, \"status_code\": \"WARN\"}");
+        String second = writeTempFile("diag_b.ndjson",
+            "{\"vin\": \"V1\", \"sequence_id\": 2, \"report_type\": \"FINAL_VALIDATION\", \"timestamp_utc\": 200, \"status_code\": \"OK\"}\n"
+                + "{\"vin\": \"V2\", \"sequence_id\": 1, \"report_type\": \"INITIAL_DIAGNOSTIC\", \"timestamp_utc\": 150, \"status_code\": \"ERR\"}\n");
+        String invalid = writeTempFile("diag_c.json", "{\"vin\": \"V3\", \"report_type\": \"INITIAL_DIAGNOSTIC\"}");
+        DiagnosticAggregator aggregator = new DiagnosticAggregator();
+
+        ConcurrentFileParserService.DiagnosticParsingResult result = service.parseDiagnosticReports(
+            Arrays.asList(first, tempFiles.get(0), second, invalid), aggregator);
+
+        assertEquals(3, result.getReportsParsed());
+        assertEquals(2, result.getErrors().size());
+        assertEquals(tempFiles.get(0), result.getErrors().get(0).getFilePath());
+        assertTrue(result.getErrors().get(1).getErrorMessage().contains("missing required field: timestamp_utc"));
+        assertEquals(3, aggregator.getReportCount());
+        assertEquals("OK", aggregator.getLatestStatus("V1").getStatusCode());
+        assertNull(aggregator.getLatestStatus("V3"));
+    }
+
+    @Test
+    public void testParseFiles_ReadStageMatchesDirectReads() throws IOException {
+        createTempJsonArray("staged_large.json", 6000, 300);
+        writeTempFile("staged_diag.json", "{\"vin\": \"V1\", \"report_type\": \"INITIAL_DIAGNOSTIC\"}");
+        List<String> filePaths = new ArrayList<>(tempFiles);
+        filePaths.add("/nonexistent/file.json");
+        
+        // Two buffers for six files, and the large file does not fit in one
+        FileReadStage readStage = new FileReadStage(1, 2, 4096);
+        ConcurrentFileParserService staged = ConcurrentFileParserService.builder().threadPoolSize(2)
+            .readStage(readStage).build();
+        ConcurrentFileParserService.ParsingResult result;
+        try {
+            result = staged.parseFiles(filePaths);
+        } finally {
+            staged.shutdown();
+            readStage.shutdown();
+        }
+        ConcurrentFileParserService.ParsingResult direct = service.parseFiles(filePaths);
+        
+        assertEquals(303, result.getTotalJobsParsed());
+        assertEquals(direct.getJobs().size(), result.getJobs().size());
+        for (int i = 0; i < direct.getJobs().size(); i++) {
+            assertEquals(direct.getJobs().get(i).getJobId(), result.getJobs().get(i).getJobId());
+            assertEquals(direct.getJobs().get(i).getSourceFile(), result.getJobs().get(i).getSourceFile());
+        }
+        assertEquals(direct.getErrors().size(), result.getErrors().size());
+        for (int i = 0; i < direct.getErrors().size(); i++) {
+            assertEquals(direct.getErrors().get(i).getErrorMessage(), result.getErrors().get(i).getErrorMessage());
+        }
+        assertEquals(0, readStage.getBufferedCount());
+    }
+
     // Helper methods
+    private void writeTreeFile(File root, String relativePath, String content) throws IOException {
+        File file = new File(root, relativePath);
+        file.getParentFile().mkdirs();
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write(content);
+        }
+    }
+    
+    private void deleteTree(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteTree(child);
+            }
+        }
+        file.delete();
+    }
+    
+    private String createTempJsonArray(String fileName, int firstJobId, int jobCount) throws IOException {
+        return writeTempFile(fileName, jsonArray(firstJobId, jobCount).toString());
+    }
+    
+    private StringBuilder jsonArray(int firstJobId, int jobCount) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < jobCount; i++) {
+            if (i > 0) {
+                json.append(", ");
+            }
+            json.append(String.format(
+                "{\"job_id\": %d, \"job_name\": \"Job_%d\", \"dependencies\": [], \"notes\": \"\"}",
+                firstJobId + i, firstJobId + i));
+        }
+        return json.append(']');
+    }
+    
+    /**
+     * One job per line; the last line repeats lastJobId.
+     */
+    private String jsonLines(int firstJobId, int jobCount, int lastJobId) {
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < jobCount; i++) {
+            lines.append(String.format("{\"job_id\": %d, \"job_name\": \"Job_%d\", \"dependencies\": []}\n",
+                firstJobId + i, firstJobId + i));
+        }
+        return lines.append(String.format("{\"job_id\": %d, \"job_name\": \"Last\"}\n", lastJobId)).toString();
+    }
+    
+    private String writeTempFile(String fileName, String content) throws IOException {
+        String filePath = System.getProperty("java.io.tmpdir") + "/" + fileName;
+        try (FileWriter writer = new FileWriter(filePath)) {
+            writer.write(content);
+        }
+        
+        tempFiles.add(filePath);
+        return filePath;
+    }
+    
     private String createTempJsonFile(String fileName, int jobId, String jobName) throws IOException {
         String filePath = System.getProperty("java.io.tmpdir") + "/" + fileName;
         File file = new File(filePath);
@@ -0,0 +1,504 @@
+package com.tana.migration.service;
+
+import com.tana.migration.CompetitorParser;
+import com.tana.migration.exception.DataAnomalyException;
+import com.tana.migration.factory.ContentSniffingParserFactory;
+import com.tana.migration.factory.ParserFactory;
+import com.tana.migration.metrics.LatencyHistogram;
+import com.tana.migration.model.CompetitorJob;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Unit and performance tests for DeadlinePolicy and the timeouts and hedged attempts of
+ * ConcurrentFileParserService. Hung and slow storage is simulated by parsers that wait before
+ * reading their file.
+ */
+public class DeadlinePolicyTest {
+
+    private File tempDir;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("deadline-policy").toFile();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        File[] files = tempDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        tempDir.delete();
+    }
+
+    @Test
+    public void testHedgeDelayFromPeerPercentile() {
+        DeadlinePolicy policy = new DeadlinePolicy(1_000, 99.0, 10);
+        LatencyHistogram peers = new LatencyHistogram();
+        for (int i = 1; i <= 9; i++) {
+            peers.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        // Too few peers
+        assertEquals(-1, policy.hedgeDelayNanos(peers));
+
+        for (int i = 10; i <= 100; i++) {
+            peers.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        long delay = policy.hedgeDelayNanos(peers);
+        assertTrue(Math.abs(delay - TimeUnit.MILLISECONDS.toNanos(99)) < TimeUnit.MILLISECONDS.toNanos(4), "Delay " + delay);
+
+        // Never hedged after the timeout, nor without hedging
+        assertEquals(-1, new DeadlinePolicy(50, 99.0, 10).hedgeDelayNanos(peers));
+        assertEquals(-1, new DeadlinePolicy(1_000).hedgeDelayNanos(peers));
+        assertTrue(DeadlinePolicy.withHedging(DeadlinePolicy.NO_TIMEOUT).isHedging());
+        assertThrows(IllegalArgumentException.class, () -> new DeadlinePolicy(0));
+        assertThrows(IllegalArgumentException.class, () -> new DeadlinePolicy(1_000, 150.0, 10));
+    }
+
+    @Test
+    public void testHungReadTimesOutWithoutHoldingUpTheBatch() throws Exception {
+        List<String> files = new ArrayList<>();
+        // Largest, so it is scheduled first and takes the only thread
+        String hung = writeJobs("hung.json", 0, 500);
+        files.add(hung);
+        for (int i = 1; i <= 5; i++) {
+            files.add(writeJobs("batch_" + i + ".json", i * 1_000, 100));
+        }
+        CountDownLatch mountRecovers = new CountDownLatch(1);
+        ParserFactory storage = delayed(new ContentSniffingParserFactory(), (path, attempt) -> {
+            if (path.equals(hung)) {
+                awaitUninterruptibly(mountRecovers);
+            }
+        });
+
+        ConcurrentFileParserService service = ConcurrentFileParserService.builder().threadPoolSize(1)
+            .parserFactory(storage).deadlinePolicy(new DeadlinePolicy(200)).build();
+        try {
+            long start = System.nanoTime();
+            ConcurrentFileParserService.ParsingResult result = service.parseFiles(files);
+            long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+            assertTrue(elapsed < 5_000, "Batch took " + elapsed + " ms");
+            assertEquals(500, result.getTotalJobsParsed());
+            assertEquals(1, result.getErrors().size());
+            assertEquals(hung, result.getErrors().get(0).getFilePath());
+            assertTrue(result.getErrors().get(0).getErrorMessage().contains("Timed out after 200 ms"));
+            assertEquals(1, result.getTimeouts());
+            // The stuck thread is replaced until it returns
+            assertEquals(2, service.getThreadPoolSize());
+
+            mountRecovers.countDown();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (service.getThreadPoolSize() > 1 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, service.getThreadPoolSize());
+        } finally {
+            mountRecovers.countDown();
+            service.shutdown();
+        }
+    }
+
+    @Test
+    public void testTimedOutTaskKeepsItsMemoryUntilItReturns() throws Exception {
+        String hung = writeJobs("hung.json", 0, 500);
+        String healthy = writeJobs("healthy.json", 1_000, 100);
+        CountDownLatch mountRecovers = new CountDownLatch(1);
+        ParserFactory storage = delayed(new ContentSniffingParserFactory(), (path, attempt) -> {
+            if (path.equals(hung)) {
+                awaitUninterruptibly(mountRecovers);
+            }
+        });
+        MemoryBudget budget = new MemoryBudget(64L * 1024 * 1024);
+
+        ConcurrentFileParserService service = ConcurrentFileParserService.builder().threadPoolSize(2)
+            .parserFactory(storage).memoryBudget(budget).deadlinePolicy(new DeadlinePolicy(1_000)).build();
+        try {
+            ConcurrentFileParserService.ParsingResult result = service.parseFiles(Arrays.asList(hung, healthy));
+
+            assertEquals(1, result.getTimeouts());
+            // The abandoned attempt still holds its buffers and jobs, so its cost is not admitted to other tasks
+            assertEquals(budget.estimate(hung, new File(hung).length()), budget.getInFlightBytes());
+
+            mountRecovers.countDown();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (budget.getInFlightBytes() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, budget.getInFlightBytes());
+        } finally {
+            mountRecovers.countDown();
+            service.shutdown();
+        }
+    }
+
+    @Test
+    public void testHedgedAttemptIsAdmittedByMemoryBudget() throws Exception {
+        List<String> files = new ArrayList<>();
+        // Largest, so it starts first and is hedged once enough peers finish
+        String straggler = writeJobs("straggler.json", 100_000, 500);
+        files.add(straggler);
+        for (int i = 0; i < 30; i++) {
+            files.add(writeJobs("peer_" + i + ".json", i * 1_000, 50));
+        }
+        CountDownLatch mountRecovers = new CountDownLatch(1);
+        CountDownLatch hedgeStarted = new CountDownLatch(1);
+        ParserFactory storage = delayed(new ContentSniffingParserFactory(), (path, attempt) -> {
+            if (path.equals(straggler)) {
+                if (attempt > 1) {
+                    hedgeStarted.countDown();
+                }
+                awaitUninterruptibly(mountRecovers);
+            }
+        });
+        MemoryBudget budget = new MemoryBudget(64L * 1024 * 1024);
+
+        ConcurrentFileParserService service = ConcurrentFileParserService.builder().threadPoolSize(2)
+            .parserFactory(storage).schedulingOrder(ScheduledFile.LARGEST_FIRST).memoryBudget(budget)
+            .deadlinePolicy(new DeadlinePolicy(DeadlinePolicy.NO_TIMEOUT, 99.0, 10)).build();
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            Future<ConcurrentFileParserService.ParsingResult> batch = caller.submit(() -> service.parseFiles(files));
+            assertTrue(hedgeStarted.await(10, TimeUnit.SECONDS));
+
+            // Peers have finished; both attempts at the straggler hold its cost
+            long cost = budget.estimate(straggler, new File(straggler).length());
+            assertTrue(budget.getInFlightBytes() >= 2 * cost, "In flight " + budget.getInFlightBytes());
+
+            mountRecovers.countDown();
+            ConcurrentFileParserService.ParsingResult result = batch.get(10, TimeUnit.SECONDS);
+            assertFalse(result.hasErrors());
+            assertTrue(result.getHedges() >= 1);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (budget.getInFlightBytes() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, budget.getInFlightBytes());
+        } finally {
+            mountRecovers.countDown();
+            caller.shutdown();
+            service.shutdown();
+        }
+    }
+
+    @Test
+    public void testTimedOutParseIsInterrupted() throws Exception {
+        String slow = writeJobs("slow.json", 0, 100);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        ParserFactory storage = delayed(new ContentSniffingParserFactory(), (path, attempt) -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        ConcurrentFileParserService service = ConcurrentFileParserService.builder().threadPoolSize(1)
+            .parserFactory(storage).deadlinePolicy(new DeadlinePolicy(100)).build();
+        try {
+            ConcurrentFileParserService.ParsingResult result = service.parseFiles(Collections.singletonList(slow));
+
+            assertEquals(1, result.getTimeouts());
+            assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+            // The interrupted parse stops at its first read, and its thread is returned to the pool
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (service.getThreadPoolSize() > 1 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, service.getThreadPoolSize());
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    public void testHedgedAttemptFinishesStraggler() throws IOException {
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            files.add(writeJobs("peer_" + i + ".json", i * 1_000, 200));
+        }
+        // Smallest, so it is scheduled after its peers have finished
+        String straggler = writeJobs("straggler.json", 100_000, 50);
+        files.add(straggler);
+        ParserFactory storage = delayed(new ContentSniffingParserFactory(), (path, attempt) -> {
+            if (path.equals(straggler) && attempt == 1) {
+                sleep(5_000);
+            }
+        });
+
+        ConcurrentFileParserService service = ConcurrentFileParserService.builder().threadPoolSize(2)
+            .parserFactory(storage).deadlinePolicy(new DeadlinePolicy(DeadlinePolicy.NO_TIMEOUT, 99.0, 10)).build();
+        try {
+            long start = System.nanoTime();
+            ConcurrentFileParserService.ParsingResult result = service.parseFiles(files);
+            long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+            assertFalse(result.hasErrors());
+            assertEquals(30 * 200 + 50, result.getTotalJobsParsed());
+            assertTrue(result.getHedges() >= 1);
+            assertTrue(result.getHedgeWins() >= 1);
+            assertEquals(0, result.getTimeouts());
+            assertTrue(elapsed < 5_000, "Batch took " + elapsed + " ms");
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    public void testFirstWaveIsHedgedOnceEnoughPeersFinish() throws IOException {
+        List<String> files = new ArrayList<>();
+        // Largest, so it starts before any peer has finished
+        String straggler = writeJobs("straggler.json", 100_000, 500);
+        files.add(straggler);
+        for (int i = 0; i < 30; i++) {
+            files.add(writeJobs("peer_" + i + ".json", i * 1_000, 50));
+        }
+        ParserFactory storage = delayed(new ContentSniffingParserFactory(), (path, attempt) -> {
+            sleep(path.equals(straggler) && attempt == 1 ? 5_000 : 10);
+        });
+
+        ConcurrentFileParserService service = ConcurrentFileParserService.builder().threadPoolSize(2)
+            .parserFactory(storage).schedulingOrder(ScheduledFile.LARGEST_FIRST)
+            .deadlinePolicy(new DeadlinePolicy(DeadlinePolicy.NO_TIMEOUT, 99.0, 10)).build();
+        try {
+            long start = System.nanoTime();
+            ConcurrentFileParserService.ParsingResult result = service.parseFiles(files);
+            long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+            assertFalse(result.hasErrors());
+            assertEquals(500 + 30 * 50, result.getTotalJobsParsed());
+            // Hedged once ten peers had finished, although it started without a hedge delay
+            assertTrue(result.getHedgeWins() >= 1);
+            assertTrue(elapsed < 4_000, "Batch took " + elapsed + " ms");
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    public void testReadStageDeadlineStartsWhenReadStarts() throws IOException {
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            files.add(writeJobs("staged_" + i + ".json", i * 1_000, 20));
+        }
+        String straggler = files.get(99);
+        ParserFactory storage = delayed(new ContentSniffingParserFactory(), (path, attempt) -> {
+            sleep(path.equals(straggler) && attempt == 1 ? 5_000 : 10);
+        });
+        // Files wait behind two buffers and one I/O thread far longer than the timeout
+        FileReadStage readStage = new FileReadStage(1, 2, 1 << 16);
+        ConcurrentFileParserService service = ConcurrentFileParserService.builder().threadPoolSize(2)
+            .parserFactory(storage).schedulingOrder(ScheduledFile.SUBMISSION_ORDER).readStage(readStage)
+            .deadlinePolicy(new DeadlinePolicy(1_000, 99.0, 10)).build();
+        try {
+            ConcurrentFileParserService.ParsingResult result = service.parseFiles(files);
+
+            assertEquals(0, result.getTimeouts());
+            assertFalse(result.hasErrors());
+            assertEquals(100 * 20, result.getTotalJobsParsed());
+            // The straggler is hedged from the peers read before it
+            assertTrue(result.getHedgeWins() >= 1);
+        } finally {
+            service.shutdown();
+            readStage.shutdown();
+        }
+    }
+
+    @Test
+    public void testHungReadOnReadStageIsReplaced() throws Exception {
+        List<String> files = new ArrayList<>();
+        // Opening a FIFO for reading blocks until a writer opens it, and ignores interrupts
+        File hung = makeFifo("hung.fifo");
+        files.add(hung.getPath());
+        for (int i = 1; i <= 20; i++) {
+            files.add(writeJobs("staged_" + i + ".json", i * 1_000, 20));
+        }
+        FileReadStage readStage = new FileReadStage(1, 2, 1 << 16);
+        ConcurrentFileParserService service = ConcurrentFileParserService.builder().threadPoolSize(2)
+            .schedulingOrder(ScheduledFile.SUBMISSION_ORDER).readStage(readStage)
+            .deadlinePolicy(new DeadlinePolicy(300)).build();
+        try {
+            ConcurrentFileParserService.ParsingResult result = service.parseFiles(files);
+
+            assertEquals(1, result.getTimeouts());
+            assertEquals(1, result.getErrors().size());
+            assertEquals(hung.getPath(), result.getErrors().get(0).getFilePath());
+            assertEquals(20 * 20, result.getTotalJobsParsed());
+            // The hung read's I/O thread is replaced until it returns
+            assertEquals(2, readStage.getIoThreadCount());
+
+            new FileOutputStream(hung).close();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (readStage.getIoThreadCount() > 1 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, readStage.getIoThreadCount());
+            assertEquals(0, readStage.getBufferedCount());
+        } finally {
+            service.shutdown();
+            readStage.shutdown();
+        }
+    }
+
+    @Test
+    public void testHedgedVsUnhedged_PerformanceComparison() throws IOException {
+        List<String> files = new ArrayList<>();
+        List<String> stragglers = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            // Every 50th file is a straggler; all files are the same size, so they are scheduled in list order
+            boolean straggler = i % 50 == 49;
+            String file = writeJobs("file_" + i + ".json", 1_000_000 + i * 1_000, 200);
+            files.add(file);
+            if (straggler) {
+                stragglers.add(file);
+            }
+        }
+        Map<String, AtomicInteger> attempts = new ConcurrentHashMap<>();
+        ParserFactory storage = delayed(new ContentSniffingParserFactory(), (path, attempt) -> {
+            if (stragglers.contains(path) && attempts.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet() == 1) {
+                sleep(500);
+            }
+        });
+
+        ConcurrentFileParserService unhedged = new ConcurrentFileParserService(4, storage);
+        ConcurrentFileParserService hedged = ConcurrentFileParserService.builder().threadPoolSize(4)
+            .parserFactory(storage).deadlinePolicy(DeadlinePolicy.withHedging(10_000)).build();
+        try {
+            long start = System.nanoTime();
+            ConcurrentFileParserService.ParsingResult unhedgedResult = unhedged.parseFiles(files);
+            long unhedgedTime = (System.nanoTime() - start) / 1_000_000;
+
+            attempts.clear();
+            start = System.nanoTime();
+            ConcurrentFileParserService.ParsingResult hedgedResult = hedged.parseFiles(files);
+            long hedgedTime = (System.nanoTime() - start) / 1_000_000;
+
+            System.out.println("\n=== Hedged Reads: " + files.size() + " files, " + stragglers.size()
+                + " with a 500 ms first read, 4 threads ===");
+            System.out.println("Unhedged: " + unhedgedTime + " ms");
+            System.out.println("Hedged after p99 of peers: " + hedgedTime + " ms, " + hedgedResult.getHedges()
+                + " hedges, " + hedgedResult.getHedgeWins() + " won");
+
+            assertFalse(hedgedResult.hasErrors());
+            assertEquals(unhedgedResult.getTotalJobsParsed(), hedgedResult.getTotalJobsParsed());
+            assertTrue(hedgedResult.getHedgeWins() > 0);
+        } finally {
+            unhedged.shutdown();
+            hedged.shutdown();
+        }
+    }
+
+    private interface Delay {
+        void before(String filePath, int attempt);
+    }
+
+    /**
+     * Wraps each parser so that reading a file first runs a delay, given the file's attempt number.
+     */
+    private static ParserFactory delayed(ParserFactory delegate, Delay delay) {
+        Map<String, AtomicInteger> attempts = new ConcurrentHashMap<>();
+        return filePath -> {
+            CompetitorParser parser = delegate.createParser(filePath);
+            return new CompetitorParser() {
+                @Override
+                public List<CompetitorJob> parse(String path) throws DataAnomalyException {
+                    return parseAndValidate(path);
+                }
+
+                @Override
+                public List<CompetitorJob> parseAndValidate(String path) throws DataAnomalyException {
+                    delay.before(path, attempts.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet());
+                    return parser.parseAndValidate(path);
+                }
+
+                @Override
+                public void validate(List<CompetitorJob> jobs) throws DataAnomalyException {
+                    parser.validate(jobs);
+                }
+            };
+        };
+    }
+
+    /**
+     * Waits like a read on an unresponsive mount: interrupts are ignored.
+     */
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (latch.getCount() > 0) {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Creates a named pipe; skips the test where mkfifo is not available.
+     */
+    private File makeFifo(String fileName) throws InterruptedException {
+        File fifo = new File(tempDir, fileName);
+        int exitCode;
+        try {
+            exitCode = new ProcessBuilder("mkfifo", fifo.getPath()).start().waitFor();
+        } catch (IOException e) {
+            exitCode = -1;
+        }
+        assumeTrue(exitCode == 0 && fifo.exists(), "mkfifo is not available");
+        return fifo;
+    }
+
+    private String writeJobs(String fileName, int firstJobId, int jobCount) throws IOException {
+        File file = new File(tempDir, fileName);
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write('[');
+            for (int i = 0; i < jobCount; i++) {
+                if (i > 0) {
+                    writer.write(",\n");
+                }
+                int jobId = firstJobId + i;
+                writer.write("{\"job_id\": " + jobId + ", \"job_name\": \"Job_" + jobId
+                    + "\", \"dependencies\": [], \"notes\": \"\"}");
+            }
+            writer.write(']');
+        }
+        return file.getPath();
+    }
+}
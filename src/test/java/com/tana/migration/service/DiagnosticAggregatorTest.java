@@ -0,0 +1,219 @@
+package com.tana.migration.service;
+
+import com.tana.migration.model.DiagnosticReport;
+import com.tana.migration.parser.DiagnosticReportParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit and performance tests for DiagnosticAggregator.
+ * Aggregates are compared with counts computed sequentially over the same reports.
+ */
+public class DiagnosticAggregatorTest {
+
+    private static final String[] REPORT_TYPES = {"INITIAL_DIAGNOSTIC", "ECU_FIRMWARE_UPDATE", "FINAL_VALIDATION"};
+    private static final String[] STATUS_CODES = {"OK", "WARN", "ERR", "PENDING_UPDATE"};
+
+    @Test
+    public void testLatestStatusIsNewestReport() {
+        DiagnosticAggregator aggregator = new DiagnosticAggregator();
+
+        aggregator.add(new DiagnosticReport("V1", 2L, "ECU_FIRMWARE_UPDATE", 200L, "PENDING_UPDATE"));
+        aggregator.add(new DiagnosticReport("V1", 1L, "INITIAL_DIAGNOSTIC", 100L, "WARN"));
+        aggregator.add(new DiagnosticReport("V1", 3L, "FINAL_VALIDATION", 200L, "OK"));
+        aggregator.add(new DiagnosticReport("V2", null, "INITIAL_DIAGNOSTIC", 50L, "ERR"));
+
+        assertEquals("OK", aggregator.getLatestStatus("V1").getStatusCode());
+        assertEquals(3L, aggregator.getLatestStatus("V1").getSequenceId());
+        assertEquals("ERR", aggregator.getLatestStatus("V2").getStatusCode());
+        assertNull(aggregator.getLatestStatus("V3"));
+        assertEquals(2, aggregator.getVinCount());
+        assertEquals(4, aggregator.getReportCount());
+        assertEquals(Long.valueOf(2), aggregator.getReportTypeCounts().get("INITIAL_DIAGNOSTIC"));
+        assertEquals(Long.valueOf(1), aggregator.getStatusCountsByReportType().get("INITIAL_DIAGNOSTIC").get("WARN"));
+        assertEquals(Long.valueOf(1), aggregator.getLatestStatusCounts().get("OK"));
+        assertThrows(UnsupportedOperationException.class, () -> aggregator.getLatestStatuses().clear());
+        assertThrows(IllegalArgumentException.class,
+            () -> aggregator.add(new DiagnosticReport("V3", 1L, "INITIAL_DIAGNOSTIC", null, "OK")));
+    }
+
+    @Test
+    public void testResourceFileCounts() throws Exception {
+        File[] files = new File("src/test/resources/concurrency-challenge")
+            .listFiles((dir, name) -> name.startsWith("diag_report_"));
+        assertNotNull(files);
+        DiagnosticReportParser parser = new DiagnosticReportParser();
+        List<DiagnosticReport> reports = new ArrayList<>();
+        for (File file : files) {
+            reports.addAll(parser.parse(file.getPath()));
+        }
+
+        DiagnosticAggregator aggregator = new DiagnosticAggregator();
+        aggregator.addAll(reports);
+
+        assertEquals(files.length, aggregator.getReportCount());
+        assertEquals(countBy(reports, false), aggregator.getReportTypeCounts());
+        assertEquals(countBy(reports, true), aggregator.getStatusCounts());
+        assertEquals(REPORT_TYPES.length, aggregator.getReportTypeCounts().size());
+    }
+
+    @Test
+    public void testConcurrentAddMatchesSequential() throws Exception {
+        List<DiagnosticReport> reports = generateReports(200_000, 5_000, 1);
+
+        DiagnosticAggregator sequential = new DiagnosticAggregator();
+        sequential.addAll(reports);
+        // Shuffled so each thread sees reports for the same VINs out of time order
+        List<DiagnosticReport> shuffled = new ArrayList<>(reports);
+        Collections.shuffle(shuffled, new Random(2));
+        DiagnosticAggregator concurrent = aggregateConcurrently(shuffled, 8);
+
+        assertSameAggregates(sequential, concurrent);
+        assertEquals(latestBySort(reports), statusByVin(concurrent));
+    }
+
+    @Test
+    public void testConcurrentVsSynchronizedAggregation_PerformanceComparison() throws Exception {
+        List<DiagnosticReport> reports = generateReports(1_000_000, 20_000, 3);
+        int threads = 4;
+
+        // Warm up
+        aggregateConcurrently(reports, threads);
+        aggregateSynchronized(reports, threads);
+
+        long start = System.nanoTime();
+        DiagnosticAggregator concurrent = aggregateConcurrently(reports, threads);
+        long concurrentTime = (System.nanoTime() - start) / 1_000_000;
+
+        start = System.nanoTime();
+        Map<String, Long> synchronizedCounts = aggregateSynchronized(reports, threads);
+        long synchronizedTime = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.println("\n=== Diagnostic Aggregation: " + reports.size() + " reports, " + threads + " threads ===");
+        System.out.println("Synchronized HashMaps: " + synchronizedTime + " ms");
+        System.out.println("DiagnosticAggregator (CHM + LongAdder): " + concurrentTime + " ms");
+
+        assertEquals(synchronizedCounts, concurrent.getStatusCounts());
+        assertEquals(reports.size(), concurrent.getReportCount());
+    }
+
+    private static DiagnosticAggregator aggregateConcurrently(List<DiagnosticReport> reports, int threads)
+            throws Exception {
+        DiagnosticAggregator aggregator = new DiagnosticAggregator();
+        runPartitioned(reports, threads, aggregator::add);
+        return aggregator;
+    }
+
+    /**
+     * Baseline: the same latest-status map and histograms in plain HashMaps behind one lock.
+     */
+    private static Map<String, Long> aggregateSynchronized(List<DiagnosticReport> reports, int threads)
+            throws Exception {
+        Map<String, Long> statusCounts = new HashMap<>();
+        Map<String, Long> reportTypeCounts = new HashMap<>();
+        Map<String, Map<String, Long>> statusCountsByReportType = new HashMap<>();
+        Map<String, DiagnosticReport> latest = new HashMap<>();
+        runPartitioned(reports, threads, report -> {
+            synchronized (statusCounts) {
+                statusCounts.merge(report.getStatusCode(), 1L, Long::sum);
+                reportTypeCounts.merge(report.getReportType(), 1L, Long::sum);
+                statusCountsByReportType.computeIfAbsent(report.getReportType(), type -> new HashMap<>())
+                    .merge(report.getStatusCode(), 1L, Long::sum);
+                latest.merge(report.getVin(), report, (a, b) -> b.getTimestampUtc() > a.getTimestampUtc()
+                    || b.getTimestampUtc().equals(a.getTimestampUtc()) && b.getSequenceId() > a.getSequenceId() ? b : a);
+            }
+        });
+        return new TreeMap<>(statusCounts);
+    }
+
+    private static void runPartitioned(List<DiagnosticReport> reports, int threads,
+                                       Consumer<DiagnosticReport> action) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            int chunk = (reports.size() + threads - 1) / threads;
+            for (int t = 0; t < threads; t++) {
+                List<DiagnosticReport> part = reports.subList(Math.min(t * chunk, reports.size()),
+                    Math.min((t + 1) * chunk, reports.size()));
+                futures.add(executor.submit(() -> part.forEach(action)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private static List<DiagnosticReport> generateReports(int count, int vins, long seed) {
+        Random random = new Random(seed);
+        List<DiagnosticReport> reports = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            reports.add(new DiagnosticReport("VIN" + random.nextInt(vins), (long) i,
+                REPORT_TYPES[random.nextInt(REPORT_TYPES.length)],
+                1690000000L + random.nextInt(1000),
+                STATUS_CODES[random.nextInt(STATUS_CODES.length)]));
+        }
+        return reports;
+    }
+
+    private static Map<String, Long> countBy(List<DiagnosticReport> reports, boolean byStatus) {
+        Map<String, Long> counts = new TreeMap<>();
+        for (DiagnosticReport report : reports) {
+            counts.merge(byStatus ? report.getStatusCode() : report.getReportType(), 1L, Long::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * Latest status per VIN by sorting on timestamp, then sequence id.
+     */
+    private static Map<String, String> latestBySort(List<DiagnosticReport> reports) {
+        List<DiagnosticReport> sorted = new ArrayList<>(reports);
+        sorted.sort((a, b) -> a.getTimestampUtc().equals(b.getTimestampUtc())
+            ? a.getSequenceId().compareTo(b.getSequenceId())
+            : a.getTimestampUtc().compareTo(b.getTimestampUtc()));
+        Map<String, String> latest = new HashMap<>();
+        for (DiagnosticReport report : sorted) {
+            latest.put(report.getVin(), report.getStatusCode());
+        }
+        return latest;
+    }
+
+    private static Map<String, String> statusByVin(DiagnosticAggregator aggregator) {
+        Map<String, String> result = new HashMap<>();
+        for (Map.Entry<String, DiagnosticAggregator.VinStatus> entry : aggregator.getLatestStatuses().entrySet()) {
+            result.put(entry.getKey(), entry.getValue().getStatusCode());
+        }
+        return result;
+    }
+
+    private static void assertSameAggregates(DiagnosticAggregator expected, DiagnosticAggregator actual) {
+        assertEquals(expected.getReportCount(), actual.getReportCount());
+        assertEquals(expected.getVinCount(), actual.getVinCount());
+        assertEquals(expected.getReportTypeCounts(), actual.getReportTypeCounts());
+        assertEquals(expected.getStatusCounts(), actual.getStatusCounts());
+        assertEquals(expected.getStatusCountsByReportType(), actual.getStatusCountsByReportType());
+        assertEquals(expected.getLatestStatusCounts(), actual.getLatestStatusCounts());
+        for (String vin : Arrays.asList("VIN0", "VIN1", "VIN4999")) {
+            assertEquals(expected.getLatestStatus(vin).getSequenceId(), actual.getLatestStatus(vin).getSequenceId());
+        }
+    }
+}
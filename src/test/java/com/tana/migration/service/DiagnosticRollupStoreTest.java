@@ -0,0 +1,245 @@
+package com.tana.migration.service;
+
+import com.tana.migration.model.DiagnosticReport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit and performance tests for DiagnosticRollupStore.
+ * Range queries are compared with counts computed by scanning the same reports.
+ */
+public class DiagnosticRollupStoreTest {
+
+    private static final long ORIGIN = 1_690_000_000L - 1_690_000_000L % DiagnosticRollupStore.DAY;
+    private static final String[] REPORT_TYPES = {"INITIAL_DIAGNOSTIC", "ECU_FIRMWARE_UPDATE", "FINAL_VALIDATION"};
+    private static final String[] STATUS_CODES = {"OK", "WARN", "ERR", "PENDING_UPDATE"};
+
+    private File tempDir;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("rollups").toFile();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        File[] files = tempDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        tempDir.delete();
+    }
+
+    @Test
+    public void testCountsByBucketTypeAndStatus() throws IOException {
+        try (DiagnosticRollupStore store = new DiagnosticRollupStore(path("hourly.rollup"),
+                DiagnosticRollupStore.HOUR, ORIGIN, 24 * 7)) {
+            assertTrue(store.add(report("INITIAL_DIAGNOSTIC", ORIGIN + 10, "OK")));
+            store.addAll(Arrays.asList(
+                report("INITIAL_DIAGNOSTIC", ORIGIN + 3599, "WARN"),
+                report("INITIAL_DIAGNOSTIC", ORIGIN + 3600, "OK"),
+                report("FINAL_VALIDATION", ORIGIN + 7300, "OK"),
+                report("FINAL_VALIDATION", ORIGIN + 7300, "OK")));
+            assertFalse(store.add(report("INITIAL_DIAGNOSTIC", ORIGIN - 1, "OK")));
+            assertFalse(store.add(report("INITIAL_DIAGNOSTIC", ORIGIN + 24 * 7 * 3600, "OK")));
+
+            assertEquals(5, store.count(ORIGIN, ORIGIN + DiagnosticRollupStore.DAY, null, null));
+            assertEquals(2, store.count(ORIGIN, ORIGIN + 3600, "INITIAL_DIAGNOSTIC", null));
+            assertEquals(4, store.count(ORIGIN, ORIGIN + DiagnosticRollupStore.DAY, null, "OK"));
+            assertEquals(0, store.count(ORIGIN, ORIGIN + DiagnosticRollupStore.DAY, "UNKNOWN", null));
+            assertArrayEquals(new long[] {2, 1, 2}, store.series(ORIGIN, ORIGIN + 3 * 3600, null, null));
+            // Buckets overlapping the range are counted whole
+            assertEquals(2, store.count(ORIGIN + 7200, ORIGIN + 7201, "FINAL_VALIDATION", "OK"));
+            assertEquals(ORIGIN + 7200, store.getBucketStart(ORIGIN + 7300));
+            assertEquals(2, store.getDroppedCount());
+
+            Map<String, Map<String, Long>> byType = store.countsByReportType(ORIGIN, ORIGIN + DiagnosticRollupStore.DAY);
+            assertEquals(Long.valueOf(2), byType.get("INITIAL_DIAGNOSTIC").get("OK"));
+            assertEquals(Long.valueOf(1), byType.get("INITIAL_DIAGNOSTIC").get("WARN"));
+            assertEquals(Long.valueOf(2), byType.get("FINAL_VALIDATION").get("OK"));
+        }
+    }
+
+    @Test
+    public void testReopenKeepsCountsAndDictionaries() throws IOException {
+        String filePath = path("daily.rollup");
+        try (DiagnosticRollupStore store = new DiagnosticRollupStore(filePath, DiagnosticRollupStore.DAY, ORIGIN, 365)) {
+            store.add(report("ECU_FIRMWARE_UPDATE", ORIGIN + 5 * DiagnosticRollupStore.DAY, "PENDING_UPDATE"));
+        }
+
+        try (DiagnosticRollupStore store = new DiagnosticRollupStore(filePath)) {
+            assertEquals(DiagnosticRollupStore.DAY, store.getBucketSeconds());
+            assertEquals(365, store.getBucketCount());
+            store.add(report("ECU_FIRMWARE_UPDATE", ORIGIN + 5 * DiagnosticRollupStore.DAY, "PENDING_UPDATE"));
+            store.add(report("FINAL_VALIDATION", ORIGIN, "OK"));
+        }
+
+        try (DiagnosticRollupStore store = new DiagnosticRollupStore(filePath, DiagnosticRollupStore.DAY, ORIGIN, 365)) {
+            assertEquals(2, store.count(ORIGIN, ORIGIN + 365 * DiagnosticRollupStore.DAY, "ECU_FIRMWARE_UPDATE", "PENDING_UPDATE"));
+            assertEquals(1, store.count(ORIGIN, ORIGIN + 365 * DiagnosticRollupStore.DAY, "FINAL_VALIDATION", null));
+        }
+
+        assertThrows(IOException.class, () -> new DiagnosticRollupStore(filePath, DiagnosticRollupStore.HOUR, ORIGIN, 365));
+        assertThrows(IOException.class, () -> new DiagnosticRollupStore(path("missing.rollup")));
+        String notRollup = path("other.json");
+        try (FileWriter writer = new FileWriter(notRollup)) {
+            writer.write("[{\"job_id\": 1, \"job_name\": \"A\", \"dependencies\": [], \"notes\": \"not a rollup file at all\"}]");
+        }
+        assertThrows(IOException.class, () -> new DiagnosticRollupStore(notRollup));
+    }
+
+    @Test
+    public void testOverflowingNamesCountedAsOther() throws IOException {
+        try (DiagnosticRollupStore store = new DiagnosticRollupStore(path("small.rollup"),
+                DiagnosticRollupStore.DAY, ORIGIN, 10, 3, 2)) {
+            store.add(report("A", ORIGIN, "OK"));
+            store.add(report("B", ORIGIN, "OK"));
+            store.add(report("C", ORIGIN, "WARN"));
+            store.add(report("D", ORIGIN, null));
+
+            assertEquals(1, store.count(ORIGIN, ORIGIN + 1, "A", "OK"));
+            assertEquals(2, store.count(ORIGIN, ORIGIN + 1, DiagnosticRollupStore.OTHER, null));
+            assertEquals(2, store.count(ORIGIN, ORIGIN + 1, null, DiagnosticRollupStore.OTHER));
+            assertEquals(0, store.count(ORIGIN, ORIGIN + 1, "C", null));
+        }
+    }
+
+    @Test
+    public void testAggregatorFeedsRollupsFromConcurrentThreads() throws Exception {
+        List<DiagnosticReport> reports = generateReports(200_000, 11);
+        long[] expected = expectedDailyOk(reports, 90);
+
+        try (DiagnosticRollupStore store = new DiagnosticRollupStore(path("concurrent.rollup"),
+                DiagnosticRollupStore.HOUR, ORIGIN, 24 * 90)) {
+            DiagnosticAggregator aggregator = new DiagnosticAggregator(null, store);
+            ingestConcurrently(aggregator, reports, 4);
+
+            assertSame(store, aggregator.getRollupStore());
+            assertEquals(reports.size(), store.count(ORIGIN, ORIGIN + 90 * DiagnosticRollupStore.DAY, null, null));
+            for (int day = 0; day < 90; day++) {
+                long from = ORIGIN + day * DiagnosticRollupStore.DAY;
+                assertEquals(expected[day], store.count(from, from + DiagnosticRollupStore.DAY, "FINAL_VALIDATION", "OK"));
+            }
+        }
+    }
+
+    @Test
+    public void testRollupQueryVsReportScan_PerformanceComparison() throws Exception {
+        int days = 180;
+        List<DiagnosticReport> reports = generateReports(2_000_000, 13);
+
+        try (DiagnosticRollupStore store = new DiagnosticRollupStore(path("perf.rollup"),
+                DiagnosticRollupStore.HOUR, ORIGIN, 24 * days)) {
+            long start = System.nanoTime();
+            ingestConcurrently(new DiagnosticAggregator(null, store), reports, 4);
+            long ingestTime = (System.nanoTime() - start) / 1_000_000;
+
+            long from = ORIGIN + 30 * DiagnosticRollupStore.DAY;
+            long to = ORIGIN + 150 * DiagnosticRollupStore.DAY;
+
+            // Warm up
+            scan(reports, from, to);
+            store.count(from, to, "ECU_FIRMWARE_UPDATE", "ERR");
+
+            start = System.nanoTime();
+            long scanned = scan(reports, from, to);
+            long scanTime = (System.nanoTime() - start) / 1_000;
+
+            start = System.nanoTime();
+            long queried = store.count(from, to, "ECU_FIRMWARE_UPDATE", "ERR");
+            long queryTime = (System.nanoTime() - start) / 1_000;
+
+            System.out.println("\n=== Diagnostic Rollups: " + reports.size() + " reports, hourly buckets over " + days + " days ===");
+            System.out.println("Aggregate and roll up (4 threads): " + ingestTime + " ms");
+            System.out.println("Scan reports in memory for 120 days: " + scanTime + " us");
+            System.out.println("Rollup query for 120 days: " + queryTime + " us");
+
+            assertEquals(scanned, queried);
+        }
+    }
+
+    private static long scan(List<DiagnosticReport> reports, long from, long to) {
+        long count = 0;
+        for (DiagnosticReport report : reports) {
+            if (report.getTimestampUtc() >= from && report.getTimestampUtc() < to
+                    && "ECU_FIRMWARE_UPDATE".equals(report.getReportType()) && "ERR".equals(report.getStatusCode())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static long[] expectedDailyOk(List<DiagnosticReport> reports, int days) {
+        long[] counts = new long[days];
+        for (DiagnosticReport report : reports) {
+            if ("FINAL_VALIDATION".equals(report.getReportType()) && "OK".equals(report.getStatusCode())) {
+                counts[(int) ((report.getTimestampUtc() - ORIGIN) / DiagnosticRollupStore.DAY)]++;
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Feeds the reports to the aggregator in batches of 100, as parseDiagnosticReports does per file.
+     */
+    private static void ingestConcurrently(DiagnosticAggregator aggregator, List<DiagnosticReport> reports,
+                                           int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int batch = 0; batch < reports.size(); batch += 100) {
+                List<DiagnosticReport> part = reports.subList(batch, Math.min(batch + 100, reports.size()));
+                futures.add(executor.submit(() -> aggregator.addAll(part)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Reports spread over 90 days (or 180 for larger sets) from ORIGIN.
+     */
+    private static List<DiagnosticReport> generateReports(int count, long seed) {
+        Random random = new Random(seed);
+        int days = count > 1_000_000 ? 180 : 90;
+        List<DiagnosticReport> reports = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            reports.add(new DiagnosticReport("VIN" + random.nextInt(10_000), (long) i,
+                REPORT_TYPES[random.nextInt(REPORT_TYPES.length)],
+                ORIGIN + (long) (random.nextDouble() * days * DiagnosticRollupStore.DAY),
+                STATUS_CODES[random.nextInt(STATUS_CODES.length)]));
+        }
+        return reports;
+    }
+
+    private static DiagnosticReport report(String reportType, long timestampUtc, String statusCode) {
+        return new DiagnosticReport("VIN1", 1L, reportType, timestampUtc, statusCode);
+    }
+
+    private String path(String name) {
+        return new File(tempDir, name).getPath();
+    }
+}
@@ -0,0 +1,110 @@
+package com.tana.migration.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Performance test for directory ingestion: listing an export drop up front and calling parseFiles,
+ * versus parseDirectories, which walks the tree in parallel and starts parsing while it walks.
+ */
+public class DirectoryIngestionPerformanceTest {
+
+    private static final int DIRECTORIES = 40;
+    private static final int FILES_PER_DIRECTORY = 100;
+
+    private File root;
+    private ConcurrentFileParserService service;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("directory-ingestion").toFile();
+        service = new ConcurrentFileParserService(4);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        service.shutdown();
+        deleteTree(root);
+    }
+
+    @Test
+    public void testListThenParseVsParseDirectories_PerformanceComparison() throws IOException {
+        int jobId = 1;
+        for (int d = 0; d < DIRECTORIES; d++) {
+            File directory = new File(root, "site_" + d % 4 + "/day_" + d);
+            directory.mkdirs();
+            for (int f = 0; f < FILES_PER_DIRECTORY; f++) {
+                writeFile(new File(directory, "jobs_" + f + ".json"), jobId);
+                jobId += 2;
+            }
+            writeFile(new File(directory, "manifest.txt"), 0);
+        }
+        int expectedJobs = DIRECTORIES * FILES_PER_DIRECTORY * 2;
+        List<String> roots = Arrays.asList(root.getPath());
+        List<String> includes = Arrays.asList("*.json");
+
+        // Warm up
+        listThenParse();
+        service.parseDirectories(roots, includes, null);
+
+        long start = System.nanoTime();
+        ConcurrentFileParserService.ParsingResult listed = listThenParse();
+        long listedTime = (System.nanoTime() - start) / 1_000_000;
+
+        start = System.nanoTime();
+        ConcurrentFileParserService.ParsingResult walked = service.parseDirectories(roots, includes, null);
+        long walkedTime = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.println("\n=== Directory Ingestion: " + DIRECTORIES * FILES_PER_DIRECTORY + " files in "
+            + DIRECTORIES + " directories ===");
+        System.out.println("List then parseFiles: " + listedTime + " ms");
+        System.out.println("parseDirectories:     " + walkedTime + " ms");
+
+        assertFalse(listed.hasErrors());
+        assertFalse(walked.hasErrors());
+        assertEquals(expectedJobs, listed.getTotalJobsParsed());
+        assertEquals(expectedJobs, walked.getTotalJobsParsed());
+    }
+
+    private ConcurrentFileParserService.ParsingResult listThenParse() throws IOException {
+        List<String> files;
+        try (Stream<Path> paths = Files.walk(root.toPath())) {
+            files = paths.filter(Files::isRegularFile)
+                .filter(path -> path.getFileName().toString().endsWith(".json"))
+                .map(Path::toString)
+                .collect(Collectors.toList());
+        }
+        return service.parseFiles(files);
+    }
+
+    private static void writeFile(File file, int jobId) throws IOException {
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write("[{\"job_id\": " + jobId + ", \"job_name\": \"Job_" + jobId + "\", \"dependencies\": []},"
+                + " {\"job_id\": " + (jobId + 1) + ", \"job_name\": \"Job_" + (jobId + 1) + "\","
+                + " \"dependencies\": [{\"job_id\": " + jobId + "}]}]");
+        }
+    }
+
+    private static void deleteTree(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteTree(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,201 @@
+package com.tana.migration.service;
+
+import com.tana.migration.ValidationResult;
+import com.tana.migration.exception.DataAnomalyException;
+import com.tana.migration.exception.InvalidJobDataException;
+import com.tana.migration.model.CompetitorJob;
+import com.tana.migration.parser.JsonCompetitorParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark of failure-heavy batches: compares throwing validation with full stack traces,
+ * lightweight (stackless) anomalies and the non-throwing ValidationResult path.
+ */
+public class FailureHeavyBatchPerformanceTest {
+
+    private static final int BATCH_SIZE = 20_000;
+
+    private final JsonCompetitorParser parser = new JsonCompetitorParser();
+
+    @AfterEach
+    public void tearDown() {
+        DataAnomalyException.setLightweightMode(false);
+    }
+
+    @Test
+    public void testLightweightAnomalyHasNoStackTraceAndSameMessage() {
+        List<CompetitorJob> invalid = createInvalidBatch(0);
+        InvalidJobDataException withTrace = assertThrows(InvalidJobDataException.class, () -> parser.validate(invalid));
+
+        DataAnomalyException.setLightweightMode(true);
+        InvalidJobDataException lightweight = assertThrows(InvalidJobDataException.class, () -> parser.validate(invalid));
+
+        assertTrue(withTrace.getStackTrace().length > 0);
+        assertEquals(0, lightweight.getStackTrace().length);
+        assertEquals(withTrace.getMessage(), lightweight.getMessage());
+        assertEquals(withTrace.getValidationError(), lightweight.getValidationError());
+    }
+
+    @Test
+    public void testLazyMessagesSurviveSerialization() throws Exception {
+        DataAnomalyException.setLightweightMode(true);
+        InvalidJobDataException original = new InvalidJobDataException(
+            () -> "Validation failed.", 7, () -> "Missing job_name");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(original);
+        }
+        InvalidJobDataException copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (InvalidJobDataException) in.readObject();
+        }
+
+        assertEquals("Missing job_name", copy.getValidationError());
+        assertEquals("Validation failed. Job ID: 7, Error: Missing job_name", copy.getMessage());
+        assertEquals(original.getMessage(), copy.getMessage());
+    }
+
+    @Test
+    public void testCheckMatchesValidate() {
+        List<CompetitorJob> invalid = createInvalidBatch(0);
+        ValidationResult result = parser.check(invalid);
+        InvalidJobDataException e = assertThrows(InvalidJobDataException.class, () -> parser.validate(invalid));
+
+        assertFalse(result.isValid());
+        assertEquals(2, result.getErrors().size());
+        assertEquals(result.getErrorSummary(), e.getValidationError());
+        assertTrue(parser.check(new ArrayList<>()).getErrors().contains("Empty job list"));
+    }
+
+    @Test
+    public void testFailureHeavyBatch_PerformanceComparison() {
+        List<List<CompetitorJob>> batch = new ArrayList<>();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(createInvalidBatch(i));
+        }
+
+        // Warm up all three paths
+        runThrowing(batch);
+        runChecking(batch);
+
+        DataAnomalyException.setLightweightMode(false);
+        long start = System.nanoTime();
+        int failuresWithTraces = runThrowing(batch);
+        long withTraces = System.nanoTime() - start;
+
+        DataAnomalyException.setLightweightMode(true);
+        start = System.nanoTime();
+        int failuresLightweight = runThrowing(batch);
+        long lightweight = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        int failuresChecked = runChecking(batch);
+        long checked = System.nanoTime() - start;
+
+        System.out.println("\n=== Failure-Heavy Batch: " + BATCH_SIZE + " invalid job lists ===");
+        System.out.println("validate() with stack traces: " + withTraces / 1_000_000 + " ms");
+        System.out.println("validate() lightweight:       " + lightweight / 1_000_000 + " ms");
+        System.out.println("check() ValidationResult:     " + checked / 1_000_000 + " ms");
+
+        assertEquals(BATCH_SIZE, failuresWithTraces);
+        assertEquals(BATCH_SIZE, failuresLightweight);
+        assertEquals(BATCH_SIZE, failuresChecked);
+    }
+
+    @Test
+    public void testSchemaMismatchBatch_PerformanceComparison() {
+        List<String> diagFiles = getConcurrencyChallengeFiles();
+        if (diagFiles.isEmpty()) {
+            System.out.println("No test files found. Skipping test.");
+            return;
+        }
+
+        runParse(diagFiles);
+
+        DataAnomalyException.setLightweightMode(false);
+        long start = System.nanoTime();
+        int failuresWithTraces = runParse(diagFiles);
+        long withTraces = System.nanoTime() - start;
+
+        DataAnomalyException.setLightweightMode(true);
+        start = System.nanoTime();
+        int failuresLightweight = runParse(diagFiles);
+        long lightweight = System.nanoTime() - start;
+
+        System.out.println("\n=== Schema-Mismatch Batch: " + diagFiles.size() + " diagnostic report files ===");
+        System.out.println("With stack traces: " + withTraces / 1_000 + " us (" + withTraces / 1_000 / diagFiles.size() + " us/file)");
+        System.out.println("Lightweight:       " + lightweight / 1_000 + " us (" + lightweight / 1_000 / diagFiles.size() + " us/file)");
+
+        assertEquals(diagFiles.size(), failuresWithTraces);
+        assertEquals(diagFiles.size(), failuresLightweight);
+    }
+
+    private int runThrowing(List<List<CompetitorJob>> batch) {
+        int failures = 0;
+        for (List<CompetitorJob> jobs : batch) {
+            try {
+                parser.validate(jobs);
+            } catch (DataAnomalyException e) {
+                failures++;
+            }
+        }
+        return failures;
+    }
+
+    private int runChecking(List<List<CompetitorJob>> batch) {
+        int failures = 0;
+        for (List<CompetitorJob> jobs : batch) {
+            if (!parser.check(jobs).isValid()) {
+                failures++;
+            }
+        }
+        return failures;
+    }
+
+    private int runParse(List<String> files) {
+        int failures = 0;
+        for (String file : files) {
+            try {
+                parser.parse(file);
+            } catch (DataAnomalyException e) {
+                failures++;
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Creates a job list with a duplicate id and a missing job name.
+     */
+    private List<CompetitorJob> createInvalidBatch(int seed) {
+        List<CompetitorJob> jobs = new ArrayList<>();
+        jobs.add(new CompetitorJob(seed, "Job_" + seed));
+        jobs.add(new CompetitorJob(seed, "Job_" + seed + "_copy"));
+        jobs.add(new CompetitorJob(seed + 1, null));
+        return jobs;
+    }
+
+    private List<String> getConcurrencyChallengeFiles() {
+        List<String> files = new ArrayList<>();
+        File dir = new File("src/test/resources/concurrency-challenge");
+        File[] fileArray = dir.listFiles((d, name) -> name.endsWith(".json"));
+        if (fileArray != null) {
+            for (File file : fileArray) {
+                files.add(file.getAbsolutePath());
+            }
+        }
+        return files;
+    }
+}
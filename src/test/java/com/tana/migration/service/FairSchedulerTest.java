@@ -0,0 +1,312 @@
+package com.tana.migration.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit and performance tests for FairScheduler.
+ * Ordering is checked on a single thread that is held busy while tasks are queued; the performance
+ * comparison runs a small batch next to a large migration, with one pool per service and with a shared scheduler.
+ */
+public class FairSchedulerTest {
+
+    private File tempDir;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("fair-scheduler").toFile();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        delete(tempDir);
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    @Test
+    public void testBatchesShareThreadsByWeight() throws Exception {
+        FairScheduler scheduler = new FairScheduler(1, 0);
+        try {
+            CountDownLatch release = hold(scheduler);
+            FairScheduler.BatchQueue heavy = scheduler.newBatch(2.0, 0);
+            FairScheduler.BatchQueue light = scheduler.newBatch(1.0, 0);
+            List<String> order = Collections.synchronizedList(new ArrayList<>());
+            CountDownLatch done = new CountDownLatch(60);
+            for (int i = 0; i < 30; i++) {
+                heavy.execute(record(order, "heavy", done));
+                light.execute(record(order, "light", done));
+            }
+            release.countDown();
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+
+            // While both have work, the heavy batch runs two tasks for every one of the light batch
+            assertEquals(20, Collections.frequency(order.subList(0, 30), "heavy"));
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void testSmallBatchRunsInPriorityLane() throws Exception {
+        FairScheduler scheduler = new FairScheduler(1, 4);
+        try {
+            CountDownLatch release = hold(scheduler);
+            FairScheduler.BatchQueue migration = scheduler.newBatch(1.0, 500);
+            FairScheduler.BatchQueue interactive = scheduler.newBatch(1.0, 3);
+            assertFalse(migration.isPriority());
+            assertTrue(interactive.isPriority());
+            List<String> order = Collections.synchronizedList(new ArrayList<>());
+            CountDownLatch done = new CountDownLatch(53);
+            for (int i = 0; i < 50; i++) {
+                migration.execute(record(order, "migration", done));
+            }
+            for (int i = 0; i < 3; i++) {
+                interactive.execute(record(order, "interactive", done));
+            }
+            release.countDown();
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+
+            assertEquals(Collections.nCopies(3, "interactive"), order.subList(0, 3));
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void testIdleBatchResumesWithoutCredit() throws Exception {
+        FairScheduler scheduler = new FairScheduler(1, 0);
+        try {
+            FairScheduler.BatchQueue busy = scheduler.newBatch(1.0, 0);
+            FairScheduler.BatchQueue idle = scheduler.newBatch(1.0, 0);
+            CountDownLatch warmUp = new CountDownLatch(40);
+            for (int i = 0; i < 40; i++) {
+                busy.execute(warmUp::countDown);
+            }
+            assertTrue(warmUp.await(10, TimeUnit.SECONDS));
+
+            CountDownLatch release = hold(scheduler);
+            List<String> order = Collections.synchronizedList(new ArrayList<>());
+            CountDownLatch done = new CountDownLatch(20);
+            for (int i = 0; i < 10; i++) {
+                idle.execute(record(order, "idle", done));
+                busy.execute(record(order, "busy", done));
+            }
+            release.countDown();
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+
+            // The batch that was idle does not get the 40 tasks the busy one ran back in a row
+            assertTrue(Collections.frequency(order.subList(0, 10), "busy") >= 4, order.toString());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void testRejectedTaskIsNotLeftQueued() throws Exception {
+        FairScheduler scheduler = new FairScheduler(1, 0);
+        FairScheduler.BatchQueue batch = scheduler.newBatch(1.0, 0);
+        scheduler.shutdown();
+
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        assertThrows(RejectedExecutionException.class, () -> batch.execute(record(order, "rejected", new CountDownLatch(1))));
+        assertFalse(batch.isPriority());
+        assertEquals(0, scheduler.getQueuedTasks());
+        assertTrue(order.isEmpty());
+    }
+
+    @Test
+    public void testServicesShareOneThreadLimit() throws IOException {
+        List<String> first = new ArrayList<>();
+        List<String> second = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            first.add(writeJobs("first_" + i + ".json", i * 1_000, 100));
+            second.add(writeJobs("second_" + i + ".json", 100_000 + i * 1_000, 100));
+        }
+        FairScheduler scheduler = new FairScheduler(2);
+        ConcurrentFileParserService a = sharing(scheduler, 1.0);
+        ConcurrentFileParserService b = sharing(scheduler, 3.0);
+        try {
+            CompletableFuture<ConcurrentFileParserService.ParsingResult> resultA =
+                CompletableFuture.supplyAsync(() -> a.parseFiles(first));
+            ConcurrentFileParserService.ParsingResult resultB = b.parseFiles(second);
+
+            assertEquals(2_000, resultA.join().getTotalJobsParsed());
+            assertEquals(2_000, resultB.getTotalJobsParsed());
+            assertEquals(2, a.getThreadPoolSize());
+            assertEquals(2, b.getThreadPoolSize());
+        } finally {
+            a.shutdown();
+            b.shutdown();
+        }
+        // Shutting the services down leaves the shared scheduler running
+        ConcurrentFileParserService c = sharing(scheduler, 1.0);
+        try {
+            assertEquals(100, c.parseFiles(first.subList(0, 1)).getTotalJobsParsed());
+        } finally {
+            c.shutdown();
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void testDirectoriesWalkedOnSharedScheduler() throws IOException {
+        File archive = new File(tempDir, "archive");
+        File nested = new File(archive, "2024");
+        assertTrue(nested.mkdirs());
+        for (int i = 0; i < 5; i++) {
+            writeJobs("top_" + i + ".json", i * 1_000, 10);
+            Files.move(new File(writeJobs("deep_" + i + ".json", 100_000 + i * 1_000, 10)).toPath(),
+                new File(i % 2 == 0 ? archive : nested, "deep_" + i + ".json").toPath());
+        }
+        // One thread walks the tree and parses the files it finds, so no walking task may wait for another
+        FairScheduler scheduler = new FairScheduler(1);
+        ConcurrentFileParserService service = sharing(scheduler, 1.0);
+        try {
+            ConcurrentFileParserService.ParsingResult result = service.parseDirectories(
+                Collections.singletonList(tempDir.getPath()), Collections.singletonList("*.json"), null);
+
+            assertFalse(result.hasErrors());
+            assertEquals(100, result.getTotalJobsParsed());
+        } finally {
+            service.shutdown();
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void testSmallBatchNextToMigration_PerformanceComparison() throws Exception {
+        List<String> migration = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            migration.add(writeJobs("migration_" + i + ".json", i * 10_000, 1_000));
+        }
+        List<String> interactive = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            interactive.add(writeJobs("interactive_" + i + ".json", 5_000_000 + i * 10_000, 1_000));
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        // One pool per service, each sized for the whole machine
+        ConcurrentFileParserService separateMigration = new ConcurrentFileParserService(cores);
+        ConcurrentFileParserService separateInteractive = new ConcurrentFileParserService(cores);
+        long[] separate;
+        try {
+            separateMigration.parseFiles(migration.subList(0, 50));
+            separate = runSideBySide(separateMigration, migration, separateInteractive, interactive);
+        } finally {
+            separateMigration.shutdown();
+            separateInteractive.shutdown();
+        }
+
+        FairScheduler scheduler = new FairScheduler(cores);
+        ConcurrentFileParserService sharedMigration = sharing(scheduler, 1.0);
+        ConcurrentFileParserService sharedInteractive = sharing(scheduler, 1.0);
+        long[] shared;
+        try {
+            sharedMigration.parseFiles(migration.subList(0, 50));
+            shared = runSideBySide(sharedMigration, migration, sharedInteractive, interactive);
+        } finally {
+            sharedMigration.shutdown();
+            sharedInteractive.shutdown();
+            scheduler.shutdown();
+        }
+
+        System.out.println("\n=== Fair Scheduler: " + interactive.size() + " file batch during a "
+            + migration.size() + " file migration ===");
+        System.out.println("Pool per service (" + cores * 2 + " threads): small batch " + separate[0]
+            + " ms, migration " + separate[1] + " ms");
+        System.out.println("Shared scheduler (" + cores + " threads): small batch " + shared[0]
+            + " ms, migration " + shared[1] + " ms");
+    }
+
+    /**
+     * Starts the migration, then times the small batch once the migration is under way.
+     *
+     * @return Small batch and migration times in ms
+     */
+    private static long[] runSideBySide(ConcurrentFileParserService migrationService, List<String> migration,
+                                        ConcurrentFileParserService interactiveService, List<String> interactive)
+            throws InterruptedException {
+        long start = System.nanoTime();
+        CompletableFuture<ConcurrentFileParserService.ParsingResult> migrationResult =
+            CompletableFuture.supplyAsync(() -> migrationService.parseFiles(migration));
+        Thread.sleep(100);
+
+        long interactiveStart = System.nanoTime();
+        ConcurrentFileParserService.ParsingResult interactiveResult = interactiveService.parseFiles(interactive);
+        long interactiveTime = (System.nanoTime() - interactiveStart) / 1_000_000;
+        assertEquals(interactive.size() * 1_000, interactiveResult.getTotalJobsParsed());
+
+        assertEquals(migration.size() * 1_000, migrationResult.join().getTotalJobsParsed());
+        return new long[] {interactiveTime, (System.nanoTime() - start) / 1_000_000};
+    }
+
+    private static ConcurrentFileParserService sharing(FairScheduler scheduler, double weight) {
+        return ConcurrentFileParserService.builder().scheduler(scheduler, weight).build();
+    }
+
+    /**
+     * Occupies the scheduler's only thread until the returned latch is released, so tasks queue up.
+     */
+    private static CountDownLatch hold(FairScheduler scheduler) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler.newBatch(1.0, 0).execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        return release;
+    }
+
+    private static Runnable record(List<String> order, String name, CountDownLatch done) {
+        return () -> {
+            order.add(name);
+            done.countDown();
+        };
+    }
+
+    private String writeJobs(String fileName, int firstJobId, int jobCount) throws IOException {
+        File file = new File(tempDir, fileName);
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write('[');
+            for (int i = 0; i < jobCount; i++) {
+                if (i > 0) {
+                    writer.write(",\n");
+                }
+                int jobId = firstJobId + i;
+                writer.write("{\"job_id\": " + jobId + ", \"job_name\": \"Job_" + jobId
+                    + "\", \"dependencies\": [], \"notes\": \"\"}");
+            }
+            writer.write(']');
+        }
+        return file.getPath();
+    }
+}
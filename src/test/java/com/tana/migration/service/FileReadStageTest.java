@@ -0,0 +1,249 @@
+package com.tana.migration.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Unit and performance tests for FileReadStage.
+ * Parsing with the read stage is compared with parsing threads that read their own files.
+ */
+public class FileReadStageTest {
+
+    private File tempDir;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("file-read-stage").toFile();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        File[] files = tempDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        tempDir.delete();
+    }
+
+    @Test
+    public void testReadsWholeFile() throws Exception {
+        String filePath = writeJobs("whole.json", 1, 2_000, false);
+        byte[] expected = Files.readAllBytes(new File(filePath).toPath());
+        FileReadStage stage = new FileReadStage(1, 1, 256 * 1024);
+        try {
+            ByteBuffer content = stage.read(filePath).get(10, TimeUnit.SECONDS);
+            byte[] actual = new byte[content.remaining()];
+            content.duplicate().get(actual);
+
+            assertTrue(content.isDirect());
+            assertArrayEquals(expected, actual);
+            assertEquals(1, stage.getBufferedCount());
+            stage.release(content);
+            assertEquals(0, stage.getBufferedCount());
+        } finally {
+            stage.shutdown();
+        }
+    }
+
+    @Test
+    public void testQueuedReadsStartAsBuffersAreReleased() throws Exception {
+        List<String> filePaths = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            filePaths.add(writeJobs("queued_" + i + ".json", i * 100, 10, false));
+        }
+        FileReadStage stage = new FileReadStage(1, 2, 4096);
+        try {
+            CompletableFuture<ByteBuffer> first = stage.read(filePaths.get(0));
+            CompletableFuture<ByteBuffer> second = stage.read(filePaths.get(1));
+            CompletableFuture<ByteBuffer> third = stage.read(filePaths.get(2));
+            ByteBuffer firstContent = first.get(10, TimeUnit.SECONDS);
+            second.get(10, TimeUnit.SECONDS);
+
+            assertEquals(1, stage.getQueuedCount());
+            assertFalse(third.isDone());
+            stage.release(firstContent);
+            ByteBuffer thirdContent = third.get(10, TimeUnit.SECONDS);
+            // The released buffer is reused for the queued read
+            assertSame(firstContent, thirdContent);
+            assertEquals(new File(filePaths.get(2)).length(), thirdContent.remaining());
+            assertEquals(0, stage.getQueuedCount());
+        } finally {
+            stage.shutdown();
+        }
+    }
+
+    @Test
+    public void testAbandonedQueuedReadIsDropped() throws Exception {
+        String first = writeJobs("first.json", 1, 10, false);
+        String second = writeJobs("second.json", 100, 10, false);
+        FileReadStage stage = new FileReadStage(1, 1, 4096);
+        try {
+            ByteBuffer content = stage.read(first).get(10, TimeUnit.SECONDS);
+            CompletableFuture<ByteBuffer> queued = stage.read(second);
+
+            assertTrue(stage.abandon(queued));
+            assertTrue(queued.isCompletedExceptionally());
+            assertEquals(0, stage.getQueuedCount());
+            stage.release(content);
+            assertEquals(0, stage.getBufferedCount());
+            assertEquals(1, stage.getIoThreadCount());
+            assertFalse(stage.abandon(CompletableFuture.completedFuture(content)));
+        } finally {
+            stage.shutdown();
+        }
+    }
+
+    @Test
+    public void testFailedReadsReleaseTheirBuffer() throws Exception {
+        String tooLarge = writeJobs("too_large.json", 1, 500, false);
+        FileReadStage stage = new FileReadStage(1, 1, 4096);
+        try {
+            assertFalse(stage.accepts(new File(tooLarge).length()));
+            ExecutionException missing = assertThrows(ExecutionException.class,
+                () -> stage.read(new File(tempDir, "missing.json").getPath()).get(10, TimeUnit.SECONDS));
+            ExecutionException large = assertThrows(ExecutionException.class,
+                () -> stage.read(tooLarge).get(10, TimeUnit.SECONDS));
+
+            assertTrue(missing.getCause() instanceof IOException);
+            assertTrue(large.getCause().getMessage().contains("larger than the read buffer"));
+            assertEquals(0, stage.getBufferedCount());
+        } finally {
+            stage.shutdown();
+        }
+        assertThrows(ExecutionException.class, () -> stage.read(tooLarge).get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testAbandonedReadIsReplacedUntilItReturns() throws Exception {
+        // Opening a FIFO for reading blocks until a writer opens it, like a read on a hung mount
+        File fifo = makeFifo("hung.fifo");
+        String next = writeJobs("next.json", 1, 10, false);
+        FileReadStage stage = new FileReadStage(1, 1, 4096);
+        try {
+            CompletableFuture<ByteBuffer> hung = stage.read(fifo.getPath());
+            CompletableFuture<ByteBuffer> queued = stage.read(next);
+            Thread.sleep(100);
+            assertFalse(hung.isDone());
+            assertEquals(1, stage.getQueuedCount());
+
+            assertTrue(stage.abandon(hung));
+            assertFalse(stage.abandon(hung));
+            ExecutionException abandoned = assertThrows(ExecutionException.class, () -> hung.get(10, TimeUnit.SECONDS));
+            assertTrue(abandoned.getCause().getMessage().contains("Read abandoned"));
+            // The queued read gets the hung read's slot and a new I/O thread
+            ByteBuffer content = queued.get(10, TimeUnit.SECONDS);
+            assertEquals(new File(next).length(), content.remaining());
+            assertEquals(2, stage.getIoThreadCount());
+            stage.release(content);
+
+            new FileOutputStream(fifo).close();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (stage.getIoThreadCount() > 1 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, stage.getIoThreadCount());
+            assertEquals(0, stage.getBufferedCount());
+        } finally {
+            stage.shutdown();
+        }
+    }
+
+    @Test
+    public void testStagedVsDirectReads_PerformanceComparison() throws IOException {
+        int files = 300;
+        List<String> filePaths = new ArrayList<>();
+        for (int i = 0; i < files; i++) {
+            filePaths.add(writeJobs("perf_" + i + (i % 3 == 0 ? ".json.gz" : ".json"), i * 10_000, 1_000, i % 3 == 0));
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        ConcurrentFileParserService direct = new ConcurrentFileParserService(cores * 2);
+        FileReadStage readStage = new FileReadStage(2, cores * 4, 1024 * 1024);
+        ConcurrentFileParserService staged = ConcurrentFileParserService.builder().threadPoolSize(cores)
+            .readStage(readStage).build();
+        try {
+            // Warm up
+            direct.parseFiles(filePaths);
+            staged.parseFiles(filePaths);
+
+            long start = System.nanoTime();
+            ConcurrentFileParserService.ParsingResult directResult = direct.parseFiles(filePaths);
+            long directTime = (System.nanoTime() - start) / 1_000_000;
+
+            start = System.nanoTime();
+            ConcurrentFileParserService.ParsingResult stagedResult = staged.parseFiles(filePaths);
+            long stagedTime = (System.nanoTime() - start) / 1_000_000;
+
+            System.out.println("\n=== File Read Stage: " + files + " files, 1000 jobs each (a third gzip) ===");
+            System.out.println("Read and parse on " + cores * 2 + " threads: " + directTime + " ms");
+            System.out.println("Read on 2 I/O threads, parse on " + cores + " threads: " + stagedTime + " ms");
+
+            assertFalse(directResult.hasErrors());
+            assertFalse(stagedResult.hasErrors());
+            assertEquals(files * 1_000, stagedResult.getTotalJobsParsed());
+            for (int i = 0; i < directResult.getJobs().size(); i += 997) {
+                assertEquals(directResult.getJobs().get(i).getJobId(), stagedResult.getJobs().get(i).getJobId());
+            }
+        } finally {
+            direct.shutdown();
+            staged.shutdown();
+            readStage.shutdown();
+        }
+    }
+
+    /**
+     * Creates a named pipe; skips the test where mkfifo is not available.
+     */
+    private File makeFifo(String fileName) throws InterruptedException {
+        File fifo = new File(tempDir, fileName);
+        int exitCode;
+        try {
+            exitCode = new ProcessBuilder("mkfifo", fifo.getPath()).start().waitFor();
+        } catch (IOException e) {
+            exitCode = -1;
+        }
+        assumeTrue(exitCode == 0 && fifo.exists(), "mkfifo is not available");
+        return fifo;
+    }
+
+    private String writeJobs(String fileName, int firstJobId, int jobCount, boolean gzip) throws IOException {
+        File file = new File(tempDir, fileName);
+        try (Writer writer = gzip
+                 ? new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(file)), StandardCharsets.UTF_8)
+                 : new FileWriter(file)) {
+            writer.write('[');
+            for (int i = 0; i < jobCount; i++) {
+                if (i > 0) {
+                    writer.write(",\n");
+                }
+                int jobId = firstJobId + i;
+                writer.write("{\"job_id\": " + jobId + ", \"job_name\": \"Job_" + jobId
+                    + "\", \"dependencies\": [{\"job_id\": " + (jobId + 1) + "}], \"notes\": \"Nightly batch\"}");
+            }
+            writer.write(']');
+        }
+        return file.getPath();
+    }
+}
@@ -0,0 +1,174 @@
+package com.tana.migration.service;
+
+import com.tana.migration.exception.DataAnomalyException;
+import com.tana.migration.model.CompetitorJob;
+import com.tana.migration.parser.JsonArraySplitter;
+import com.tana.migration.parser.JsonCompetitorParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Performance test for size-aware scheduling on a skewed batch: many small files and one large file
+ * that comes last in the input. Compares submission order, largest-first, and largest-first with the
+ * large JSON file split into ranges, by wall time, time until the first parse starts, and pool utilisation
+ * (time spent parsing over threads times wall time).
+ */
+public class FileSchedulingPerformanceTest {
+
+    private static final int THREADS = 4;
+    private static final int SMALL_FILES = 200;
+
+    private final Timing timing = new Timing();
+    private File tempDir;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("file-scheduling").toFile();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        File[] files = tempDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        tempDir.delete();
+    }
+
+    @Test
+    public void testSkewedBatch_PerformanceComparison() throws IOException {
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < SMALL_FILES; i++) {
+            files.add(writeJobs("small_" + i + ".json", (i + 1) * 1_000, 500));
+        }
+        files.add(writeJobs("large.json", 10_000_000, 200_000));
+        int expectedJobs = SMALL_FILES * 500 + 200_000;
+        long largeSize = new File(files.get(files.size() - 1)).length();
+
+        ConcurrentFileParserService submissionOrder = ConcurrentFileParserService.builder().threadPoolSize(THREADS)
+            .parserFactory(filePath -> new TimedParser()).schedulingOrder(ScheduledFile.SUBMISSION_ORDER).build();
+        ConcurrentFileParserService largestFirst = ConcurrentFileParserService.builder().threadPoolSize(THREADS)
+            .parserFactory(filePath -> new TimedParser()).schedulingOrder(ScheduledFile.LARGEST_FIRST).build();
+        ConcurrentFileParserService splitting = ConcurrentFileParserService.builder().threadPoolSize(THREADS)
+            .parserFactory(filePath -> new TimedParser()).schedulingOrder(ScheduledFile.LARGEST_FIRST)
+            .splitThreshold(largeSize / (THREADS * 2)).build();
+        try {
+            // Warm up
+            submissionOrder.parseFiles(files);
+            largestFirst.parseFiles(files);
+            splitting.parseFiles(files);
+
+            String submissionTime = time(submissionOrder, files, expectedJobs);
+            String largestFirstTime = time(largestFirst, files, expectedJobs);
+            String splitTime = time(splitting, files, expectedJobs);
+
+            System.out.println("\n=== Size-Aware Scheduling: " + files.size() + " files ("
+                + largeSize / 1024 + " KB file last), " + THREADS + " threads ===");
+            System.out.println("Submission order:          " + submissionTime);
+            System.out.println("Largest first:             " + largestFirstTime);
+            System.out.println("Largest first + splitting: " + splitTime);
+        } finally {
+            submissionOrder.shutdown();
+            largestFirst.shutdown();
+            splitting.shutdown();
+        }
+    }
+
+    /**
+     * @return Wall time, time to the first parse and pool utilisation of one run
+     */
+    private String time(ConcurrentFileParserService service, List<String> files, int expectedJobs) {
+        timing.reset();
+        long start = System.nanoTime();
+        ConcurrentFileParserService.ParsingResult result = service.parseFiles(files);
+        long elapsedNanos = System.nanoTime() - start;
+
+        assertFalse(result.hasErrors());
+        assertEquals(expectedJobs, result.getTotalJobsParsed());
+        // Input order is kept whatever the scheduling
+        assertEquals(Integer.valueOf(1_000), result.getJobs().get(0).getJobId());
+        assertEquals(Integer.valueOf(10_000_000), result.getJobs().get(SMALL_FILES * 500).getJobId());
+        return elapsedNanos / 1_000_000 + " ms, first task after " + (timing.firstStart.get() - start) / 1_000_000
+            + " ms, pool utilisation " + Math.round(100.0 * timing.busyNanos.sum() / (THREADS * elapsedNanos)) + "%";
+    }
+
+    /**
+     * Start of the first parse, and time spent parsing by all threads, in the current run.
+     */
+    private static class Timing {
+        private final AtomicLong firstStart = new AtomicLong();
+        private final LongAdder busyNanos = new LongAdder();
+
+        void reset() {
+            firstStart.set(Long.MAX_VALUE);
+            busyNanos.reset();
+        }
+
+        long started() {
+            long now = System.nanoTime();
+            firstStart.accumulateAndGet(now, Math::min);
+            return now;
+        }
+    }
+
+    /**
+     * JSON parser that records its parses of whole files and ranges in the timing.
+     */
+    private class TimedParser extends JsonCompetitorParser {
+        @Override
+        public List<CompetitorJob> parseAndValidate(String filePath) throws DataAnomalyException {
+            long start = timing.started();
+            try {
+                return super.parseAndValidate(filePath);
+            } finally {
+                timing.busyNanos.add(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public List<CompetitorJob> parseRange(String filePath, JsonArraySplitter.Range range) throws DataAnomalyException {
+            long start = timing.started();
+            try {
+                return super.parseRange(filePath, range);
+            } finally {
+                timing.busyNanos.add(System.nanoTime() - start);
+            }
+        }
+    }
+
+    private String writeJobs(String name, int firstJobId, int jobCount) throws IOException {
+        File file = new File(tempDir, name);
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < jobCount; i++) {
+            if (i > 0) {
+                json.append(",\n");
+            }
+            int jobId = firstJobId + i;
+            json.append("{\"job_id\": ").append(jobId)
+                .append(", \"job_name\": \"Job_").append(jobId).append('"')
+                .append(", \"notes\": \"Skewed batch\", \"dependencies\": [");
+            if (i > 0) {
+                json.append("{\"job_id\": ").append(jobId - 1).append(", \"status\": \"Success\"}");
+            }
+            json.append("]}");
+        }
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write(json.append(']').toString());
+        }
+        return file.getAbsolutePath();
+    }
+}
@@ -0,0 +1,218 @@
+package com.tana.migration.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit and performance tests for MemoryBudget.
+ * Budgeted parsing is compared with parsing that queues every file at once.
+ */
+public class MemoryBudgetTest {
+
+    private File tempDir;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("memory-budget").toFile();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        File[] files = tempDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        tempDir.delete();
+    }
+
+    @Test
+    public void testEstimatesFromSizeFormatAndGzipTrailer() throws IOException {
+        MemoryBudget budget = new MemoryBudget(1_000_000);
+        String json = writeJobs("jobs.json", 0, 100, false);
+        String gzip = writeJobs("jobs.json.gz", 0, 100, true);
+        long jsonSize = new File(json).length();
+
+        assertEquals((long) (jsonSize * MemoryBudget.DEFAULT_JSON_FACTOR), budget.estimate(json, jsonSize));
+        // The gzip trailer gives the uncompressed size, the same bytes as the plain file
+        assertEquals(budget.estimate(json, jsonSize), budget.estimate(gzip, new File(gzip).length()));
+        assertEquals((long) (1000 * MemoryBudget.DEFAULT_XML_FACTOR), budget.estimateUncompressed("chain.xml", 1000));
+        assertEquals(3000, budget.estimate("/nonexistent/file.json", 1000));
+    }
+
+    @Test
+    public void testAdmitsInOrderWithinBudget() {
+        MemoryBudget budget = new MemoryBudget(100);
+
+        CompletableFuture<Void> first = budget.acquire(60);
+        CompletableFuture<Void> second = budget.acquire(50);
+        CompletableFuture<Void> third = budget.acquire(10);
+
+        assertTrue(first.isDone());
+        assertFalse(second.isDone());
+        // Waits behind the larger task even though it would fit
+        assertFalse(third.isDone());
+        assertEquals(2, budget.getWaitingCount());
+
+        budget.release(60);
+        assertTrue(second.isDone() && third.isDone());
+        assertEquals(60, budget.getInFlightBytes());
+        budget.release(50);
+        budget.release(10);
+        assertEquals(0, budget.getInFlightBytes());
+        assertEquals(60, budget.getPeakInFlightBytes());
+    }
+
+    @Test
+    public void testOversizedTaskRunsAlone() {
+        MemoryBudget budget = new MemoryBudget(100);
+
+        CompletableFuture<Void> small = budget.acquire(10);
+        CompletableFuture<Void> huge = budget.acquire(500);
+        assertTrue(small.isDone());
+        assertFalse(huge.isDone());
+
+        budget.release(10);
+        assertTrue(huge.isDone());
+        assertFalse(budget.acquire(1).isDone());
+        budget.release(500);
+        assertEquals(1, budget.getInFlightBytes());
+        assertThrows(IllegalArgumentException.class, () -> new MemoryBudget(0));
+    }
+
+    @Test
+    public void testServiceStaysWithinBudget() throws IOException {
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            files.add(writeJobs("batch_" + i + (i % 4 == 0 ? ".json.gz" : ".json"), i * 10_000, 2_000, i % 4 == 0));
+        }
+        files.add(new File(tempDir, "missing.json").getPath());
+        MemoryBudget budget = new MemoryBudget(3 * budgetFor(files.get(1)));
+
+        ConcurrentFileParserService budgeted = ConcurrentFileParserService.builder().threadPoolSize(4)
+            .memoryBudget(budget).build();
+        ConcurrentFileParserService unbounded = new ConcurrentFileParserService(4);
+        ConcurrentFileParserService.ParsingResult result;
+        ConcurrentFileParserService.ParsingResult expected;
+        try {
+            result = budgeted.parseFiles(files);
+            expected = unbounded.parseFiles(files);
+        } finally {
+            budgeted.shutdown();
+            unbounded.shutdown();
+        }
+
+        assertEquals(expected.getTotalJobsParsed(), result.getTotalJobsParsed());
+        assertEquals(1, result.getErrors().size());
+        assertTrue(budget.getPeakInFlightBytes() <= budget.getBudgetBytes());
+        assertTrue(budget.getPeakInFlightBytes() > 0);
+        assertEquals(0, budget.getInFlightBytes());
+        assertEquals(0, budget.getWaitingCount());
+    }
+
+    @Test
+    public void testBudgetedVsUnbounded_PerformanceComparison() throws Exception {
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            files.add(writeJobs("large_" + i + ".json", 1_000_000 + i * 100_000, 40_000, false));
+        }
+        long fileCost = budgetFor(files.get(0));
+        MemoryBudget budget = new MemoryBudget(2 * fileCost);
+
+        ConcurrentFileParserService unbounded = new ConcurrentFileParserService(8);
+        ConcurrentFileParserService budgeted = ConcurrentFileParserService.builder().threadPoolSize(8)
+            .memoryBudget(budget).build();
+        try {
+            // Warm up
+            unbounded.parseFiles(files);
+            budgeted.parseFiles(files);
+
+            long[] unboundedRun = measure(unbounded, files);
+            long[] budgetedRun = measure(budgeted, files);
+
+            System.out.println("\n=== Memory Budget: " + files.size() + " files of "
+                + new File(files.get(0)).length() / 1024 + " KB, 8 threads ===");
+            System.out.println("Unbounded: " + unboundedRun[0] + " ms, peak sampled heap "
+                + unboundedRun[1] / (1024 * 1024) + " MB");
+            System.out.println("Budget of " + budget.getBudgetBytes() / (1024 * 1024) + " MB: " + budgetedRun[0]
+                + " ms, peak sampled heap " + budgetedRun[1] / (1024 * 1024) + " MB, peak estimate "
+                + budget.getPeakInFlightBytes() / (1024 * 1024) + " MB");
+
+            assertEquals(unboundedRun[2], budgetedRun[2]);
+            assertEquals(2 * fileCost, budget.getPeakInFlightBytes());
+        } finally {
+            unbounded.shutdown();
+            budgeted.shutdown();
+        }
+    }
+
+    /**
+     * @return Elapsed ms, highest used heap sampled every millisecond, and jobs parsed
+     */
+    private static long[] measure(ConcurrentFileParserService service, List<String> files) throws Exception {
+        System.gc();
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicLong peak = new AtomicLong();
+        Thread sampler = new Thread(() -> {
+            Runtime runtime = Runtime.getRuntime();
+            while (!done.get()) {
+                peak.accumulateAndGet(runtime.totalMemory() - runtime.freeMemory(), Math::max);
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        sampler.start();
+        long start = System.nanoTime();
+        ConcurrentFileParserService.ParsingResult result = service.parseFiles(files);
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        done.set(true);
+        sampler.join();
+        assertFalse(result.hasErrors());
+        return new long[] {elapsed, peak.get(), result.getTotalJobsParsed()};
+    }
+
+    private static long budgetFor(String filePath) {
+        return new MemoryBudget(1).estimate(filePath, new File(filePath).length());
+    }
+
+    private String writeJobs(String fileName, int firstJobId, int jobCount, boolean gzip) throws IOException {
+        File file = new File(tempDir, fileName);
+        try (Writer writer = gzip
+                 ? new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(file)), StandardCharsets.UTF_8)
+                 : new FileWriter(file)) {
+            writer.write('[');
+            for (int i = 0; i < jobCount; i++) {
+                if (i > 0) {
+                    writer.write(",\n");
+                }
+                int jobId = firstJobId + i;
+                writer.write("{\"job_id\": " + jobId + ", \"job_name\": \"Job_" + jobId
+                    + "\", \"dependencies\": [], \"notes\": \"Nightly batch\"}");
+            }
+            writer.write(']');
+        }
+        return file.getPath();
+    }
+}
@@ -0,0 +1,217 @@
+package com.tana.migration.service;
+
+import com.tana.migration.exception.CircularDependencyException;
+import com.tana.migration.exception.ContradictoryDataException;
+import com.tana.migration.exception.DataAnomalyException;
+import com.tana.migration.mapper.CdmMapperImpl;
+import com.tana.migration.model.CompetitorJob;
+import com.tana.migration.model.RmjJob;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit and performance tests for MigrationPipeline.
+ * Results are compared with the sequential parseFiles → reconcileData → mapToRmj chain.
+ */
+public class MigrationPipelineTest {
+
+    private File tempDir;
+    private MigrationPipeline pipeline;
+    private ConcurrentFileParserService parserService;
+    private CdmMapperImpl mapper;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("migration-pipeline").toFile();
+        pipeline = new MigrationPipeline(4, 4, null, null);
+        parserService = new ConcurrentFileParserService(4);
+        mapper = new CdmMapperImpl();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        pipeline.shutdown();
+        parserService.shutdown();
+        File[] files = tempDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        tempDir.delete();
+    }
+
+    @Test
+    public void testPipelineMatchesSequentialChain() throws Exception {
+        List<String> files = createMigrationFiles(6, 200);
+
+        MigrationPipeline.PipelineResult result = pipeline.run(files);
+
+        assertFalse(result.hasErrors());
+        assertEquals(toComparable(runSequential(files)), toComparable(result.getRmjJobs()));
+        MigrationPipeline.StageStats parse = result.getStageStats().get(0);
+        assertEquals("parse", parse.getName());
+        assertTrue(parse.getRecords() > 0);
+        assertEquals(result.getRmjJobs().size(), result.getStageStats().get(3).getRecords());
+    }
+
+    @Test
+    public void testPipelineStreamsIntoSink() throws Exception {
+        List<String> files = createMigrationFiles(3, 50);
+        List<RmjJob> written = new ArrayList<>();
+
+        MigrationPipeline.PipelineResult result = pipeline.run(files, written::add);
+
+        assertFalse(result.hasErrors());
+        assertTrue(result.getRmjJobs().isEmpty());
+        assertEquals(toComparable(runSequential(files)), toComparable(written));
+        assertEquals(written.size(), result.getStageStats().get(3).getRecords());
+    }
+
+    @Test
+    public void testParseErrorsAreReportedAndOtherFilesMigrated() throws Exception {
+        List<String> files = new ArrayList<>(createMigrationFiles(2, 10));
+        files.add(new File("src/test/resources/concurrency-challenge/diag_report_001.json").getAbsolutePath());
+
+        MigrationPipeline.PipelineResult result = pipeline.run(files);
+
+        assertEquals(1, result.getErrors().size());
+        assertTrue(result.getErrors().get(0).getErrorMessage().startsWith("Data anomaly"));
+        assertEquals(21, result.getRmjJobs().size());
+    }
+
+    @Test
+    public void testContradictionMatchesReconcileData() throws Exception {
+        String json = writeFile("conflict.json",
+            "[{\"job_id\": 1, \"job_name\": \"Load\", \"dependencies\": []}," +
+            " {\"job_id\": 2, \"job_name\": \"Report\", \"dependencies\": [{\"job_id\": 1}]}]");
+        String xml = writeFile("conflict.xml",
+            "<ProcessChain><Job id=\"1\" name=\"Load\"/><Job id=\"2\" name=\"Report\"/></ProcessChain>");
+
+        ContradictoryDataException expected = assertThrows(ContradictoryDataException.class,
+            () -> runSequential(Arrays.asList(json, xml)));
+        ContradictoryDataException actual = assertThrows(ContradictoryDataException.class,
+            () -> pipeline.run(Arrays.asList(xml, json)));
+
+        assertEquals(expected.getMessage(), actual.getMessage());
+        assertEquals(Integer.valueOf(2), actual.getJobId());
+    }
+
+    @Test
+    public void testCycleIsRejected() throws Exception {
+        String json = writeFile("cycle.json",
+            "[{\"job_id\": 1, \"job_name\": \"A\", \"dependencies\": [{\"job_id\": 2}]}," +
+            " {\"job_id\": 2, \"job_name\": \"B\", \"dependencies\": [{\"job_id\": 1}]}]");
+
+        assertThrows(CircularDependencyException.class, () -> pipeline.run(Arrays.asList(json)));
+    }
+
+    @Test
+    public void testPipelineVsSequential_PerformanceComparison() throws Exception {
+        List<String> files = createMigrationFiles(40, 2_500);
+
+        // Warm up both paths
+        runSequential(files);
+        pipeline.run(files);
+
+        long start = System.nanoTime();
+        List<RmjJob> sequential = runSequential(files);
+        long sequentialTime = System.nanoTime() - start;
+
+        MigrationPipeline.PipelineResult result = pipeline.run(files);
+
+        System.out.println("\n=== Pipeline vs Sequential Chain: " + files.size() + " files, "
+            + sequential.size() + " jobs ===");
+        System.out.println("Sequential chain: " + sequentialTime / 1_000_000 + " ms");
+        System.out.println("Pipeline:         " + result.getWallNanos() / 1_000_000 + " ms");
+        for (MigrationPipeline.StageStats stats : result.getStageStats()) {
+            System.out.println("  " + stats);
+        }
+
+        assertEquals(toComparable(sequential), toComparable(result.getRmjJobs()));
+    }
+
+    private List<RmjJob> runSequential(List<String> files) throws DataAnomalyException {
+        ConcurrentFileParserService.ParsingResult parsed = parserService.parseFiles(files);
+        List<CompetitorJob> jsonJobs = new ArrayList<>();
+        List<CompetitorJob> xmlJobs = new ArrayList<>();
+        for (CompetitorJob job : parsed.getJobs()) {
+            (job.getSourceFile().endsWith(".xml") ? xmlJobs : jsonJobs).add(job);
+        }
+        List<CompetitorJob> reconciled = mapper.reconcileData(jsonJobs, xmlJobs);
+        mapper.detectCircularDependencies(reconciled);
+        return mapper.mapToRmj(reconciled);
+    }
+
+    private static Map<Integer, String> toComparable(List<RmjJob> jobs) {
+        Map<Integer, String> result = new TreeMap<>();
+        for (RmjJob job : jobs) {
+            List<Integer> dependencies = new ArrayList<>(job.getDependencyJobIds());
+            dependencies.sort(null);
+            assertNull(result.put(job.getJobId(), job.getJobName() + "|" + job.getNotes() + "|" + dependencies));
+        }
+        return result;
+    }
+
+    /**
+     * Creates JSON files with acyclic jobs and one XML file per three JSON files that repeats
+     * some JSON jobs verbatim and adds jobs of its own.
+     */
+    private List<String> createMigrationFiles(int jsonFiles, int jobsPerFile) throws IOException {
+        List<String> files = new ArrayList<>();
+        for (int f = 0; f < jsonFiles; f++) {
+            int base = (f + 1) * 100_000;
+            StringBuilder json = new StringBuilder("[");
+            for (int j = 0; j < jobsPerFile; j++) {
+                if (j > 0) {
+                    json.append(',');
+                }
+                json.append("{\"job_id\": ").append(base + j)
+                    .append(", \"job_name\": \"Job_").append(base + j).append('"')
+                    .append(", \"notes\": \"Batch ").append(f % 5).append('"')
+                    .append(", \"dependencies\": [");
+                if (j > 0) {
+                    json.append("{\"job_id\": ").append(base + j - 1).append(", \"status\": \"Success\"}");
+                }
+                json.append("]}");
+            }
+            files.add(writeFile("jobs_" + f + ".json", json.append(']').toString()));
+
+            if (f % 3 == 0) {
+                StringBuilder xml = new StringBuilder("<ProcessChain>");
+                for (int j = 0; j < jobsPerFile / 2; j++) {
+                    xml.append("<Job id=\"").append(base + j).append("\" name=\"Job_").append(base + j).append('"');
+                    if (j > 0) {
+                        xml.append(" dependsOn=\"").append(base + j - 1).append('"');
+                    }
+                    xml.append("/>");
+                }
+                xml.append("<Job id=\"").append(base + 99_999).append("\" name=\"Xml_Only\" dependsOn=\"")
+                    .append(base).append("\"/>");
+                files.add(writeFile("jobs_" + f + ".xml", xml.append("</ProcessChain>").toString()));
+            }
+        }
+        return files;
+    }
+
+    private String writeFile(String name, String content) throws IOException {
+        File file = new File(tempDir, name);
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write(content);
+        }
+        return file.getAbsolutePath();
+    }
+}
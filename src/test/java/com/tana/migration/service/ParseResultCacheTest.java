@@ -0,0 +1,276 @@
+package com.tana.migration.service;
+
+import com.tana.migration.factory.ContentSniffingParserFactory;
+import com.tana.migration.factory.ParserFactory;
+import com.tana.migration.model.CompetitorJob;
+import com.tana.migration.model.JobDependency;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit and performance tests for ParseResultCache and its use in ConcurrentFileParserService.
+ */
+public class ParseResultCacheTest {
+
+    private File tempDir;
+    private File cacheDir;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("parse-cache").toFile();
+        cacheDir = new File(tempDir, "cache");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        deleteTree(tempDir);
+    }
+
+    @Test
+    public void testRoundTripKeepsAllFields() throws IOException {
+        String filePath = writeFile("jobs.json", "[]");
+        CompetitorJob first = new CompetitorJob(-5, "Lädt Daten");
+        first.setNotes("Nightly");
+        first.setSourceFile(filePath);
+        first.addDependency(new JobDependency(Integer.MAX_VALUE, "Success"));
+        first.addDependency(new JobDependency(null, null));
+        CompetitorJob second = new CompetitorJob(null, null);
+        CompetitorJob third = new CompetitorJob(Integer.MIN_VALUE, "Lädt Daten");
+        List<CompetitorJob> jobs = Arrays.asList(first, second, third);
+
+        ParseResultCache cache = new ParseResultCache(cacheDir.getPath());
+        ParseResultCache.Key key = cache.keyFor(filePath);
+        cache.put(key, jobs);
+        List<CompetitorJob> loaded = new ParseResultCache(cacheDir.getPath()).get(key);
+
+        assertNotNull(loaded);
+        assertEquals(3, loaded.size());
+        assertEquals(Integer.valueOf(-5), loaded.get(0).getJobId());
+        assertEquals("Lädt Daten", loaded.get(0).getJobName());
+        assertEquals("Nightly", loaded.get(0).getNotes());
+        assertEquals(filePath, loaded.get(0).getSourceFile());
+        assertEquals(first.getDependencies(), loaded.get(0).getDependencies());
+        assertEquals("Success", loaded.get(0).getDependencies().get(0).getStatus());
+        assertNull(loaded.get(1).getJobId());
+        assertNull(loaded.get(1).getJobName());
+        assertTrue(loaded.get(1).getDependencies().isEmpty());
+        assertEquals(Integer.valueOf(Integer.MIN_VALUE), loaded.get(2).getJobId());
+        assertTrue(loaded.get(2).getDependencies().isEmpty());
+    }
+
+    @Test
+    public void testChangedContentIsAMiss() throws IOException {
+        String filePath = writeFile("jobs.json", "[{\"job_id\": 1}]");
+        ParseResultCache cache = new ParseResultCache(cacheDir.getPath());
+        ParseResultCache.Key key = cache.keyFor(filePath);
+        cache.put(key, new ArrayList<>());
+        assertNotNull(cache.get(cache.keyFor(filePath)));
+
+        // Same size and modification time, different content: only the hash tells them apart
+        long lastModified = new File(filePath).lastModified();
+        try (RandomAccessFile file = new RandomAccessFile(filePath, "rw")) {
+            file.seek(12);
+            file.write('2');
+        }
+        new File(filePath).setLastModified(lastModified);
+
+        ParseResultCache.Key changed = cache.keyFor(filePath);
+        assertEquals(key.getSize(), changed.getSize());
+        assertEquals(key.getLastModified(), changed.getLastModified());
+        assertTrue(cache.mayContain(filePath, changed.getSize(), changed.getLastModified()));
+        assertNull(cache.get(changed));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntriesAreEvicted() throws IOException {
+        List<ParseResultCache.Key> keys = new ArrayList<>();
+        ParseResultCache cache = new ParseResultCache(cacheDir.getPath());
+        for (int i = 0; i < 3; i++) {
+            String filePath = writeFile("jobs_" + i + ".json", "[]");
+            keys.add(cache.keyFor(filePath));
+            cache.put(keys.get(i), jobs(i * 100, 100, filePath));
+        }
+        long entryBytes = cache.getTotalBytes() / 3;
+
+        // Room for two entries; reading entry 0 makes entry 1 the least recently used
+        ParseResultCache bounded = new ParseResultCache(new File(tempDir, "bounded").getPath(), entryBytes * 2 + entryBytes / 2);
+        bounded.put(keys.get(0), jobs(0, 100, keys.get(0).getFilePath()));
+        bounded.put(keys.get(1), jobs(100, 100, keys.get(1).getFilePath()));
+        assertNotNull(bounded.get(keys.get(0)));
+        bounded.put(keys.get(2), jobs(200, 100, keys.get(2).getFilePath()));
+
+        assertEquals(2, bounded.size());
+        assertNotNull(bounded.get(keys.get(0)));
+        assertNull(bounded.get(keys.get(1)));
+        assertNotNull(bounded.get(keys.get(2)));
+    }
+
+    @Test
+    public void testCorruptEntryIsAMiss() throws IOException {
+        String filePath = writeFile("jobs.json", "[]");
+        ParseResultCache cache = new ParseResultCache(cacheDir.getPath());
+        ParseResultCache.Key key = cache.keyFor(filePath);
+        cache.put(key, jobs(1, 50, filePath));
+        File[] entries = cacheDir.listFiles();
+        assertEquals(1, entries.length);
+        try (RandomAccessFile entry = new RandomAccessFile(entries[0], "rw")) {
+            entry.setLength(entry.length() / 2);
+        }
+
+        assertNull(cache.get(key));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testServiceLoadsUnchangedFilesFromCache() throws IOException {
+        String unchanged = writeFile("unchanged.json",
+            "[{\"job_id\": 1, \"job_name\": \"Load\", \"dependencies\": []}]");
+        String modified = writeFile("modified.xml", "<ProcessChain><Job id=\"2\" name=\"Report\"/></ProcessChain>");
+        List<String> files = Arrays.asList(unchanged, modified);
+        AtomicInteger parsed = new AtomicInteger();
+        ParserFactory delegate = new ContentSniffingParserFactory();
+        ParserFactory counting = filePath -> {
+            parsed.incrementAndGet();
+            return delegate.createParser(filePath);
+        };
+
+        ConcurrentFileParserService first = cachingService(counting);
+        try {
+            assertEquals(2, first.parseFiles(files).getTotalJobsParsed());
+        } finally {
+            first.shutdown();
+        }
+        assertEquals(2, parsed.get());
+
+        writeFile("modified.xml", "<ProcessChain><Job id=\"2\" name=\"Report\"/><Job id=\"3\" name=\"Archive\"/></ProcessChain>");
+        ConcurrentFileParserService second = cachingService(counting);
+        ConcurrentFileParserService.ParsingResult result;
+        try {
+            result = second.parseFiles(files);
+        } finally {
+            second.shutdown();
+        }
+
+        assertEquals(3, parsed.get());
+        assertFalse(result.hasErrors());
+        assertEquals(3, result.getTotalJobsParsed());
+        assertEquals("Load", result.getJobs().get(0).getJobName());
+        assertEquals(unchanged, result.getJobs().get(0).getSourceFile());
+    }
+
+    @Test
+    public void testInvalidFilesAreNotCached() throws IOException {
+        String duplicate = writeFile("duplicate.json",
+            "[{\"job_id\": 1, \"job_name\": \"A\"}, {\"job_id\": 1, \"job_name\": \"B\"}]");
+
+        for (int run = 0; run < 2; run++) {
+            ConcurrentFileParserService service = cachingService(null);
+            try {
+                ConcurrentFileParserService.ParsingResult result = service.parseFiles(Arrays.asList(duplicate));
+                assertEquals(1, result.getErrors().size());
+            } finally {
+                service.shutdown();
+            }
+        }
+        assertEquals(0, new ParseResultCache(cacheDir.getPath()).size());
+    }
+
+    @Test
+    public void testColdVsWarmCache_PerformanceComparison() throws IOException {
+        List<String> files = new ArrayList<>();
+        for (int f = 0; f < 20; f++) {
+            StringBuilder json = new StringBuilder("[");
+            for (int j = 0; j < 5_000; j++) {
+                int jobId = f * 100_000 + j;
+                if (j > 0) {
+                    json.append(',');
+                }
+                json.append("{\"job_id\": ").append(jobId)
+                    .append(", \"job_name\": \"Job_").append(jobId).append('"')
+                    .append(", \"notes\": \"Batch ").append(f % 3).append('"')
+                    .append(", \"dependencies\": [");
+                if (j > 0) {
+                    json.append("{\"job_id\": ").append(jobId - 1).append(", \"status\": \"Success\"}");
+                }
+                json.append("]}");
+            }
+            files.add(writeFile("perf_" + f + ".json", json.append(']').toString()));
+        }
+
+        ConcurrentFileParserService uncached = new ConcurrentFileParserService(4);
+        ConcurrentFileParserService cached = cachingService(null);
+        try {
+            // Warm up the parsers and fill the cache
+            uncached.parseFiles(files);
+            cached.parseFiles(files);
+
+            long start = System.nanoTime();
+            ConcurrentFileParserService.ParsingResult parsed = uncached.parseFiles(files);
+            long parseTime = (System.nanoTime() - start) / 1_000_000;
+
+            start = System.nanoTime();
+            ConcurrentFileParserService.ParsingResult loaded = cached.parseFiles(files);
+            long loadTime = (System.nanoTime() - start) / 1_000_000;
+
+            System.out.println("\n=== Parse-Result Cache: " + files.size() + " unchanged files, "
+                + parsed.getTotalJobsParsed() + " jobs ===");
+            System.out.println("Parsed:            " + parseTime + " ms");
+            System.out.println("Loaded from cache: " + loadTime + " ms");
+
+            assertEquals(parsed.getTotalJobsParsed(), loaded.getTotalJobsParsed());
+            for (int i = 0; i < parsed.getJobs().size(); i += 997) {
+                assertEquals(parsed.getJobs().get(i), loaded.getJobs().get(i));
+                assertEquals(parsed.getJobs().get(i).getDependencies(), loaded.getJobs().get(i).getDependencies());
+            }
+        } finally {
+            uncached.shutdown();
+            cached.shutdown();
+        }
+    }
+
+    private ConcurrentFileParserService cachingService(ParserFactory factory) throws IOException {
+        return ConcurrentFileParserService.builder().threadPoolSize(4).parserFactory(factory)
+            .cache(new ParseResultCache(cacheDir.getPath())).build();
+    }
+
+    private static List<CompetitorJob> jobs(int firstJobId, int count, String sourceFile) {
+        List<CompetitorJob> jobs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            CompetitorJob job = new CompetitorJob(firstJobId + i, "Job_" + (firstJobId + i));
+            job.setSourceFile(sourceFile);
+            jobs.add(job);
+        }
+        return jobs;
+    }
+
+    private String writeFile(String name, String content) throws IOException {
+        File file = new File(tempDir, name);
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write(content);
+        }
+        return file.getAbsolutePath();
+    }
+
+    private static void deleteTree(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteTree(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,239 @@
+package com.tana.migration.service;
+
+import com.tana.migration.model.DiagnosticReport;
+import com.tana.migration.util.SequenceBitmap;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit and performance tests for SequenceGapIndex and SequenceBitmap.
+ * Gaps are compared with the ones found by sorting the same sequence ids.
+ */
+public class SequenceGapIndexTest {
+
+    @Test
+    public void testMissingAndLateSequences() {
+        SequenceGapIndex index = new SequenceGapIndex();
+
+        for (long sequence : new long[] {1, 2, 5, 3, 9, 9, 10}) {
+            index.add("V1", sequence);
+        }
+        index.add(new DiagnosticReport("V2", 7L, "INITIAL_DIAGNOSTIC", 100L, "OK"));
+        assertFalse(index.add(new DiagnosticReport("V2", null, "INITIAL_DIAGNOSTIC", 100L, "OK")));
+
+        assertEquals(4, index.getMissingCount("V1"));
+        assertEquals(Arrays.asList(range(4, 4), range(6, 8)), index.getMissingRanges("V1"));
+        assertArrayEquals(new long[] {4, 6, 7, 8}, index.getMissingSequences("V1"));
+        assertArrayEquals(new long[] {3}, index.getOutOfOrderSequences("V1"));
+        assertEquals(1, index.getDuplicateCount("V1"));
+        assertEquals(0, index.getMissingCount("V2"));
+        assertEquals(Collections.singleton("V1"), index.getVinsWithGaps());
+        assertEquals(Collections.singleton("V1"), index.getVinsOutOfOrder());
+        assertEquals(0, index.getMissingCount("V3"));
+        assertEquals(2, index.getVinCount());
+    }
+
+    @Test
+    public void testFirstSequenceIdReportsLeadingGap() {
+        SequenceGapIndex index = new SequenceGapIndex(1);
+
+        index.add("V1", 4);
+        index.add("V1", 5);
+
+        assertEquals(3, index.getMissingCount("V1"));
+        assertEquals(Collections.singletonList(range(1, 3)), index.getMissingRanges("V1"));
+    }
+
+    @Test
+    public void testAggregatorFeedsIndex() {
+        SequenceGapIndex index = new SequenceGapIndex();
+        DiagnosticAggregator aggregator = new DiagnosticAggregator(index);
+
+        aggregator.add(new DiagnosticReport("V1", 3L, "FINAL_VALIDATION", 300L, "OK"));
+        aggregator.add(new DiagnosticReport("V1", 1L, "INITIAL_DIAGNOSTIC", 100L, "WARN"));
+
+        assertSame(index, aggregator.getSequenceIndex());
+        assertArrayEquals(new long[] {2}, index.getMissingSequences("V1"));
+        assertArrayEquals(new long[] {1}, index.getOutOfOrderSequences("V1"));
+    }
+
+    @Test
+    public void testGapsAcrossPagesAndFullPages() {
+        SequenceBitmap bitmap = new SequenceBitmap();
+        // Two full pages, an absent page, a partial page, and negative sequences
+        for (long sequence = 0; sequence < 8192; sequence++) {
+            bitmap.add(sequence);
+        }
+        bitmap.add(4096 * 3 + 5);
+        bitmap.add(-3);
+
+        List<SequenceGapIndex.SequenceRange> gaps = new ArrayList<>();
+        bitmap.forEachGap(Long.MAX_VALUE, (first, last) -> gaps.add(range(first, last)));
+
+        assertEquals(Arrays.asList(range(-2, -1), range(8192, 4096 * 3 + 4)), gaps);
+        assertEquals(2 + 4096 + 5, bitmap.countGaps(Long.MAX_VALUE));
+        assertTrue(bitmap.contains(100) && bitmap.contains(-3) && !bitmap.contains(8192));
+        assertFalse(bitmap.add(100));
+        long[] members = bitmap.toArray();
+        assertEquals(8194, members.length);
+        assertEquals(-3, members[0]);
+        assertEquals(8191, members[8192]);
+        assertEquals(4096 * 3 + 5, members[8193]);
+        // Only the partial pages hold words
+        assertEquals(2 * 512, bitmap.getBitmapBytes());
+    }
+
+    @Test
+    public void testRandomSequencesMatchSort() {
+        Random random = new Random(7);
+        SequenceGapIndex index = new SequenceGapIndex();
+        List<Long> sequences = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            long sequence = random.nextInt(120_000) - 10_000;
+            sequences.add(sequence);
+            index.add("V", sequence);
+        }
+
+        assertArrayEquals(missingBySort(sequences), index.getMissingSequences("V"));
+    }
+
+    @Test
+    public void testConcurrentIngestMatchesSequential() throws Exception {
+        List<DiagnosticReport> reports = generateReports(400_000, 200, 0.01, 3);
+
+        SequenceGapIndex sequential = new SequenceGapIndex(1);
+        sequential.addAll(reports);
+        SequenceGapIndex concurrent = indexConcurrently(reports, 4);
+
+        assertEquals(sequential.getVinsWithGaps(), concurrent.getVinsWithGaps());
+        for (int vin = 0; vin < 200; vin++) {
+            String key = "VIN" + vin;
+            assertEquals(sequential.getMissingRanges(key), concurrent.getMissingRanges(key));
+            assertEquals(sequential.getMissingCount(key), concurrent.getMissingCount(key));
+            assertEquals(sequential.getDuplicateCount(key), concurrent.getDuplicateCount(key));
+        }
+    }
+
+    @Test
+    public void testIndexVsLoadAndSort_PerformanceComparison() throws Exception {
+        List<DiagnosticReport> reports = generateReports(2_000_000, 1_000, 0.001, 5);
+
+        // Warm up
+        missingBySortPerVin(reports);
+        indexConcurrently(reports, 4);
+
+        long start = System.nanoTime();
+        long sortedMissing = missingBySortPerVin(reports);
+        long sortTime = (System.nanoTime() - start) / 1_000_000;
+
+        start = System.nanoTime();
+        SequenceGapIndex index = indexConcurrently(reports, 4);
+        long indexedMissing = 0;
+        for (String vin : index.getVinsWithGaps()) {
+            indexedMissing += index.getMissingRanges(vin).stream().mapToLong(SequenceGapIndex.SequenceRange::getLength).sum();
+        }
+        long indexTime = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.println("\n=== Sequence Gaps: " + reports.size() + " reports, 1000 VINs ===");
+        System.out.println("Collect, group and sort: " + sortTime + " ms");
+        System.out.println("SequenceGapIndex (4 threads): " + indexTime + " ms, "
+            + index.getBitmapBytes() / 1024 + " KB of bitmaps for " + reports.size() + " sequences");
+
+        assertEquals(sortedMissing, indexedMissing);
+        // Close to one bit per sequence: well under one byte per sequence, even with partial pages
+        assertTrue(index.getBitmapBytes() < reports.size());
+    }
+
+    private static SequenceGapIndex indexConcurrently(List<DiagnosticReport> reports, int threads) throws Exception {
+        SequenceGapIndex index = new SequenceGapIndex(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = offset; i < reports.size(); i += threads) {
+                        index.add(reports.get(i));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        return index;
+    }
+
+    /**
+     * Sequences 1..N per VIN in shuffled order, with a fraction dropped and a few duplicated.
+     */
+    private static List<DiagnosticReport> generateReports(int count, int vins, double dropRate, long seed) {
+        Random random = new Random(seed);
+        List<DiagnosticReport> reports = new ArrayList<>(count);
+        int perVin = count / vins;
+        for (int vin = 0; vin < vins; vin++) {
+            for (long sequence = 1; sequence <= perVin; sequence++) {
+                if (random.nextDouble() >= dropRate) {
+                    reports.add(new DiagnosticReport("VIN" + vin, sequence, "INITIAL_DIAGNOSTIC", sequence, "OK"));
+                }
+                if (random.nextInt(1000) == 0) {
+                    reports.add(new DiagnosticReport("VIN" + vin, sequence, "INITIAL_DIAGNOSTIC", sequence, "OK"));
+                }
+            }
+        }
+        Collections.shuffle(reports, random);
+        return reports;
+    }
+
+    /**
+     * Baseline: group every report by VIN, sort each group and scan it for gaps from sequence 1.
+     */
+    private static long missingBySortPerVin(List<DiagnosticReport> reports) {
+        List<DiagnosticReport> sorted = new ArrayList<>(reports);
+        sorted.sort((a, b) -> a.getVin().equals(b.getVin())
+            ? a.getSequenceId().compareTo(b.getSequenceId()) : a.getVin().compareTo(b.getVin()));
+        long missing = 0;
+        String vin = null;
+        long expected = 1;
+        for (DiagnosticReport report : sorted) {
+            if (!report.getVin().equals(vin)) {
+                vin = report.getVin();
+                expected = 1;
+            }
+            if (report.getSequenceId() >= expected) {
+                missing += report.getSequenceId() - expected;
+                expected = report.getSequenceId() + 1;
+            }
+        }
+        return missing;
+    }
+
+    private static long[] missingBySort(List<Long> sequences) {
+        long[] sorted = sequences.stream().mapToLong(Long::longValue).distinct().sorted().toArray();
+        List<Long> missing = new ArrayList<>();
+        for (int i = 1; i < sorted.length; i++) {
+            for (long sequence = sorted[i - 1] + 1; sequence < sorted[i]; sequence++) {
+                missing.add(sequence);
+            }
+        }
+        return missing.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static SequenceGapIndex.SequenceRange range(long first, long last) {
+        return new SequenceGapIndex.SequenceRange(first, last);
+    }
+}
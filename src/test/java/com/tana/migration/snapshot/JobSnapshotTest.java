@@ -0,0 +1,263 @@
+package com.tana.migration.snapshot;
+
+import com.tana.migration.mapper.CdmMapperImpl;
+import com.tana.migration.model.CompetitorJob;
+import com.tana.migration.model.JobDependency;
+import com.tana.migration.model.RmjJob;
+import com.tana.migration.parser.JsonCompetitorParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit and performance tests for JobSnapshotWriter and JobSnapshotReader.
+ */
+public class JobSnapshotTest {
+
+    private File tempDir;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("job-snapshot").toFile();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        File[] files = tempDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        tempDir.delete();
+    }
+
+    @Test
+    public void testCompetitorJobsRoundTrip() throws IOException {
+        CompetitorJob first = new CompetitorJob(-3, "Extract ✓");
+        first.setNotes("Nightly");
+        first.setSourceFile("a.json");
+        first.addDependency(new JobDependency(Integer.MIN_VALUE, "Success"));
+        first.addDependency(new JobDependency(null, null));
+        CompetitorJob second = new CompetitorJob(null, null);
+        CompetitorJob third = new CompetitorJob(Integer.MAX_VALUE, "Extract ✓");
+        third.setSourceFile("a.json");
+        third.addDependency(new JobDependency(-3, "Success"));
+        List<CompetitorJob> jobs = Arrays.asList(first, second, third);
+
+        String filePath = new File(tempDir, "jobs.snap").getPath();
+        JobSnapshotWriter.writeCompetitorJobs(filePath, jobs);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (JobSnapshotWriter writer = new JobSnapshotWriter(bytes, SnapshotKind.COMPETITOR_JOBS)) {
+            for (CompetitorJob job : jobs) {
+                writer.write(job);
+            }
+            assertEquals(3, writer.getCount());
+        }
+
+        List<CompetitorJob> mapped = JobSnapshotReader.readCompetitorJobs(filePath);
+        List<CompetitorJob> streamed;
+        try (JobSnapshotReader reader = new JobSnapshotReader(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertEquals(SnapshotKind.COMPETITOR_JOBS, reader.getKind());
+            streamed = reader.readAllCompetitorJobs();
+            assertNull(reader.readCompetitorJob());
+        }
+
+        for (List<CompetitorJob> loaded : Arrays.asList(mapped, streamed)) {
+            assertEquals(3, loaded.size());
+            for (int i = 0; i < jobs.size(); i++) {
+                assertEquals(jobs.get(i).getJobId(), loaded.get(i).getJobId());
+                assertEquals(jobs.get(i).getJobName(), loaded.get(i).getJobName());
+                assertEquals(jobs.get(i).getNotes(), loaded.get(i).getNotes());
+                assertEquals(jobs.get(i).getSourceFile(), loaded.get(i).getSourceFile());
+                assertEquals(jobs.get(i).getDependencies(), loaded.get(i).getDependencies());
+            }
+            assertEquals("Success", loaded.get(0).getDependencies().get(0).getStatus());
+            assertNull(loaded.get(0).getDependencies().get(1).getStatus());
+        }
+    }
+
+    @Test
+    public void testRmjJobsRoundTrip() throws Exception {
+        List<CompetitorJob> source = new ArrayList<>();
+        for (int i = 1; i <= 50; i++) {
+            CompetitorJob job = new CompetitorJob(i, "Job_" + i);
+            job.setNotes(i % 2 == 0 ? "Even" : null);
+            if (i > 1) {
+                job.addDependency(new JobDependency(i - 1, "Success"));
+            }
+            source.add(job);
+        }
+        List<RmjJob> jobs = new CdmMapperImpl().mapToRmj(source);
+        jobs.get(0).setTriggerType("TIME");
+
+        String filePath = new File(tempDir, "rmj.snap").getPath();
+        JobSnapshotWriter.writeRmjJobs(filePath, jobs);
+        List<RmjJob> mapped = JobSnapshotReader.readRmjJobs(filePath);
+        List<RmjJob> streamed;
+        try (JobSnapshotReader reader = new JobSnapshotReader(new FileInputStream(filePath))) {
+            streamed = reader.readAllRmjJobs();
+        }
+
+        for (List<RmjJob> loaded : Arrays.asList(mapped, streamed)) {
+            assertEquals(jobs.size(), loaded.size());
+            for (int i = 0; i < jobs.size(); i++) {
+                assertEquals(jobs.get(i).getJobId(), loaded.get(i).getJobId());
+                assertEquals(jobs.get(i).getJobName(), loaded.get(i).getJobName());
+                assertEquals(jobs.get(i).getNotes(), loaded.get(i).getNotes());
+                assertEquals(jobs.get(i).getTriggerType(), loaded.get(i).getTriggerType());
+                assertEquals(jobs.get(i).getDependencyJobIds(), loaded.get(i).getDependencyJobIds());
+            }
+        }
+    }
+
+    @Test
+    public void testEmptySnapshot() throws IOException {
+        String filePath = new File(tempDir, "empty.snap").getPath();
+        JobSnapshotWriter.writeRmjJobs(filePath, new ArrayList<>());
+
+        assertTrue(JobSnapshotReader.readRmjJobs(filePath).isEmpty());
+    }
+
+    @Test
+    public void testTruncatedSnapshotIsRejected() throws IOException {
+        String filePath = new File(tempDir, "truncated.snap").getPath();
+        List<CompetitorJob> jobs = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            jobs.add(new CompetitorJob(i, "Job_" + i));
+        }
+        JobSnapshotWriter.writeCompetitorJobs(filePath, jobs);
+        try (RandomAccessFile file = new RandomAccessFile(filePath, "rw")) {
+            file.setLength(file.length() - 1);
+        }
+
+        assertThrows(IOException.class, () -> JobSnapshotReader.readCompetitorJobs(filePath));
+    }
+
+    @Test
+    public void testCorruptCountsAreRejectedWithoutAllocating() throws IOException {
+        // A record whose dependency count, then whose job name length, is near Integer.MAX_VALUE
+        byte[] hugeDependencyCount = snapshot(0x01, 0x00, 0x00, 0x00, 0x00, 0xFE, 0xFF, 0xFF, 0xFF, 0x07);
+        byte[] hugeNameLength = snapshot(0x01, 0x00, 0x01, 0xFE, 0xFF, 0xFF, 0xFF, 0x07, 'A');
+        for (byte[] content : Arrays.asList(hugeDependencyCount, hugeNameLength)) {
+            File file = new File(tempDir, "corrupt.snap");
+            Files.write(file.toPath(), content);
+
+            IOException mapped = assertThrows(IOException.class, () -> JobSnapshotReader.readCompetitorJobs(file.getPath()));
+            assertTrue(mapped.getMessage().startsWith("Corrupt snapshot"), mapped.getMessage());
+            assertThrows(IOException.class, () -> readStreamed(file.getPath()));
+        }
+    }
+
+    @Test
+    public void testWrongKindIsRejected() throws IOException {
+        String filePath = new File(tempDir, "jobs.snap").getPath();
+        JobSnapshotWriter.writeCompetitorJobs(filePath, Arrays.asList(new CompetitorJob(1, "A")));
+
+        assertThrows(IOException.class, () -> JobSnapshotReader.readRmjJobs(filePath));
+        try (JobSnapshotWriter writer = new JobSnapshotWriter(new ByteArrayOutputStream(), SnapshotKind.RMJ_JOBS)) {
+            assertThrows(IllegalStateException.class, () -> writer.write(new CompetitorJob(1, "A")));
+        }
+    }
+
+    @Test
+    public void testNotASnapshotIsRejected() throws IOException {
+        File json = new File(tempDir, "jobs.json");
+        try (FileWriter writer = new FileWriter(json)) {
+            writer.write("[{\"job_id\": 1}]");
+        }
+
+        IOException e = assertThrows(IOException.class, () -> JobSnapshotReader.readCompetitorJobs(json.getPath()));
+        assertEquals("Not a job snapshot", e.getMessage());
+    }
+
+    @Test
+    public void testSnapshotVsJsonReload_PerformanceComparison() throws Exception {
+        File json = new File(tempDir, "export.json");
+        try (FileWriter writer = new FileWriter(json)) {
+            writer.write('[');
+            for (int i = 0; i < 100_000; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write("{\"job_id\": " + i + ", \"job_name\": \"Job_" + i + "\", \"notes\": \"Batch "
+                    + i % 7 + "\", \"dependencies\": [");
+                if (i > 0) {
+                    writer.write("{\"job_id\": " + (i - 1) + ", \"status\": \"Success\"}");
+                }
+                writer.write("]}");
+            }
+            writer.write(']');
+        }
+        JsonCompetitorParser parser = new JsonCompetitorParser();
+        List<CompetitorJob> jobs = parser.parse(json.getPath());
+        String snapshot = new File(tempDir, "export.snap").getPath();
+        JobSnapshotWriter.writeCompetitorJobs(snapshot, jobs);
+
+        // Warm up
+        for (int i = 0; i < 3; i++) {
+            parser.parse(json.getPath());
+            JobSnapshotReader.readCompetitorJobs(snapshot);
+            readStreamed(snapshot);
+        }
+
+        long start = System.nanoTime();
+        parser.parse(json.getPath());
+        long jsonTime = (System.nanoTime() - start) / 1_000_000;
+
+        start = System.nanoTime();
+        List<CompetitorJob> streamed = readStreamed(snapshot);
+        long streamTime = (System.nanoTime() - start) / 1_000_000;
+
+        start = System.nanoTime();
+        List<CompetitorJob> mapped = JobSnapshotReader.readCompetitorJobs(snapshot);
+        long mappedTime = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.println("\n=== Snapshot Reload: " + jobs.size() + " jobs ===");
+        System.out.println("JSON export:       " + json.length() / 1024 + " KB, " + jsonTime + " ms");
+        System.out.println("Snapshot streamed: " + new File(snapshot).length() / 1024 + " KB, " + streamTime + " ms");
+        System.out.println("Snapshot mapped:   " + mappedTime + " ms");
+
+        assertEquals(jobs.size(), streamed.size());
+        assertEquals(jobs.size(), mapped.size());
+        assertEquals(jobs.get(99_999).getDependencies(), mapped.get(99_999).getDependencies());
+        assertTrue(new File(snapshot).length() < json.length() / 2);
+    }
+
+    /**
+     * @return Competitor job snapshot header followed by the given bytes
+     */
+    private static byte[] snapshot(int... body) {
+        byte[] content = new byte[6 + body.length];
+        content[0] = 'J';
+        content[1] = 'S';
+        content[2] = 'N';
+        content[3] = 'P';
+        content[4] = (byte) JobSnapshotWriter.VERSION;
+        content[5] = (byte) SnapshotKind.COMPETITOR_JOBS.getCode();
+        for (int i = 0; i < body.length; i++) {
+            content[6 + i] = (byte) body[i];
+        }
+        return content;
+    }
+
+    private static List<CompetitorJob> readStreamed(String filePath) throws IOException {
+        try (JobSnapshotReader reader = new JobSnapshotReader(new FileInputStream(filePath))) {
+            return reader.readAllCompetitorJobs();
+        }
+    }
+}
@@ -0,0 +1,588 @@
+package com.tana.migration.util;
+
+import com.tana.migration.exception.InvalidJobDataException;
+import com.tana.migration.factory.ContentSniffingParserFactory;
+import com.tana.migration.model.CompetitorJob;
+import com.tana.migration.parser.JsonCompetitorParser;
+import com.tana.migration.parser.NdjsonCompetitorParser;
+import com.tana.migration.parser.XmlCompetitorParser;
+import io.airlift.compress.zstd.ZstdCompressor;
+import io.airlift.compress.zstd.ZstdOutputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit and performance tests for CompressedInput, ReadAheadGzipInputStream and ReadAheadZstdInputStream.
+ * Decompressed content and parse results are compared with the uncompressed originals.
+ */
+public class CompressedInputTest {
+
+    private File tempDir;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("compressed-input").toFile();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        File[] files = tempDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        tempDir.delete();
+    }
+
+    @Test
+    public void testDetect() throws IOException {
+        assertEquals(Compression.NONE, CompressedInput.detect(writeFile("plain.json", "[]".getBytes(StandardCharsets.UTF_8))));
+        assertEquals(Compression.GZIP, CompressedInput.detect(writeFile("data.gz", gzip(sampleData(10)))));
+        assertEquals(Compression.ZSTD, CompressedInput.detect(writeFile("data.zst", new byte[] {0x28, (byte) 0xB5, 0x2F, (byte) 0xFD, 0})));
+        assertEquals(Compression.NONE, CompressedInput.detect(writeFile("empty", new byte[0])));
+    }
+
+    @Test
+    public void testPlainFilePassesThrough() throws IOException {
+        byte[] data = sampleData(1_000);
+        String filePath = writeFile("plain.txt", data);
+
+        assertArrayEquals(data, readAll(CompressedInput.open(filePath)));
+        assertArrayEquals(new byte[0], readAll(CompressedInput.open(writeFile("empty.txt", new byte[0]))));
+    }
+
+    @Test
+    public void testGzipMultiMember() throws IOException {
+        byte[] first = sampleData(20_000);
+        byte[] second = sampleData(5_000);
+        ByteArrayOutputStream members = new ByteArrayOutputStream();
+        members.write(gzip(first));
+        members.write(gzip(second));
+        String filePath = writeFile("members.gz", members.toByteArray());
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write(first);
+        expected.write(second);
+        assertArrayEquals(expected.toByteArray(), readAll(CompressedInput.open(filePath)));
+        assertArrayEquals(expected.toByteArray(), readAll(CompressedInput.openInline(filePath)));
+    }
+
+    @Test
+    public void testBlockIndexedMembersInflatedInParallel() throws IOException {
+        byte[] data = sampleData(50_000);
+        String filePath = writeFile("blocks.gz", blockGzip(data, 16 * 1024));
+        ExecutorService inflaters = Executors.newFixedThreadPool(4);
+        try {
+            byte[] actual;
+            try (InputStream in = new ReadAheadGzipInputStream(Files.newInputStream(new File(filePath).toPath()), inflaters, 2)) {
+                actual = readAll(in);
+            }
+            assertArrayEquals(data, actual);
+        } finally {
+            inflaters.shutdown();
+        }
+        assertArrayEquals(data, readAll(CompressedInput.open(filePath)));
+    }
+
+    @Test
+    public void testCorruptBlockFails() throws IOException {
+        byte[] compressed = blockGzip(sampleData(5_000), 4 * 1024);
+        // First block's CRC
+        int firstBlockSize = ((compressed[16] & 0xFF) | (compressed[17] & 0xFF) << 8) + 1;
+        compressed[firstBlockSize - 8] ^= 0x01;
+        String filePath = writeFile("corrupt.gz", compressed);
+
+        IOException e = assertThrows(IOException.class, () -> readAll(CompressedInput.open(filePath)));
+        assertTrue(e.getMessage().contains("CRC"));
+    }
+
+    @Test
+    public void testTruncatedInputFails() throws IOException {
+        byte[] blocks = blockGzip(sampleData(5_000), 4 * 1024);
+        byte[] plain = gzip(sampleData(5_000));
+
+        String truncatedBlocks = writeFile("truncated_blocks.gz", Arrays.copyOf(blocks, blocks.length / 2));
+        String truncatedPlain = writeFile("truncated.gz", Arrays.copyOf(plain, plain.length / 2));
+
+        assertThrows(IOException.class, () -> readAll(CompressedInput.open(truncatedBlocks)));
+        assertThrows(IOException.class, () -> readAll(CompressedInput.open(truncatedPlain)));
+    }
+
+    @Test
+    public void testPlainMembersInflatedInParallel() throws IOException {
+        // Stored members hold a gzip header in their compressed bytes, which must not be taken for a member
+        byte[] headerLike = {0x1F, (byte) 0x8B, 8, 0, 0, 0, 0, 0, 0, (byte) 0xFF, 'x', 'y'};
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        ByteArrayOutputStream members = new ByteArrayOutputStream();
+        for (int i = 0; i < 40; i++) {
+            byte[] data = i % 3 == 0 ? concat(headerLike, sampleData(100 + i)) : sampleData(2_000 + i);
+            expected.write(data);
+            members.write(i % 3 == 0 ? storedGzip(data) : gzip(data));
+        }
+        // A member with a name, and one too large to be inflated in parallel
+        byte[] named = sampleData(500);
+        byte[] large = sampleData(400_000);
+        expected.write(named);
+        expected.write(large);
+        members.write(namedGzip(named, "part.json"));
+        members.write(gzip(large));
+        members.write(gzip(sampleData(10)));
+        expected.write(sampleData(10));
+        String filePath = writeFile("members.gz", members.toByteArray());
+
+        AtomicInteger tasks = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        Executor inflaters = task -> {
+            tasks.incrementAndGet();
+            pool.execute(task);
+        };
+        try {
+            byte[] actual;
+            try (InputStream in = new ReadAheadGzipInputStream(Files.newInputStream(new File(filePath).toPath()), inflaters, 4)) {
+                actual = readAll(in);
+            }
+            assertArrayEquals(expected.toByteArray(), actual);
+            assertTrue(tasks.get() >= 40, "Members were not inflated on the executor: " + tasks.get());
+        } finally {
+            pool.shutdown();
+        }
+        assertArrayEquals(expected.toByteArray(), readAll(CompressedInput.open(filePath)));
+        assertArrayEquals(expected.toByteArray(), readAll(CompressedInput.openInline(filePath)));
+    }
+
+    @Test
+    public void testTrailingBytesAfterMembersIgnored() throws IOException {
+        byte[] data = sampleData(3_000);
+        ByteArrayOutputStream members = new ByteArrayOutputStream();
+        members.write(gzip(data));
+        members.write(gzip(data));
+        members.write(new byte[] {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0});
+        String filePath = writeFile("padded.gz", members.toByteArray());
+
+        byte[] expected = readAll(new GZIPInputStream(Files.newInputStream(new File(filePath).toPath())));
+        assertEquals(2 * data.length, expected.length);
+        assertArrayEquals(expected, readAll(CompressedInput.open(filePath)));
+    }
+
+    @Test
+    public void testCorruptPlainMemberFails() throws IOException {
+        byte[] first = gzip(sampleData(2_000));
+        byte[] second = gzip(sampleData(3_000));
+        // Second member's CRC
+        second[second.length - 8] ^= 0x01;
+        String filePath = writeFile("corrupt_members.gz", concat(first, second));
+
+        IOException e = assertThrows(IOException.class, () -> readAll(CompressedInput.open(filePath)));
+        assertTrue(e.getMessage().contains("CRC"));
+    }
+
+    @Test
+    public void testZstdFramesDecodedInParallel() throws IOException {
+        byte[] data = sampleData(60_000);
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        frames.write(zstdFrames(data, 0, data.length / 2, 64 * 1024));
+        // Skippable frame, as written by pzstd
+        frames.write(new byte[] {0x50, 0x2A, 0x4D, 0x18, 3, 0, 0, 0, 1, 2, 3});
+        frames.write(zstdFrames(data, data.length / 2, data.length, 64 * 1024));
+        String filePath = writeFile("frames.zst", frames.toByteArray());
+
+        AtomicInteger tasks = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        Executor decoders = task -> {
+            tasks.incrementAndGet();
+            pool.execute(task);
+        };
+        try {
+            byte[] actual;
+            try (InputStream in = new ReadAheadZstdInputStream(Files.newInputStream(new File(filePath).toPath()), decoders, 2)) {
+                actual = readAll(in);
+            }
+            assertArrayEquals(data, actual);
+            int half = data.length / 2;
+            int frameSize = 64 * 1024;
+            assertEquals((half + frameSize - 1) / frameSize + (data.length - half + frameSize - 1) / frameSize, tasks.get());
+        } finally {
+            pool.shutdown();
+        }
+        assertArrayEquals(data, readAll(CompressedInput.open(filePath)));
+        assertArrayEquals(data, readAll(CompressedInput.openInline(filePath)));
+    }
+
+    @Test
+    public void testLargeZstdFrameDecodedInChunks() throws IOException {
+        byte[] data = sampleData(500_000);
+        String single = writeFile("single.zst", zstdFrames(data, 0, data.length, data.length));
+        String streamed = writeFile("streamed.zst", zstd(data));
+
+        assertArrayEquals(data, readAll(CompressedInput.open(single)));
+        assertArrayEquals(data, readAll(CompressedInput.open(streamed)));
+        assertArrayEquals(data, readAll(CompressedInput.openInline(streamed)));
+    }
+
+    @Test
+    public void testCorruptZstdFails() throws IOException {
+        byte[] frames = zstdFrames(sampleData(5_000), 0, sampleData(5_000).length, 16 * 1024);
+        byte[] corrupt = frames.clone();
+        corrupt[corrupt.length - 20] ^= 0x55;
+        String corruptFile = writeFile("corrupt.zst", corrupt);
+        String truncatedFile = writeFile("truncated.zst", Arrays.copyOf(frames, frames.length / 2));
+        String trailingFile = writeFile("trailing.zst", concat(frames, new byte[] {1, 2, 3, 4}));
+
+        for (String filePath : Arrays.asList(corruptFile, truncatedFile, trailingFile)) {
+            assertThrows(IOException.class, () -> readAll(CompressedInput.open(filePath)), filePath);
+            assertThrows(IOException.class, () -> readAll(CompressedInput.openInline(filePath)), filePath);
+        }
+        assertThrows(InvalidJobDataException.class, () -> new JsonCompetitorParser().parse(corruptFile));
+    }
+
+    @Test
+    public void testCloseBeforeEndStopsReadAhead() throws IOException {
+        String filePath = writeFile("large.gz", gzip(sampleData(500_000)));
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            InputStream in = CompressedInput.open(filePath);
+            assertTrue(in.read() >= 0);
+            in.close();
+            assertThrows(IOException.class, in::read);
+        });
+    }
+
+    @Test
+    public void testInterruptedReaderStopsAtNextRead() throws IOException {
+        String filePath = writeFile("plain.txt", sampleData(1_000));
+
+        try (InputStream in = CompressedInput.open(filePath)) {
+            assertTrue(in.read() >= 0);
+            Thread.currentThread().interrupt();
+            try {
+                assertThrows(InterruptedIOException.class, () -> in.read(new byte[64]));
+            } finally {
+                assertTrue(Thread.interrupted());
+            }
+            assertTrue(in.read() >= 0);
+        }
+    }
+
+    @Test
+    public void testParsersReadCompressedFiles() throws Exception {
+        String jobs = jobArray(500);
+        String json = writeFile("jobs.json", jobs.getBytes(StandardCharsets.UTF_8));
+        String gzipJson = writeFile("jobs.json.gz", blockGzip(jobs.getBytes(StandardCharsets.UTF_8), 4 * 1024));
+        String zstdJson = writeFile("jobs.json.zst", zstd(jobs.getBytes(StandardCharsets.UTF_8)));
+        String xml = "<ProcessChain><Job id=\"1\" name=\"A\"/><Job id=\"2\" name=\"B\" dependsOn=\"1\"/></ProcessChain>";
+        String gzipXml = writeFile("chain.xml.gz", gzip(xml.getBytes(StandardCharsets.UTF_8)));
+        String gzipLines = writeFile("jobs.ndjson.gz", gzip("{\"job_id\": 1, \"job_name\": \"A\"}\n{\"job_id\": 2, \"job_name\": \"B\"}\n"
+            .getBytes(StandardCharsets.UTF_8)));
+
+        JsonCompetitorParser parser = new JsonCompetitorParser();
+        List<CompetitorJob> expected = parser.parseAndValidate(json);
+        List<CompetitorJob> actual = parser.parseAndValidate(gzipJson);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getJobId(), actual.get(i).getJobId());
+            assertEquals(expected.get(i).getJobName(), actual.get(i).getJobName());
+        }
+        List<CompetitorJob> fromZstd = parser.parseAndValidate(zstdJson);
+        assertEquals(expected.size(), fromZstd.size());
+        assertEquals(expected.get(expected.size() - 1).getJobId(), fromZstd.get(fromZstd.size() - 1).getJobId());
+        assertEquals(2, new XmlCompetitorParser().parseAndValidate(gzipXml).size());
+        assertEquals(2, new NdjsonCompetitorParser().parseAndValidate(gzipLines).size());
+
+        ContentSniffingParserFactory factory = new ContentSniffingParserFactory();
+        assertTrue(factory.createParser(gzipJson) instanceof JsonCompetitorParser);
+        assertTrue(factory.createParser(zstdJson) instanceof JsonCompetitorParser);
+        assertTrue(factory.createParser(gzipXml) instanceof XmlCompetitorParser);
+        assertTrue(factory.createParser(gzipLines) instanceof NdjsonCompetitorParser);
+        // Compressed files are parsed whole
+        assertTrue(new NdjsonCompetitorParser().split(gzipLines, 1).isEmpty());
+    }
+
+    @Test
+    public void testDecompressToDiskVsDirect_PerformanceComparison() throws Exception {
+        byte[] jobs = jobArray(200_000).getBytes(StandardCharsets.UTF_8);
+        String gzipFile = writeFile("perf.json.gz", gzip(jobs));
+        String blockFile = writeFile("perf_blocks.json.gz", blockGzip(jobs, 60 * 1024));
+        String membersFile = writeFile("perf_members.json.gz", gzipMembers(jobs, 1024 * 1024));
+        String zstdFile = writeFile("perf.json.zst", zstd(jobs));
+        String framesFile = writeFile("perf_frames.json.zst", zstdFrames(jobs, 0, jobs.length, 1024 * 1024));
+        String copy = new File(tempDir, "perf_copy.json").getPath();
+        JsonCompetitorParser parser = new JsonCompetitorParser();
+
+        // Warm up
+        parser.parse(decompressToDisk(gzipFile, copy));
+        parser.parse(gzipFile);
+        parser.parse(blockFile);
+        parser.parse(membersFile);
+        parser.parse(zstdFile);
+        parser.parse(framesFile);
+
+        // Best of three runs each, to keep GC pauses out of the comparison
+        long toDiskTime = Long.MAX_VALUE;
+        long directTime = Long.MAX_VALUE;
+        long blockTime = Long.MAX_VALUE;
+        long membersTime = Long.MAX_VALUE;
+        long zstdTime = Long.MAX_VALUE;
+        long framesTime = Long.MAX_VALUE;
+        int toDiskJobs = 0;
+        int directJobs = 0;
+        int blockJobs = 0;
+        int membersJobs = 0;
+        int zstdJobs = 0;
+        int framesJobs = 0;
+        for (int run = 0; run < 3; run++) {
+            long start = System.nanoTime();
+            toDiskJobs = parser.parse(decompressToDisk(gzipFile, copy)).size();
+            toDiskTime = Math.min(toDiskTime, (System.nanoTime() - start) / 1_000_000);
+
+            start = System.nanoTime();
+            directJobs = parser.parse(gzipFile).size();
+            directTime = Math.min(directTime, (System.nanoTime() - start) / 1_000_000);
+
+            start = System.nanoTime();
+            blockJobs = parser.parse(blockFile).size();
+            blockTime = Math.min(blockTime, (System.nanoTime() - start) / 1_000_000);
+
+            start = System.nanoTime();
+            membersJobs = parser.parse(membersFile).size();
+            membersTime = Math.min(membersTime, (System.nanoTime() - start) / 1_000_000);
+
+            start = System.nanoTime();
+            zstdJobs = parser.parse(zstdFile).size();
+            zstdTime = Math.min(zstdTime, (System.nanoTime() - start) / 1_000_000);
+
+            start = System.nanoTime();
+            framesJobs = parser.parse(framesFile).size();
+            framesTime = Math.min(framesTime, (System.nanoTime() - start) / 1_000_000);
+        }
+
+        System.out.println("\n=== Compressed Input: " + jobs.length / 1024 + " KB JSON, "
+            + new File(gzipFile).length() / 1024 + " KB gzip ===");
+        System.out.println("Decompress to disk, then parse: " + toDiskTime + " ms");
+        System.out.println("Parse gzip with read-ahead:     " + directTime + " ms");
+        System.out.println("Parse block-indexed gzip:       " + blockTime + " ms");
+        System.out.println("Parse multi-member gzip:        " + membersTime + " ms");
+        System.out.println("Parse zstd, single frame:       " + zstdTime + " ms");
+        System.out.println("Parse zstd, 1 MB frames:        " + framesTime + " ms ("
+            + Runtime.getRuntime().availableProcessors() + " CPUs)");
+
+        assertEquals(200_000, toDiskJobs);
+        assertEquals(toDiskJobs, directJobs);
+        assertEquals(toDiskJobs, blockJobs);
+        assertEquals(toDiskJobs, membersJobs);
+        assertEquals(toDiskJobs, zstdJobs);
+        assertEquals(toDiskJobs, framesJobs);
+    }
+
+    private String decompressToDisk(String gzipFile, String target) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(new File(gzipFile).toPath()), 64 * 1024);
+             OutputStream out = new FileOutputStream(target)) {
+            byte[] buffer = new byte[64 * 1024];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+        }
+        return target;
+    }
+
+    private static String jobArray(int count) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 1; i <= count; i++) {
+            if (i > 1) {
+                json.append(",\n");
+            }
+            json.append("{\"job_id\": ").append(i).append(", \"job_name\": \"Job_").append(i)
+                .append("\", \"notes\": \"Batch ").append(i % 5).append("\", \"dependencies\": [");
+            if (i > 1) {
+                json.append("{\"job_id\": ").append(i - 1).append(", \"status\": \"Success\"}");
+            }
+            json.append("]}");
+        }
+        return json.append("]").toString();
+    }
+
+    private static byte[] sampleData(int lines) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            text.append("line ").append(i).append(' ').append(Integer.toHexString(i * 31)).append('\n');
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(data);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes data as plain gzip members of at most memberSize input bytes, as concatenated gzip files are.
+     */
+    private static byte[] gzipMembers(byte[] data, int memberSize) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int offset = 0; offset < data.length; offset += memberSize) {
+            out.write(gzip(Arrays.copyOfRange(data, offset, Math.min(data.length, offset + memberSize))));
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes data as one gzip member of stored (uncompressed) deflate blocks.
+     */
+    private static byte[] storedGzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new byte[] {0x1F, (byte) 0x8B, 8, 0, 0, 0, 0, 0, 0, (byte) 0xFF}, 0, 10);
+        writeDeflated(out, data, Deflater.NO_COMPRESSION);
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes data as one gzip member whose header records a file name.
+     */
+    private static byte[] namedGzip(byte[] data, String name) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new byte[] {0x1F, (byte) 0x8B, 8, 0x08, 0, 0, 0, 0, 0, 3}, 0, 10);
+        byte[] nameBytes = name.getBytes(StandardCharsets.ISO_8859_1);
+        out.write(nameBytes, 0, nameBytes.length);
+        out.write(0);
+        writeDeflated(out, data, Deflater.DEFAULT_COMPRESSION);
+        return out.toByteArray();
+    }
+
+    private static void writeDeflated(ByteArrayOutputStream out, byte[] data, int level) {
+        Deflater deflater = new Deflater(level, true);
+        deflater.setInput(data);
+        deflater.finish();
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        deflater.end();
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        writeInt(out, (int) crc.getValue());
+        writeInt(out, data.length);
+    }
+
+    /**
+     * Writes data as a Zstandard stream, as the zstd command does.
+     */
+    private static byte[] zstd(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZstdOutputStream out = new ZstdOutputStream(bytes)) {
+            out.write(data);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes a range of data as independent Zstandard frames of at most frameSize input bytes, each recording
+     * its decoded size, as pzstd does.
+     */
+    private static byte[] zstdFrames(byte[] data, int from, int to, int frameSize) {
+        ZstdCompressor compressor = new ZstdCompressor();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int offset = from; offset < to; offset += frameSize) {
+            int length = Math.min(frameSize, to - offset);
+            byte[] frame = new byte[compressor.maxCompressedLength(length)];
+            int frameLength = compressor.compress(data, offset, length, frame, 0, frame.length);
+            out.write(frame, 0, frameLength);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] bytes = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, bytes, first.length, second.length);
+        return bytes;
+    }
+
+    /**
+     * Writes data as gzip members of at most blockSize input bytes, each recording its size
+     * in a "BC" extra field, followed by an empty end-of-file member (the BGZF layout).
+     */
+    private static byte[] blockGzip(byte[] data, int blockSize) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int offset = 0; offset < data.length; offset += blockSize) {
+            writeBlock(out, data, offset, Math.min(blockSize, data.length - offset));
+        }
+        writeBlock(out, data, 0, 0);
+        return out.toByteArray();
+    }
+
+    private static void writeBlock(ByteArrayOutputStream out, byte[] data, int offset, int length) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(data, offset, length);
+        deflater.finish();
+        byte[] compressed = new byte[length + 1024];
+        int compressedLength = 0;
+        while (!deflater.finished()) {
+            compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+        }
+        deflater.end();
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, length);
+
+        int totalSize = 18 + compressedLength + 8;
+        out.write(new byte[] {0x1F, (byte) 0x8B, 8, 4, 0, 0, 0, 0, 0, (byte) 0xFF, 6, 0, 'B', 'C', 2, 0}, 0, 16);
+        writeShort(out, totalSize - 1);
+        out.write(compressed, 0, compressedLength);
+        writeInt(out, (int) crc.getValue());
+        writeInt(out, length);
+    }
+
+    private static void writeShort(ByteArrayOutputStream out, int value) {
+        out.write(value & 0xFF);
+        out.write(value >>> 8 & 0xFF);
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        writeShort(out, value & 0xFFFF);
+        writeShort(out, value >>> 16);
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try (InputStream stream = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = stream.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private String writeFile(String name, byte[] content) throws IOException {
+        File file = new File(tempDir, name);
+        Files.write(file.toPath(), content);
+        return file.getPath();
+    }
+}
@@ -0,0 +1,178 @@
+package com.tana.migration.util;
+
+import com.tana.migration.service.ConcurrentFileParserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit and performance tests for IoThrottle and ThrottledInputStream.
+ * Parsing with the default throttle capped is compared with parsing at full speed.
+ */
+public class IoThrottleTest {
+
+    private File tempDir;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("io-throttle").toFile();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        IoThrottle.getDefault().setUnlimited();
+        File[] files = tempDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        tempDir.delete();
+    }
+
+    @Test
+    public void testBytesPerSecondAfterBurst() throws IOException {
+        IoThrottle throttle = new IoThrottle(1024 * 1024, IoThrottle.UNLIMITED, 100 * 1024, 1);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 75; i++) {
+            throttle.acquire(8 * 1024);
+        }
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+        // 600 KB with a 100 KB burst at 1 MB/s: about 490 ms
+        assertTrue(elapsed >= 400 && elapsed < 2_000, "Took " + elapsed + " ms");
+        assertTrue(throttle.getThrottledNanos() > 0);
+    }
+
+    @Test
+    public void testOperationsPerSecondAfterBurst() throws IOException {
+        IoThrottle throttle = new IoThrottle(IoThrottle.UNLIMITED, 200, 1, 10);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 60; i++) {
+            throttle.acquire(1);
+        }
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+        // 60 reads with a burst of 10 at 200 per second: about 250 ms
+        assertTrue(elapsed >= 200 && elapsed < 2_000, "Took " + elapsed + " ms");
+    }
+
+    @Test
+    public void testLimitsChangeWhileRunning() throws IOException {
+        IoThrottle throttle = new IoThrottle(IoThrottle.UNLIMITED, IoThrottle.UNLIMITED);
+        assertTrue(throttle.isUnlimited());
+        throttle.acquire(Long.MAX_VALUE / 2);
+
+        throttle.setLimits(1024, IoThrottle.UNLIMITED, 1024, 1);
+        assertFalse(throttle.isUnlimited());
+        throttle.acquire(1024);
+        Thread.currentThread().interrupt();
+        try {
+            // In debt, so the read waits and is interrupted
+            assertThrows(InterruptedIOException.class, () -> throttle.acquire(1024));
+        } finally {
+            assertTrue(Thread.interrupted());
+        }
+
+        throttle.setUnlimited();
+        long start = System.nanoTime();
+        throttle.acquire(1024 * 1024);
+        assertTrue(System.nanoTime() - start < 100_000_000);
+        assertThrows(IllegalArgumentException.class, () -> throttle.setLimits(0, 1));
+    }
+
+    @Test
+    public void testThrottledStreamAccountsEveryRead() throws IOException {
+        String filePath = writeJobs("jobs.json", 0, 2_000);
+        long size = new File(filePath).length();
+        IoThrottle.getDefault().setLimits(size / 2, IoThrottle.UNLIMITED, size / 4, 1);
+
+        long start = System.nanoTime();
+        try (InputStream in = CompressedInput.open(filePath)) {
+            byte[] buffer = new byte[8192];
+            while (in.read(buffer) > 0) {
+                // Drain
+            }
+        }
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+        // The file takes two seconds at the rate; the burst covers a quarter of it
+        assertTrue(elapsed >= 1_300, "Took " + elapsed + " ms");
+    }
+
+    @Test
+    public void testCappedVsFullSpeed_PerformanceComparison() throws IOException {
+        List<String> files = new ArrayList<>();
+        long totalBytes = 0;
+        for (int i = 0; i < 40; i++) {
+            String file = writeJobs("batch_" + i + ".json", i * 10_000, 2_000);
+            files.add(file);
+            totalBytes += new File(file).length();
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+        long cap = totalBytes;
+
+        ConcurrentFileParserService service = new ConcurrentFileParserService(cores * 2);
+        try {
+            // Warm up
+            service.parseFiles(files);
+
+            long start = System.nanoTime();
+            ConcurrentFileParserService.ParsingResult fullSpeed = service.parseFiles(files);
+            long fullSpeedTime = (System.nanoTime() - start) / 1_000_000;
+
+            // Business hours: capped at the batch size per second, with a tenth of a second of burst
+            IoThrottle.getDefault().setLimits(cap, 500, cap / 10, 50);
+            start = System.nanoTime();
+            ConcurrentFileParserService.ParsingResult capped = service.parseFiles(files);
+            long cappedTime = (System.nanoTime() - start) / 1_000_000;
+
+            System.out.println("\n=== I/O Throttle: " + files.size() + " files, " + totalBytes / 1024 + " KB, "
+                + cores * 2 + " threads ===");
+            System.out.println("Full speed: " + fullSpeedTime + " ms ("
+                + totalBytes * 1000 / Math.max(1, fullSpeedTime) / 1024 + " KB/s)");
+            System.out.println("Capped at " + cap / 1024 + " KB/s and 500 reads/s: " + cappedTime + " ms ("
+                + totalBytes * 1000 / Math.max(1, cappedTime) / 1024 + " KB/s), waited "
+                + IoThrottle.getDefault().getThrottledNanos() / 1_000_000 + " ms in total");
+
+            assertEquals(fullSpeed.getTotalJobsParsed(), capped.getTotalJobsParsed());
+            assertFalse(capped.hasErrors());
+            // The burst covers a tenth of the batch, the rest takes at least 0.9 s at the byte rate;
+            // with parsers reading 8 KB at a time, the read rate is the tighter limit
+            assertTrue(cappedTime >= 700, "Capped run took " + cappedTime + " ms");
+        } finally {
+            IoThrottle.getDefault().setUnlimited();
+            service.shutdown();
+        }
+    }
+
+    private String writeJobs(String fileName, int firstJobId, int jobCount) throws IOException {
+        File file = new File(tempDir, fileName);
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write('[');
+            for (int i = 0; i < jobCount; i++) {
+                if (i > 0) {
+                    writer.write(",\n");
+                }
+                int jobId = firstJobId + i;
+                writer.write("{\"job_id\": " + jobId + ", \"job_name\": \"Job_" + jobId
+                    + "\", \"dependencies\": [], \"notes\": \"Nightly batch\"}");
+            }
+            writer.write(']');
+        }
+        return file.getPath();
+    }
+}